@@ -0,0 +1,126 @@
+package org.apache.helix.model;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measure the copies of an IdealState made by the pipeline: a copy that is only read, a copy with
+ * a changed simple field, and a copy with a changed assignment. The copies share the field maps of
+ * the source record until they change them. eagerCopy copies all the field maps as the copy
+ * constructor of ZNRecord used to, for comparison. Run with "-prof gc" to see the allocation of
+ * each copy.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class HelixPropertyCopyBenchmark {
+  @Param({"64", "1024", "8192"})
+  public int _partitionCount;
+
+  @Param({"3"})
+  public int _replicaCount;
+
+  @Param({"50"})
+  public int _instanceCount;
+
+  private ZNRecord _record;
+  private String _firstPartition;
+
+  @Setup
+  public void setUp() {
+    IdealState idealState = new IdealState("TestDB");
+    idealState.setRebalanceMode(IdealState.RebalanceMode.SEMI_AUTO);
+    idealState.setStateModelDefRef("MasterSlave");
+    idealState.setNumPartitions(_partitionCount);
+    idealState.setReplicas(Integer.toString(_replicaCount));
+    for (int p = 0; p < _partitionCount; p++) {
+      String partition = "TestDB_" + p;
+      List<String> preferenceList = new ArrayList<>();
+      Map<String, String> stateMap = new TreeMap<>();
+      for (int r = 0; r < _replicaCount; r++) {
+        String instance = "localhost_" + (12000 + (p + r) % _instanceCount);
+        preferenceList.add(instance);
+        stateMap.put(instance, r == 0 ? "MASTER" : "SLAVE");
+      }
+      idealState.setPreferenceList(partition, preferenceList);
+      idealState.setInstanceStateMap(partition, stateMap);
+    }
+    _record = idealState.getRecord();
+    _firstPartition = "TestDB_0";
+  }
+
+  @Benchmark
+  public int copyAndRead() {
+    IdealState idealState = new IdealState(_record);
+    int replicaCount = 0;
+    for (String partition : idealState.getPartitionSet()) {
+      replicaCount += idealState.getPreferenceList(partition).size();
+    }
+    return replicaCount;
+  }
+
+  @Benchmark
+  public IdealState copyAndUpdateSimpleField() {
+    IdealState idealState = new IdealState(_record);
+    idealState.setReplicas(Integer.toString(_replicaCount + 1));
+    return idealState;
+  }
+
+  @Benchmark
+  public IdealState copyAndUpdateAssignment() {
+    IdealState idealState = new IdealState(_record);
+    Map<String, String> stateMap = new TreeMap<>(idealState.getInstanceStateMap(_firstPartition));
+    idealState.setInstanceStateMap(_firstPartition, stateMap);
+    return idealState;
+  }
+
+  /**
+   * The field maps of the source record escape to this benchmark, which is run on its own state.
+   */
+  @Benchmark
+  public ZNRecord eagerCopy() {
+    ZNRecord record = new ZNRecord(_record.getId());
+    record.getSimpleFields().putAll(_record.getSimpleFields());
+    record.getMapFields().putAll(_record.getMapFields());
+    record.getListFields().putAll(_record.getListFields());
+    return record;
+  }
+}
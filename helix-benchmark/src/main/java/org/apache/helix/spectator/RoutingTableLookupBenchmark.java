@@ -0,0 +1,180 @@
+package org.apache.helix.spectator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.LiveInstance;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compare the {resource, partition, state} lookups of a RoutingTableSnapshot by names with the
+ * lookups by pre-resolved ids, and with the same lookups of the snapshot published into a memory
+ * mapped file. Run with "-prof gc" to see the allocation rate of each lookup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RoutingTableLookupBenchmark {
+  private static final String MASTER = "MASTER";
+  private static final String SLAVE = "SLAVE";
+  // A power of 2, so the next lookup is picked with a mask
+  private static final int LOOKUP_COUNT = 1 << 14;
+
+  @Param({"10", "100"})
+  public int _resourceCount;
+
+  @Param({"64", "1024"})
+  public int _partitionCount;
+
+  @Param({"50"})
+  public int _instanceCount;
+
+  private RoutingTableSnapshot _snapshot;
+  private Path _directory;
+  private MappedRoutingTableSnapshot _mappedSnapshot;
+
+  private String[] _resourceNames;
+  private String[] _partitionNames;
+  private String[] _states;
+
+  private int[] _resourceIds;
+  private int[] _partitionIds;
+  private int[] _stateIds;
+
+  private int _next;
+
+  @Setup
+  public void setUp() throws IOException {
+    List<InstanceConfig> configs = new ArrayList<>();
+    for (int i = 0; i < _instanceCount; i++) {
+      InstanceConfig config = new InstanceConfig("localhost_" + (12000 + i));
+      config.setHostName("localhost");
+      config.setPort(Integer.toString(12000 + i));
+      configs.add(config);
+    }
+
+    List<ExternalView> externalViews = new ArrayList<>();
+    for (int r = 0; r < _resourceCount; r++) {
+      ExternalView externalView = new ExternalView("TestDB" + r);
+      for (int p = 0; p < _partitionCount; p++) {
+        String partition = "TestDB" + r + "_" + p;
+        for (int replica = 0; replica < 3; replica++) {
+          String instance = configs.get((r + p + replica) % _instanceCount).getInstanceName();
+          externalView.setState(partition, instance, replica == 0 ? MASTER : SLAVE);
+        }
+      }
+      externalViews.add(externalView);
+    }
+    _snapshot = new RoutingTableSnapshot(
+        new RoutingTable(externalViews, configs, Collections.<LiveInstance> emptyList()));
+
+    _directory = Files.createTempDirectory(RoutingTableLookupBenchmark.class.getSimpleName());
+    Path path = _directory.resolve("routing");
+    new RoutingTableFilePublisher(path).publish(_snapshot);
+    _mappedSnapshot = new RoutingTableFileReader(path).getSnapshot();
+
+    Random random = new Random(0);
+    _resourceNames = new String[LOOKUP_COUNT];
+    _partitionNames = new String[LOOKUP_COUNT];
+    _states = new String[LOOKUP_COUNT];
+    _resourceIds = new int[LOOKUP_COUNT];
+    _partitionIds = new int[LOOKUP_COUNT];
+    _stateIds = new int[LOOKUP_COUNT];
+    for (int i = 0; i < LOOKUP_COUNT; i++) {
+      int r = random.nextInt(_resourceCount);
+      _resourceNames[i] = "TestDB" + r;
+      _partitionNames[i] = "TestDB" + r + "_" + random.nextInt(_partitionCount);
+      _states[i] = random.nextBoolean() ? MASTER : SLAVE;
+
+      _resourceIds[i] = _snapshot.getResourceId(_resourceNames[i]);
+      _partitionIds[i] = _snapshot.getPartitionId(_resourceIds[i], _partitionNames[i]);
+      _stateIds[i] = _snapshot.getStateId(_resourceIds[i], _states[i]);
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Path path = _directory.resolve("routing");
+    Files.deleteIfExists(path);
+    Files.deleteIfExists(_directory);
+  }
+
+  @Benchmark
+  public List<InstanceConfig> lookupByNames() {
+    int i = _next++ & (LOOKUP_COUNT - 1);
+    return _snapshot.getInstancesForResource(_resourceNames[i], _partitionNames[i], _states[i]);
+  }
+
+  @Benchmark
+  public List<InstanceConfig> lookupByIds() {
+    int i = _next++ & (LOOKUP_COUNT - 1);
+    return _snapshot.getInstancesForResource(_resourceIds[i], _partitionIds[i], _stateIds[i]);
+  }
+
+  /**
+   * Resolve the ids on every lookup, the worst case of the id API.
+   */
+  @Benchmark
+  public List<InstanceConfig> resolveAndLookupByIds() {
+    int i = _next++ & (LOOKUP_COUNT - 1);
+    int resourceId = _snapshot.getResourceId(_resourceNames[i]);
+    return _snapshot.getInstancesForResource(resourceId,
+        _snapshot.getPartitionId(resourceId, _partitionNames[i]),
+        _snapshot.getStateId(resourceId, _states[i]));
+  }
+
+  @Benchmark
+  public List<InstanceConfig> mappedLookupByNames() {
+    int i = _next++ & (LOOKUP_COUNT - 1);
+    return _mappedSnapshot
+        .getInstancesForResource(_resourceNames[i], _partitionNames[i], _states[i]);
+  }
+
+  @Benchmark
+  public List<InstanceConfig> mappedLookupByIds() {
+    int i = _next++ & (LOOKUP_COUNT - 1);
+    return _mappedSnapshot
+        .getInstancesForResource(_resourceIds[i], _partitionIds[i], _stateIds[i]);
+  }
+}
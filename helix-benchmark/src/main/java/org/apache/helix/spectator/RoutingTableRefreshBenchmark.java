@@ -0,0 +1,155 @@
+package org.apache.helix.spectator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.helix.PropertyType;
+import org.apache.helix.model.CurrentState;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.LiveInstance;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measure the routing table refresh after a single partition move, by rebuilding the whole
+ * routing table and by refreshing the previous routing table incrementally, for both the
+ * ExternalView and the CurrentState sources. Run with "-prof gc" to see the allocation of each
+ * refresh. See RoutingTableSoakHarness for the end to end refresh against ZooKeeper.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RoutingTableRefreshBenchmark {
+  @Param({"10", "100"})
+  public int _resourceCount;
+
+  @Param({"64", "1024"})
+  public int _partitionCount;
+
+  @Param({"3"})
+  public int _replicaCount;
+
+  @Param({"50"})
+  public int _instanceCount;
+
+  private List<InstanceConfig> _instanceConfigs;
+  private List<LiveInstance> _liveInstances;
+
+  private RoutingTable _externalViewTable;
+  private List<ExternalView> _movedExternalViews;
+
+  private RoutingTable _currentStateTable;
+  private Map<String, Map<String, Map<String, CurrentState>>> _movedCurrentStateMap;
+
+  @Setup
+  public void setUp() {
+    SyntheticCluster cluster = new SyntheticCluster(_resourceCount, _partitionCount,
+        _replicaCount, _instanceCount, _replicaCount);
+    _instanceConfigs = cluster.getInstanceConfigs();
+    _liveInstances = cluster.getLiveInstances();
+
+    List<ExternalView> externalViews = cluster.getExternalViews();
+    Map<String, Map<String, Map<String, CurrentState>>> currentStateMap =
+        cluster.getCurrentStateMap();
+    _externalViewTable = new RoutingTable(externalViews, _instanceConfigs, _liveInstances);
+    _currentStateTable = new RoutingTable(currentStateMap, _instanceConfigs, _liveInstances);
+
+    // Move the master of the first partition to an instance without its replica. Only the changed
+    // ExternalView and the CurrentStates of the changed instances are new objects, as they are
+    // in the refreshed caches.
+    String resource = "TestDB0";
+    String partition = resource + "_0";
+    Map<String, String> instanceStates = cluster.getPartitionStates(resource).get(partition);
+    String master = null;
+    for (Map.Entry<String, String> entry : instanceStates.entrySet()) {
+      if (entry.getValue().equals(SyntheticCluster.MASTER)) {
+        master = entry.getKey();
+      }
+    }
+    String target = null;
+    for (InstanceConfig config : _instanceConfigs) {
+      if (!instanceStates.containsKey(config.getInstanceName())) {
+        target = config.getInstanceName();
+        break;
+      }
+    }
+    if (master == null || target == null) {
+      throw new IllegalStateException("Cannot move a partition with " + _instanceCount
+          + " instances and " + _replicaCount + " replicas");
+    }
+    cluster.setState(resource, partition, master, null, 0L);
+    cluster.setState(resource, partition, target, SyntheticCluster.MASTER, 0L);
+
+    _movedExternalViews = new ArrayList<>(externalViews);
+    _movedExternalViews.set(0, cluster.getExternalView(resource));
+    _movedCurrentStateMap = new HashMap<>(currentStateMap);
+    _movedCurrentStateMap.put(master, cluster.getSessionCurrentStates(master));
+    _movedCurrentStateMap.put(target, cluster.getSessionCurrentStates(target));
+  }
+
+  @Benchmark
+  public RoutingTable fullExternalViewRefresh() {
+    return new RoutingTable(_movedExternalViews, _instanceConfigs, _liveInstances);
+  }
+
+  @Benchmark
+  public RoutingTable incrementalExternalViewRefresh() {
+    return new RoutingTable(_movedExternalViews, _instanceConfigs, _liveInstances,
+        PropertyType.EXTERNALVIEW, _externalViewTable);
+  }
+
+  @Benchmark
+  public RoutingTable fullCurrentStateRefresh() {
+    return new RoutingTable(_movedCurrentStateMap, _instanceConfigs, _liveInstances);
+  }
+
+  @Benchmark
+  public RoutingTable incrementalCurrentStateRefresh() {
+    return new RoutingTable(_movedCurrentStateMap, _instanceConfigs, _liveInstances,
+        _currentStateTable);
+  }
+
+  /**
+   * The deltas delivered to the RoutingTableChangeListeners after the refresh.
+   */
+  @Benchmark
+  public List<RoutingTableDelta> externalViewDeltas() {
+    return new RoutingTable(_movedExternalViews, _instanceConfigs, _liveInstances,
+        PropertyType.EXTERNALVIEW, _externalViewTable).getDeltas(_externalViewTable);
+  }
+}
@@ -0,0 +1,648 @@
+package org.apache.helix.spectator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.helix.AccessOption;
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.HelixManager;
+import org.apache.helix.HelixManagerFactory;
+import org.apache.helix.InstanceType;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.PropertyType;
+import org.apache.helix.api.listeners.RoutingTableChangeListener;
+import org.apache.helix.manager.zk.ZKHelixAdmin;
+import org.apache.helix.manager.zk.ZKHelixDataAccessor;
+import org.apache.helix.manager.zk.ZkBaseDataAccessor;
+import org.apache.helix.model.CurrentState;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.LiveInstance;
+import org.apache.helix.monitoring.mbeans.MonitorDomainNames;
+import org.apache.helix.monitoring.mbeans.RoutingTableProviderMonitor;
+import org.apache.helix.zookeeper.api.client.RealmAwareZkClient;
+import org.apache.helix.zookeeper.api.client.ZkClientType;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.zkclient.ZkServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Soak a RoutingTableProvider against an in-process ZooKeeper. A synthetic cluster is written to
+ * ZooKeeper, then the ExternalViews or the CurrentStates, depending on the source type, are
+ * changed in the following churn patterns:
+ * <ul>
+ * <li>partitionMove: move one replica of a random partition to another instance.</li>
+ * <li>rackFailure: all the replicas of a rack go OFFLINE, then come back.</li>
+ * <li>rollingRestart: the replicas of each instance in turn go OFFLINE, then come back.</li>
+ * </ul>
+ * Each step waits until the RoutingTableChangeListener receives all the changed replicas. After
+ * each pattern, one JSON object is printed per line with the propagation latency from the ZK
+ * write to the listener, the refresh latency and allocation reported by the
+ * RoutingTableProviderMonitor, the allocation of the whole JVM per refresh, and the lookup
+ * throughput of the last snapshot. For the CURRENTSTATES source, the StatePropagationLatency
+ * recorded by the RoutingTableProvider is reported as well.
+ * Run with key=value arguments, e.g.
+ * <pre>
+ *   java -cp helix-benchmark/target/benchmarks.jar \
+ *     org.apache.helix.spectator.RoutingTableSoakHarness \
+ *     source=CURRENTSTATES resources=20 partitions=256 replicas=3 instances=30 racks=3 \
+ *     moves=200 lookupMillis=2000 zkPort=2199 output=soak.json
+ * </pre>
+ */
+public class RoutingTableSoakHarness {
+  private static final Logger logger = LoggerFactory.getLogger(RoutingTableSoakHarness.class);
+  private static final String CLUSTER_NAME = "RoutingTableSoakCluster";
+  private static final String SPECTATOR_NAME = "soak_spectator";
+  private static final long STEP_TIMEOUT_MS = 60 * 1000L;
+  private static final int LOOKUP_COUNT = 1 << 14;
+
+  private final Map<String, String> _options;
+  private final PropertyType _sourceType;
+  private final int _resourceCount;
+  private final int _partitionCount;
+  private final int _replicaCount;
+  private final int _instanceCount;
+  private final int _rackCount;
+  private final int _moveCount;
+  private final long _lookupMillis;
+  private final int _zkPort;
+  private final SyntheticCluster _cluster;
+  private final Random _random = new Random(0);
+  private final StepListener _listener = new StepListener();
+
+  private HelixDataAccessor _accessor;
+  private RoutingTableProvider _routingTableProvider;
+
+  public RoutingTableSoakHarness(Map<String, String> options) {
+    _options = options;
+    _sourceType = PropertyType.valueOf(getOption("source", PropertyType.EXTERNALVIEW.name()));
+    if (_sourceType != PropertyType.EXTERNALVIEW && _sourceType != PropertyType.CURRENTSTATES) {
+      throw new IllegalArgumentException("Unsupported source type " + _sourceType);
+    }
+    _resourceCount = Integer.parseInt(getOption("resources", "10"));
+    _partitionCount = Integer.parseInt(getOption("partitions", "64"));
+    _replicaCount = Integer.parseInt(getOption("replicas", "3"));
+    _instanceCount = Integer.parseInt(getOption("instances", "30"));
+    _rackCount = Integer.parseInt(getOption("racks", "3"));
+    _moveCount = Integer.parseInt(getOption("moves", "100"));
+    _lookupMillis = Long.parseLong(getOption("lookupMillis", "2000"));
+    _zkPort = Integer.parseInt(getOption("zkPort", "2199"));
+    _cluster = new SyntheticCluster(_resourceCount, _partitionCount, _replicaCount,
+        _instanceCount, _rackCount);
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      int index = arg.indexOf('=');
+      if (index <= 0) {
+        throw new IllegalArgumentException("Expect key=value arguments, but got " + arg);
+      }
+      options.put(arg.substring(0, index), arg.substring(index + 1));
+    }
+    String output = options.get("output");
+    PrintStream out =
+        output == null ? System.out : new PrintStream(new FileOutputStream(output), true, "UTF-8");
+    try {
+      new RoutingTableSoakHarness(options).run(out);
+    } finally {
+      if (out != System.out) {
+        out.close();
+      }
+    }
+    // The ZkClient event threads are not daemon threads
+    System.exit(0);
+  }
+
+  public void run(PrintStream out) throws Exception {
+    Path directory = Files.createTempDirectory(RoutingTableSoakHarness.class.getSimpleName());
+    ZkServer zkServer = new ZkServer(directory.resolve("data").toString(),
+        directory.resolve("log").toString(), zkClient -> {
+          // do nothing
+        }, _zkPort);
+    zkServer.start();
+    String zkAddress = "localhost:" + _zkPort;
+    ZkBaseDataAccessor<ZNRecord> baseAccessor = null;
+    HelixManager spectator = null;
+    try {
+      ZKHelixAdmin admin = new ZKHelixAdmin(zkAddress);
+      admin.addCluster(CLUSTER_NAME, true);
+      for (InstanceConfig config : _cluster.getInstanceConfigs()) {
+        admin.addInstance(CLUSTER_NAME, config);
+      }
+      admin.close();
+
+      baseAccessor = new ZkBaseDataAccessor.Builder<ZNRecord>().setZkAddress(zkAddress)
+          .setRealmMode(RealmAwareZkClient.RealmMode.SINGLE_REALM)
+          .setZkClientType(ZkClientType.DEDICATED).build();
+      _accessor = new ZKHelixDataAccessor(CLUSTER_NAME, baseAccessor);
+      writeInitialState();
+
+      spectator = HelixManagerFactory.getZKHelixManager(CLUSTER_NAME, SPECTATOR_NAME,
+          InstanceType.SPECTATOR, zkAddress);
+      spectator.connect();
+      PendingStep initialStep = _listener.expect(getAllReplicas());
+      long startTime = System.nanoTime();
+      _routingTableProvider = new RoutingTableProvider(spectator, _sourceType);
+      _routingTableProvider.addRoutingTableChangeListener(_listener, null);
+      if (!initialStep._latch.await(STEP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+        throw new IllegalStateException("The routing table is not loaded in time");
+      }
+      logger.info("Loaded the routing table of {} replicas in {} ms.",
+          _resourceCount * _partitionCount * _replicaCount,
+          TimeUnit.NANOSECONDS.toMillis(initialStep._observedTime - startTime));
+
+      runPattern("partitionMove", out, stats -> {
+        for (int i = 0; i < _moveCount; i++) {
+          runStep(movePartition(), stats);
+        }
+      });
+      runPattern("rackFailure", out, stats -> {
+        for (int rack = 0; rack < _rackCount; rack++) {
+          List<String> instances = _cluster.getInstancesInRack(rack);
+          Map<String, String> previousStates = new TreeMap<>();
+          runStep(setOffline(instances, previousStates), stats);
+          runStep(restore(previousStates), stats);
+        }
+      });
+      runPattern("rollingRestart", out, stats -> {
+        for (InstanceConfig config : _cluster.getInstanceConfigs()) {
+          List<String> instances = Collections.singletonList(config.getInstanceName());
+          Map<String, String> previousStates = new TreeMap<>();
+          runStep(setOffline(instances, previousStates), stats);
+          runStep(restore(previousStates), stats);
+        }
+      });
+    } finally {
+      if (_routingTableProvider != null) {
+        _routingTableProvider.shutdown();
+      }
+      if (spectator != null) {
+        spectator.disconnect();
+      }
+      if (baseAccessor != null) {
+        baseAccessor.close();
+      }
+      zkServer.shutdown();
+      FileUtils.deleteDirectory(directory.toFile());
+    }
+  }
+
+  private String getOption(String key, String defaultValue) {
+    String value = _options.get(key);
+    return value == null ? defaultValue : value;
+  }
+
+  private void writeInitialState() {
+    PropertyKey.Builder keyBuilder = _accessor.keyBuilder();
+    // The LiveInstances are persistent nodes with their own session ids, since the
+    // RoutingTableProvider watches the CurrentStates of each session
+    for (LiveInstance liveInstance : _cluster.getLiveInstances()) {
+      _accessor.getBaseDataAccessor().set(
+          keyBuilder.liveInstance(liveInstance.getInstanceName()).getPath(),
+          liveInstance.getRecord(), AccessOption.PERSISTENT);
+    }
+
+    if (_sourceType == PropertyType.EXTERNALVIEW) {
+      List<PropertyKey> keys = new ArrayList<>();
+      List<ExternalView> externalViews = _cluster.getExternalViews();
+      for (ExternalView externalView : externalViews) {
+        keys.add(keyBuilder.externalView(externalView.getResourceName()));
+      }
+      _accessor.setChildren(keys, externalViews);
+    } else {
+      Map<String, Set<String>> instanceResources = new TreeMap<>();
+      for (InstanceConfig config : _cluster.getInstanceConfigs()) {
+        instanceResources.put(config.getInstanceName(), new TreeSet<>(_cluster.getResources()));
+      }
+      writeCurrentStates(instanceResources);
+    }
+  }
+
+  private void writeCurrentStates(Map<String, Set<String>> instanceResources) {
+    PropertyKey.Builder keyBuilder = _accessor.keyBuilder();
+    List<PropertyKey> keys = new ArrayList<>();
+    List<CurrentState> currentStates = new ArrayList<>();
+    for (Map.Entry<String, Set<String>> entry : instanceResources.entrySet()) {
+      String instance = entry.getKey();
+      for (String resource : entry.getValue()) {
+        PropertyKey key =
+            keyBuilder.currentState(instance, SyntheticCluster.getSessionId(instance), resource);
+        CurrentState currentState = _cluster.getCurrentState(instance, resource);
+        if (currentState == null) {
+          _accessor.removeProperty(key);
+        } else {
+          keys.add(key);
+          currentStates.add(currentState);
+        }
+      }
+    }
+    _accessor.setChildren(keys, currentStates);
+  }
+
+  private Set<String> getAllReplicas() {
+    Set<String> replicas = new HashSet<>();
+    for (String resource : _cluster.getResources()) {
+      for (Map.Entry<String, Map<String, String>> partitionEntry : _cluster
+          .getPartitionStates(resource).entrySet()) {
+        for (Map.Entry<String, String> entry : partitionEntry.getValue().entrySet()) {
+          replicas.add(toReplicaKey(resource, partitionEntry.getKey(), entry.getKey(),
+              entry.getValue()));
+        }
+      }
+    }
+    return replicas;
+  }
+
+  /**
+   * Move a random replica of a random partition to a random instance without its replica.
+   */
+  private List<ReplicaChange> movePartition() {
+    String resource = "TestDB" + _random.nextInt(_resourceCount);
+    String partition = resource + "_" + _random.nextInt(_partitionCount);
+    Map<String, String> instanceStates = _cluster.getPartitionStates(resource).get(partition);
+    List<String> replicaInstances = new ArrayList<>(instanceStates.keySet());
+    List<String> targetInstances = new ArrayList<>();
+    for (InstanceConfig config : _cluster.getInstanceConfigs()) {
+      if (!instanceStates.containsKey(config.getInstanceName())) {
+        targetInstances.add(config.getInstanceName());
+      }
+    }
+    if (replicaInstances.isEmpty() || targetInstances.isEmpty()) {
+      return Collections.emptyList();
+    }
+    String source = replicaInstances.get(_random.nextInt(replicaInstances.size()));
+    String target = targetInstances.get(_random.nextInt(targetInstances.size()));
+    return Arrays.asList(new ReplicaChange(resource, partition, source, null),
+        new ReplicaChange(resource, partition, target, instanceStates.get(source)));
+  }
+
+  /**
+   * Set all the replicas of the instances OFFLINE.
+   * @param previousStates filled with the replica to its state before the change
+   */
+  private List<ReplicaChange> setOffline(List<String> instances,
+      Map<String, String> previousStates) {
+    List<ReplicaChange> changes = new ArrayList<>();
+    for (String resource : _cluster.getResources()) {
+      for (Map.Entry<String, Map<String, String>> partitionEntry : _cluster
+          .getPartitionStates(resource).entrySet()) {
+        for (String instance : instances) {
+          String state = partitionEntry.getValue().get(instance);
+          if (state != null) {
+            changes.add(new ReplicaChange(resource, partitionEntry.getKey(), instance,
+                SyntheticCluster.OFFLINE));
+            previousStates.put(
+                toReplicaKey(resource, partitionEntry.getKey(), instance, null), state);
+          }
+        }
+      }
+    }
+    return changes;
+  }
+
+  private List<ReplicaChange> restore(Map<String, String> previousStates) {
+    List<ReplicaChange> changes = new ArrayList<>();
+    for (Map.Entry<String, String> entry : previousStates.entrySet()) {
+      String[] replica = entry.getKey().split("/");
+      changes.add(new ReplicaChange(replica[0], replica[1], replica[2], entry.getValue()));
+    }
+    return changes;
+  }
+
+  /**
+   * Apply the changes to the cluster, write the changed ExternalViews or CurrentStates, and wait
+   * until the listener receives all the changes.
+   */
+  private void runStep(List<ReplicaChange> changes, PatternStats stats)
+      throws InterruptedException {
+    long endTime = System.currentTimeMillis();
+    Set<String> expectedReplicas = new HashSet<>();
+    Set<String> changedResources = new TreeSet<>();
+    Map<String, Set<String>> changedInstanceResources = new TreeMap<>();
+    for (ReplicaChange change : changes) {
+      String previousState = _cluster.setState(change._resource, change._partition,
+          change._instance, change._state, endTime);
+      if (Objects.equals(previousState, change._state)) {
+        continue;
+      }
+      expectedReplicas
+          .add(toReplicaKey(change._resource, change._partition, change._instance, change._state));
+      changedResources.add(change._resource);
+      changedInstanceResources.computeIfAbsent(change._instance, key -> new TreeSet<>())
+          .add(change._resource);
+    }
+    if (expectedReplicas.isEmpty()) {
+      return;
+    }
+
+    PendingStep step = _listener.expect(expectedReplicas);
+    long startTime = System.nanoTime();
+    if (_sourceType == PropertyType.EXTERNALVIEW) {
+      PropertyKey.Builder keyBuilder = _accessor.keyBuilder();
+      List<PropertyKey> keys = new ArrayList<>();
+      List<ExternalView> externalViews = new ArrayList<>();
+      for (String resource : changedResources) {
+        keys.add(keyBuilder.externalView(resource));
+        externalViews.add(_cluster.getExternalView(resource));
+      }
+      _accessor.setChildren(keys, externalViews);
+    } else {
+      writeCurrentStates(changedInstanceResources);
+    }
+    long writeTime = System.nanoTime();
+    if (step._latch.await(STEP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+      stats._writeLatencies.add(writeTime - startTime);
+      stats._propagationLatencies.add(step._observedTime - startTime);
+    } else {
+      logger.warn("Timed out waiting for {} replica changes, {} are not received.",
+          expectedReplicas.size(), _listener.getPendingCount());
+      stats._timeouts++;
+    }
+  }
+
+  private void runPattern(String pattern, PrintStream out, Pattern runnable) throws Exception {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName monitorName = new ObjectName(String.format("%s:%s=%s,%s=%s",
+        MonitorDomainNames.RoutingTableProvider.name(), RoutingTableProviderMonitor.CLUSTER_KEY,
+        CLUSTER_NAME, RoutingTableProviderMonitor.DATA_TYPE_KEY, _sourceType.name()));
+    long startRefreshCount = getRefreshCount(server, monitorName);
+    long startAllocatedBytes = getAllocatedBytes();
+
+    PatternStats stats = new PatternStats();
+    long startTime = System.nanoTime();
+    runnable.run(stats);
+    long duration = System.nanoTime() - startTime;
+
+    long refreshCount = getRefreshCount(server, monitorName) - startRefreshCount;
+    long allocatedBytes = getAllocatedBytes() - startAllocatedBytes;
+
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("pattern", pattern);
+    result.put("source", _sourceType.name());
+    result.put("resources", _resourceCount);
+    result.put("partitions", _partitionCount);
+    result.put("replicas", _replicaCount);
+    result.put("instances", _instanceCount);
+    result.put("racks", _rackCount);
+    result.put("steps", stats._propagationLatencies.size());
+    result.put("timeouts", stats._timeouts);
+    result.put("durationMs", TimeUnit.NANOSECONDS.toMillis(duration));
+    putLatencies(result, "writeLatencyMs", stats._writeLatencies);
+    putLatencies(result, "propagationLatencyMs", stats._propagationLatencies);
+    result.put("refreshCount", refreshCount);
+    putHistogram(result, server, monitorName, "dataRefreshLatencyMs",
+        "DataRefreshLatencyGauge");
+    putHistogram(result, server, monitorName, "routingTableRefreshLatencyMs",
+        "RoutingTableRefreshLatencyGauge");
+    putHistogram(result, server, monitorName, "routingTableRefreshAllocatedBytes",
+        "RoutingTableRefreshAllocatedBytesGauge");
+    if (_sourceType == PropertyType.CURRENTSTATES) {
+      putHistogram(result, server, monitorName, "statePropagationLatencyMs",
+          "StatePropagationLatencyGauge");
+    }
+    if (allocatedBytes >= 0 && refreshCount > 0) {
+      result.put("jvmAllocatedBytesPerRefresh", allocatedBytes / refreshCount);
+    }
+    result.put("lookupsPerSecond", measureLookups());
+    out.println(toJson(result));
+  }
+
+  /**
+   * @return the number of {resource, partition, state} lookups per second of the latest snapshot
+   */
+  private long measureLookups() {
+    RoutingTableSnapshot snapshot = _routingTableProvider.getRoutingTableSnapshot(_sourceType);
+    String[] resources = new String[LOOKUP_COUNT];
+    String[] partitions = new String[LOOKUP_COUNT];
+    String[] states = new String[LOOKUP_COUNT];
+    for (int i = 0; i < LOOKUP_COUNT; i++) {
+      int r = _random.nextInt(_resourceCount);
+      resources[i] = "TestDB" + r;
+      partitions[i] = resources[i] + "_" + _random.nextInt(_partitionCount);
+      states[i] = _random.nextBoolean() ? SyntheticCluster.MASTER : SyntheticCluster.SLAVE;
+    }
+    long lookups = 0;
+    long found = 0;
+    long startTime = System.nanoTime();
+    long deadline = startTime + TimeUnit.MILLISECONDS.toNanos(_lookupMillis);
+    long now;
+    do {
+      for (int i = 0; i < LOOKUP_COUNT; i++) {
+        found += snapshot.getInstancesForResource(resources[i], partitions[i], states[i]).size();
+      }
+      lookups += LOOKUP_COUNT;
+      now = System.nanoTime();
+    } while (now < deadline);
+    logger.debug("Found {} instances in {} lookups.", found, lookups);
+    return lookups * TimeUnit.SECONDS.toNanos(1) / Math.max(1, now - startTime);
+  }
+
+  private static long getRefreshCount(MBeanServer server, ObjectName monitorName)
+      throws JMException {
+    return ((Number) server.getAttribute(monitorName, "DataRefreshCounter")).longValue();
+  }
+
+  /**
+   * @return the bytes allocated by all the live threads, or -1 if the JVM does not support it
+   */
+  private static long getAllocatedBytes() {
+    java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+      return -1;
+    }
+    com.sun.management.ThreadMXBean sunThreadMXBean =
+        (com.sun.management.ThreadMXBean) threadMXBean;
+    if (!sunThreadMXBean.isThreadAllocatedMemorySupported()
+        || !sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+      return -1;
+    }
+    long allocatedBytes = 0;
+    for (long bytes : sunThreadMXBean.getThreadAllocatedBytes(threadMXBean.getAllThreadIds())) {
+      if (bytes > 0) {
+        allocatedBytes += bytes;
+      }
+    }
+    return allocatedBytes;
+  }
+
+  private static void putLatencies(Map<String, Object> result, String name,
+      List<Long> latencies) {
+    if (latencies.isEmpty()) {
+      return;
+    }
+    List<Long> sorted = new ArrayList<>(latencies);
+    Collections.sort(sorted);
+    long sum = 0;
+    for (long latency : sorted) {
+      sum += latency;
+    }
+    Map<String, Object> values = new LinkedHashMap<>();
+    values.put("mean", toMillis(sum / sorted.size()));
+    values.put("p50", toMillis(sorted.get(sorted.size() / 2)));
+    values.put("p99", toMillis(sorted.get((int) Math.ceil(sorted.size() * 0.99) - 1)));
+    values.put("max", toMillis(sorted.get(sorted.size() - 1)));
+    result.put(name, values);
+  }
+
+  private static double toMillis(long nanos) {
+    return nanos / 1000L / 1000.0;
+  }
+
+  /**
+   * Put the statistics of a histogram of the RoutingTableProviderMonitor. The histograms are
+   * sliding time windows, so they cover the recent patterns as well.
+   */
+  private static void putHistogram(Map<String, Object> result, MBeanServer server,
+      ObjectName monitorName, String name, String metricName) throws JMException {
+    Map<String, Object> values = new LinkedHashMap<>();
+    values.put("mean", server.getAttribute(monitorName, metricName + ".Mean"));
+    values.put("p99", server.getAttribute(monitorName, metricName + ".Pct99th"));
+    values.put("max", server.getAttribute(monitorName, metricName + ".Max"));
+    result.put(name, values);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static String toJson(Object value) {
+    if (value instanceof Map) {
+      StringBuilder builder = new StringBuilder("{");
+      for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+        if (builder.length() > 1) {
+          builder.append(',');
+        }
+        builder.append(toJson(entry.getKey())).append(':').append(toJson(entry.getValue()));
+      }
+      return builder.append('}').toString();
+    }
+    if (value instanceof String) {
+      return "\"" + value + "\"";
+    }
+    if (value instanceof Double && (((Double) value).isNaN() || ((Double) value).isInfinite())) {
+      return "null";
+    }
+    return String.valueOf(value);
+  }
+
+  private static String toReplicaKey(String resource, String partition, String instance,
+      String state) {
+    String replica = resource + "/" + partition + "/" + instance;
+    return state == null ? replica : replica + "=" + state;
+  }
+
+  private interface Pattern {
+    void run(PatternStats stats) throws Exception;
+  }
+
+  private static class PatternStats {
+    private final List<Long> _writeLatencies = new ArrayList<>();
+    private final List<Long> _propagationLatencies = new ArrayList<>();
+    private int _timeouts = 0;
+  }
+
+  private static class ReplicaChange {
+    private final String _resource;
+    private final String _partition;
+    private final String _instance;
+    // null to remove the replica
+    private final String _state;
+
+    ReplicaChange(String resource, String partition, String instance, String state) {
+      _resource = resource;
+      _partition = partition;
+      _instance = instance;
+      _state = state;
+    }
+  }
+
+  private static class PendingStep {
+    private final CountDownLatch _latch = new CountDownLatch(1);
+    // written before the latch is released
+    private long _observedTime;
+  }
+
+  /**
+   * Track the replica changes of the running step in the deltas delivered to the listener.
+   */
+  private static class StepListener implements RoutingTableChangeListener {
+    private final Set<String> _pendingReplicas = new HashSet<>();
+    private PendingStep _step;
+
+    synchronized PendingStep expect(Set<String> replicas) {
+      _pendingReplicas.clear();
+      _pendingReplicas.addAll(replicas);
+      _step = new PendingStep();
+      return _step;
+    }
+
+    synchronized int getPendingCount() {
+      return _pendingReplicas.size();
+    }
+
+    @Override
+    public void onRoutingTableChange(RoutingTableSnapshot routingTableSnapshot, Object context) {
+      // the deltas are handled by the other method
+    }
+
+    @Override
+    public synchronized void onRoutingTableChange(RoutingTableSnapshot routingTableSnapshot,
+        List<RoutingTableDelta> deltas, Object context) {
+      if (_step == null) {
+        return;
+      }
+      for (RoutingTableDelta delta : deltas) {
+        if (delta.getPartitionName() != null) {
+          _pendingReplicas.remove(toReplicaKey(delta.getResourceName(), delta.getPartitionName(),
+              delta.getInstanceName(), delta.getState()));
+        }
+      }
+      if (_pendingReplicas.isEmpty()) {
+        _step._observedTime = System.nanoTime();
+        _step._latch.countDown();
+        _step = null;
+      }
+    }
+  }
+}
@@ -0,0 +1,206 @@
+package org.apache.helix.spectator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.helix.model.CurrentState;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.ExternalView.ExternalViewProperty;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.LiveInstance;
+
+/**
+ * A synthetic MasterSlave cluster for the spectator benchmarks. The replicas of a partition are
+ * placed on consecutive instances, and instance i is in rack (i % rackCount), so the replicas of a
+ * partition are in different racks as long as there are at least as many racks as replicas.
+ * The assignment is mutable so the churn patterns can be replayed against it.
+ */
+public class SyntheticCluster {
+  public static final String MASTER = "MASTER";
+  public static final String SLAVE = "SLAVE";
+  public static final String OFFLINE = "OFFLINE";
+  public static final String STATE_MODEL = "MasterSlave";
+
+  private final int _rackCount;
+  private final List<InstanceConfig> _instanceConfigs = new ArrayList<>();
+  // mapping a resourceName to partitionName to instanceName to state
+  private final Map<String, Map<String, Map<String, String>>> _assignment = new TreeMap<>();
+  // mapping a replica to the end time of its last state transition, 0 if not set
+  private final Map<String, Long> _endTimes = new HashMap<>();
+
+  public SyntheticCluster(int resourceCount, int partitionCount, int replicaCount,
+      int instanceCount, int rackCount) {
+    if (replicaCount > instanceCount) {
+      throw new IllegalArgumentException(
+          "Replica count " + replicaCount + " is larger than instance count " + instanceCount);
+    }
+    _rackCount = rackCount;
+    for (int i = 0; i < instanceCount; i++) {
+      InstanceConfig config = new InstanceConfig("localhost_" + (12000 + i));
+      config.setHostName("localhost");
+      config.setPort(Integer.toString(12000 + i));
+      config.setDomain("rack=rack_" + (i % rackCount) + ",instance=" + config.getInstanceName());
+      _instanceConfigs.add(config);
+    }
+    for (int r = 0; r < resourceCount; r++) {
+      String resource = "TestDB" + r;
+      Map<String, Map<String, String>> partitionStates = new TreeMap<>();
+      for (int p = 0; p < partitionCount; p++) {
+        Map<String, String> instanceStates = new TreeMap<>();
+        for (int replica = 0; replica < replicaCount; replica++) {
+          String instance = _instanceConfigs.get((r + p + replica) % instanceCount)
+              .getInstanceName();
+          instanceStates.put(instance, replica == 0 ? MASTER : SLAVE);
+        }
+        partitionStates.put(resource + "_" + p, instanceStates);
+      }
+      _assignment.put(resource, partitionStates);
+    }
+  }
+
+  public static String getSessionId(String instanceName) {
+    return "session_" + instanceName;
+  }
+
+  public List<InstanceConfig> getInstanceConfigs() {
+    return _instanceConfigs;
+  }
+
+  public List<String> getInstancesInRack(int rack) {
+    List<String> instances = new ArrayList<>();
+    for (int i = rack; i < _instanceConfigs.size(); i += _rackCount) {
+      instances.add(_instanceConfigs.get(i).getInstanceName());
+    }
+    return instances;
+  }
+
+  public List<LiveInstance> getLiveInstances() {
+    List<LiveInstance> liveInstances = new ArrayList<>();
+    for (InstanceConfig config : _instanceConfigs) {
+      LiveInstance liveInstance = new LiveInstance(config.getInstanceName());
+      liveInstance.setSessionId(getSessionId(config.getInstanceName()));
+      liveInstance.setHelixVersion("0.0.0");
+      liveInstances.add(liveInstance);
+    }
+    return liveInstances;
+  }
+
+  public Collection<String> getResources() {
+    return _assignment.keySet();
+  }
+
+  /**
+   * @return mapping a partitionName to instanceName to state of the resource
+   */
+  public Map<String, Map<String, String>> getPartitionStates(String resource) {
+    return _assignment.get(resource);
+  }
+
+  /**
+   * Set the state of a replica.
+   * @param state the new state, null to remove the replica
+   * @param endTime the end time of the state transition
+   * @return the previous state, null if there was no replica
+   */
+  public String setState(String resource, String partition, String instance, String state,
+      long endTime) {
+    Map<String, String> instanceStates = _assignment.get(resource).get(partition);
+    String replica = resource + "/" + partition + "/" + instance;
+    if (state == null) {
+      _endTimes.remove(replica);
+      return instanceStates.remove(instance);
+    }
+    _endTimes.put(replica, endTime);
+    return instanceStates.put(instance, state);
+  }
+
+  public ExternalView getExternalView(String resource) {
+    ExternalView externalView = new ExternalView(resource);
+    externalView.getRecord()
+        .setSimpleField(ExternalViewProperty.STATE_MODEL_DEF_REF.name(), STATE_MODEL);
+    for (Map.Entry<String, Map<String, String>> entry : _assignment.get(resource).entrySet()) {
+      externalView.setStateMap(entry.getKey(), new TreeMap<>(entry.getValue()));
+    }
+    return externalView;
+  }
+
+  public List<ExternalView> getExternalViews() {
+    List<ExternalView> externalViews = new ArrayList<>();
+    for (String resource : _assignment.keySet()) {
+      externalViews.add(getExternalView(resource));
+    }
+    return externalViews;
+  }
+
+  /**
+   * @return the CurrentState of the resource on the instance, null if the instance has no replica
+   */
+  public CurrentState getCurrentState(String instance, String resource) {
+    CurrentState currentState = new CurrentState(resource);
+    currentState.setSessionId(getSessionId(instance));
+    currentState.setStateModelDefRef(STATE_MODEL);
+    boolean hasReplica = false;
+    for (Map.Entry<String, Map<String, String>> entry : _assignment.get(resource).entrySet()) {
+      String state = entry.getValue().get(instance);
+      if (state != null) {
+        currentState.setState(entry.getKey(), state);
+        Long endTime = _endTimes.get(resource + "/" + entry.getKey() + "/" + instance);
+        currentState.setEndTime(entry.getKey(), endTime == null ? 0L : endTime);
+        hasReplica = true;
+      }
+    }
+    return hasReplica ? currentState : null;
+  }
+
+  /**
+   * @return mapping an instanceName to sessionId to resourceName to CurrentState, in the shape
+   *         the RoutingTable is built from
+   */
+  public Map<String, Map<String, Map<String, CurrentState>>> getCurrentStateMap() {
+    Map<String, Map<String, Map<String, CurrentState>>> currentStateMap = new HashMap<>();
+    for (InstanceConfig config : _instanceConfigs) {
+      currentStateMap.put(config.getInstanceName(),
+          getSessionCurrentStates(config.getInstanceName()));
+    }
+    return currentStateMap;
+  }
+
+  /**
+   * @return mapping the sessionId of the instance to resourceName to CurrentState
+   */
+  public Map<String, Map<String, CurrentState>> getSessionCurrentStates(String instance) {
+    Map<String, CurrentState> currentStates = new HashMap<>();
+    for (String resource : _assignment.keySet()) {
+      CurrentState currentState = getCurrentState(instance, resource);
+      if (currentState != null) {
+        currentStates.put(resource, currentState);
+      }
+    }
+    Map<String, Map<String, CurrentState>> sessionCurrentStates = new HashMap<>();
+    sessionCurrentStates.put(getSessionId(instance), currentStates);
+    return sessionCurrentStates;
+  }
+}
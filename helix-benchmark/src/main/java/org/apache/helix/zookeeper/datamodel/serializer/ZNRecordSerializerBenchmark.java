@@ -0,0 +1,153 @@
+package org.apache.helix.zookeeper.datamodel.serializer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compare the ZNRecord serializers on the record shapes the controller writes and reads the most.
+ * Run with "-prof gc" to see the allocation of each call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ZNRecordSerializerBenchmark {
+  @Param({"mapper", "streaming", "pooled"})
+  public String _serializerName;
+
+  /**
+   * IDEALSTATE: list and map fields per partition.
+   * EXTERNALVIEW: a map field per partition.
+   * CURRENTSTATE: a small map field per partition, as in the CurrentState of an instance.
+   * CONFIG: simple fields only.
+   * COMPRESSED_EXTERNALVIEW: EXTERNALVIEW with compression enabled.
+   */
+  @Param({"IDEALSTATE", "EXTERNALVIEW", "CURRENTSTATE", "CONFIG", "COMPRESSED_EXTERNALVIEW"})
+  public String _shape;
+
+  @Param({"1024"})
+  public int _partitionCount;
+
+  private ZkSerializer _serializer;
+  private ZNRecord _record;
+  private byte[] _bytes;
+
+  @Setup
+  public void setUp() {
+    switch (_serializerName) {
+    case "mapper":
+      _serializer = new ZNRecordSerializer();
+      break;
+    case "streaming":
+      _serializer = new ZNRecordStreamingSerializer();
+      break;
+    case "pooled":
+      _serializer = new ZNRecordPooledSerializer();
+      break;
+    default:
+      throw new IllegalArgumentException("Unknown serializer " + _serializerName);
+    }
+    _record = createRecord(_shape, _partitionCount);
+    _bytes = _serializer.serialize(_record);
+  }
+
+  @Benchmark
+  public byte[] serialize() {
+    return _serializer.serialize(_record);
+  }
+
+  @Benchmark
+  public Object deserialize() {
+    return _serializer.deserialize(_bytes);
+  }
+
+  public static ZNRecord createRecord(String shape, int partitionCount) {
+    ZNRecord record = new ZNRecord(shape);
+    record.setSimpleField("NUM_PARTITIONS", Integer.toString(partitionCount));
+    record.setSimpleField("STATE_MODEL_DEF_REF", "MasterSlave");
+    switch (shape) {
+    case "IDEALSTATE":
+      for (int p = 0; p < partitionCount; p++) {
+        List<String> preferenceList = new ArrayList<>();
+        Map<String, String> stateMap = new TreeMap<>();
+        for (int r = 0; r < 3; r++) {
+          String instance = "localhost_" + (12000 + (p + r) % 50);
+          preferenceList.add(instance);
+          stateMap.put(instance, r == 0 ? "MASTER" : "SLAVE");
+        }
+        record.setListField("TestDB_" + p, preferenceList);
+        record.setMapField("TestDB_" + p, stateMap);
+      }
+      break;
+    case "EXTERNALVIEW":
+    case "COMPRESSED_EXTERNALVIEW":
+      for (int p = 0; p < partitionCount; p++) {
+        Map<String, String> stateMap = new TreeMap<>();
+        for (int r = 0; r < 3; r++) {
+          stateMap.put("localhost_" + (12000 + (p + r) % 50), r == 0 ? "MASTER" : "SLAVE");
+        }
+        record.setMapField("TestDB_" + p, stateMap);
+      }
+      if (shape.equals("COMPRESSED_EXTERNALVIEW")) {
+        record.setBooleanField(ZNRecord.ENABLE_COMPRESSION_BOOLEAN_FIELD, true);
+      }
+      break;
+    case "CURRENTSTATE":
+      record.setSimpleField("SESSION_ID", "1000a1b2c3d4e5f6");
+      for (int p = 0; p < partitionCount / 50; p++) {
+        Map<String, String> partitionMap = new TreeMap<>();
+        partitionMap.put("CURRENT_STATE", "MASTER");
+        partitionMap.put("START_TIME", "1600000000000");
+        partitionMap.put("END_TIME", "1600000000100");
+        record.setMapField("TestDB_" + p, partitionMap);
+      }
+      break;
+    case "CONFIG":
+      for (int i = 0; i < 32; i++) {
+        record.setSimpleField("CONFIG_KEY_" + i, "config_value_" + i);
+      }
+      break;
+    default:
+      throw new IllegalArgumentException("Unknown shape " + shape);
+    }
+    return record;
+  }
+}
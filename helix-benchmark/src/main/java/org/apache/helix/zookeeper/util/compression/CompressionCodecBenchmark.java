@@ -0,0 +1,116 @@
+package org.apache.helix.zookeeper.util.compression;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordSerializer;
+import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordSerializerBenchmark;
+import org.apache.helix.zookeeper.util.GZipCompressionUtil;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compare the compression codecs on the serialized record shapes of ZNRecordSerializerBenchmark.
+ * "LEGACY" is GZipCompressionUtil with the gzip streams of each call. The sizes are reported by
+ * the auxiliary counters of the compress benchmark, and by the CompressionCodec MBeans at runtime.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CompressionCodecBenchmark {
+  private static final String LEGACY = "LEGACY";
+
+  @Param({"LEGACY", "GZIP", "DEFLATE", "DEFLATE_DICTIONARY"})
+  public String _codecName;
+
+  @Param({"IDEALSTATE", "EXTERNALVIEW", "CURRENTSTATE"})
+  public String _shape;
+
+  @Param({"1024"})
+  public int _partitionCount;
+
+  private CompressionCodec _codec;
+  private byte[] _bytes;
+  private byte[] _compressedBytes;
+
+  /**
+   * The total bytes before and after the compression in each iteration. Their ratio is the
+   * compression ratio of the codec on the shape.
+   */
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  @State(Scope.Thread)
+  public static class Sizes {
+    public long uncompressedBytes;
+    public long compressedBytes;
+  }
+
+  @Setup
+  public void setUp() throws IOException {
+    _bytes = new ZNRecordSerializer()
+        .serialize(ZNRecordSerializerBenchmark.createRecord(_shape, _partitionCount));
+    if (!LEGACY.equals(_codecName)) {
+      _codec = CompressionCodecs.getCodec(_codecName);
+      if (_codec == null) {
+        throw new IllegalArgumentException("Unknown codec " + _codecName);
+      }
+    }
+    _compressedBytes = compressBytes();
+  }
+
+  @Benchmark
+  public byte[] compress(Sizes sizes) throws IOException {
+    byte[] compressedBytes = compressBytes();
+    sizes.uncompressedBytes += _bytes.length;
+    sizes.compressedBytes += compressedBytes.length;
+    return compressedBytes;
+  }
+
+  @Benchmark
+  public byte[] uncompress() throws IOException {
+    if (_codec == null) {
+      return GZipCompressionUtil.uncompress(new ByteArrayInputStream(_compressedBytes));
+    }
+    return CompressionCodecs.uncompress(_compressedBytes);
+  }
+
+  private byte[] compressBytes() throws IOException {
+    if (_codec == null) {
+      return GZipCompressionUtil.compress(_bytes);
+    }
+    return CompressionCodecs.compress(_bytes, 0, _bytes.length, _codec);
+  }
+}
@@ -85,6 +85,59 @@ public class SystemPropertyKeys {
 
   public static final String STATEUPDATEUTIL_ERROR_PERSISTENCY_ENABLED = "helix.StateUpdateUtil.errorLog.enabled";
 
+  // StatusUpdateUtil sink: ZK (default, per-update writes), BUFFERED or FILE
+  public static final String STATUS_UPDATE_SINK_TYPE = "helix.StatusUpdateUtil.sink.type";
+
+  public static final String STATUS_UPDATE_SINK_BUFFER_CAPACITY =
+      "helix.StatusUpdateUtil.sink.buffer.capacity";
+
+  public static final String STATUS_UPDATE_SINK_FLUSH_INTERVAL_MS =
+      "helix.StatusUpdateUtil.sink.flushInterval.ms";
+
+  // Fraction (0.0 - 1.0) of successful message status updates that are kept by the buffered sink
+  public static final String STATUS_UPDATE_SINK_SAMPLE_RATE =
+      "helix.StatusUpdateUtil.sink.sampleRate";
+
+  public static final String STATUS_UPDATE_SINK_FILE_DIR = "helix.StatusUpdateUtil.sink.file.dir";
+
+  // Whether the buffered sink writes the participant STATUSUPDATES znodes, which the ZK sink does
+  // not write. Disabled by default.
+  public static final String STATUS_UPDATE_SINK_PERSIST_STATUS_UPDATES =
+      "helix.StatusUpdateUtil.sink.persistStatusUpdates";
+
+  // Participant message executor strategy: DEDICATED (default, a thread pool per key), SHARED
+  // or VIRTUAL
+  public static final String MESSAGE_EXECUTOR_STRATEGY_TYPE =
+      "helix.HelixTaskExecutor.executorStrategy";
+
+  public static final String MESSAGE_EXECUTOR_SHARED_POOL_SIZE =
+      "helix.HelixTaskExecutor.sharedPool.size";
+
+  // Participant message inbox: how long a read message id is remembered without being refreshed,
+  // and the max number of messages fetched by one pipelined batch read
+  public static final String MESSAGE_INBOX_KNOWN_ID_TTL_MS =
+      "helix.HelixTaskExecutor.inbox.knownIdTtlMs";
+
+  public static final String MESSAGE_INBOX_FETCH_BATCH_SIZE =
+      "helix.HelixTaskExecutor.inbox.fetchBatchSize";
+
   public static final String TASK_CURRENT_STATE_PATH_DISABLED =
       "helix.taskCurrentStatePathDisabled";
+
+  // ZkBaseDataAccessor batch operations: the max number of async requests in flight per accessor
+  // (0 or negative for no limit), and the request latency above which the window is halved
+  // (0 or negative to keep the window at the max)
+  public static final String ZK_ASYNC_BATCH_MAX_IN_FLIGHT =
+      "helix.ZkBaseDataAccessor.async.maxInFlight";
+
+  public static final String ZK_ASYNC_BATCH_TARGET_LATENCY_MS =
+      "helix.ZkBaseDataAccessor.async.targetLatencyMs";
+
+  // ZkCacheBaseDataAccessor and ZkHelixPropertyStore: the max estimated bytes of the data held by
+  // each cache of an accessor (0 or negative for no limit), and the comma separated paths whose
+  // data is never evicted, relative to the chroot of the accessor
+  public static final String ZK_CACHE_MAX_BYTES = "helix.ZkCacheBaseDataAccessor.cache.maxBytes";
+
+  public static final String ZK_CACHE_PINNED_PATHS =
+      "helix.ZkCacheBaseDataAccessor.cache.pinnedPaths";
 }
@@ -256,6 +256,21 @@ public interface BaseDataAccessor<T> {
    */
   void unsubscribeChildChanges(String path, IZkChildListener listener);
 
+  /**
+   * Commit the operations of a transaction. The operations are applied atomically, all or none of
+   * them, as long as they fit in a single request to the backing store. A larger transaction is
+   * split into requests that are committed in order, and the commit stops at the first failed
+   * request, leaving the earlier requests applied.
+   * @param transaction the operations to commit
+   * @return true if all the operations are applied, false otherwise (e.g. if a ZNode to create
+   *         exists, or a ZNode does not have the expected version)
+   * @throws UnsupportedOperationException if the accessor does not support transactions
+   */
+  default boolean commit(DataAccessorTransaction<T> transaction) {
+    throw new UnsupportedOperationException(
+        getClass().getSimpleName() + " does not support transactions.");
+  }
+
   /**
    * TODO refactor this. reset() should not be in data accessor
    * reset the cache if any, when session expiry happens
@@ -0,0 +1,156 @@
+package org.apache.helix;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The operations of a transaction on a {@link BaseDataAccessor}, committed together by
+ * {@link BaseDataAccessor#commit(DataAccessorTransaction)}. The operations are applied in the
+ * order they are added, so a ZNode must be created after its parent and removed before it.
+ * @param <T> The type of record to use
+ */
+public class DataAccessorTransaction<T> {
+  public enum OperationType {
+    CREATE,
+    SET,
+    REMOVE,
+    CHECK
+  }
+
+  /**
+   * An operation of the transaction.
+   */
+  public static class Operation<T> {
+    private final OperationType _type;
+    private final String _path;
+    private final T _record;
+    private final int _version;
+    private final int _options;
+
+    private Operation(OperationType type, String path, T record, int version, int options) {
+      _type = type;
+      _path = path;
+      _record = record;
+      _version = version;
+      _options = options;
+    }
+
+    public OperationType getType() {
+      return _type;
+    }
+
+    public String getPath() {
+      return _path;
+    }
+
+    /**
+     * @return the record to write, null for an empty ZNode or an operation that does not write
+     */
+    public T getRecord() {
+      return _record;
+    }
+
+    /**
+     * @return the expected version, -1 to match any version
+     */
+    public int getVersion() {
+      return _version;
+    }
+
+    /**
+     * @return the access options of a create, see {@link AccessOption}
+     */
+    public int getOptions() {
+      return _options;
+    }
+
+    @Override
+    public String toString() {
+      return _type + " " + _path + (_version == -1 ? "" : ", version: " + _version);
+    }
+  }
+
+  private final List<Operation<T>> _operations = new ArrayList<>();
+
+  /**
+   * Create a ZNode. The parent must exist or be created earlier in the transaction.
+   * @param path path to the ZNode to create
+   * @param record the data to write to the ZNode, null for an empty ZNode
+   * @param options Set the type of ZNode see the valid values in {@link AccessOption}
+   * @return this transaction
+   */
+  public DataAccessorTransaction<T> create(String path, T record, int options) {
+    _operations.add(new Operation<>(OperationType.CREATE, path, record, -1, options));
+    return this;
+  }
+
+  /**
+   * Set the data of an existing ZNode.
+   * @param path path to the ZNode to set
+   * @param record the data to write to the ZNode
+   * @param expectVersion the expected version of the ZNode, -1 to match any version
+   * @return this transaction
+   */
+  public DataAccessorTransaction<T> set(String path, T record, int expectVersion) {
+    _operations.add(new Operation<>(OperationType.SET, path, record, expectVersion, 0));
+    return this;
+  }
+
+  /**
+   * Remove a ZNode without children.
+   * @param path path to the ZNode to remove
+   * @param expectVersion the expected version of the ZNode, -1 to match any version
+   * @return this transaction
+   */
+  public DataAccessorTransaction<T> remove(String path, int expectVersion) {
+    _operations.add(new Operation<T>(OperationType.REMOVE, path, null, expectVersion, 0));
+    return this;
+  }
+
+  /**
+   * Check that a ZNode exists with the expected version, the transaction fails otherwise.
+   * @param path path to the ZNode to check
+   * @param expectVersion the expected version of the ZNode, -1 to only check the ZNode exists
+   * @return this transaction
+   */
+  public DataAccessorTransaction<T> check(String path, int expectVersion) {
+    _operations.add(new Operation<T>(OperationType.CHECK, path, null, expectVersion, 0));
+    return this;
+  }
+
+  /**
+   * @return the operations in the order they are applied
+   */
+  public List<Operation<T>> getOperations() {
+    return Collections.unmodifiableList(_operations);
+  }
+
+  public boolean isEmpty() {
+    return _operations.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return _operations.toString();
+  }
+}
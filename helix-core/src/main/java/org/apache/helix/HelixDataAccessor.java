@@ -206,6 +206,16 @@ public interface HelixDataAccessor {
   <T extends HelixProperty> boolean[] updateChildren(List<String> paths,
       List<DataUpdater<ZNRecord>> updaters, int options);
 
+  /**
+   * Commit the operations of a transaction on the properties, see
+   * {@link BaseDataAccessor#commit(DataAccessorTransaction)}.
+   * @param transaction the operations to commit
+   * @return true if all the operations are applied, false otherwise
+   */
+  default boolean commit(HelixPropertyTransaction transaction) {
+    return getBaseDataAccessor().commit(transaction.getDataAccessorTransaction());
+  }
+
   /**
    * Get key builder for the accessor
    * @return instantiated PropertyKey.Builder
@@ -0,0 +1,106 @@
+package org.apache.helix;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.helix.api.exceptions.HelixMetaDataAccessException;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+
+/**
+ * The operations of a transaction on the properties of a {@link HelixDataAccessor}, committed
+ * together by {@link HelixDataAccessor#commit(HelixPropertyTransaction)}. The operations are
+ * applied in the order they are added, so a property must be created after its parent and removed
+ * before it.
+ * Note a property is written as a single ZNode, a bucketized IdealState or ExternalView is not
+ * split into buckets.
+ */
+public class HelixPropertyTransaction {
+  private final DataAccessorTransaction<ZNRecord> _transaction = new DataAccessorTransaction<>();
+
+  /**
+   * Create a property. The parent must exist or be created earlier in the transaction.
+   * @param key the key of the property
+   * @param value the value, null to create an empty ZNode such as the parent of other properties
+   * @return this transaction
+   */
+  public HelixPropertyTransaction createProperty(PropertyKey key, HelixProperty value) {
+    _transaction.create(key.getPath(), value == null ? null : value.getRecord(),
+        getOptions(key.getType()));
+    return this;
+  }
+
+  /**
+   * Set an existing property.
+   * @param key the key of the property
+   * @param value the value
+   * @param expectVersion the expected version of the property, -1 to match any version
+   * @return this transaction
+   */
+  public HelixPropertyTransaction setProperty(PropertyKey key, HelixProperty value,
+      int expectVersion) {
+    if (!value.isValid()) {
+      throw new HelixMetaDataAccessException(
+          "The ZNRecord for " + key.getType() + " is not valid.");
+    }
+    _transaction.set(key.getPath(), value.getRecord(), expectVersion);
+    return this;
+  }
+
+  /**
+   * Remove a property without children.
+   * @param key the key of the property
+   * @param expectVersion the expected version of the property, -1 to match any version
+   * @return this transaction
+   */
+  public HelixPropertyTransaction removeProperty(PropertyKey key, int expectVersion) {
+    _transaction.remove(key.getPath(), expectVersion);
+    return this;
+  }
+
+  /**
+   * Check that a property exists with the expected version, the transaction fails otherwise.
+   * @param key the key of the property
+   * @param expectVersion the expected version of the property, -1 to only check it exists
+   * @return this transaction
+   */
+  public HelixPropertyTransaction checkVersion(PropertyKey key, int expectVersion) {
+    _transaction.check(key.getPath(), expectVersion);
+    return this;
+  }
+
+  /**
+   * @return the transaction on the ZNodes of the properties
+   */
+  public DataAccessorTransaction<ZNRecord> getDataAccessorTransaction() {
+    return _transaction;
+  }
+
+  public boolean isEmpty() {
+    return _transaction.isEmpty();
+  }
+
+  private static int getOptions(PropertyType type) {
+    return type.isPersistent() ? AccessOption.PERSISTENT : AccessOption.EPHEMERAL;
+  }
+
+  @Override
+  public String toString() {
+    return _transaction.toString();
+  }
+}
@@ -32,7 +32,9 @@ public class NotificationContext {
   public enum MapKey {
     TASK_EXECUTOR,
     CURRENT_STATE_UPDATE,
-    HELIX_TASK_RESULT
+    HELIX_TASK_RESULT,
+    // the child names listed when the child change watch was re-installed
+    CHILD_NAMES
   }
 
   private Map<String, Object> _map;
@@ -19,6 +19,9 @@ package org.apache.helix.api.listeners;
  * under the License.
  */
 
+import java.util.List;
+
+import org.apache.helix.spectator.RoutingTableDelta;
 import org.apache.helix.spectator.RoutingTableSnapshot;
 
 /**
@@ -33,4 +36,19 @@ public interface RoutingTableChangeListener {
    * @param context
    */
   void onRoutingTableChange(RoutingTableSnapshot routingTableSnapshot, Object context);
+
+  /**
+   * Invoked when RoutingTable on changes, with the changes since the previous snapshot of the
+   * same source delivered to this listener. The first snapshot delivered to a listener is compared
+   * with an empty routing table. The default implementation ignores the deltas.
+   *
+   * @param routingTableSnapshot
+   * @param deltas the resource and replica changes, resource additions first and resource
+   *          removals last
+   * @param context
+   */
+  default void onRoutingTableChange(RoutingTableSnapshot routingTableSnapshot,
+      List<RoutingTableDelta> deltas, Object context) {
+    onRoutingTableChange(routingTableSnapshot, context);
+  }
 }
@@ -108,7 +108,7 @@ public class BasicClusterDataCache implements ControlContextProvider {
 
     if (_propertyDataChangedMap.get(HelixConstants.ChangeType.EXTERNAL_VIEW)) {
       _propertyDataChangedMap.put(HelixConstants.ChangeType.EXTERNAL_VIEW, false);
-      _externalViewCache.refresh(accessor);
+      refreshExternalViews(accessor);
     }
 
     if (_propertyDataChangedMap.get(HelixConstants.ChangeType.LIVE_INSTANCE)) {
@@ -140,6 +140,14 @@ public class BasicClusterDataCache implements ControlContextProvider {
     }
   }
 
+  /**
+   * Refresh the ExternalViews, the subclasses may override it to only refresh a part of them.
+   * @param accessor
+   */
+  protected void refreshExternalViews(HelixDataAccessor accessor) {
+    _externalViewCache.refresh(accessor);
+  }
+
   /**
    * Retrieves the ExternalView for all resources
    *
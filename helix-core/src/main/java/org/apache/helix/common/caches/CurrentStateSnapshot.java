@@ -60,6 +60,10 @@ public class CurrentStateSnapshot extends AbstractDataSnapshot<CurrentState> {
       for (PropertyKey propertyKey : _updatedStateKeys) {
         CurrentState prevState = _prevStateMap.get(propertyKey);
         CurrentState curState = _properties.get(propertyKey);
+        if (curState == null) {
+          // The current state is removed after its key is listed, nothing is newly updated.
+          continue;
+        }
 
         Map<String, Long> partitionUpdateEndTimes = null;
         for (String partition : curState.getPartitionStateMap().keySet()) {
@@ -19,6 +19,7 @@ package org.apache.helix.common.caches;
  * under the License.
  */
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 
@@ -79,6 +80,16 @@ public class CustomizedViewCache extends AbstractDataCache<CustomizedView> {
     _customizedViewCache.refresh(accessor);
   }
 
+  /**
+   * This refreshes the CustomizedView data of the given resources only, the CustomizedViews of the
+   * other resources are neither read nor kept in the cache.
+   * @param accessor
+   * @param resourceNames
+   */
+  public void refresh(HelixDataAccessor accessor, Collection<String> resourceNames) {
+    _customizedViewCache.refresh(accessor, resourceNames);
+  }
+
   /**
    * Return CustomizedView map for all resources.
    * @return
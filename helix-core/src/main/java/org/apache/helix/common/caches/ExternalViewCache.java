@@ -20,10 +20,10 @@ package org.apache.helix.common.caches;
  */
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -73,11 +73,21 @@ public class ExternalViewCache extends AbstractDataCache<ExternalView> {
    * @return
    */
   public void refresh(HelixDataAccessor accessor) {
+    refresh(accessor, accessor.getChildNames(externalViewsKey(accessor.keyBuilder())));
+  }
+
+  /**
+   * This refreshes the ExternalView data of the given resources only, the ExternalViews of the
+   * other resources are neither read nor kept in the cache.
+   *
+   * @param accessor
+   * @param resources
+   */
+  public void refresh(HelixDataAccessor accessor, Collection<String> resources) {
     long startTime = System.currentTimeMillis();
     PropertyKey.Builder keyBuilder = accessor.keyBuilder();
     Set<PropertyKey> currentPropertyKeys = new HashSet<>();
 
-    List<String> resources = accessor.getChildNames(externalViewsKey(keyBuilder));
     for (String resource : resources) {
       currentPropertyKeys.add(externalViewKey(keyBuilder, resource));
     }
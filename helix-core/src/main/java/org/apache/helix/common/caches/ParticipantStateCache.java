@@ -88,6 +88,15 @@ public abstract class ParticipantStateCache<T> extends AbstractDataCache {
       }
     }
 
+    // Keep the state maps of the instances whose states are all the same objects, so the users
+    // can tell the unchanged instances by reference
+    for (Map.Entry<String, Map<String, Map<String, T>>> entry : allParticipantStateMap.entrySet()) {
+      Map<String, Map<String, T>> previousInstanceMap = _participantStateMap.get(entry.getKey());
+      if (previousInstanceMap != null && isSameStates(previousInstanceMap, entry.getValue())) {
+        entry.setValue(previousInstanceMap);
+      }
+    }
+
     _participantStateMap = Collections.unmodifiableMap(allParticipantStateMap);
 
     long endTime = System.currentTimeMillis();
@@ -102,6 +111,26 @@ public abstract class ParticipantStateCache<T> extends AbstractDataCache {
     return true;
   }
 
+  private boolean isSameStates(Map<String, Map<String, T>> instanceMap,
+      Map<String, Map<String, T>> otherInstanceMap) {
+    if (!instanceMap.keySet().equals(otherInstanceMap.keySet())) {
+      return false;
+    }
+    for (Map.Entry<String, Map<String, T>> entry : instanceMap.entrySet()) {
+      Map<String, T> states = entry.getValue();
+      Map<String, T> otherStates = otherInstanceMap.get(entry.getKey());
+      if (states.size() != otherStates.size()) {
+        return false;
+      }
+      for (Map.Entry<String, T> stateEntry : states.entrySet()) {
+        if (otherStates.get(stateEntry.getKey()) != stateEntry.getValue()) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
   // reload participant states that has been changed from zk to local cache.
   private void refreshParticipantStatesCacheFromZk(HelixDataAccessor accessor,
       Map<String, LiveInstance> liveInstanceMap) {
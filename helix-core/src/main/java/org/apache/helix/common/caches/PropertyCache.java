@@ -20,6 +20,7 @@ package org.apache.helix.common.caches;
  */
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -128,10 +129,17 @@ public class PropertyCache<T extends HelixProperty> extends AbstractDataCache<T>
   @VisibleForTesting
   SelectivePropertyRefreshInputs<T> genSelectiveUpdateInput(HelixDataAccessor accessor,
       Map<String, T> oldCache, PropertyCache.PropertyCacheKeyFuncs<T> propertyKeyFuncs) {
-    // Generate keys for all current live instances
+    return genSelectiveUpdateInput(accessor, oldCache, propertyKeyFuncs,
+        accessor.getChildNames(propertyKeyFuncs.getRootKey(accessor)));
+  }
+
+  private SelectivePropertyRefreshInputs<T> genSelectiveUpdateInput(HelixDataAccessor accessor,
+      Map<String, T> oldCache, PropertyCache.PropertyCacheKeyFuncs<T> propertyKeyFuncs,
+      Collection<String> objNames) {
+    // Generate keys for all current objects
     Set<PropertyKey> latestKeys = Sets.newHashSet();
-    for (String liveInstanceName : accessor.getChildNames(propertyKeyFuncs.getRootKey(accessor))) {
-      latestKeys.add(propertyKeyFuncs.getObjPropertyKey(accessor, liveInstanceName));
+    for (String objName : objNames) {
+      latestKeys.add(propertyKeyFuncs.getObjPropertyKey(accessor, objName));
     }
 
     Set<PropertyKey> oldCachedKeys = Sets.newHashSet();
@@ -164,14 +172,33 @@ public class PropertyCache<T extends HelixProperty> extends AbstractDataCache<T>
             _propertyDescription, System.currentTimeMillis() - start, _useSelectiveUpdate));
   }
 
+  /**
+   * Refresh the cache with the given data accessor, only reading the objects of the given names.
+   * The objects that are not in the given names are removed from the cache, and the names that
+   * do not exist in the object store are ignored.
+   * @param accessor helix data accessor provided by caller
+   * @param objNames the names of the objects to refresh
+   */
+  public void refresh(final HelixDataAccessor accessor, Collection<String> objNames) {
+    long start = System.currentTimeMillis();
+    doRefreshWithSelectiveUpdate(accessor,
+        genSelectiveUpdateInput(accessor, _objCache, _keyFuncs, objNames));
+    LogUtil.logInfo(LOG, genEventInfo(),
+        String.format("Refreshed %s of %s selected property %s took %s ms.", _objMap.size(),
+            objNames.size(), _propertyDescription, System.currentTimeMillis() - start));
+  }
+
   private void doSimpleCacheRefresh(final HelixDataAccessor accessor) {
     _objCache = accessor.getChildValuesMap(_keyFuncs.getRootKey(accessor), true);
     _objMap = new HashMap<>(_objCache);
   }
 
   private void doRefreshWithSelectiveUpdate(final HelixDataAccessor accessor) {
-    SelectivePropertyRefreshInputs<T> input =
-        genSelectiveUpdateInput(accessor, _objCache, _keyFuncs);
+    doRefreshWithSelectiveUpdate(accessor, genSelectiveUpdateInput(accessor, _objCache, _keyFuncs));
+  }
+
+  private void doRefreshWithSelectiveUpdate(final HelixDataAccessor accessor,
+      SelectivePropertyRefreshInputs<T> input) {
     Map<PropertyKey, T> updatedData = refreshProperties(accessor, new HashSet<>(input.getReloadKeys()),
         input.getCachedKeys(), input.getCachedPropertyMap(), new HashSet<>());
     _objCache = propertyKeyMapToStringMap(updatedData, _keyFuncs);
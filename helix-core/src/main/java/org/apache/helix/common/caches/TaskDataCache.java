@@ -25,10 +25,12 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.helix.AccessOption;
 import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.HelixProperty;
 import org.apache.helix.PropertyType;
 import org.apache.helix.common.controllers.ControlContextProvider;
 import org.apache.helix.controller.LogUtil;
@@ -41,6 +43,7 @@ import org.apache.helix.task.TaskConstants;
 import org.apache.helix.task.WorkflowConfig;
 import org.apache.helix.task.WorkflowContext;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -60,6 +63,11 @@ public class TaskDataCache extends AbstractDataCache {
   private Map<String, ZNRecord> _contextMap = new HashMap<>();
   private Set<String> _contextToUpdate = new HashSet<>();
   private Set<String> _contextToRemove = new HashSet<>();
+  // The version of each cached context, by the name of its node under the context root.
+  private Map<String, ContextVersion> _contextVersionMap = new HashMap<>();
+  // The number of contexts read from zookeeper and reused in the last refresh.
+  private int _contextReadCount = 0;
+  private int _contextReusedCount = 0;
   // The following fields have been added for quota-based task scheduling
   private final AssignableInstanceManager _assignableInstanceManager =
       new AssignableInstanceManager();
@@ -71,6 +79,32 @@ public class TaskDataCache extends AbstractDataCache {
     CONTEXT
   }
 
+  /**
+   * The version of a cached context. The czxid tells a context apart from a recreated one.
+   */
+  private static class ContextVersion {
+    private final String _name;
+    private final int _version;
+    private final long _czxid;
+
+    ContextVersion(String name, Stat stat) {
+      this(name, stat.getVersion(), stat.getCzxid());
+    }
+
+    private ContextVersion(String name, int version, long czxid) {
+      _name = name;
+      _version = version;
+      _czxid = czxid;
+    }
+
+    boolean matches(Stat stat) {
+      return _version == stat.getVersion() && _czxid == stat.getCzxid();
+    }
+
+    ContextVersion nextVersion() {
+      return new ContextVersion(_name, _version + 1, _czxid);
+    }
+  }
 
   public TaskDataCache(ControlContextProvider contextProvider) {
     super(contextProvider);
@@ -95,25 +129,43 @@ public class TaskDataCache extends AbstractDataCache {
   public synchronized boolean refresh(HelixDataAccessor accessor,
       Map<String, ResourceConfig> resourceConfigMap) {
     refreshContexts(accessor);
-    // update workflow and job configs.
+    // update workflow and job configs. The configs parsed from the same version of the resource
+    // configs are reused, together with the job dags and the task configs parsed from them.
+    Map<String, WorkflowConfig> oldWorkflowConfigs = new HashMap<>(_workflowConfigMap);
     _workflowConfigMap.clear();
     Map<String, JobConfig> newJobConfigs = new HashMap<>();
     Set<String> workflowsUpdated = new HashSet<>();
+    int parsedCount = 0;
     for (Map.Entry<String, ResourceConfig> entry : resourceConfigMap.entrySet()) {
-      if (entry.getValue().getRecord().getSimpleFields()
+      ResourceConfig resourceConfig = entry.getValue();
+      if (resourceConfig.getRecord().getReadOnlySimpleFields()
           .containsKey(WorkflowConfig.WorkflowConfigProperty.Dag.name())) {
-        _workflowConfigMap.put(entry.getKey(), new WorkflowConfig(entry.getValue()));
+        WorkflowConfig workflowConfig = oldWorkflowConfigs.get(entry.getKey());
+        if (workflowConfig == null || !isSameVersion(workflowConfig, resourceConfig)) {
+          workflowConfig = new WorkflowConfig(resourceConfig);
+          parsedCount++;
+        }
+        _workflowConfigMap.put(entry.getKey(), workflowConfig);
         if (!_runtimeJobDagMap.containsKey(entry.getKey())) {
-          WorkflowConfig workflowConfig = _workflowConfigMap.get(entry.getKey());
           _runtimeJobDagMap.put(entry.getKey(), new RuntimeJobDag(workflowConfig.getJobDag(),
               workflowConfig.isJobQueue() || !workflowConfig.isTerminable(),
               workflowConfig.getParallelJobs(), workflowConfig.getRecord().getVersion()));
         }
-      } else if (entry.getValue().getRecord().getSimpleFields()
+      } else if (resourceConfig.getRecord().getReadOnlySimpleFields()
           .containsKey(WorkflowConfig.WorkflowConfigProperty.WorkflowID.name())) {
-        newJobConfigs.put(entry.getKey(), new JobConfig(entry.getValue()));
+        JobConfig jobConfig = _jobConfigMap.get(entry.getKey());
+        if (jobConfig == null || !isSameVersion(jobConfig, resourceConfig)) {
+          jobConfig = new JobConfig(resourceConfig);
+          parsedCount++;
+        }
+        newJobConfigs.put(entry.getKey(), jobConfig);
       }
     }
+    if (LOG.isDebugEnabled()) {
+      LogUtil.logDebug(LOG, genEventInfo(), String
+          .format("# of workflow/job config parsed: %d, reused: %d", parsedCount,
+              _workflowConfigMap.size() + newJobConfigs.size() - parsedCount));
+    }
 
     // If the workflow config has been updated, it's possible that the dag has been changed.
     for (String workflowName : _workflowConfigMap.keySet()) {
@@ -141,42 +193,98 @@ public class TaskDataCache extends AbstractDataCache {
     return true;
   }
 
+  /**
+   * Check if the workflow or job config is parsed from the same version of the resource config. A
+   * resource config that is not read from zookeeper has no creation time, and is always parsed.
+   */
+  private static boolean isSameVersion(HelixProperty config, ResourceConfig resourceConfig) {
+    ZNRecord record = config.getRecord();
+    ZNRecord newRecord = resourceConfig.getRecord();
+    return newRecord.getCreationTime() > 0 && record.getVersion() == newRecord.getVersion()
+        && record.getCreationTime() == newRecord.getCreationTime()
+        && record.getModifiedTime() == newRecord.getModifiedTime();
+  }
+
+  /**
+   * Refresh the contexts incrementally. The stats of all the contexts are read, and only the
+   * contexts that are new or changed since the last refresh are read from zookeeper. The other
+   * contexts, including the ones written by this cache, are reused.
+   */
   private void refreshContexts(HelixDataAccessor accessor) {
-    // TODO: Need an optimize for reading context only if the refresh is needed.
     long start = System.currentTimeMillis();
-    _contextMap.clear();
+    _contextReadCount = 0;
+    _contextReusedCount = 0;
     if (_controlContextProvider.getClusterName() == null || _controlContextProvider.getClusterName()
         .equalsIgnoreCase(UNKNOWN_CLUSTER)) {
+      _contextMap.clear();
+      _contextVersionMap.clear();
       return;
     }
     String path = String.format("/%s/%s%s", _controlContextProvider.getClusterName(),
         PropertyType.PROPERTYSTORE.name(), TaskConstants.REBALANCER_CONTEXT_ROOT);
-    List<String> contextPaths = new ArrayList<>();
     List<String> childNames = accessor.getBaseDataAccessor().getChildNames(path, 0);
     if (childNames == null) {
+      _contextMap.clear();
+      _contextVersionMap.clear();
       return;
     }
+    List<String> contextPaths = new ArrayList<>();
     for (String resourceName : childNames) {
       contextPaths.add(getTaskDataPath(resourceName, TaskDataType.CONTEXT));
     }
-
-    List<ZNRecord> contexts = accessor.getBaseDataAccessor().get(contextPaths, null, 0, true);
-
-    for (int i = 0; i < contexts.size(); i++) {
-      ZNRecord context = contexts.get(i);
-      if (context != null && context.getSimpleField(NAME) != null) {
-        _contextMap.put(context.getSimpleField(NAME), context);
+    Stat[] stats = accessor.getBaseDataAccessor().getStats(contextPaths, 0);
+
+    Map<String, ZNRecord> contextMap = new HashMap<>();
+    Map<String, ContextVersion> contextVersionMap = new HashMap<>();
+    List<String> readChildNames = new ArrayList<>();
+    List<String> readPaths = new ArrayList<>();
+    for (int i = 0; i < childNames.size(); i++) {
+      String childName = childNames.get(i);
+      ContextVersion version = _contextVersionMap.get(childName);
+      if (stats[i] == null) {
+        // The context node does not exist, there is nothing to read
+        contextMap.put(childName, null);
+      } else if (version != null && version.matches(stats[i]) && _contextMap
+          .containsKey(version._name) && !_contextToUpdate.contains(version._name)) {
+        contextMap.put(version._name, _contextMap.get(version._name));
+        contextVersionMap.put(childName, version);
+        _contextReusedCount++;
       } else {
-        _contextMap.put(childNames.get(i), context);
-        LogUtil.logDebug(LOG, genEventInfo(),
-            String.format("Context for %s is null or miss the context NAME!", childNames.get((i))));
+        readChildNames.add(childName);
+        readPaths.add(contextPaths.get(i));
+      }
+    }
+
+    if (!readPaths.isEmpty()) {
+      List<Stat> readStats = new ArrayList<>();
+      List<ZNRecord> contexts =
+          accessor.getBaseDataAccessor().get(readPaths, readStats, 0, true);
+      for (int i = 0; i < contexts.size(); i++) {
+        ZNRecord context = contexts.get(i);
+        String childName = readChildNames.get(i);
+        String name = childName;
+        if (context != null && context.getSimpleField(NAME) != null) {
+          name = context.getSimpleField(NAME);
+        } else {
+          LogUtil.logDebug(LOG, genEventInfo(),
+              String.format("Context for %s is null or miss the context NAME!", childName));
+        }
+        contextMap.put(name, context);
+        if (context != null && readStats.get(i) != null) {
+          contextVersionMap.put(childName, new ContextVersion(name, readStats.get(i)));
+        }
       }
+      _contextReadCount = readPaths.size();
     }
 
+    _contextMap.clear();
+    _contextMap.putAll(contextMap);
+    _contextVersionMap = contextVersionMap;
+
     if (LOG.isDebugEnabled()) {
-      LogUtil.logDebug(LOG, genEventInfo(),
-          "# of workflow/job context read from zk: " + _contextMap.size() + ". Take " + (
-              System.currentTimeMillis() - start) + " ms");
+      LogUtil.logDebug(LOG, genEventInfo(), String
+          .format("# of workflow/job context read from zk: %d, reused: %d. Take %d ms",
+              _contextReadCount, _contextReusedCount, System.currentTimeMillis() - start));
     }
   }
 
@@ -229,7 +337,7 @@ public class TaskDataCache extends AbstractDataCache {
    */
   public JobContext getJobContext(String resourceName) {
     if (_contextMap.containsKey(resourceName) && _contextMap.get(resourceName) != null) {
-      return new JobContext(_contextMap.get(resourceName));
+      return new JobContext(copyContext(_contextMap.get(resourceName)));
     }
     return null;
   }
@@ -243,11 +351,32 @@ public class TaskDataCache extends AbstractDataCache {
    */
   public WorkflowContext getWorkflowContext(String resourceName) {
     if (_contextMap.containsKey(resourceName) && _contextMap.get(resourceName) != null) {
-      return new WorkflowContext(_contextMap.get(resourceName));
+      return new WorkflowContext(copyContext(_contextMap.get(resourceName)));
     }
     return null;
   }
 
+  /**
+   * Copy a cached context with the maps and lists in its map and list fields, which the contexts
+   * change in place. The cached contexts are reused by the next refresh, so the changes that are
+   * not updated to this cache must not be visible to it.
+   */
+  private static ZNRecord copyContext(ZNRecord context) {
+    ZNRecord copy = new ZNRecord(context);
+    for (Map.Entry<String, Map<String, String>> entry : context.getReadOnlyMapFields()
+        .entrySet()) {
+      if (entry.getValue() != null) {
+        copy.setMapField(entry.getKey(), new TreeMap<>(entry.getValue()));
+      }
+    }
+    for (Map.Entry<String, List<String>> entry : context.getReadOnlyListFields().entrySet()) {
+      if (entry.getValue() != null) {
+        copy.setListField(entry.getKey(), new ArrayList<>(entry.getValue()));
+      }
+    }
+    return copy;
+  }
+
   /**
    * Update context of the Job
    */
@@ -267,10 +396,11 @@ public class TaskDataCache extends AbstractDataCache {
   }
 
   /**
-   * Update context of the Workflow or Job
+   * Update context of the Workflow or Job. A copy is cached, the caller may keep changing the
+   * context.
    */
   private void updateContext(String resourceName, ZNRecord record) {
-    _contextMap.put(resourceName, record);
+    _contextMap.put(resourceName, copyContext(record));
     _contextToUpdate.add(resourceName);
   }
 
@@ -285,10 +415,12 @@ public class TaskDataCache extends AbstractDataCache {
 
   private void batchUpdateData(HelixDataAccessor accessor, List<String> dataUpdateNames,
       Map<String, ZNRecord> dataMap, Set<String> dataToUpdate, TaskDataType taskDataType) {
+    List<String> updatedNames = new ArrayList<>();
     List<String> contextUpdatePaths = new ArrayList<>();
     List<ZNRecord> updatedData = new ArrayList<>();
     for (String resourceName : dataUpdateNames) {
       if (dataMap.get(resourceName) != null) {
+        updatedNames.add(resourceName);
         contextUpdatePaths.add(getTaskDataPath(resourceName, taskDataType));
         updatedData.add(dataMap.get(resourceName));
       }
@@ -298,11 +430,20 @@ public class TaskDataCache extends AbstractDataCache {
         .setChildren(contextUpdatePaths, updatedData, AccessOption.PERSISTENT);
 
     for (int i = 0; i < updateSuccess.length; i++) {
+      String resourceName = updatedNames.get(i);
       if (updateSuccess[i]) {
-        dataToUpdate.remove(dataUpdateNames.get(i));
+        dataToUpdate.remove(resourceName);
+        // The cached data is what has been written, so the next refresh does not read it back
+        // unless it is changed by others.
+        ContextVersion version = _contextVersionMap.get(resourceName);
+        if (version != null && version._name.equals(resourceName)) {
+          _contextVersionMap.put(resourceName, version.nextVersion());
+        } else {
+          _contextVersionMap.remove(resourceName);
+        }
       } else {
-        LogUtil.logWarn(LOG, _controlContextProvider.getClusterEventId(), String
-            .format("Failed to update the %s for %s", taskDataType.name(), dataUpdateNames.get(i)));
+        LogUtil.logWarn(LOG, _controlContextProvider.getClusterEventId(),
+            String.format("Failed to update the %s for %s", taskDataType.name(), resourceName));
       }
     }
   }
@@ -334,6 +475,24 @@ public class TaskDataCache extends AbstractDataCache {
     return _contextMap;
   }
 
+  /**
+   * Returns the number of workflow and job contexts read from zookeeper in the last refresh.
+   *
+   * @return
+   */
+  public int getContextReadCount() {
+    return _contextReadCount;
+  }
+
+  /**
+   * Returns the number of cached workflow and job contexts reused in the last refresh.
+   *
+   * @return
+   */
+  public int getContextReusedCount() {
+    return _contextReusedCount;
+  }
+
   /**
    * Returns the current AssignableInstanceManager instance.
    *
@@ -351,6 +510,7 @@ public class TaskDataCache extends AbstractDataCache {
   public void removeContext(String resourceName) {
     if (_contextMap.containsKey(resourceName)) {
       _contextMap.remove(resourceName);
+      _contextVersionMap.remove(resourceName);
       _contextToRemove.add(resourceName);
     }
   }
@@ -42,6 +42,7 @@ import org.apache.helix.PropertyKey;
 import org.apache.helix.api.rebalancer.constraint.AbnormalStateResolver;
 import org.apache.helix.common.caches.AbstractDataCache;
 import org.apache.helix.common.caches.CurrentStateCache;
+import org.apache.helix.common.caches.CurrentStateSnapshot;
 import org.apache.helix.common.caches.InstanceMessagesCache;
 import org.apache.helix.common.caches.PropertyCache;
 import org.apache.helix.common.caches.TaskCurrentStateCache;
@@ -574,6 +575,15 @@ public class BaseControllerDataProvider implements ControlContextProvider {
     _updateInstanceOfflineTime = true;
   }
 
+  /**
+   * Provides the snapshot of the regular current states loaded by the latest refresh, which also
+   * tells the current states that have been changed since the previous refresh.
+   * @return current state snapshot
+   */
+  public CurrentStateSnapshot getCurrentStateSnapshot() {
+    return _currentStateCache.getSnapshot();
+  }
+
   /**
    * Provides the current state of the node for a given session id, the sessionid can be got from
    * LiveInstance. This function is only called from the regular pipelines.
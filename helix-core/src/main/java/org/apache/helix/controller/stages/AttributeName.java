@@ -39,6 +39,7 @@ public enum AttributeName {
   AsyncFIFOWorkerPool,
   PipelineType,
   LastRebalanceFinishTimeStamp,
+  BestPossibleStateComputedTimeStamp,
   ControllerDataProvider,
   STATEFUL_REBALANCER,
 
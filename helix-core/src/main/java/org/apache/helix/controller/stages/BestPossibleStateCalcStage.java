@@ -85,6 +85,8 @@ public class BestPossibleStateCalcStage extends AbstractBaseStage {
     final BestPossibleStateOutput bestPossibleStateOutput =
         compute(event, resourceMap, currentStateOutput);
     event.addAttribute(AttributeName.BEST_POSSIBLE_STATE.name(), bestPossibleStateOutput);
+    event.addAttribute(AttributeName.BestPossibleStateComputedTimeStamp.name(),
+        System.currentTimeMillis());
 
     final Map<String, InstanceConfig> instanceConfigMap = cache.getInstanceConfigMap();
     final Map<String, StateModelDefinition> stateModelDefMap = cache.getStateModelDefMap();
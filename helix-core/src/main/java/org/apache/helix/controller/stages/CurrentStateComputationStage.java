@@ -27,6 +27,8 @@ import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
+import org.apache.helix.PropertyKey;
+import org.apache.helix.common.caches.CurrentStateSnapshot;
 import org.apache.helix.controller.LogUtil;
 import org.apache.helix.controller.dataproviders.BaseControllerDataProvider;
 import org.apache.helix.controller.dataproviders.ResourceControllerDataProvider;
@@ -47,6 +49,7 @@ import org.apache.helix.model.Partition;
 import org.apache.helix.model.Resource;
 import org.apache.helix.model.ResourceAssignment;
 import org.apache.helix.model.ResourceConfig;
+import org.apache.helix.monitoring.StateTransitionTimestamps;
 import org.apache.helix.monitoring.mbeans.ClusterStatusMonitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -110,6 +113,9 @@ public class CurrentStateComputationStage extends AbstractBaseStage {
           currentStateOutput);
       reportResourcePartitionCapacityMetrics(dataProvider.getAsyncTasksThreadPool(),
           clusterStatusMonitor, dataProvider.getResourceConfigMap().values());
+      reportStateTransitionLatencyMetrics(dataProvider.getAsyncTasksThreadPool(),
+          clusterStatusMonitor, dataProvider.getCurrentStateSnapshot(),
+          System.currentTimeMillis());
     }
   }
 
@@ -328,4 +334,44 @@ public class CurrentStateComputationStage extends AbstractBaseStage {
       return null;
     });
   }
+
+  /**
+   * Report the per stage latency of the state transitions whose results are newly observed in
+   * this pipeline run. The stage timestamps are recorded in the current state by the participant,
+   * the write completion time is the zookeeper mtime of the current state.
+   */
+  private void reportStateTransitionLatencyMetrics(ExecutorService executorService,
+      ClusterStatusMonitor clusterStatusMonitor, CurrentStateSnapshot currentStateSnapshot,
+      long observedTime) {
+    asyncExecute(executorService, () -> {
+      try {
+        // getNewCurrentStateEndTimes() iterates all the reloaded current states.
+        Map<PropertyKey, Map<String, Long>> newEndTimeMap =
+            currentStateSnapshot.getNewCurrentStateEndTimes();
+        Map<PropertyKey, CurrentState> currentStateMap = currentStateSnapshot.getPropertyMap();
+        for (Map.Entry<PropertyKey, Map<String, Long>> entry : newEndTimeMap.entrySet()) {
+          CurrentState currentState = currentStateMap.get(entry.getKey());
+          if (currentState == null || currentState.getStateModelDefRef() == null) {
+            continue;
+          }
+          for (String partition : entry.getValue().keySet()) {
+            StateTransitionTimestamps timestamps = StateTransitionTimestamps
+                .decode(currentState.getTransitionTimestamps(partition));
+            if (timestamps == null) {
+              continue;
+            }
+            timestamps.set(StateTransitionTimestamps.Stage.CURRENT_STATE_WRITTEN,
+                currentState.getStat().getModifiedTime());
+            timestamps.set(StateTransitionTimestamps.Stage.CONTROLLER_OBSERVED, observedTime);
+            clusterStatusMonitor.updateStateTransitionLatency(currentState.getResourceName(),
+                currentState.getStateModelDefRef(), timestamps);
+          }
+        }
+      } catch (Exception ex) {
+        LOG.error("Failed to report state transition latency metrics.", ex);
+      }
+
+      return null;
+    });
+  }
 }
@@ -194,9 +194,9 @@ public class ExternalViewComputeStage extends AbstractAsyncBaseStage {
     ExternalView curExtView = curExtViews.get(resourceName);
     // copy simplefields from IS, in cases where IS is deleted copy it from existing ExternalView
     if (idealState != null) {
-      view.getRecord().getSimpleFields().putAll(idealState.getRecord().getSimpleFields());
+      view.getRecord().getSimpleFields().putAll(idealState.getRecord().getReadOnlySimpleFields());
     } else if (curExtView != null) {
-      view.getRecord().getSimpleFields().putAll(curExtView.getRecord().getSimpleFields());
+      view.getRecord().getSimpleFields().putAll(curExtView.getRecord().getReadOnlySimpleFields());
     }
 
     // compare the new external view with current one, set only on different
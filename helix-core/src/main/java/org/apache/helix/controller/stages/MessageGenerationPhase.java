@@ -98,11 +98,14 @@ public abstract class MessageGenerationPhase extends AbstractBaseStage {
       sessionIdMap.put(liveInstance.getInstanceName(), liveInstance.getEphemeralOwner());
     }
     MessageOutput output = new MessageOutput();
+    long bestPossibleComputedTime = event
+        .getAttributeWithDefault(AttributeName.BestPossibleStateComputedTimeStamp.name(), -1L);
 
     for (Resource resource : resourceMap.values()) {
       try {
         generateMessage(resource, cache, resourcesStateMap, currentStateOutput, manager,
-            sessionIdMap, event.getEventType(), output, messagesToCleanUp);
+            sessionIdMap, event.getEventType(), output, messagesToCleanUp,
+            bestPossibleComputedTime);
       } catch (HelixException ex) {
         LogUtil.logError(logger, _eventId,
             "Failed to generate message for resource " + resource.getResourceName(), ex);
@@ -121,7 +124,7 @@ public abstract class MessageGenerationPhase extends AbstractBaseStage {
       final ResourcesStateMap resourcesStateMap, final CurrentStateOutput currentStateOutput,
       final HelixManager manager, final Map<String, String> sessionIdMap,
       final ClusterEventType eventType, MessageOutput output,
-      Map<String, Map<String, Message>> messagesToCleanUp) {
+      Map<String, Map<String, Message>> messagesToCleanUp, long bestPossibleComputedTime) {
     String resourceName = resource.getResourceName();
 
     StateModelDefinition stateModelDef = cache.getStateModelDef(resource.getStateModelDefRef());
@@ -237,6 +240,9 @@ public abstract class MessageGenerationPhase extends AbstractBaseStage {
             message = createStateTransitionMessage(manager, resource, partition.getPartitionName(),
                 instanceName, currentState, nextState, sessionIdMap.get(instanceName),
                 stateModelDef.getId());
+            if (bestPossibleComputedTime > 0) {
+              message.setBestPossibleComputedTimeStamp(bestPossibleComputedTime);
+            }
 
             if (logger.isDebugEnabled()) {
               LogUtil.logDebug(logger, _eventId, String.format(
@@ -142,8 +142,8 @@ public class PersistAssignmentStage extends AbstractAsyncBaseStage {
               // Overwrite MapFields and ListFields items with the same key.
               // Note that default merge will keep old values in the maps or lists unchanged, which is not desired.
               current.getMapFields().clear();
-              current.getMapFields().putAll(idealState.getRecord().getMapFields());
-              current.getListFields().putAll(idealState.getRecord().getListFields());
+              current.getMapFields().putAll(idealState.getRecord().getReadOnlyMapFields());
+              current.getListFields().putAll(idealState.getRecord().getReadOnlyListFields());
             }
             return current;
           }
@@ -33,10 +33,17 @@ import org.apache.zookeeper.data.Stat;
 public abstract class Cache<T> {
   final ReadWriteLock _lock;
   final ConcurrentHashMap<String, ZNode> _cache;
+  // the memory budget of a bounded cache, null if the cache is not bounded
+  final CacheBudget _budget;
 
   public Cache() {
+    this(null);
+  }
+
+  Cache(CacheBudget budget) {
     _lock = new ReentrantReadWriteLock();
     _cache = new ConcurrentHashMap<String, ZNode>();
+    _budget = budget;
   }
 
   public void addToParentChildSet(String parentPath, String childName) {
@@ -75,6 +82,54 @@ public abstract class Cache<T> {
     }
   }
 
+  /**
+   * Get the cached znode with its data. The hits and misses are recorded by a bounded cache.
+   * @return the znode, null if the znode is not cached or its data is evicted
+   */
+  public ZNode getWithData(String path) {
+    try {
+      _lock.readLock().lock();
+      ZNode znode = _cache.get(path);
+      if (_budget == null) {
+        return znode;
+      }
+      if (znode == null || znode.isDataEvicted()) {
+        _budget.recordMiss();
+        return null;
+      }
+      _budget.recordHit(path);
+      // the data of the cached znode may be evicted once the lock is released
+      return new ZNode(path, znode.getData(), znode.getStat());
+    } finally {
+      _lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Account the data set to the cached znode, and evict the data of the least recently used
+   * znodes if the cache is over its budget. Called with the write lock held.
+   */
+  void onDataUpdated(String path, Object data, Stat stat) {
+    if (_budget == null) {
+      return;
+    }
+    for (String evictedPath : _budget.admit(path, data, stat)) {
+      ZNode znode = _cache.get(evictedPath);
+      if (znode != null) {
+        znode.evictData();
+      }
+    }
+  }
+
+  /**
+   * Stop accounting the data of the removed znode.
+   */
+  void onRemoved(String path) {
+    if (_budget != null) {
+      _budget.remove(path);
+    }
+  }
+
   public void lockWrite() {
     _lock.writeLock().lock();
   }
@@ -101,6 +156,7 @@ public abstract class Cache<T> {
 
       ZNode znode = _cache.remove(path);
       if (znode != null) {
+        onRemoved(path);
         // recursively remove children nodes
         Set<String> childNames = znode.getChildSet();
         for (String childName : childNames) {
@@ -117,6 +173,9 @@ public abstract class Cache<T> {
     try {
       _lock.writeLock().lock();
       _cache.clear();
+      if (_budget != null) {
+        _budget.clear();
+      }
     } finally {
       _lock.writeLock().unlock();
     }
@@ -0,0 +1,212 @@
+package org.apache.helix.manager.zk;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.helix.monitoring.mbeans.ZkCacheMonitor;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.zookeeper.data.Stat;
+
+/**
+ * The memory budget of a bounded {@link Cache}. The data of each cached znode is accounted by its
+ * estimated serialized size, and once the cache is over the budget the data of the least recently
+ * used znodes is evicted. The data under the pinned paths is accounted but never evicted.
+ * <p>
+ * Only the data is evicted: the znode is kept in the cache with its stat and children, so the
+ * cache still knows the tree and still fires the listeners, and the data is read again from
+ * ZooKeeper on the next get.
+ */
+class CacheBudget {
+  // the estimated bytes of a key, a value or a list element in addition to its characters
+  private static final int FIELD_OVERHEAD_BYTES = 4;
+
+  private final long _maxBytes;
+  private final List<String> _pinnedPaths;
+  private final ZkCacheMonitor _monitor;
+
+  // the estimated sizes of the resident data in access order, the least recently used first
+  private final LinkedHashMap<String, Long> _residentSizes = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<String, Long> _pinnedSizes = new HashMap<>();
+  private long _residentBytes = 0L;
+
+  /**
+   * @param maxBytes the max estimated bytes of the data held by the cache
+   * @param pinnedPaths the server paths whose data, and the data of their descendants, is never
+   *          evicted
+   * @param monitor the monitor of the cache, null if not monitored
+   */
+  CacheBudget(long maxBytes, List<String> pinnedPaths, ZkCacheMonitor monitor) {
+    _maxBytes = maxBytes;
+    _pinnedPaths = pinnedPaths == null ? Collections.<String>emptyList() : pinnedPaths;
+    _monitor = monitor;
+  }
+
+  long getMaxBytes() {
+    return _maxBytes;
+  }
+
+  synchronized long getResidentBytes() {
+    return _residentBytes;
+  }
+
+  boolean isPinned(String path) {
+    for (String pinnedPath : _pinnedPaths) {
+      if (path.startsWith(pinnedPath) && (path.length() == pinnedPath.length()
+          || pinnedPath.endsWith("/") || path.charAt(pinnedPath.length()) == '/')) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Record a read of the resident data of the path.
+   */
+  synchronized void recordHit(String path) {
+    // moves the path to the most recently used end
+    _residentSizes.get(path);
+    if (_monitor != null) {
+      _monitor.increaseHitCounter();
+    }
+  }
+
+  /**
+   * Record a read of the data that is not cached, or is evicted.
+   */
+  void recordMiss() {
+    if (_monitor != null) {
+      _monitor.increaseMissCounter();
+    }
+  }
+
+  /**
+   * Account the new data of the path.
+   * @return the paths whose data is to be evicted, least recently used first
+   */
+  synchronized List<String> admit(String path, Object data, Stat stat) {
+    long size = estimateSize(data, stat);
+    Long oldSize;
+    if (isPinned(path)) {
+      oldSize = _pinnedSizes.put(path, size);
+    } else {
+      oldSize = _residentSizes.put(path, size);
+    }
+    _residentBytes += size - (oldSize == null ? 0L : oldSize);
+
+    List<String> evictedPaths = Collections.emptyList();
+    if (_residentBytes > _maxBytes) {
+      evictedPaths = new ArrayList<>();
+      Iterator<Map.Entry<String, Long>> iter = _residentSizes.entrySet().iterator();
+      while (_residentBytes > _maxBytes && iter.hasNext()) {
+        Map.Entry<String, Long> entry = iter.next();
+        if (entry.getKey().equals(path)) {
+          // keep the data just written or read, even if it is larger than the budget
+          continue;
+        }
+        iter.remove();
+        _residentBytes -= entry.getValue();
+        evictedPaths.add(entry.getKey());
+      }
+      if (_monitor != null) {
+        _monitor.increaseEvictionCounter(evictedPaths.size());
+      }
+    }
+    updateMonitor();
+    return evictedPaths;
+  }
+
+  /**
+   * Stop accounting the data of the removed path.
+   */
+  synchronized void remove(String path) {
+    Long size = _residentSizes.remove(path);
+    if (size == null) {
+      size = _pinnedSizes.remove(path);
+    }
+    if (size != null) {
+      _residentBytes -= size;
+      updateMonitor();
+    }
+  }
+
+  synchronized void clear() {
+    _residentSizes.clear();
+    _pinnedSizes.clear();
+    _residentBytes = 0L;
+    updateMonitor();
+  }
+
+  private void updateMonitor() {
+    if (_monitor != null) {
+      _monitor.updateResidentSize(_residentSizes.size() + _pinnedSizes.size(), _residentBytes);
+    }
+  }
+
+  /**
+   * @return the estimated serialized size of the data, the data length of the stat if the size of
+   *         the data type cannot be estimated
+   */
+  static long estimateSize(Object data, Stat stat) {
+    if (data instanceof ZNRecord) {
+      ZNRecord record = (ZNRecord) data;
+      long size = sizeOf(record.getId());
+      for (Map.Entry<String, String> entry : record.getReadOnlySimpleFields().entrySet()) {
+        size += sizeOf(entry.getKey()) + sizeOf(entry.getValue());
+      }
+      for (Map.Entry<String, List<String>> entry : record.getReadOnlyListFields().entrySet()) {
+        size += sizeOf(entry.getKey());
+        if (entry.getValue() != null) {
+          for (String value : entry.getValue()) {
+            size += sizeOf(value);
+          }
+        }
+      }
+      for (Map.Entry<String, Map<String, String>> entry : record.getReadOnlyMapFields()
+          .entrySet()) {
+        size += sizeOf(entry.getKey());
+        if (entry.getValue() != null) {
+          for (Map.Entry<String, String> mapEntry : entry.getValue().entrySet()) {
+            size += sizeOf(mapEntry.getKey()) + sizeOf(mapEntry.getValue());
+          }
+        }
+      }
+      byte[] rawPayload = record.getRawPayload();
+      return rawPayload == null ? size : size + rawPayload.length;
+    }
+    if (data instanceof byte[]) {
+      return ((byte[]) data).length;
+    }
+    if (data instanceof String) {
+      return ((String) data).length();
+    }
+    return stat == null ? 0L : stat.getDataLength();
+  }
+
+  private static long sizeOf(String value) {
+    return value == null ? FIELD_OVERHEAD_BYTES : value.length() + FIELD_OVERHEAD_BYTES;
+  }
+}
@@ -339,7 +339,11 @@ public class CallbackHandler implements IZkChildListener, IZkDataListener {
       _expectTypes = nextNotificationType.get(type);
 
       if (type == Type.INIT || type == Type.FINALIZE || changeContext.getIsChildChange()) {
-        subscribeForChanges(changeContext.getType(), _path, _watchChild);
+        List<String> children = subscribeForChanges(changeContext.getType(), _path, _watchChild);
+        if (children != null && type != Type.FINALIZE) {
+          // Listeners that disable prefetch can reuse the children listed by the watch
+          changeContext.add(NotificationContext.MapKey.CHILD_NAMES.toString(), children);
+        }
       }
     }
 
@@ -547,7 +551,11 @@ public class CallbackHandler implements IZkChildListener, IZkDataListener {
     }
   }
 
-  private void subscribeForChanges(NotificationContext.Type callbackType, String path,
+  /*
+   * Subscribes the data and child changes of the path. Returns the children names listed when the
+   * child change watch is installed, or null if no child change watch is installed.
+   */
+  private List<String> subscribeForChanges(NotificationContext.Type callbackType, String path,
       boolean watchChild) {
     logger.info("CallbackHandler {} subscribing changes listener to path: {}, callback type: {}, "
             + "event types: {}, listener: {}, watchChild: {}",
@@ -561,8 +569,9 @@ public class CallbackHandler implements IZkChildListener, IZkDataListener {
       subscribeDataChange(path, callbackType);
     }
 
+    List<String> children = null;
     if (_eventTypes.contains(EventType.NodeChildrenChanged)) {
-      List<String> children = subscribeChildChange(path, callbackType);
+      children = subscribeChildChange(path, callbackType);
       if (watchChild) {
         try {
           switch (_changeType) {
@@ -626,6 +635,7 @@ public class CallbackHandler implements IZkChildListener, IZkDataListener {
 
     long end = System.currentTimeMillis();
     logger.info("CallbackHandler{}, Subscribing to path: {} took: {}", _uid, path, (end - start));
+    return children;
   }
 
   public EventType[] getEventTypes() {
@@ -36,7 +36,14 @@ public class WriteThroughCache<T> extends Cache<T> {
   final BaseDataAccessor<T> _accessor;
 
   public WriteThroughCache(BaseDataAccessor<T> accessor, List<String> paths) {
-    super();
+    this(accessor, paths, null);
+  }
+
+  /**
+   * @param budget the memory budget of the cache, null if the cache is not bounded
+   */
+  WriteThroughCache(BaseDataAccessor<T> accessor, List<String> paths, CacheBudget budget) {
+    super(budget);
     _accessor = accessor;
 
     // init cache
@@ -60,6 +67,7 @@ public class WriteThroughCache<T> extends Cache<T> {
       znode.setData(data);
       znode.setStat(stat);
     }
+    onDataUpdated(path, data, stat);
   }
 
   @Override
@@ -26,6 +26,7 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -41,11 +42,13 @@ import java.util.stream.Collectors;
 import org.apache.helix.AccessOption;
 import org.apache.helix.BaseDataAccessor;
 import org.apache.helix.ConfigAccessor;
+import org.apache.helix.DataAccessorTransaction;
 import org.apache.helix.HelixAdmin;
 import org.apache.helix.HelixConstants;
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixDefinedState;
 import org.apache.helix.HelixException;
+import org.apache.helix.HelixPropertyTransaction;
 import org.apache.helix.InstanceType;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.PropertyPathBuilder;
@@ -88,7 +91,6 @@ import org.apache.helix.zookeeper.api.client.HelixZkClient;
 import org.apache.helix.zookeeper.api.client.RealmAwareZkClient;
 import org.apache.helix.zookeeper.constant.RoutingDataReaderType;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
-import org.apache.helix.zookeeper.exception.ZkClientException;
 import org.apache.helix.zookeeper.impl.client.FederatedZkClient;
 import org.apache.helix.zookeeper.impl.factory.SharedZkClientFactory;
 import org.apache.helix.zookeeper.routing.RoutingDataManager;
@@ -96,6 +98,7 @@ import org.apache.helix.zookeeper.zkclient.DataUpdater;
 import org.apache.helix.zookeeper.zkclient.exception.ZkException;
 import org.apache.helix.zookeeper.zkclient.exception.ZkNoNodeException;
 import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.KeeperException.Code;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -189,16 +192,36 @@ public class ZKHelixAdmin implements HelixAdmin {
       throw new HelixException("Node " + nodeId + " already exists in cluster " + clusterName);
     }
 
-    ZKUtil.createChildren(_zkClient, instanceConfigsPath, instanceConfig.getRecord());
-
-    _zkClient.createPersistent(PropertyPathBuilder.instanceMessage(clusterName, nodeId), true);
-    _zkClient.createPersistent(PropertyPathBuilder.instanceCurrentState(clusterName, nodeId), true);
-    _zkClient
-        .createPersistent(PropertyPathBuilder.instanceTaskCurrentState(clusterName, nodeId), true);
-    _zkClient.createPersistent(PropertyPathBuilder.instanceCustomizedState(clusterName, nodeId), true);
-    _zkClient.createPersistent(PropertyPathBuilder.instanceError(clusterName, nodeId), true);
-    _zkClient.createPersistent(PropertyPathBuilder.instanceStatusUpdate(clusterName, nodeId), true);
-    _zkClient.createPersistent(PropertyPathBuilder.instanceHistory(clusterName, nodeId), true);
+    // Create the config and the folders of the instance in one transaction, so a failed add does
+    // not leave a partially added instance. The folders left by a previous drop are kept.
+    String instancePath = PropertyPathBuilder.instance(clusterName, nodeId);
+    Set<String> existingFolders = new HashSet<>();
+    DataAccessorTransaction<ZNRecord> transaction = new DataAccessorTransaction<ZNRecord>()
+        .create(instanceConfigPath, instanceConfig.getRecord(), AccessOption.PERSISTENT);
+    if (_zkClient.exists(instancePath)) {
+      for (String child : _zkClient.getChildren(instancePath)) {
+        existingFolders.add(instancePath + "/" + child);
+      }
+    } else {
+      transaction.create(instancePath, null, AccessOption.PERSISTENT);
+    }
+    for (String folder : Arrays.asList(PropertyPathBuilder.instanceMessage(clusterName, nodeId),
+        PropertyPathBuilder.instanceCurrentState(clusterName, nodeId),
+        PropertyPathBuilder.instanceTaskCurrentState(clusterName, nodeId),
+        PropertyPathBuilder.instanceCustomizedState(clusterName, nodeId),
+        PropertyPathBuilder.instanceError(clusterName, nodeId),
+        PropertyPathBuilder.instanceStatusUpdate(clusterName, nodeId),
+        PropertyPathBuilder.instanceHistory(clusterName, nodeId))) {
+      if (!existingFolders.contains(folder)) {
+        transaction.create(folder, null, AccessOption.PERSISTENT);
+      }
+    }
+    try {
+      new ZkBaseDataAccessor<ZNRecord>(_zkClient).commitOrThrow(transaction);
+    } catch (ZkException e) {
+      throw new HelixException(
+          "Failed to add instance " + nodeId + " to cluster " + clusterName, e);
+    }
   }
 
   @Override
@@ -224,28 +247,29 @@ public class ZKHelixAdmin implements HelixAdmin {
           "Node " + instanceName + " is still alive for cluster " + clusterName + ", can't drop.");
     }
 
-    // delete config path
-    String instanceConfigsPath = PropertyPathBuilder.instanceConfig(clusterName);
-    ZKUtil.dropChildren(_zkClient, instanceConfigsPath, instanceConfig.getRecord());
-
-    // delete instance path
+    // Remove the instance folders, children first, and then the config in one transaction.
+    ZkBaseDataAccessor<ZNRecord> baseAccessor = new ZkBaseDataAccessor<>(_zkClient);
     int retryCnt = 0;
     while (true) {
+      DataAccessorTransaction<ZNRecord> transaction = new DataAccessorTransaction<>();
+      removeRecursively(transaction, instancePath);
+      transaction.remove(instanceConfigPath, -1);
       try {
-        _zkClient.deleteRecursively(instancePath);
+        baseAccessor.commitOrThrow(transaction);
         return;
-      } catch (ZkClientException e) {
-        if (retryCnt < 3 && e.getCause() instanceof ZkException && e.getCause()
-            .getCause() instanceof KeeperException.NotEmptyException) {
-          // Racing condition with controller's persisting node history, retryable.
-          // We don't need to backoff here as this racing condition only happens once (controller
-          // does not repeatedly write instance history)
-          logger.warn("Retrying dropping instance {} with exception {}",
-              instanceConfig.getInstanceName(), e.getCause().getMessage());
+      } catch (ZkException e) {
+        // Racing condition with controller's persisting node history, which adds or removes a
+        // ZNode of the instance tree after it is listed, retryable.
+        // We don't need to backoff here as this racing condition only happens once (controller
+        // does not repeatedly write instance history)
+        Code code = e.getCause() instanceof KeeperException
+            ? ((KeeperException) e.getCause()).code() : null;
+        if ((code == Code.NOTEMPTY || code == Code.NONODE) && retryCnt < 3) {
+          logger.warn("Retrying dropping instance {}, error code: {}", instanceName, code);
           retryCnt++;
         } else {
-          String errorMessage = "Failed to drop instance: " + instanceConfig.getInstanceName()
-              + ". Retry times: " + retryCnt;
+          String errorMessage =
+              "Failed to drop instance: " + instanceName + ". Retry times: " + retryCnt;
           logger.error(errorMessage, e);
           throw new HelixException(errorMessage, e);
         }
@@ -253,6 +277,20 @@ public class ZKHelixAdmin implements HelixAdmin {
     }
   }
 
+  /**
+   * Add the removal of the ZNode and its descendants to the transaction, children first.
+   */
+  private void removeRecursively(DataAccessorTransaction<ZNRecord> transaction, String path) {
+    try {
+      for (String child : _zkClient.getChildren(path)) {
+        removeRecursively(transaction, path + "/" + child);
+      }
+    } catch (ZkNoNodeException e) {
+      // Removed concurrently, the transaction fails and is retried
+    }
+    transaction.remove(path, -1);
+  }
+
   /**
    * Please note that the purge function should only be called when there is no new instance
    * joining happening in the cluster. The reason is that current implementation is not thread safe,
@@ -946,7 +984,18 @@ public class ZKHelixAdmin implements HelixAdmin {
           + resourceIdealStatePath);
     }
 
-    ZKUtil.createChildren(_zkClient, idealStatePath, idealstate.getRecord());
+    // Create the IdealState only if the state model is still defined
+    PropertyKey.Builder keyBuilder = new PropertyKey.Builder(clusterName);
+    HelixPropertyTransaction transaction = new HelixPropertyTransaction()
+        .checkVersion(keyBuilder.stateModelDef(stateModelRef), -1)
+        .createProperty(keyBuilder.idealStates(idealstate.getId()), idealstate);
+    try {
+      new ZkBaseDataAccessor<ZNRecord>(_zkClient)
+          .commitOrThrow(transaction.getDataAccessorTransaction());
+    } catch (ZkException e) {
+      throw new HelixException(
+          "Failed to add resource " + resourceName + " to cluster " + clusterName, e);
+    }
   }
 
   @Override
@@ -88,6 +88,7 @@ import org.apache.helix.participant.StateMachineEngine;
 import org.apache.helix.store.zk.AutoFallbackPropertyStore;
 import org.apache.helix.store.zk.ZkHelixPropertyStore;
 import org.apache.helix.util.HelixUtil;
+import org.apache.helix.util.statusupdate.StatusUpdateSinkFactory;
 import org.apache.helix.zookeeper.api.client.HelixZkClient;
 import org.apache.helix.zookeeper.api.client.RealmAwareZkClient;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
@@ -801,6 +802,8 @@ public class ZKHelixManager implements HelixManager, IZkStateListener {
       break;
     }
 
+    // the status update sink is closed by the previous disconnect, if any
+    StatusUpdateSinkFactory.openSink(_instanceName);
     try {
       createClient();
       _messagingService.onConnected();
@@ -858,6 +861,9 @@ public class ZKHelixManager implements HelixManager, IZkStateListener {
 
       _helixPropertyStore = null;
 
+      // flush the buffered status updates before the zk connection is closed
+      StatusUpdateSinkFactory.closeSink(_instanceName);
+
       synchronized (this) {
         if (_controller != null) {
           _controller = null;
@@ -0,0 +1,300 @@
+package org.apache.helix.manager.zk;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.helix.SystemPropertyKeys;
+import org.apache.helix.monitoring.mbeans.ZkAsyncRequestWindowMonitor;
+import org.apache.helix.zookeeper.zkclient.callback.ZkAsyncCallbacks;
+import org.apache.helix.zookeeper.zkclient.callback.ZkAsyncRetryThread;
+
+/**
+ * Bounds the async requests that the batch operations of a ZkBaseDataAccessor keep in flight.
+ * A request takes a permit before it is issued and returns the permit from its callback, so a
+ * large batch is pipelined through the window instead of being issued all at once and exceeding
+ * the outstanding request limit of the ZooKeeper server.
+ *
+ * The window starts at the max size. After each window of completed requests, it is halved if
+ * any of the requests took longer than the target latency, and grows by a quarter otherwise.
+ *
+ * The permits are released by the async callbacks, which run in the ZooKeeper event thread or the
+ * async retry thread. A batch operation must not be issued from these threads, since neither the
+ * window nor the batch could wait for its own callbacks there.
+ */
+class ZkAsyncRequestWindow {
+  static final int DEFAULT_MAX_IN_FLIGHT = 1000;
+  static final long DEFAULT_TARGET_LATENCY_MS = 500L;
+  static final int MIN_WINDOW_SIZE = 16;
+  // The thread of the ZooKeeper client that delivers the async callbacks, it is package private
+  private static final String ZOOKEEPER_EVENT_THREAD_CLASS =
+      "org.apache.zookeeper.ClientCnxn$EventThread";
+
+  private final int _maxWindowSize;
+  private final int _minWindowSize;
+  private final long _targetLatencyMs;
+
+  // All guarded by this
+  private int _windowSize;
+  private int _inFlightCount = 0;
+  private int _completedSinceResize = 0;
+  private boolean _slowSinceResize = false;
+
+  ZkAsyncRequestWindow() {
+    this(Integer.getInteger(SystemPropertyKeys.ZK_ASYNC_BATCH_MAX_IN_FLIGHT, DEFAULT_MAX_IN_FLIGHT),
+        Long.getLong(SystemPropertyKeys.ZK_ASYNC_BATCH_TARGET_LATENCY_MS,
+            DEFAULT_TARGET_LATENCY_MS));
+  }
+
+  /**
+   * @param maxInFlight the max number of requests in flight, 0 or negative for no limit
+   * @param targetLatencyMs the latency above which the window is halved, 0 or negative to keep the
+   *          window at the max size
+   */
+  ZkAsyncRequestWindow(int maxInFlight, long targetLatencyMs) {
+    _maxWindowSize = maxInFlight;
+    _minWindowSize = Math.min(MIN_WINDOW_SIZE, maxInFlight);
+    _targetLatencyMs = targetLatencyMs;
+    _windowSize = maxInFlight;
+  }
+
+  /**
+   * Take a permit, wait until a request in flight completes if the window is full. An interrupted
+   * caller does not wait, and its request is issued over the window.
+   * @throws IllegalArgumentException if called from a thread that delivers the async callbacks
+   */
+  Permit acquire() {
+    validateCurrentThread();
+    boolean throttled = false;
+    synchronized (this) {
+      while (isFull()) {
+        throttled = true;
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+      _inFlightCount++;
+    }
+    ZkAsyncRequestWindowMonitor.getInstance().recordRequestIssued(throttled);
+    return new Permit();
+  }
+
+  /**
+   * @return a permit, or null if the window is full
+   */
+  Permit tryAcquire() {
+    synchronized (this) {
+      if (isFull()) {
+        return null;
+      }
+      _inFlightCount++;
+    }
+    ZkAsyncRequestWindowMonitor.getInstance().recordRequestIssued(false);
+    return new Permit();
+  }
+
+  synchronized int getWindowSize() {
+    return _windowSize;
+  }
+
+  synchronized int getInFlightCount() {
+    return _inFlightCount;
+  }
+
+  private static void validateCurrentThread() {
+    Thread thread = Thread.currentThread();
+    if (thread instanceof ZkAsyncRetryThread
+        || thread.getClass().getName().equals(ZOOKEEPER_EVENT_THREAD_CLASS)) {
+      throw new IllegalArgumentException(
+          "Must not be done in the zookeeper event thread or the async retry thread.");
+    }
+  }
+
+  private boolean isFull() {
+    return _maxWindowSize > 0 && _inFlightCount >= _windowSize;
+  }
+
+  private void release(long latency) {
+    ZkAsyncRequestWindowMonitor.getInstance().recordRequestCompleted(latency);
+    boolean shrunk = false;
+    synchronized (this) {
+      _inFlightCount--;
+      if (_maxWindowSize > 0 && _targetLatencyMs > 0) {
+        _slowSinceResize |= latency > _targetLatencyMs;
+        if (++_completedSinceResize >= _windowSize) {
+          if (_slowSinceResize) {
+            shrunk = _windowSize > _minWindowSize;
+            _windowSize = Math.max(_minWindowSize, _windowSize / 2);
+          } else {
+            _windowSize = Math.min(_maxWindowSize, _windowSize + Math.max(1, _windowSize / 4));
+          }
+          _completedSinceResize = 0;
+          _slowSinceResize = false;
+        }
+      }
+      notifyAll();
+    }
+    if (shrunk) {
+      ZkAsyncRequestWindowMonitor.getInstance().increaseWindowShrinkCounter();
+    }
+  }
+
+  /**
+   * The permit of one request in flight.
+   */
+  class Permit {
+    private final long _startTime = System.currentTimeMillis();
+    private final AtomicBoolean _released = new AtomicBoolean(false);
+
+    /**
+     * @return true if the permit is released by this call
+     */
+    boolean release() {
+      if (_released.compareAndSet(false, true)) {
+        ZkAsyncRequestWindow.this.release(System.currentTimeMillis() - _startTime);
+        return true;
+      }
+      return false;
+    }
+  }
+
+  /*
+   * The callbacks release the permit of their request once it completes without retrying, or is
+   * cancelled.
+   */
+
+  static class GetDataCallback extends ZkAsyncCallbacks.GetDataCallbackHandler {
+    final int _index;
+    private final Permit _permit;
+    private final Queue<GetDataCallback> _completedCallbacks;
+
+    /**
+     * @param index the index of the path in the batch
+     * @param completedCallbacks the queue to add the callback to once the request completes
+     */
+    GetDataCallback(Permit permit, int index, Queue<GetDataCallback> completedCallbacks) {
+      _permit = permit;
+      _index = index;
+      _completedCallbacks = completedCallbacks;
+    }
+
+    @Override
+    public void handle() {
+      super.handle();
+      complete();
+    }
+
+    @Override
+    public void notifyCallers() {
+      super.notifyCallers();
+      complete();
+    }
+
+    private void complete() {
+      if (_permit.release() && _completedCallbacks != null) {
+        _completedCallbacks.add(this);
+      }
+    }
+  }
+
+  static class SetDataCallback extends ZkAsyncCallbacks.SetDataCallbackHandler {
+    private final Permit _permit;
+
+    SetDataCallback(Permit permit) {
+      _permit = permit;
+    }
+
+    @Override
+    public void handle() {
+      super.handle();
+      _permit.release();
+    }
+
+    @Override
+    public void notifyCallers() {
+      super.notifyCallers();
+      _permit.release();
+    }
+  }
+
+  static class ExistsCallback extends ZkAsyncCallbacks.ExistsCallbackHandler {
+    private final Permit _permit;
+
+    ExistsCallback(Permit permit) {
+      _permit = permit;
+    }
+
+    @Override
+    public void handle() {
+      super.handle();
+      _permit.release();
+    }
+
+    @Override
+    public void notifyCallers() {
+      super.notifyCallers();
+      _permit.release();
+    }
+  }
+
+  static class CreateCallback extends ZkAsyncCallbacks.CreateCallbackHandler {
+    private final Permit _permit;
+
+    CreateCallback(Permit permit) {
+      _permit = permit;
+    }
+
+    @Override
+    public void handle() {
+      super.handle();
+      _permit.release();
+    }
+
+    @Override
+    public void notifyCallers() {
+      super.notifyCallers();
+      _permit.release();
+    }
+  }
+
+  static class DeleteCallback extends ZkAsyncCallbacks.DeleteCallbackHandler {
+    private final Permit _permit;
+
+    DeleteCallback(Permit permit) {
+      _permit = permit;
+    }
+
+    @Override
+    public void handle() {
+      super.handle();
+      _permit.release();
+    }
+
+    @Override
+    public void notifyCallers() {
+      super.notifyCallers();
+      _permit.release();
+    }
+  }
+}
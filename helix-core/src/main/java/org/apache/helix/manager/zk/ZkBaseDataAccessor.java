@@ -26,10 +26,13 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.helix.AccessOption;
 import org.apache.helix.BaseDataAccessor;
+import org.apache.helix.DataAccessorTransaction;
 import org.apache.helix.HelixException;
 import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.api.exceptions.HelixMetaDataAccessException;
@@ -38,6 +41,7 @@ import org.apache.helix.store.zk.ZNode;
 import org.apache.helix.util.HelixUtil;
 import org.apache.helix.zookeeper.api.client.HelixZkClient;
 import org.apache.helix.zookeeper.api.client.RealmAwareZkClient;
+import org.apache.helix.zookeeper.constant.ZkSystemPropertyKeys;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordSerializer;
 import org.apache.helix.zookeeper.exception.ZkClientException;
@@ -55,7 +59,10 @@ import org.apache.helix.zookeeper.zkclient.exception.ZkNodeExistsException;
 import org.apache.helix.zookeeper.zkclient.serialize.PathBasedZkSerializer;
 import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
 import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.KeeperException.Code;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.ZooDefs;
 import org.apache.zookeeper.data.Stat;
 import org.apache.zookeeper.server.DataTree;
 import org.slf4j.Logger;
@@ -94,6 +101,21 @@ public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
     ERROR
   }
 
+  /**
+   * Consumes the records of a streaming async get, see {@link #get(List, int, AsyncReadConsumer)}.
+   */
+  @FunctionalInterface
+  public interface AsyncReadConsumer<T> {
+    /**
+     * @param index the index of the path in the paths to read
+     * @param path the path read
+     * @param record the record, null if the read failed
+     * @param stat the stat of the record, null if the read failed
+     * @param rc the return code of the read, SYSTEMERROR if the read could not be issued
+     */
+    void accept(int index, String path, T record, Stat stat, Code rc);
+  }
+
   /**
    * struct holding return information
    */
@@ -118,8 +140,17 @@ public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
 
   private static Logger LOG = LoggerFactory.getLogger(ZkBaseDataAccessor.class);
 
+  // The request size limit of ZooKeeper, and the estimated size of an operation in a multi request
+  // besides its path and data
+  private static final int MULTI_REQUEST_SIZE_LIMIT =
+      Integer.getInteger(ZkSystemPropertyKeys.JUTE_MAXBUFFER, ZNRecord.SIZE_LIMIT);
+  private static final int MULTI_OP_SIZE_OVERHEAD = 64;
+
   private final RealmAwareZkClient _zkClient;
 
+  // bounds the requests in flight of the async batch operations
+  private final ZkAsyncRequestWindow _asyncRequestWindow = new ZkAsyncRequestWindow();
+
   // true if ZkBaseDataAccessor was instantiated with a RealmAwareZkClient, false otherwise
   // This is used for close() to determine how ZkBaseDataAccessor should close the underlying
   // ZkClient
@@ -517,53 +548,22 @@ public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
     long startT = System.nanoTime();
 
     try {
-      // issue asyn get requests
-      ZkAsyncCallbacks.GetDataCallbackHandler[] cbList =
-          new ZkAsyncCallbacks.GetDataCallbackHandler[paths.size()];
-      for (int i = 0; i < paths.size(); i++) {
-        if (!needRead[i]) {
-          continue;
-        }
-
-        String path = paths.get(i);
-        cbList[i] = new ZkAsyncCallbacks.GetDataCallbackHandler();
-        _zkClient.asyncGetData(path, cbList[i]);
-      }
-
-      // wait for completion
-      for (int i = 0; i < cbList.length; i++) {
-        if (!needRead[i]) {
-          continue;
-        }
-
-        ZkAsyncCallbacks.GetDataCallbackHandler cb = cbList[i];
-        cb.waitForSuccess();
-      }
-
-      // construct return results
-      List<T> records = new ArrayList<T>(Collections.<T>nCopies(paths.size(), null));
-      Map<String, Integer> pathFailToRead = new HashMap<>();
-      for (int i = 0; i < paths.size(); i++) {
-        if (!needRead[i]) {
-          continue;
-        }
-
-        ZkAsyncCallbacks.GetDataCallbackHandler cb = cbList[i];
-        if (Code.get(cb.getRc()) == Code.OK) {
-          @SuppressWarnings("unchecked")
-          T record = (T) _zkClient.deserialize(cb._data, paths.get(i));
-          records.set(i, record);
+      // construct return results as the records are read
+      final List<T> records = new ArrayList<T>(Collections.<T>nCopies(paths.size(), null));
+      final Map<String, Integer> pathFailToRead = new HashMap<>();
+      get(paths, needRead, (index, path, record, stat, rc) -> {
+        if (rc == Code.OK) {
+          records.set(index, record);
           if (stats != null) {
-            stats.set(i, cb._stat);
+            stats.set(index, stat);
           }
-        } else if (Code.get(cb.getRc()) != Code.NONODE && throwException) {
-          throw new HelixMetaDataAccessException(String
-              .format("Failed to read node %s, return code: %s", paths.get(i),
-                  Code.get(cb.getRc())));
+        } else if (rc != Code.NONODE && throwException) {
+          throw new HelixMetaDataAccessException(
+              String.format("Failed to read node %s, return code: %s", path, rc));
         } else {
-          pathFailToRead.put(paths.get(i), cb.getRc());
+          pathFailToRead.put(path, rc.intValue());
         }
-      }
+      });
       if (pathFailToRead.size() > 0) {
         LOG.warn("Fail to read record for paths: " + pathFailToRead);
       }
@@ -581,6 +581,75 @@ public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
     }
   }
 
+  /**
+   * Streaming async get. The reads are pipelined through the in-flight request window of the
+   * accessor, and each record is handed to the consumer in the caller thread as soon as it is
+   * read, in the order of completion. Unlike {@link #get(List, List, int, boolean)}, the caller
+   * does not need to hold all the records of a large batch in memory.
+   * An exception thrown by the consumer stops the read and is thrown to the caller.
+   * @param paths the paths to read
+   * @param options the access options, not used
+   * @param consumer the consumer of the records
+   */
+  public void get(List<String> paths, int options, AsyncReadConsumer<T> consumer) {
+    if (paths == null || paths.isEmpty()) {
+      return;
+    }
+    boolean[] needRead = new boolean[paths.size()];
+    Arrays.fill(needRead, true);
+    get(paths, needRead, consumer);
+  }
+
+  private void get(List<String> paths, boolean[] needRead, AsyncReadConsumer<T> consumer) {
+    BlockingQueue<ZkAsyncRequestWindow.GetDataCallback> completedCallbacks =
+        new LinkedBlockingQueue<>();
+    int next = 0;
+    int pendingCount = 0;
+    while (true) {
+      // issue the reads while the window has room, and at least one read if none is pending
+      for (; next < paths.size(); next++) {
+        if (!needRead[next]) {
+          continue;
+        }
+        ZkAsyncRequestWindow.Permit permit = pendingCount == 0 ? _asyncRequestWindow.acquire()
+            : _asyncRequestWindow.tryAcquire();
+        if (permit == null) {
+          break;
+        }
+        pendingCount++;
+        _zkClient.asyncGetData(paths.get(next),
+            new ZkAsyncRequestWindow.GetDataCallback(permit, next, completedCallbacks));
+      }
+      if (pendingCount == 0) {
+        return;
+      }
+
+      // hand over a completed read, which also frees a permit for the next read
+      ZkAsyncRequestWindow.GetDataCallback cb;
+      try {
+        cb = completedCallbacks.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        LOG.error("Interrupted waiting for the reads of {} paths to complete", pendingCount, e);
+        return;
+      }
+      pendingCount--;
+      String path = paths.get(cb._index);
+      Code rc = Code.get(cb.getRc());
+      if (rc == null) {
+        // the read could not be issued, e.g. the client is closed
+        rc = Code.SYSTEMERROR;
+      }
+      if (rc == Code.OK) {
+        @SuppressWarnings("unchecked")
+        T record = (T) _zkClient.deserialize(cb._data, path);
+        consumer.accept(cb._index, path, record, cb._stat, rc);
+      } else {
+        consumer.accept(cb._index, path, null, null, rc);
+      }
+    }
+  }
+
   /**
    * asyn getChildren
    * The retryCount and retryInterval will be ignored.
@@ -746,7 +815,7 @@ public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
 
         String path = paths.get(i);
         T record = records == null ? null : records.get(i);
-        cbList[i] = new ZkAsyncCallbacks.CreateCallbackHandler();
+        cbList[i] = new ZkAsyncRequestWindow.CreateCallback(_asyncRequestWindow.acquire());
         _zkClient.asyncCreate(path, record, mode, cbList[i]);
       }
 
@@ -899,7 +968,7 @@ public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
 
           String path = paths.get(i);
           T record = records.get(i);
-          cbList[i] = new ZkAsyncCallbacks.SetDataCallbackHandler();
+          cbList[i] = new ZkAsyncRequestWindow.SetDataCallback(_asyncRequestWindow.acquire());
           _zkClient.asyncSetData(path, record, -1, cbList[i]);
         }
 
@@ -1069,7 +1138,7 @@ public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
             failOnNoNode = true;
             needCreate[i] = true;
           } else {
-            cbList[i] = new ZkAsyncCallbacks.SetDataCallbackHandler();
+            cbList[i] = new ZkAsyncRequestWindow.SetDataCallback(_asyncRequestWindow.acquire());
             _zkClient.asyncSetData(path, newData, curStat.getVersion(), cbList[i]);
           }
         }
@@ -1189,7 +1258,7 @@ public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
           new ZkAsyncCallbacks.ExistsCallbackHandler[paths.size()];
       for (int i = 0; i < paths.size(); i++) {
         String path = paths.get(i);
-        cbList[i] = new ZkAsyncCallbacks.ExistsCallbackHandler();
+        cbList[i] = new ZkAsyncRequestWindow.ExistsCallback(_asyncRequestWindow.acquire());
         _zkClient.asyncExists(path, cbList[i]);
       }
 
@@ -1229,7 +1298,7 @@ public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
     try {
       for (int i = 0; i < paths.size(); i++) {
         String path = paths.get(i);
-        cbList[i] = new ZkAsyncCallbacks.DeleteCallbackHandler();
+        cbList[i] = new ZkAsyncRequestWindow.DeleteCallback(_asyncRequestWindow.acquire());
         _zkClient.asyncDelete(path, cbList[i]);
       }
 
@@ -1250,6 +1319,137 @@ public class ZkBaseDataAccessor<T> implements BaseDataAccessor<T> {
     }
   }
 
+  /**
+   * Commit the transaction with ZooKeeper multi. The operations are split into multi requests
+   * under the ZooKeeper request size limit ({@code jute.maxbuffer}).
+   * If the ZkClient does not support multi, e.g. a FederatedZkClient, the operations are applied
+   * one by one in order, and the commit stops at the first failed operation.
+   */
+  @Override
+  public boolean commit(DataAccessorTransaction<T> transaction) {
+    try {
+      commitOrThrow(transaction);
+      return true;
+    } catch (ZkException e) {
+      LOG.warn("Failed to commit transaction {}.", transaction, e);
+      return false;
+    } catch (IllegalArgumentException e) {
+      LOG.error("Failed to commit transaction {}.", transaction, e);
+      return false;
+    }
+  }
+
+  /**
+   * Commit the transaction like {@link #commit(DataAccessorTransaction)}, but throw the failure
+   * instead of returning false, so the caller can tell the failures apart.
+   * @param transaction the operations to commit
+   * @throws ZkException if an operation fails. The cause is the KeeperException of the first
+   *           failed operation, e.g. NOTEMPTY if a ZNode to remove has children
+   * @throws IllegalArgumentException if an operation has invalid options
+   */
+  public void commitOrThrow(DataAccessorTransaction<T> transaction) {
+    List<DataAccessorTransaction.Operation<T>> operations = transaction.getOperations();
+    if (operations.isEmpty()) {
+      return;
+    }
+
+    // split the operations into requests under the size limit
+    List<List<Op>> requests = new ArrayList<>();
+    List<Op> request = new ArrayList<>();
+    int requestSize = 0;
+    for (DataAccessorTransaction.Operation<T> operation : operations) {
+      String path = operation.getPath();
+      byte[] data =
+          operation.getRecord() == null ? null : _zkClient.serialize(operation.getRecord(), path);
+      Op op = toOp(operation, data);
+      int size = MULTI_OP_SIZE_OVERHEAD + path.length() + (data == null ? 0 : data.length);
+      if (!request.isEmpty() && requestSize + size > MULTI_REQUEST_SIZE_LIMIT) {
+        requests.add(request);
+        request = new ArrayList<>();
+        requestSize = 0;
+      }
+      request.add(op);
+      requestSize += size;
+    }
+    requests.add(request);
+    if (requests.size() > 1) {
+      LOG.info("Split the transaction of {} operations into {} multi requests.", operations.size(),
+          requests.size());
+    }
+
+    for (int i = 0; i < requests.size(); i++) {
+      try {
+        _zkClient.multi(requests.get(i));
+      } catch (UnsupportedOperationException e) {
+        if (i == 0) {
+          applyInOrder(operations);
+          return;
+        }
+        throw e;
+      } catch (ZkException e) {
+        LOG.warn("Failed to commit multi request {} of {} of transaction {}.", i + 1,
+            requests.size(), transaction);
+        throw e;
+      }
+    }
+  }
+
+  private Op toOp(DataAccessorTransaction.Operation<T> operation, byte[] data) {
+    String path = operation.getPath();
+    switch (operation.getType()) {
+    case CREATE:
+      return Op.create(path, data, ZooDefs.Ids.OPEN_ACL_UNSAFE, getCreateMode(operation));
+    case SET:
+      return Op.setData(path, data, operation.getVersion());
+    case REMOVE:
+      return Op.delete(path, operation.getVersion());
+    case CHECK:
+      return Op.check(path, operation.getVersion());
+    default:
+      throw new IllegalArgumentException("Unknown operation type: " + operation.getType());
+    }
+  }
+
+  private CreateMode getCreateMode(DataAccessorTransaction.Operation<T> operation) {
+    CreateMode mode = AccessOption.getMode(operation.getOptions());
+    if (mode == null) {
+      throw new IllegalArgumentException(
+          "Invalid create mode. options: " + operation.getOptions() + ", " + operation);
+    }
+    return mode;
+  }
+
+  private void applyInOrder(List<DataAccessorTransaction.Operation<T>> operations) {
+    for (DataAccessorTransaction.Operation<T> operation : operations) {
+      String path = operation.getPath();
+      int version = operation.getVersion();
+      switch (operation.getType()) {
+      case CREATE:
+        _zkClient.create(path, operation.getRecord(), getCreateMode(operation));
+        break;
+      case SET:
+        _zkClient.writeData(path, operation.getRecord(), version);
+        break;
+      case REMOVE:
+        if (!_zkClient.delete(path, version)) {
+          throw new ZkNoNodeException(KeeperException.create(Code.NONODE, path));
+        }
+        break;
+      case CHECK:
+        Stat stat = _zkClient.getStat(path);
+        if (stat == null) {
+          throw new ZkNoNodeException(KeeperException.create(Code.NONODE, path));
+        }
+        if (version != -1 && stat.getVersion() != version) {
+          throw new ZkBadVersionException(KeeperException.create(Code.BADVERSION, path));
+        }
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown operation type: " + operation.getType());
+      }
+    }
+  }
+
   /**
    * Subscribe to zookeeper data changes
    */
@@ -19,7 +19,6 @@ package org.apache.helix.manager.zk;
  * under the License.
  */
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -44,7 +43,7 @@ import org.apache.helix.zookeeper.api.client.RealmAwareZkClient;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.apache.helix.zookeeper.impl.client.FederatedZkClient;
 import org.apache.helix.zookeeper.impl.factory.DedicatedZkClientFactory;
-import org.apache.helix.zookeeper.util.GZipCompressionUtil;
+import org.apache.helix.zookeeper.util.compression.CompressionCodecs;
 import org.apache.helix.zookeeper.zkclient.DataUpdater;
 import org.apache.helix.zookeeper.zkclient.exception.ZkMarshallingError;
 import org.apache.helix.zookeeper.zkclient.exception.ZkNoNodeException;
@@ -164,8 +163,8 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
 
     // Take the ZNRecord and serialize it (get byte[])
     byte[] serializedRecord = _zkSerializer.serialize(value.getRecord());
-    // Compress the byte[]
-    byte[] compressedRecord = GZipCompressionUtil.compress(serializedRecord);
+    // Compress the byte[] with the codec configured for the path
+    byte[] compressedRecord = CompressionCodecs.compress(serializedRecord, rootPath);
     // Compute N - number of buckets
     int numBuckets = (compressedRecord.length + _bucketSize - 1) / _bucketSize;
 
@@ -319,10 +318,9 @@ public class ZkBucketDataAccessor implements BucketDataAccessor, AutoCloseable {
     }
 
     // Decompress the byte array
-    ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(compressedRecord);
     byte[] serializedRecord;
     try {
-      serializedRecord = GZipCompressionUtil.uncompress(byteArrayInputStream);
+      serializedRecord = CompressionCodecs.uncompress(compressedRecord);
     } catch (IOException e) {
       throw new HelixException(String.format("Failed to decompress path: %s!", path), e);
     }
@@ -26,10 +26,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.concurrent.locks.ReentrantLock;
+import javax.management.JMException;
 
 import org.apache.helix.AccessOption;
+import org.apache.helix.DataAccessorTransaction;
 import org.apache.helix.HelixException;
+import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.manager.zk.ZkBaseDataAccessor.RetCode;
+import org.apache.helix.monitoring.mbeans.ZkCacheMonitor;
 import org.apache.helix.store.HelixPropertyListener;
 import org.apache.helix.store.HelixPropertyStore;
 import org.apache.helix.store.zk.ZNode;
@@ -76,6 +80,13 @@ public class ZkCacheBaseDataAccessor<T> implements HelixPropertyStore<T> {
 
   private RealmAwareZkClient _zkClient;
 
+  // the max estimated bytes of the data held by each cache, 0 or negative for no limit
+  private long _cacheMaxBytes = Long.getLong(SystemPropertyKeys.ZK_CACHE_MAX_BYTES, 0L);
+  // the client paths whose data is never evicted from a bounded cache
+  private List<String> _cachePinnedPaths =
+      parsePinnedPaths(System.getProperty(SystemPropertyKeys.ZK_CACHE_PINNED_PATHS));
+  private final List<ZkCacheMonitor> _cacheMonitors = new ArrayList<>();
+
   @Deprecated
   public ZkCacheBaseDataAccessor(ZkBaseDataAccessor<T> baseAccessor, List<String> wtCachePaths) {
     this(baseAccessor, null, wtCachePaths, null);
@@ -136,17 +147,36 @@ public class ZkCacheBaseDataAccessor<T> implements HelixPropertyStore<T> {
   }
 
   private ZkCacheBaseDataAccessor(RealmAwareZkClient zkClient, String chrootPath,
-      List<String> wtCachePaths, List<String> zkCachePaths) {
+      List<String> wtCachePaths, List<String> zkCachePaths, Long cacheMaxBytes,
+      List<String> cachePinnedPaths) {
     _zkClient = zkClient;
     _baseAccessor = new ZkBaseDataAccessor<>(_zkClient);
 
     _chrootPath = chrootPath;
     _wtCachePaths = wtCachePaths;
     _zkCachePaths = zkCachePaths;
+    if (cacheMaxBytes != null) {
+      _cacheMaxBytes = cacheMaxBytes;
+    }
+    if (cachePinnedPaths != null) {
+      _cachePinnedPaths = cachePinnedPaths;
+    }
 
     start();
   }
 
+  private static List<String> parsePinnedPaths(String pinnedPaths) {
+    List<String> paths = new ArrayList<>();
+    if (pinnedPaths != null) {
+      for (String path : pinnedPaths.split(",")) {
+        if (!path.trim().isEmpty()) {
+          paths.add(path.trim());
+        }
+      }
+    }
+    return paths;
+  }
+
   private String prependChroot(String clientPath) {
     PathUtils.validatePath(clientPath);
 
@@ -358,7 +388,7 @@ public class ZkCacheBaseDataAccessor<T> implements HelixPropertyStore<T> {
     Cache<T> cache = getCache(serverPath);
     if (cache != null) {
       T record = null;
-      ZNode znode = cache.get(serverPath);
+      ZNode znode = cache.getWithData(serverPath);
 
       if (znode != null) {
         // TODO: shall return a deep copy instead of reference
@@ -372,9 +402,11 @@ public class ZkCacheBaseDataAccessor<T> implements HelixPropertyStore<T> {
         // if cache miss, fall back to zk and update cache
         try {
           cache.lockWrite();
+          // the cache keeps the stat of an evicted znode, so read the stat even if not asked for
+          Stat readStat = stat == null ? new Stat() : stat;
           record = _baseAccessor
-              .get(serverPath, stat, options | AccessOption.THROW_EXCEPTION_IFNOTEXIST);
-          cache.update(serverPath, record, stat);
+              .get(serverPath, readStat, options | AccessOption.THROW_EXCEPTION_IFNOTEXIST);
+          cache.update(serverPath, record, readStat);
         } catch (ZkNoNodeException e) {
           if (AccessOption.isThrowExceptionIfNotExist(options)) {
             throw e;
@@ -526,6 +558,71 @@ public class ZkCacheBaseDataAccessor<T> implements HelixPropertyStore<T> {
     return _baseAccessor.updateChildren(serverPaths, updaters, options);
   }
 
+  /**
+   * Commit the transaction on the server paths, and then refresh the cached ZNodes of its
+   * operations from zookeeper. They are refreshed whether the commit fails or not, since a split
+   * transaction may be partially applied.
+   */
+  @Override
+  public boolean commit(DataAccessorTransaction<T> transaction) {
+    DataAccessorTransaction<T> serverTransaction = new DataAccessorTransaction<>();
+    List<String> serverPaths = new ArrayList<>();
+    for (DataAccessorTransaction.Operation<T> operation : transaction.getOperations()) {
+      String serverPath = prependChroot(operation.getPath());
+      serverPaths.add(serverPath);
+      switch (operation.getType()) {
+      case CREATE:
+        serverTransaction.create(serverPath, operation.getRecord(), operation.getOptions());
+        break;
+      case SET:
+        serverTransaction.set(serverPath, operation.getRecord(), operation.getVersion());
+        break;
+      case REMOVE:
+        serverTransaction.remove(serverPath, operation.getVersion());
+        break;
+      case CHECK:
+        serverTransaction.check(serverPath, operation.getVersion());
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown operation type: " + operation.getType());
+      }
+    }
+
+    // lock the caches of the transaction in the order of the cache map, so the concurrent
+    // transactions do not deadlock
+    List<Cache<T>> caches = new ArrayList<>();
+    for (Cache<T> cache : _cacheMap.values()) {
+      for (String serverPath : serverPaths) {
+        if (getCache(serverPath) == cache && !caches.contains(cache)) {
+          caches.add(cache);
+          break;
+        }
+      }
+    }
+    for (Cache<T> cache : caches) {
+      cache.lockWrite();
+    }
+    try {
+      boolean success = _baseAccessor.commit(serverTransaction);
+      List<DataAccessorTransaction.Operation<T>> operations = serverTransaction.getOperations();
+      for (DataAccessorTransaction.Operation<T> operation : operations) {
+        Cache<T> cache = getCache(operation.getPath());
+        if (cache == null || operation.getType() == DataAccessorTransaction.OperationType.CHECK) {
+          continue;
+        }
+        // re-read the written paths even on failure, since a split transaction may be partially
+        // applied. The removed paths are not found and stay purged.
+        cache.purgeRecursive(operation.getPath());
+        cache.updateRecursive(operation.getPath());
+      }
+      return success;
+    } finally {
+      for (Cache<T> cache : caches) {
+        cache.unlockWrite();
+      }
+    }
+  }
+
   // TODO: change to use async_exists
   @Override
   public boolean[] exists(List<String> paths, int options) {
@@ -592,7 +689,7 @@ public class ZkCacheBaseDataAccessor<T> implements HelixPropertyStore<T> {
       try {
         cache.lockRead();
         for (int i = 0; i < size; i++) {
-          ZNode zNode = cache.get(serverPaths.get(i));
+          ZNode zNode = cache.getWithData(serverPaths.get(i));
           if (zNode != null) {
             // TODO: shall return a deep copy instead of reference
             records.set(i, (T) zNode.getData());
@@ -610,12 +707,18 @@ public class ZkCacheBaseDataAccessor<T> implements HelixPropertyStore<T> {
       if (needRead) {
         cache.lockWrite();
         try {
+          // the base accessor resets all the stats, so keep the stats of the cache hits apart
+          List<Stat> missStats = new ArrayList<>();
           List<T> readRecords =
-              _baseAccessor.get(serverPaths, readStats, needReads, throwException);
+              _baseAccessor.get(serverPaths, missStats, needReads, throwException);
           for (int i = 0; i < size; i++) {
             if (needReads[i]) {
               records.set(i, readRecords.get(i));
-              cache.update(serverPaths.get(i), readRecords.get(i), readStats.get(i));
+              readStats.set(i, missStats.get(i));
+              // a znode that does not exist has no stat, do not cache it
+              if (missStats.get(i) != null) {
+                cache.update(serverPaths.get(i), readRecords.get(i), missStats.get(i));
+              }
             }
           }
         } finally {
@@ -773,8 +876,10 @@ public class ZkCacheBaseDataAccessor<T> implements HelixPropertyStore<T> {
     }
     LOG.debug("Start ZkCacheEventThread...done");
 
-    _wtCache = new WriteThroughCache<T>(_baseAccessor, _wtCachePaths);
-    _zkCache = new ZkCallbackCache<T>(_baseAccessor, _chrootPath, _zkCachePaths, _eventThread);
+    _wtCache = new WriteThroughCache<T>(_baseAccessor, _wtCachePaths,
+        createCacheBudget(_wtCachePaths, "WriteThrough"));
+    _zkCache = new ZkCallbackCache<T>(_baseAccessor, _chrootPath, _zkCachePaths, _eventThread,
+        createCacheBudget(_zkCachePaths, "ZkCallback"));
 
     if (_wtCachePaths != null && !_wtCachePaths.isEmpty()) {
       for (String path : _wtCachePaths) {
@@ -789,6 +894,43 @@ public class ZkCacheBaseDataAccessor<T> implements HelixPropertyStore<T> {
     }
   }
 
+  /**
+   * @return the memory budget of a cache of the paths, null if the caches are not bounded or
+   *         there is no path to cache
+   */
+  private CacheBudget createCacheBudget(List<String> cachePaths, String cacheType) {
+    if (_cacheMaxBytes <= 0 || cachePaths == null || cachePaths.isEmpty()) {
+      return null;
+    }
+    List<String> pinnedServerPaths = new ArrayList<>();
+    for (String pinnedPath : _cachePinnedPaths) {
+      pinnedServerPaths.add(prependChroot(pinnedPath));
+    }
+    ZkCacheMonitor monitor =
+        new ZkCacheMonitor(_chrootPath == null ? "/" : _chrootPath, cacheType, _cacheMaxBytes);
+    try {
+      monitor.register();
+      synchronized (_cacheMonitors) {
+        _cacheMonitors.add(monitor);
+      }
+    } catch (JMException e) {
+      LOG.warn("Failed to register the monitor of the {} cache of {}.", cacheType, _chrootPath,
+          e);
+    }
+    LOG.info("The {} cache of {} is bounded to {} bytes, pinned paths: {}", cacheType,
+        _chrootPath, _cacheMaxBytes, pinnedServerPaths);
+    return new CacheBudget(_cacheMaxBytes, pinnedServerPaths, monitor);
+  }
+
+  private void unregisterCacheMonitors() {
+    synchronized (_cacheMonitors) {
+      for (ZkCacheMonitor monitor : _cacheMonitors) {
+        monitor.unregister();
+      }
+      _cacheMonitors.clear();
+    }
+  }
+
   @Override
   public void stop() {
     try {
@@ -798,6 +940,7 @@ public class ZkCacheBaseDataAccessor<T> implements HelixPropertyStore<T> {
         _zkClient.close();
         _zkClient = null;
       }
+      unregisterCacheMonitors();
 
       if (_eventThread == null) {
         LOG.warn(_eventThread + " has already stopped");
@@ -834,6 +977,7 @@ public class ZkCacheBaseDataAccessor<T> implements HelixPropertyStore<T> {
     if (_zkClient != null) {
       _zkClient.close();
     }
+    unregisterCacheMonitors();
   }
 
   @Override
@@ -846,6 +990,8 @@ public class ZkCacheBaseDataAccessor<T> implements HelixPropertyStore<T> {
     private String _chrootPath;
     private List<String> _wtCachePaths;
     private List<String> _zkCachePaths;
+    private Long _cacheMaxBytes;
+    private List<String> _cachePinnedPaths;
 
     public Builder() {
     }
@@ -865,11 +1011,32 @@ public class ZkCacheBaseDataAccessor<T> implements HelixPropertyStore<T> {
       return this;
     }
 
+    /**
+     * Bound each cache to the max estimated bytes of the data it holds. Once a cache is over the
+     * budget, the data of the least recently used znodes is evicted, and read from ZooKeeper again
+     * on the next get. 0 or negative for no limit. Defaults to
+     * {@link SystemPropertyKeys#ZK_CACHE_MAX_BYTES}.
+     */
+    public Builder<T> setCacheMaxBytes(long cacheMaxBytes) {
+      _cacheMaxBytes = cacheMaxBytes;
+      return this;
+    }
+
+    /**
+     * Set the paths whose data, and the data of their descendants, is never evicted from a
+     * bounded cache. Defaults to {@link SystemPropertyKeys#ZK_CACHE_PINNED_PATHS}.
+     */
+    public Builder<T> setCachePinnedPaths(List<String> cachePinnedPaths) {
+      _cachePinnedPaths = cachePinnedPaths;
+      return this;
+    }
+
     public ZkCacheBaseDataAccessor<T> build() {
       validate();
       return new ZkCacheBaseDataAccessor<>(
           createZkClient(_realmMode, _realmAwareZkConnectionConfig, _realmAwareZkClientConfig,
-              _zkAddress), _chrootPath, _wtCachePaths, _zkCachePaths);
+              _zkAddress), _chrootPath, _wtCachePaths, _zkCachePaths, _cacheMaxBytes,
+          _cachePinnedPaths);
     }
   }
 }
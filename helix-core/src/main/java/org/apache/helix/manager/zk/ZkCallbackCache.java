@@ -53,7 +53,15 @@ public class ZkCallbackCache<T> extends Cache<T> implements IZkChildListener, IZ
 
   public ZkCallbackCache(BaseDataAccessor<T> accessor, String chrootPath, List<String> paths,
       ZkCacheEventThread eventThread) {
-    super();
+    this(accessor, chrootPath, paths, eventThread, null);
+  }
+
+  /**
+   * @param budget the memory budget of the cache, null if the cache is not bounded
+   */
+  ZkCallbackCache(BaseDataAccessor<T> accessor, String chrootPath, List<String> paths,
+      ZkCacheEventThread eventThread, CacheBudget budget) {
+    super(budget);
     _accessor = accessor;
     _chrootPath = chrootPath;
 
@@ -78,12 +86,14 @@ public class ZkCallbackCache<T> extends Cache<T> implements IZkChildListener, IZ
     ZNode znode = _cache.get(path);
     if (znode == null) {
       _cache.put(path, new ZNode(path, data, stat));
+      onDataUpdated(path, data, stat);
       fireEvents(path, EventType.NodeCreated);
     } else {
       Stat oldStat = znode.getStat();
 
       znode.setData(data);
       znode.setStat(stat);
+      onDataUpdated(path, data, stat);
       // System.out.println("\t\t--setData. path: " + path + ", data: " + data);
 
       if (oldStat.getCzxid() != stat.getCzxid()) {
@@ -156,11 +166,22 @@ public class ZkCallbackCache<T> extends Cache<T> implements IZkChildListener, IZ
     try {
       _lock.writeLock().lock();
 
+      ZNode znode = _cache.get(dataPath);
+      if (znode != null && znode.isDataEvicted()) {
+        // keep the data evicted until it is read, only refresh the stat to fire the listeners
+        Stat stat = _accessor.getStat(dataPath, 0);
+        if (stat != null) {
+          Stat oldStat = znode.getStat();
+          znode.setStat(stat);
+          fireDataChangeEvents(dataPath, oldStat, stat);
+        }
+        return;
+      }
+
       // TODO: optimize it by get stat from callback
       Stat stat = new Stat();
       Object readData = _accessor.get(dataPath, stat, AccessOption.THROW_EXCEPTION_IFNOTEXIST);
 
-      ZNode znode = _cache.get(dataPath);
       if (znode != null) {
         Stat oldStat = znode.getStat();
 
@@ -171,18 +192,8 @@ public class ZkCallbackCache<T> extends Cache<T> implements IZkChildListener, IZ
         // stat.getVersion());
         znode.setData(readData);
         znode.setStat(stat);
-
-        // if create right after delete, and zkCallback comes after create
-        // no DataDelete() will be fired, instead will fire 2 DataChange()
-        // see ZkClient.fireDataChangedEvents()
-        if (oldStat.getCzxid() != stat.getCzxid()) {
-          fireEvents(dataPath, EventType.NodeDeleted);
-          fireEvents(dataPath, EventType.NodeCreated);
-        } else if (oldStat.getVersion() != stat.getVersion()) {
-          // System.out.println("\t--fireNodeChanged: " + dataPath + ", oldVersion: " +
-          // oldStat.getVersion() + ", newVersion: " + stat.getVersion());
-          fireEvents(dataPath, EventType.NodeDataChanged);
-        }
+        onDataUpdated(dataPath, readData, stat);
+        fireDataChangeEvents(dataPath, oldStat, stat);
       } else {
         // we may see dataChange on child before childChange on parent
         // in this case, let childChange update cache
@@ -193,6 +204,20 @@ public class ZkCallbackCache<T> extends Cache<T> implements IZkChildListener, IZ
 
   }
 
+  private void fireDataChangeEvents(String dataPath, Stat oldStat, Stat stat) {
+    // if create right after delete, and zkCallback comes after create
+    // no DataDelete() will be fired, instead will fire 2 DataChange()
+    // see ZkClient.fireDataChangedEvents()
+    if (oldStat.getCzxid() != stat.getCzxid()) {
+      fireEvents(dataPath, EventType.NodeDeleted);
+      fireEvents(dataPath, EventType.NodeCreated);
+    } else if (oldStat.getVersion() != stat.getVersion()) {
+      // System.out.println("\t--fireNodeChanged: " + dataPath + ", oldVersion: " +
+      // oldStat.getVersion() + ", newVersion: " + stat.getVersion());
+      fireEvents(dataPath, EventType.NodeDataChanged);
+    }
+  }
+
   @Override
   public void handleDataDeleted(String dataPath) throws Exception {
     // System.out.println("handleDataDeleted: " + dataPath);
@@ -205,7 +230,9 @@ public class ZkCallbackCache<T> extends Cache<T> implements IZkChildListener, IZ
       String parentPath = HelixUtil.getZkParentPath(dataPath);
       String name = HelixUtil.getZkName(dataPath);
       removeFromParentChildSet(parentPath, name);
-      _cache.remove(dataPath);
+      if (_cache.remove(dataPath) != null) {
+        onRemoved(dataPath);
+      }
 
       fireEvents(dataPath, EventType.NodeDeleted);
     } finally {
@@ -56,5 +56,10 @@ class ZkConnectionManager extends org.apache.helix.zookeeper.impl.factory.ZkConn
       }
     }
     _sharedWatchers.removeAll(closedWatchers);
+    for (Watcher watcher : _pathScopedWatchers) {
+      if (watcher instanceof SharedZkClient && ((SharedZkClient) watcher).isClosed()) {
+        unregisterWatcher(watcher);
+      }
+    }
   }
 }
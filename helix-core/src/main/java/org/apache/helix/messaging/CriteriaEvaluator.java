@@ -19,14 +19,20 @@ package org.apache.helix.messaging;
  * under the License.
  */
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.regex.Pattern;
 
 import com.google.common.base.Strings;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import org.apache.helix.Criteria;
@@ -36,12 +42,129 @@ import org.apache.helix.HelixException;
 import org.apache.helix.HelixManager;
 import org.apache.helix.HelixProperty;
 import org.apache.helix.PropertyKey;
+import org.apache.helix.PropertyType;
+import org.apache.helix.api.listeners.RoutingTableChangeListener;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.LiveInstance;
+import org.apache.helix.spectator.RoutingTableProvider;
+import org.apache.helix.spectator.RoutingTableSnapshot;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class CriteriaEvaluator {
+public class CriteriaEvaluator implements RoutingTableChangeListener {
   private static Logger logger = LoggerFactory.getLogger(CriteriaEvaluator.class);
   public static final String MATCH_ALL_SYM = "%";
+  private static final String MATCH_ONE_SYM = "_";
+  private static final int MAX_PATTERN_CACHE_SIZE = 1000;
+
+  // Compiled patterns of the normalized criteria, shared by all the evaluators
+  private static final LoadingCache<String, Pattern> _patternCache =
+      CacheBuilder.newBuilder().maximumSize(MAX_PATTERN_CACHE_SIZE)
+          .build(new CacheLoader<String, Pattern>() {
+            public Pattern load(String pattern) {
+              return Pattern.compile(pattern, Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+            }
+          });
+
+  /**
+   * The external view and live instance rows of the indexed cluster, rebuilt from the routing
+   * table snapshots of a spectator. Null until a routing table provider is attached.
+   */
+  private static class ClusterIndex {
+    final String _clusterName;
+    final CriteriaIndex _externalViewIndex;
+    final CriteriaIndex _liveInstanceIndex;
+    final Map<String, String> _liveInstanceSessions;
+
+    ClusterIndex(String clusterName, RoutingTableSnapshot snapshot) {
+      _clusterName = clusterName;
+      Set<String> liveParticipants = new HashSet<>();
+      List<ZNRecord> liveInstanceRecords = new ArrayList<>();
+      Map<String, String> liveInstanceSessions = new HashMap<>();
+      for (LiveInstance liveInstance : snapshot.getLiveInstances()) {
+        liveParticipants.add(liveInstance.getInstanceName());
+        liveInstanceRecords.add(liveInstance.getRecord());
+        liveInstanceSessions.put(liveInstance.getInstanceName(), liveInstance.getEphemeralOwner());
+      }
+      List<ZNRecord> externalViewRecords = new ArrayList<>();
+      for (ExternalView externalView : snapshot.getExternalViews()) {
+        externalViewRecords.add(externalView.getRecord());
+      }
+      _externalViewIndex = new CriteriaIndex(externalViewRecords, liveParticipants);
+      _liveInstanceIndex = new CriteriaIndex(liveInstanceRecords, liveParticipants);
+      _liveInstanceSessions = Collections.unmodifiableMap(liveInstanceSessions);
+    }
+  }
+
+  private volatile ClusterIndex _clusterIndex;
+  private String _indexedClusterName;
+
+  /**
+   * Resolve the recipients from the external views and live instances maintained by the routing
+   * table provider instead of reading them from zookeeper on every evaluation. Only the criteria
+   * on the EXTERNALVIEW and LIVEINSTANCES data sources of the given cluster use the index.
+   * @param routingTableProvider a routing table provider that has EXTERNALVIEW as a source
+   * @param clusterName the cluster the routing table provider watches
+   */
+  public void attachRoutingTableProvider(RoutingTableProvider routingTableProvider,
+      String clusterName) {
+    synchronized (this) {
+      _indexedClusterName = clusterName;
+      _clusterIndex = new ClusterIndex(clusterName,
+          routingTableProvider.getRoutingTableSnapshot(PropertyType.EXTERNALVIEW));
+    }
+    routingTableProvider.addRoutingTableChangeListener(this, null);
+  }
+
+  /**
+   * Stop using the index of the routing table provider, the criteria are evaluated against
+   * zookeeper again.
+   * @param routingTableProvider
+   */
+  public void detachRoutingTableProvider(RoutingTableProvider routingTableProvider) {
+    routingTableProvider.removeRoutingTableChangeListener(this);
+    synchronized (this) {
+      _indexedClusterName = null;
+      _clusterIndex = null;
+    }
+  }
+
+  @Override
+  public void onRoutingTableChange(RoutingTableSnapshot routingTableSnapshot, Object context) {
+    if (routingTableSnapshot.getPropertyType() != PropertyType.EXTERNALVIEW) {
+      return;
+    }
+    synchronized (this) {
+      if (_indexedClusterName != null) {
+        _clusterIndex = new ClusterIndex(_indexedClusterName, routingTableSnapshot);
+      }
+    }
+  }
+
+  /**
+   * Get the session ids of the live instances from the index, if the criteria can be evaluated
+   * with the index.
+   * @param recipientCriteria
+   * @return map of live instance name to session id, or null if the criteria is not indexed
+   */
+  public Map<String, String> getIndexedLiveInstanceSessions(Criteria recipientCriteria) {
+    ClusterIndex clusterIndex = getClusterIndex(recipientCriteria);
+    return clusterIndex == null ? null : clusterIndex._liveInstanceSessions;
+  }
+
+  private ClusterIndex getClusterIndex(Criteria recipientCriteria) {
+    ClusterIndex clusterIndex = _clusterIndex;
+    if (clusterIndex == null) {
+      return null;
+    }
+    String clusterName = recipientCriteria.getClusterName();
+    if (clusterName != null && !clusterName.isEmpty() && !clusterName
+        .equals(clusterIndex._clusterName)) {
+      return null;
+    }
+    return clusterIndex;
+  }
 
   /**
    * Examine persisted data to match wildcards in {@link Criteria}
@@ -62,6 +185,83 @@ public class CriteriaEvaluator {
    */
   public List<Map<String, String>> evaluateCriteria(Criteria recipientCriteria,
       HelixDataAccessor accessor) {
+    RowMatcher rowMatcher = new RowMatcher(recipientCriteria);
+    List<ZNRecordRow> result = evaluateIndexedCriteria(recipientCriteria, rowMatcher);
+    if (result == null) {
+      result = evaluateCriteriaFromZk(recipientCriteria, rowMatcher, accessor);
+    }
+
+    Set<Map<String, String>> selected = Sets.newHashSet();
+
+    // deduplicate and convert the matches into the required format
+    for (ZNRecordRow row : result) {
+      Map<String, String> resultRow = new HashMap<String, String>();
+      resultRow.put("instanceName", !recipientCriteria.getInstanceName().equals("")
+          ? (!Strings.isNullOrEmpty(row.getMapSubKey()) ? row.getMapSubKey() : row.getRecordId())
+          : "");
+      resultRow.put("resourceName",
+          !recipientCriteria.getResource().equals("") ? row.getRecordId() : "");
+      resultRow.put("partitionName",
+          !recipientCriteria.getPartition().equals("") ? row.getMapKey() : "");
+      resultRow.put("partitionState",
+          !recipientCriteria.getPartitionState().equals("") ? row.getMapValue() : "");
+      selected.add(resultRow);
+    }
+    logger.info("Query returned " + selected.size() + " rows");
+    return Lists.newArrayList(selected);
+  }
+
+  /**
+   * Match the criteria against the index of the attached routing table provider.
+   * @return the matched rows, or null if the criteria cannot be evaluated with the index
+   */
+  private List<ZNRecordRow> evaluateIndexedCriteria(Criteria recipientCriteria,
+      RowMatcher rowMatcher) {
+    ClusterIndex clusterIndex = getClusterIndex(recipientCriteria);
+    if (clusterIndex == null) {
+      return null;
+    }
+    CriteriaIndex index;
+    String dataSpec;
+    DataSource dataSource = recipientCriteria.getDataSource();
+    switch (dataSource) {
+    case EXTERNALVIEW:
+      index = clusterIndex._externalViewIndex;
+      dataSpec = recipientCriteria.getResource();
+      break;
+    case LIVEINSTANCES:
+      index = clusterIndex._liveInstanceIndex;
+      dataSpec = recipientCriteria.getInstanceName();
+      break;
+    default:
+      return null;
+    }
+
+    List<ZNRecordRow> candidates;
+    if (Strings.isNullOrEmpty(dataSpec) || dataSpec.equals(MATCH_ALL_SYM)) {
+      candidates = index.getCandidateRows(rowMatcher._instanceMatcher._prefix,
+          rowMatcher._resourceMatcher._prefix, rowMatcher._partitionMatcher._prefix,
+          rowMatcher._partitionStateMatcher._prefix);
+    } else {
+      // Same as reading the single record from zookeeper
+      if (!index.containsRecord(dataSpec)) {
+        throw new HelixException(
+            String.format("Specified %s %s is not found!", dataSource.name(), dataSpec));
+      }
+      candidates = index.getRecordRows(dataSpec);
+    }
+
+    List<ZNRecordRow> result = Lists.newArrayList();
+    for (ZNRecordRow row : candidates) {
+      if (rowMatcher.matches(row)) {
+        result.add(row);
+      }
+    }
+    return result;
+  }
+
+  private List<ZNRecordRow> evaluateCriteriaFromZk(Criteria recipientCriteria,
+      RowMatcher rowMatcher, HelixDataAccessor accessor) {
     // get the data
     PropertyKey.Builder keyBuilder = accessor.keyBuilder();
 
@@ -103,48 +303,98 @@ public class CriteriaEvaluator {
     for (ZNRecordRow row : allRows) {
       // The participant instance name is stored in the return value of either getRecordId() or
       // getMapSubKey()
-      if (rowMatches(recipientCriteria, row) && (liveParticipants.contains(row.getRecordId())
+      if (rowMatcher.matches(row) && (liveParticipants.contains(row.getRecordId())
           || liveParticipants.contains(row.getMapSubKey()))) {
         result.add(row);
       }
     }
+    return result;
+  }
 
-    Set<Map<String, String>> selected = Sets.newHashSet();
+  /**
+   * Matches rows against the patterns of a criteria, the patterns are parsed once per criteria.
+   */
+  private static class RowMatcher {
+    final FieldMatcher _instanceMatcher;
+    final FieldMatcher _resourceMatcher;
+    final FieldMatcher _partitionMatcher;
+    final FieldMatcher _partitionStateMatcher;
 
-    // deduplicate and convert the matches into the required format
-    for (ZNRecordRow row : result) {
-      Map<String, String> resultRow = new HashMap<String, String>();
-      resultRow.put("instanceName", !recipientCriteria.getInstanceName().equals("")
-          ? (!Strings.isNullOrEmpty(row.getMapSubKey()) ? row.getMapSubKey() : row.getRecordId())
-          : "");
-      resultRow.put("resourceName",
-          !recipientCriteria.getResource().equals("") ? row.getRecordId() : "");
-      resultRow.put("partitionName",
-          !recipientCriteria.getPartition().equals("") ? row.getMapKey() : "");
-      resultRow.put("partitionState",
-          !recipientCriteria.getPartitionState().equals("") ? row.getMapValue() : "");
-      selected.add(resultRow);
+    RowMatcher(Criteria criteria) {
+      _instanceMatcher = new FieldMatcher(criteria.getInstanceName());
+      _resourceMatcher = new FieldMatcher(criteria.getResource());
+      _partitionMatcher = new FieldMatcher(criteria.getPartition());
+      _partitionStateMatcher = new FieldMatcher(criteria.getPartitionState());
+    }
+
+    /**
+     * Check if a given row matches the specified criteria
+     * @param row row of currently persisted data
+     * @return true if it matches, false otherwise
+     */
+    boolean matches(ZNRecordRow row) {
+      return (_instanceMatcher.matches(Strings.nullToEmpty(row.getMapSubKey()))
+          || _instanceMatcher.matches(Strings.nullToEmpty(row.getRecordId())))
+          && _resourceMatcher.matches(Strings.nullToEmpty(row.getRecordId()))
+          && _partitionMatcher.matches(Strings.nullToEmpty(row.getMapKey()))
+          && _partitionStateMatcher.matches(Strings.nullToEmpty(row.getMapValue()));
     }
-    logger.info("Query returned " + selected.size() + " rows");
-    return Lists.newArrayList(selected);
   }
 
   /**
-   * Check if a given row matches the specified criteria
-   * @param criteria the criteria
-   * @param row row of currently persisted data
-   * @return true if it matches, false otherwise
+   * Matches one field against an SQL like expression (i.e. contains '%'s and '_'s). Exact and
+   * prefix expressions are compared directly, only the other expressions use a regex.
    */
-  private boolean rowMatches(Criteria criteria, ZNRecordRow row) {
-    String instanceName = normalizePattern(criteria.getInstanceName());
-    String resourceName = normalizePattern(criteria.getResource());
-    String partitionName = normalizePattern(criteria.getPartition());
-    String partitionState = normalizePattern(criteria.getPartitionState());
-    return (stringMatches(instanceName, Strings.nullToEmpty(row.getMapSubKey()))
-        || stringMatches(instanceName, Strings.nullToEmpty(row.getRecordId())))
-        && stringMatches(resourceName, Strings.nullToEmpty(row.getRecordId()))
-        && stringMatches(partitionName, Strings.nullToEmpty(row.getMapKey()))
-        && stringMatches(partitionState, Strings.nullToEmpty(row.getMapValue()));
+  private static class FieldMatcher {
+    // The literal part of the expression before the first wildcard
+    final String _prefix;
+    final boolean _matchAll;
+    final boolean _isLiteral;
+    final boolean _isPrefix;
+    final Pattern _pattern;
+
+    FieldMatcher(String expression) {
+      if (expression == null || expression.equals("") || expression.equals("*")) {
+        expression = MATCH_ALL_SYM;
+      }
+      int wildcardIndex = firstWildcardIndex(expression);
+      _prefix = wildcardIndex < 0 ? expression : expression.substring(0, wildcardIndex);
+      _isLiteral = wildcardIndex < 0;
+      _isPrefix = !_isLiteral && isAllMatchAllSym(expression.substring(wildcardIndex));
+      _matchAll = _isPrefix && _prefix.isEmpty();
+      _pattern = _isLiteral || _isPrefix ? null : getPattern(normalizePattern(expression));
+    }
+
+    boolean matches(String value) {
+      if (_matchAll) {
+        return true;
+      }
+      if (_isLiteral) {
+        return value.equalsIgnoreCase(_prefix);
+      }
+      if (_isPrefix) {
+        return value.regionMatches(true, 0, _prefix, 0, _prefix.length());
+      }
+      return _pattern.matcher(value).matches();
+    }
+
+    private static int firstWildcardIndex(String expression) {
+      int matchAllIndex = expression.indexOf(MATCH_ALL_SYM);
+      int matchOneIndex = expression.indexOf(MATCH_ONE_SYM);
+      if (matchAllIndex < 0 || matchOneIndex < 0) {
+        return Math.max(matchAllIndex, matchOneIndex);
+      }
+      return Math.min(matchAllIndex, matchOneIndex);
+    }
+
+    private static boolean isAllMatchAllSym(String expression) {
+      for (int i = 0; i < expression.length(); i++) {
+        if (expression.charAt(i) != MATCH_ALL_SYM.charAt(0)) {
+          return false;
+        }
+      }
+      return true;
+    }
   }
 
   /**
@@ -152,7 +402,7 @@ public class CriteriaEvaluator {
    * @param pattern SQL like match pattern (i.e. contains '%'s and '_'s)
    * @return Java matches expression (i.e. contains ".*?"s and '.'s)
    */
-  private String normalizePattern(String pattern) {
+  private static String normalizePattern(String pattern) {
     if (pattern == null || pattern.equals("") || pattern.equals("*")) {
       pattern = "%";
     }
@@ -171,14 +421,16 @@ public class CriteriaEvaluator {
   }
 
   /**
-   * Check if a string matches a pattern
+   * Get the compiled pattern from the LRU cache of compiled patterns
    * @param pattern pattern allowed by Java regex matching
-   * @param value the string to check
-   * @return true if they match, false otherwise
+   * @return the compiled pattern
    */
-  private boolean stringMatches(String pattern, String value) {
-    Pattern p = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
-    return p.matcher(value).matches();
+  private static Pattern getPattern(String pattern) {
+    try {
+      return _patternCache.get(pattern);
+    } catch (ExecutionException e) {
+      throw new HelixException("Failed to compile pattern " + pattern, e.getCause());
+    }
   }
 
   private List<HelixProperty> getProperty(HelixDataAccessor accessor, String dataSpec,
@@ -0,0 +1,184 @@
+package org.apache.helix.messaging;
+
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.google.common.base.Strings;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+
+/**
+ * An immutable index of the flattened rows of one {@link org.apache.helix.Criteria.DataSource}
+ * that belong to live participants. The rows are indexed by record id, map key, map sub key and
+ * map value, so the candidate rows of a criteria can be found by the literal prefix of its
+ * patterns instead of matching every row of the cluster.
+ */
+class CriteriaIndex {
+  private final Set<String> _recordIds;
+  private final List<ZNRecordRow> _rows;
+  private final Map<String, List<ZNRecordRow>> _rowsByRecordId;
+  private final NavigableMap<String, List<ZNRecordRow>> _recordIdIndex;
+  private final NavigableMap<String, List<ZNRecordRow>> _mapKeyIndex;
+  private final NavigableMap<String, List<ZNRecordRow>> _mapSubKeyIndex;
+  private final NavigableMap<String, List<ZNRecordRow>> _mapValueIndex;
+
+  /**
+   * Build the index.
+   * @param records all the records of the data source
+   * @param liveParticipants the live participants, only the rows whose record id or map sub key
+   *          is a live participant are indexed
+   */
+  CriteriaIndex(Collection<ZNRecord> records, Set<String> liveParticipants) {
+    _recordIds = new HashSet<>();
+    _rows = new ArrayList<>();
+    _rowsByRecordId = new HashMap<>();
+    _recordIdIndex = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    _mapKeyIndex = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    _mapSubKeyIndex = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    _mapValueIndex = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    for (ZNRecord record : records) {
+      _recordIds.add(record.getId());
+      for (ZNRecordRow row : ZNRecordRow.flatten(record)) {
+        if (!liveParticipants.contains(row.getRecordId()) && !liveParticipants
+            .contains(row.getMapSubKey())) {
+          continue;
+        }
+        _rows.add(row);
+        addToIndex(_rowsByRecordId, row.getRecordId(), row);
+        addToIndex(_recordIdIndex, row.getRecordId(), row);
+        addToIndex(_mapKeyIndex, row.getMapKey(), row);
+        addToIndex(_mapSubKeyIndex, row.getMapSubKey(), row);
+        addToIndex(_mapValueIndex, row.getMapValue(), row);
+      }
+    }
+  }
+
+  private static void addToIndex(Map<String, List<ZNRecordRow>> index, String key,
+      ZNRecordRow row) {
+    String indexKey = Strings.nullToEmpty(key);
+    List<ZNRecordRow> rows = index.get(indexKey);
+    if (rows == null) {
+      rows = new ArrayList<>(1);
+      index.put(indexKey, rows);
+    }
+    rows.add(row);
+  }
+
+  /**
+   * @param recordId
+   * @return true if the data source has the record, whether its rows are indexed or not
+   */
+  boolean containsRecord(String recordId) {
+    return _recordIds.contains(recordId);
+  }
+
+  /**
+   * @param recordId
+   * @return the indexed rows of the record
+   */
+  List<ZNRecordRow> getRecordRows(String recordId) {
+    List<ZNRecordRow> rows = _rowsByRecordId.get(recordId);
+    return rows == null ? Collections.<ZNRecordRow>emptyList() : rows;
+  }
+
+  /**
+   * Get the rows that may match the literal prefixes of the criteria patterns. Every returned row
+   * still has to be checked against the full patterns.
+   * @param instancePrefix literal prefix of the instance pattern, matched against both the
+   *          record id and the map sub key. Empty if the pattern starts with a wildcard.
+   * @param resourcePrefix literal prefix of the resource pattern, matched against the record id
+   * @param partitionPrefix literal prefix of the partition pattern
+   * @param statePrefix literal prefix of the partition state pattern
+   * @return the candidate rows
+   */
+  List<ZNRecordRow> getCandidateRows(String instancePrefix, String resourcePrefix,
+      String partitionPrefix, String statePrefix) {
+    List<Collection<List<ZNRecordRow>>> candidates = null;
+    int candidateCount = _rows.size();
+
+    if (!instancePrefix.isEmpty()) {
+      Collection<List<ZNRecordRow>> bySubKey = lookup(_mapSubKeyIndex, instancePrefix);
+      Collection<List<ZNRecordRow>> byRecordId = lookup(_recordIdIndex, instancePrefix);
+      int count = count(bySubKey) + count(byRecordId);
+      if (count < candidateCount) {
+        candidates = new ArrayList<>(2);
+        candidates.add(bySubKey);
+        candidates.add(byRecordId);
+        candidateCount = count;
+      }
+    }
+    String[] prefixes = { resourcePrefix, partitionPrefix, statePrefix };
+    List<NavigableMap<String, List<ZNRecordRow>>> indexes =
+        Arrays.asList(_recordIdIndex, _mapKeyIndex, _mapValueIndex);
+    for (int i = 0; i < prefixes.length; i++) {
+      if (prefixes[i].isEmpty()) {
+        continue;
+      }
+      Collection<List<ZNRecordRow>> rows = lookup(indexes.get(i), prefixes[i]);
+      int count = count(rows);
+      if (count < candidateCount) {
+        candidates = Collections.singletonList(rows);
+        candidateCount = count;
+      }
+    }
+
+    if (candidates == null) {
+      return _rows;
+    }
+    List<ZNRecordRow> result = new ArrayList<>(candidateCount);
+    for (Collection<List<ZNRecordRow>> rowLists : candidates) {
+      for (List<ZNRecordRow> rows : rowLists) {
+        result.addAll(rows);
+      }
+    }
+    return result;
+  }
+
+  private static Collection<List<ZNRecordRow>> lookup(
+      NavigableMap<String, List<ZNRecordRow>> index, String prefix) {
+    // All keys that start with the prefix, ignoring case, sort between the prefix itself and the
+    // prefix followed by the largest char.
+    return index.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values();
+  }
+
+  private static int count(Collection<List<ZNRecordRow>> rowLists) {
+    int count = 0;
+    for (List<ZNRecordRow> rows : rowLists) {
+      count += rows.size();
+    }
+    return count;
+  }
+
+  int size() {
+    return _rows.size();
+  }
+}
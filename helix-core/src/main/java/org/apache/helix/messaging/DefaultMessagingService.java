@@ -45,6 +45,7 @@ import org.apache.helix.model.Message.MessageType;
 import org.apache.helix.model.builder.ConfigScopeBuilder;
 import org.apache.helix.monitoring.mbeans.MessageQueueMonitor;
 import org.apache.helix.monitoring.mbeans.ParticipantStatusMonitor;
+import org.apache.helix.spectator.RoutingTableProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -76,6 +77,26 @@ public class DefaultMessagingService implements ClusterMessagingService {
         _asyncCallbackService);
   }
 
+  /**
+   * Resolve the recipients of the messages sent to this cluster from the external views and live
+   * instances maintained by a spectator's routing table provider, instead of reading them from
+   * zookeeper for every message sent. The recipients may lag behind zookeeper by the routing
+   * table refresh latency.
+   * @param routingTableProvider a routing table provider of this cluster that has EXTERNALVIEW as
+   *          a source
+   */
+  public void attachRoutingTableProvider(RoutingTableProvider routingTableProvider) {
+    _evaluator.attachRoutingTableProvider(routingTableProvider, _manager.getClusterName());
+  }
+
+  /**
+   * Stop resolving the recipients from the routing table provider.
+   * @param routingTableProvider
+   */
+  public void detachRoutingTableProvider(RoutingTableProvider routingTableProvider) {
+    _evaluator.detachRoutingTableProvider(routingTableProvider);
+  }
+
   @Override
   public int send(Criteria recipientCriteria, final Message messageTemplate) {
     return send(recipientCriteria, messageTemplate, null, -1);
@@ -184,7 +205,11 @@ public class DefaultMessagingService implements ClusterMessagingService {
 
     if (!matchedList.isEmpty()) {
       Map<String, String> sessionIdMap = new HashMap<String, String>();
-      if (recipientCriteria.isSessionSpecific()) {
+      Map<String, String> indexedSessionIdMap =
+          _evaluator.getIndexedLiveInstanceSessions(recipientCriteria);
+      if (recipientCriteria.isSessionSpecific() && indexedSessionIdMap != null) {
+        sessionIdMap.putAll(indexedSessionIdMap);
+      } else if (recipientCriteria.isSessionSpecific()) {
         Builder keyBuilder = targetDataAccessor.keyBuilder();
         // For backward compatibility, allow partial read for the live instances.
         // Note that this may cause the pending message to be sent with null target session Id.
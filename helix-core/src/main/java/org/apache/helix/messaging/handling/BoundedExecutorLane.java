@@ -0,0 +1,195 @@
+package org.apache.helix.messaging.handling;
+
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.helix.monitoring.mbeans.ThreadPoolExecutorMonitor;
+
+/**
+ * An executor service that runs its tasks on a shared executor with at most a fixed number of
+ * them running at the same time. Tasks that exceed the limit wait in the lane queue, so the
+ * submitting thread never blocks and one busy lane cannot use up the shared executor.
+ * Shutting down a lane only affects the tasks of the lane, the shared executor is left running.
+ */
+public class BoundedExecutorLane extends AbstractExecutorService
+    implements ThreadPoolExecutorMonitor.ExecutorStats {
+  private final String _name;
+  private final Executor _executor;
+  private final int _maxConcurrency;
+  private final Semaphore _permits;
+  private final Queue<Runnable> _queue = new ConcurrentLinkedQueue<>();
+  private final Set<Thread> _runningThreads =
+      Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+  private final Object _terminationLock = new Object();
+  private volatile boolean _isShutdown = false;
+
+  public BoundedExecutorLane(String name, Executor executor, int maxConcurrency) {
+    if (maxConcurrency <= 0) {
+      throw new IllegalArgumentException("Illegal max concurrency: " + maxConcurrency);
+    }
+    _name = name;
+    _executor = executor;
+    _maxConcurrency = maxConcurrency;
+    _permits = new Semaphore(maxConcurrency);
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    if (command == null) {
+      throw new NullPointerException();
+    }
+    if (_isShutdown) {
+      throw new RejectedExecutionException("Executor lane " + _name + " has been shut down");
+    }
+    _queue.offer(command);
+    dispatch();
+  }
+
+  /**
+   * Hand queued tasks to the shared executor while permits are available. Called after each
+   * submission and each completion, so a task queued while all permits are taken is picked up
+   * by the task that releases the next permit.
+   */
+  private void dispatch() {
+    while (!_queue.isEmpty() && _permits.tryAcquire()) {
+      final Runnable task = _queue.poll();
+      if (task == null) {
+        _permits.release();
+        continue;
+      }
+      try {
+        _executor.execute(new Runnable() {
+          @Override
+          public void run() {
+            Thread thread = Thread.currentThread();
+            _runningThreads.add(thread);
+            try {
+              task.run();
+            } finally {
+              _runningThreads.remove(thread);
+              // Do not leak the interruption of a cancelled task to the next task of the thread
+              Thread.interrupted();
+              _permits.release();
+              dispatch();
+              signalIfTerminated();
+            }
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        _permits.release();
+        throw e;
+      }
+    }
+  }
+
+  private void signalIfTerminated() {
+    if (isTerminated()) {
+      synchronized (_terminationLock) {
+        _terminationLock.notifyAll();
+      }
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    _isShutdown = true;
+    signalIfTerminated();
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    _isShutdown = true;
+    List<Runnable> waitingTasks = new ArrayList<>();
+    Runnable task;
+    while ((task = _queue.poll()) != null) {
+      waitingTasks.add(task);
+    }
+    for (Thread thread : _runningThreads) {
+      thread.interrupt();
+    }
+    signalIfTerminated();
+    return waitingTasks;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return _isShutdown;
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return _isShutdown && _queue.isEmpty() && getActiveCount() == 0;
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    synchronized (_terminationLock) {
+      while (!isTerminated()) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return false;
+        }
+        TimeUnit.NANOSECONDS.timedWait(_terminationLock, remaining);
+      }
+      return true;
+    }
+  }
+
+  @Override
+  public int getCorePoolSize() {
+    return _maxConcurrency;
+  }
+
+  @Override
+  public int getMaximumPoolSize() {
+    return _maxConcurrency;
+  }
+
+  @Override
+  public int getQueueSize() {
+    return _queue.size();
+  }
+
+  @Override
+  public int getActiveCount() {
+    return _maxConcurrency - _permits.availablePermits();
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s[name=%s, maxConcurrency=%d, active=%d, queued=%d, shutdown=%s]",
+        getClass().getSimpleName(), _name, _maxConcurrency, getActiveCount(), getQueueSize(),
+        _isShutdown);
+  }
+}
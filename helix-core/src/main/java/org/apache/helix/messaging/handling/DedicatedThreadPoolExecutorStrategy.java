@@ -0,0 +1,43 @@
+package org.apache.helix.messaging.handling;
+
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The default executor strategy, which creates a fixed size thread pool for each key.
+ */
+public class DedicatedThreadPoolExecutorStrategy implements ExecutorStrategy {
+  private static final AtomicLong THREAD_UID = new AtomicLong(0);
+
+  @Override
+  public ExecutorService createExecutor(String key, int parallelism) {
+    return Executors.newFixedThreadPool(parallelism, r -> new Thread(r,
+        "HelixTaskExecutor-message_handle_" + key + "_" + THREAD_UID.getAndIncrement()));
+  }
+
+  @Override
+  public void shutdown() {
+    // Nothing is shared between the thread pools
+  }
+}
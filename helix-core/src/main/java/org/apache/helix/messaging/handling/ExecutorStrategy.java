@@ -0,0 +1,44 @@
+package org.apache.helix.messaging.handling;
+
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Decides how the participant creates the executors that run message handling tasks. An
+ * executor is created for each message type and, for state transition messages, for each
+ * resource that has a dedicated thread pool size configured.
+ */
+public interface ExecutorStrategy {
+  /**
+   * Create the executor of one message handling key.
+   * @param key the message type or the per-resource key of the executor
+   * @param parallelism the max number of tasks of the key that run at the same time
+   * @return the executor service of the key
+   */
+  ExecutorService createExecutor(String key, int parallelism);
+
+  /**
+   * Release the resources shared by the executors of this strategy. Called when the task
+   * executor shuts down, after all the executors are shut down.
+   */
+  void shutdown();
+}
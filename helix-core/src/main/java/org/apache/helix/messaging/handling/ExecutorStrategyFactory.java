@@ -0,0 +1,75 @@
+package org.apache.helix.messaging.handling;
+
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.helix.SystemPropertyKeys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the default executor strategy of the participant message handling from the system
+ * properties, see {@link SystemPropertyKeys#MESSAGE_EXECUTOR_STRATEGY_TYPE}.
+ */
+public class ExecutorStrategyFactory {
+  private static final Logger LOG = LoggerFactory.getLogger(ExecutorStrategyFactory.class);
+
+  public enum StrategyType {
+    DEDICATED,
+    SHARED,
+    VIRTUAL
+  }
+
+  private ExecutorStrategyFactory() {
+  }
+
+  public static ExecutorStrategy createDefaultStrategy() {
+    String type = System.getProperty(SystemPropertyKeys.MESSAGE_EXECUTOR_STRATEGY_TYPE);
+    StrategyType strategyType = StrategyType.DEDICATED;
+    if (type != null) {
+      try {
+        strategyType = StrategyType.valueOf(type.toUpperCase());
+      } catch (IllegalArgumentException e) {
+        LOG.warn("Unknown message executor strategy {}, use {}", type, strategyType);
+      }
+    }
+    return createStrategy(strategyType);
+  }
+
+  public static ExecutorStrategy createStrategy(StrategyType strategyType) {
+    int sharedPoolSize = Integer.getInteger(SystemPropertyKeys.MESSAGE_EXECUTOR_SHARED_POOL_SIZE,
+        TaskExecutor.DEFAULT_PARALLEL_TASKS);
+    switch (strategyType) {
+    case VIRTUAL:
+      if (VirtualThreadExecutorStrategy.isSupported()) {
+        LOG.info("Use virtual thread message executor strategy");
+        return new VirtualThreadExecutorStrategy();
+      }
+      LOG.warn("Virtual threads are not supported by the running JVM, use {} strategy",
+          StrategyType.SHARED);
+      // fall through
+    case SHARED:
+      LOG.info("Use shared pool message executor strategy, pool size: {}", sharedPoolSize);
+      return new SharedPoolExecutorStrategy(sharedPoolSize);
+    default:
+      return new DedicatedThreadPoolExecutorStrategy();
+    }
+  }
+}
@@ -42,6 +42,7 @@ import org.apache.helix.SystemPropertyKeys;
 import org.apache.helix.model.CurrentState;
 import org.apache.helix.model.Message;
 import org.apache.helix.model.Message.Attributes;
+import org.apache.helix.monitoring.StateTransitionTimestamps;
 import org.apache.helix.participant.statemachine.StateModel;
 import org.apache.helix.participant.statemachine.StateModelFactory;
 import org.apache.helix.participant.statemachine.StateModelParser;
@@ -271,6 +272,12 @@ public class HelixStateTransitionHandler extends MessageHandler {
       }
     }
 
+    // Record the stage timestamps of this transition, so the controller can report the latency
+    StateTransitionTimestamps timestamps = StateTransitionTimestamps.fromMessage(_message);
+    timestamps.set(StateTransitionTimestamps.Stage.TRANSITION_FINISHED,
+        taskResult.getCompleteTime());
+    _currentStateDelta.setTransitionTimestamps(partitionKey, timestamps.encode());
+
     try {
       // Update the ZK current state of the node
       PropertyKey key = _isTaskMessage && !_isTaskCurrentStatePathDisabled ? accessor.keyBuilder()
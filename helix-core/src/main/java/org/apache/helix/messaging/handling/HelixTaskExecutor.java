@@ -25,7 +25,6 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -37,7 +36,6 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.helix.AccessOption;
 import org.apache.helix.ConfigAccessor;
@@ -87,8 +85,10 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
   class MsgHandlerFactoryRegistryItem {
     private final MessageHandlerFactory _factory;
     private final int _threadPoolSize;
+    private final ExecutorStrategy _executorStrategy;
 
-    public MsgHandlerFactoryRegistryItem(MessageHandlerFactory factory, int threadPoolSize) {
+    public MsgHandlerFactoryRegistryItem(MessageHandlerFactory factory, int threadPoolSize,
+        ExecutorStrategy executorStrategy) {
       if (factory == null) {
         throw new NullPointerException("Message handler factory is null");
       }
@@ -97,14 +97,23 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
         throw new IllegalArgumentException("Illegal thread pool size: " + threadPoolSize);
       }
 
+      if (executorStrategy == null) {
+        throw new NullPointerException("Executor strategy is null");
+      }
+
       _factory = factory;
       _threadPoolSize = threadPoolSize;
+      _executorStrategy = executorStrategy;
     }
 
     int threadPoolSize() {
       return _threadPoolSize;
     }
 
+    ExecutorStrategy executorStrategy() {
+      return _executorStrategy;
+    }
+
     MessageHandlerFactory factory() {
       return _factory;
     }
@@ -112,7 +121,6 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
 
   private static Logger LOG = LoggerFactory.getLogger(HelixTaskExecutor.class);
 
-  private static AtomicLong thread_uid = new AtomicLong(0);
   // TODO: we need to further design how to throttle this.
   // From storage point of view, only bootstrap case is expensive
   // and we need to throttle, which is mostly IO / network bounded.
@@ -138,9 +146,13 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
 
   final ExecutorService _batchMessageExecutorService;
 
+  // Used by the message handler factories registered without an executor strategy
+  private final ExecutorStrategy _defaultExecutorStrategy;
+  private final Set<ExecutorStrategy> _executorStrategies;
+
   final ConcurrentHashMap<String, String> _messageTaskMap;
 
-  final Set<String> _knownMessageIds;
+  final ParticipantMessageInbox _messageInbox;
 
   /* Resources whose configuration for dedicate thread pool has been checked.*/
   final Set<String> _resourcesThreadpoolChecked;
@@ -169,9 +181,13 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
     _hdlrFtyRegistry = new ConcurrentHashMap<>();
     _executorMap = new ConcurrentHashMap<>();
     _messageTaskMap = new ConcurrentHashMap<>();
-    _knownMessageIds = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    _messageInbox = new ParticipantMessageInbox(_monitor.getMessageInboxMonitor());
+    // Batch message tasks block until their sub-tasks finish on the state transition executors,
+    // so they keep their own pool instead of competing with the sub-tasks in a shared pool.
     _batchMessageExecutorService = Executors.newCachedThreadPool();
     _monitor.createExecutorMonitor("BatchMessageExecutor", _batchMessageExecutorService);
+    _defaultExecutorStrategy = ExecutorStrategyFactory.createDefaultStrategy();
+    _executorStrategies = Collections.newSetFromMap(new ConcurrentHashMap<>());
 
     _resourcesThreadpoolChecked = Collections.newSetFromMap(new ConcurrentHashMap<>());
     _transitionTypeThreadpoolChecked = Collections.newSetFromMap(new ConcurrentHashMap<>());
@@ -195,6 +211,20 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
   @Override
   public void registerMessageHandlerFactory(String type, MessageHandlerFactory factory,
       int threadpoolSize) {
+    registerMessageHandlerFactory(type, factory, threadpoolSize, _defaultExecutorStrategy);
+  }
+
+  /**
+   * Register message handler factory with the specified thread pool size and the strategy that
+   * creates the executors of the message type.
+   * @param type
+   * @param factory
+   * @param threadpoolSize the max number of messages of the type handled at the same time
+   * @param executorStrategy the strategy that creates the executors of the message type. For
+   *          state transition messages, it also creates the per-resource executors.
+   */
+  public void registerMessageHandlerFactory(String type, MessageHandlerFactory factory,
+      int threadpoolSize, ExecutorStrategy executorStrategy) {
     if (factory instanceof MultiTypeMessageHandlerFactory) {
       if (!((MultiTypeMessageHandlerFactory) factory).getMessageTypes().contains(type)) {
         throw new HelixException("Message factory type mismatch. Type: " + type + ", factory: "
@@ -211,15 +241,11 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
     _isShuttingDown = false;
 
     MsgHandlerFactoryRegistryItem newItem =
-        new MsgHandlerFactoryRegistryItem(factory, threadpoolSize);
+        new MsgHandlerFactoryRegistryItem(factory, threadpoolSize, executorStrategy);
     MsgHandlerFactoryRegistryItem prevItem = _hdlrFtyRegistry.putIfAbsent(type, newItem);
     if (prevItem == null) {
-      _executorMap.computeIfAbsent(type, msgType -> {
-        ExecutorService newPool = Executors.newFixedThreadPool(threadpoolSize, r -> new Thread(r,
-            "HelixTaskExecutor-message_handle_thread_" + thread_uid.getAndIncrement()));
-        _monitor.createExecutorMonitor(type, newPool);
-        return newPool;
-      });
+      _executorMap.computeIfAbsent(type,
+          msgType -> createExecutor(executorStrategy, msgType, threadpoolSize));
       LOG.info(
           "Registered message handler factory for type: " + type + ", poolSize: " + threadpoolSize
               + ", factory: " + factory + ", pool: " + _executorMap.get(type));
@@ -231,6 +257,19 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
     }
   }
 
+  private ExecutorService createExecutor(ExecutorStrategy executorStrategy, String key,
+      int parallelism) {
+    if (_executorStrategies.add(executorStrategy)
+        && executorStrategy instanceof SharedPoolExecutorStrategy) {
+      SharedPoolExecutorStrategy sharedPoolStrategy = (SharedPoolExecutorStrategy) executorStrategy;
+      _monitor.createExecutorMonitor(sharedPoolStrategy.getName(),
+          sharedPoolStrategy.getSharedExecutor());
+    }
+    ExecutorService executor = executorStrategy.createExecutor(key, parallelism);
+    _monitor.createExecutorMonitor(key, executor);
+    return executor;
+  }
+
   public void setController(GenericHelixController controller) {
     _controller = controller;
   }
@@ -300,8 +339,10 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
       }
       final String key = getPerResourceStateTransitionPoolName(resourceName);
       if (threadpoolSize > 0) {
-        _executorMap.put(key, Executors.newFixedThreadPool(threadpoolSize,
-            r -> new Thread(r, "GerenricHelixController-message_handle_" + key)));
+        MsgHandlerFactoryRegistryItem item = _hdlrFtyRegistry.get(message.getMsgType());
+        ExecutorStrategy executorStrategy =
+            item != null ? item.executorStrategy() : _defaultExecutorStrategy;
+        _executorMap.put(key, createExecutor(executorStrategy, key, threadpoolSize));
         LOG.info("Added dedicate threadpool for resource: " + resourceName + " with size: "
             + threadpoolSize);
       } else {
@@ -565,7 +606,7 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
         isMessageUpdatedAsNew = true;
         // And it shall not be treated as a known messages.
       } else {
-        _knownMessageIds.add(msg.getId());
+        _messageInbox.markKnown(msg.getId());
         if (!updateResults[i]) {
           // TODO: If the message update fails, maybe we shall not treat the message as a known
           // TODO: message. We shall apply more strict check and retry the update.
@@ -672,7 +713,7 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
 
     _messageTaskMap.clear();
 
-    _knownMessageIds.clear();
+    _messageInbox.clear();
 
     _lastSessionSyncTime = null;
   }
@@ -689,12 +730,8 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
     // Re-init all existing factories
     for (final String msgType : _hdlrFtyRegistry.keySet()) {
       MsgHandlerFactoryRegistryItem item = _hdlrFtyRegistry.get(msgType);
-      ExecutorService pool = _executorMap.computeIfAbsent(msgType, type -> {
-        ExecutorService newPool = Executors.newFixedThreadPool(item.threadPoolSize(),
-            r -> new Thread(r, "HelixTaskExecutor-message_handle_" + type));
-        _monitor.createExecutorMonitor(type, newPool);
-        return newPool;
-      });
+      ExecutorService pool = _executorMap.computeIfAbsent(msgType,
+          type -> createExecutor(item.executorStrategy(), type, item.threadPoolSize()));
       LOG.info("Setup the thread pool for type: %s, isShutdown: %s", msgType, pool.isShutdown());
     }
   }
@@ -724,48 +761,25 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
   }
 
   private List<Message> readNewMessagesFromZK(HelixManager manager, String instanceName,
-      HelixConstants.ChangeType changeType) {
+      NotificationContext changeContext) {
     HelixDataAccessor accessor = manager.getHelixDataAccessor();
     Builder keyBuilder = accessor.keyBuilder();
+    HelixConstants.ChangeType changeType = changeContext.getChangeType();
+    // Reuse the children listed when the callback handler re-installed the child watch
+    @SuppressWarnings("unchecked")
+    List<String> listedIds =
+        (List<String>) changeContext.get(MapKey.CHILD_NAMES.toString());
 
-    Set<String> messageIds = new HashSet<>();
     if (changeType.equals(HelixConstants.ChangeType.MESSAGE)) {
-      messageIds.addAll(accessor.getChildNames(keyBuilder.messages(instanceName)));
+      return _messageInbox.readNewMessages(accessor, keyBuilder.messages(instanceName),
+          messageId -> keyBuilder.message(instanceName, messageId), listedIds);
     } else if (changeType.equals(HelixConstants.ChangeType.MESSAGES_CONTROLLER)) {
-      messageIds.addAll(accessor.getChildNames(keyBuilder.controllerMessages()));
+      return _messageInbox.readNewMessages(accessor, keyBuilder.controllerMessages(),
+          keyBuilder::controllerMessage, listedIds);
     } else {
       LOG.warn("Unexpected ChangeType for Message Change CallbackHandler: " + changeType);
       return Collections.emptyList();
     }
-
-    // Avoid reading the already known messages.
-    messageIds.removeAll(_knownMessageIds);
-    List<PropertyKey> keys = new ArrayList<>();
-    for (String messageId : messageIds) {
-      if (changeType.equals(HelixConstants.ChangeType.MESSAGE)) {
-        keys.add(keyBuilder.message(instanceName, messageId));
-      } else if (changeType.equals(HelixConstants.ChangeType.MESSAGES_CONTROLLER)) {
-        keys.add(keyBuilder.controllerMessage(messageId));
-      }
-    }
-
-    /**
-     * Do not throw exception on partial message read.
-     * 1. There is no way to resolve the error on the participant side. And once it fails here, we
-     * are running the risk of ignoring the message change event. And the participant might be stuck.
-     * 2. Even this is a partial read, we have another chance to retry in the business logic since
-     * as long as the participant processes messages, it will touch the message folder and triggers
-     * another message event.
-     */
-    List<Message> newMessages = accessor.getProperty(keys, false);
-    // Message may be removed before get read, clean up null messages.
-    Iterator<Message> messageIterator = newMessages.iterator();
-    while (messageIterator.hasNext()) {
-      if (messageIterator.next() == null) {
-        messageIterator.remove();
-      }
-    }
-    return newMessages;
   }
 
   @Override
@@ -790,7 +804,7 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
     // if prefetch is disabled in MessageListenerCallback, we need to read all new messages from zk.
     if (messages == null || messages.isEmpty()) {
       // If no messages are given, check and read all new messages.
-      messages = readNewMessagesFromZK(manager, instanceName, changeContext.getChangeType());
+      messages = readNewMessagesFromZK(manager, instanceName, changeContext);
     }
 
     if (_isShuttingDown) {
@@ -1289,7 +1303,7 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
   }
 
   private void removeMessageFromTaskAndFutureMap(Message message) {
-    _knownMessageIds.remove(message.getId());
+    _messageInbox.forget(message.getId());
     String messageTarget = getMessageTarget(message.getResourceName(), message.getPartitionName());
     if (_messageTaskMap.containsKey(messageTarget)) {
       _messageTaskMap.remove(messageTarget);
@@ -1346,6 +1360,10 @@ public class HelixTaskExecutor implements MessageListener, TaskExecutor {
     _timer.cancel();
 
     reset();
+    for (ExecutorStrategy executorStrategy : _executorStrategies) {
+      executorStrategy.shutdown();
+    }
+    _executorStrategies.clear();
     _monitor.shutDown();
     LOG.info("Shutdown HelixTaskExecutor finished");
   }
@@ -0,0 +1,226 @@
+package org.apache.helix.messaging.handling;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.SystemPropertyKeys;
+import org.apache.helix.model.Message;
+import org.apache.helix.model.Message.MessageState;
+import org.apache.helix.monitoring.mbeans.MessageInboxMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The message inbox of a participant. It remembers the message folder listing of the last
+ * callback and the ids of the messages that have been read, so that each callback only fetches
+ * the messages that are not known yet.
+ * Removed messages are detected from the difference between two listings and forgotten
+ * immediately. Known ids that are never seen removed, for example the ids of messages that were
+ * handed over by a prefetching callback, expire after a TTL; an expired id that is still in the
+ * folder is fetched once more and becomes known again if the message is no longer new.
+ * The new messages are fetched in batches of pipelined async reads.
+ */
+public class ParticipantMessageInbox {
+  private static final Logger LOG = LoggerFactory.getLogger(ParticipantMessageInbox.class);
+
+  public static final long DEFAULT_KNOWN_ID_TTL_MS = 60 * 60 * 1000L;
+  public static final int DEFAULT_FETCH_BATCH_SIZE = 1000;
+
+  private final long _knownIdTtlMs;
+  private final int _fetchBatchSize;
+  private final MessageInboxMonitor _monitor;
+
+  // message id -> the time the id became known
+  private final Map<String, Long> _knownIds = new ConcurrentHashMap<>();
+  // message folder path -> the message ids of the last listing
+  private final Map<String, Set<String>> _listedIds = new ConcurrentHashMap<>();
+  private volatile long _lastEvictionTime = System.currentTimeMillis();
+
+  public ParticipantMessageInbox(MessageInboxMonitor monitor) {
+    this(Long.getLong(SystemPropertyKeys.MESSAGE_INBOX_KNOWN_ID_TTL_MS, DEFAULT_KNOWN_ID_TTL_MS),
+        Integer.getInteger(SystemPropertyKeys.MESSAGE_INBOX_FETCH_BATCH_SIZE,
+            DEFAULT_FETCH_BATCH_SIZE), monitor);
+  }
+
+  public ParticipantMessageInbox(long knownIdTtlMs, int fetchBatchSize,
+      MessageInboxMonitor monitor) {
+    if (knownIdTtlMs <= 0 || fetchBatchSize <= 0) {
+      throw new IllegalArgumentException(String.format(
+          "Invalid message inbox config, known id TTL: %d ms, fetch batch size: %d", knownIdTtlMs,
+          fetchBatchSize));
+    }
+    _knownIdTtlMs = knownIdTtlMs;
+    _fetchBatchSize = fetchBatchSize;
+    _monitor = monitor;
+  }
+
+  /**
+   * Read the messages of the folder that are not known yet.
+   * @param accessor the data accessor
+   * @param folderKey the key of the message folder
+   * @param messageKeyFunc builds the key of a message from its id
+   * @param listedIds the message ids already listed by the child change watch, or null to list
+   *          the folder
+   * @return the new messages, messages removed before being read are skipped
+   */
+  public List<Message> readNewMessages(HelixDataAccessor accessor, PropertyKey folderKey,
+      Function<String, PropertyKey> messageKeyFunc, Collection<String> listedIds) {
+    long now = System.currentTimeMillis();
+    if (now - _lastEvictionTime >= _knownIdTtlMs) {
+      evictExpiredIds(now);
+    }
+
+    Set<String> currentIds = new HashSet<>(
+        listedIds == null ? accessor.getChildNames(folderKey) : listedIds);
+    Set<String> previousIds = _listedIds.put(folderKey.getPath(), currentIds);
+    if (previousIds != null) {
+      for (String messageId : previousIds) {
+        if (!currentIds.contains(messageId)) {
+          _knownIds.remove(messageId);
+        }
+      }
+    }
+
+    List<PropertyKey> keys = new ArrayList<>();
+    for (String messageId : currentIds) {
+      if (!_knownIds.containsKey(messageId)) {
+        keys.add(messageKeyFunc.apply(messageId));
+      }
+    }
+
+    long fetchStart = System.currentTimeMillis();
+    List<Message> newMessages = fetchMessages(accessor, keys);
+    long fetchLatency = System.currentTimeMillis() - fetchStart;
+
+    for (Message message : newMessages) {
+      // Messages that are no longer new, e.g. read or unprocessable ones, are only fetched again
+      // after their ids expire, remember them again
+      if (message.getMsgState() != MessageState.NEW) {
+        markKnown(message.getId());
+      }
+    }
+
+    if (_monitor != null) {
+      _monitor.updateInbox(keys.size(), _knownIds.size(), newMessages.size(), fetchLatency);
+    }
+    return newMessages;
+  }
+
+  /**
+   * Fetch the messages in batches. The reads of one batch are sent asynchronously and awaited
+   * together, so a batch costs about one round trip.
+   */
+  private List<Message> fetchMessages(HelixDataAccessor accessor, List<PropertyKey> keys) {
+    if (keys.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<Message> messages = new ArrayList<>(keys.size());
+    for (int start = 0; start < keys.size(); start += _fetchBatchSize) {
+      List<PropertyKey> batch = keys.subList(start, Math.min(start + _fetchBatchSize, keys.size()));
+      /**
+       * Do not throw exception on partial message read.
+       * 1. There is no way to resolve the error on the participant side. And once it fails here,
+       * we are running the risk of ignoring the message change event. And the participant might
+       * be stuck.
+       * 2. Even this is a partial read, we have another chance to retry in the business logic
+       * since as long as the participant processes messages, it will touch the message folder and
+       * triggers another message event.
+       */
+      List<Message> batchMessages = accessor.getProperty(batch, false);
+      messages.addAll(batchMessages);
+    }
+    // Message may be removed before get read, clean up null messages.
+    Iterator<Message> messageIterator = messages.iterator();
+    while (messageIterator.hasNext()) {
+      if (messageIterator.next() == null) {
+        messageIterator.remove();
+      }
+    }
+    return messages;
+  }
+
+  /**
+   * Remember that the message has been read, so it is not fetched again.
+   * @param messageId
+   */
+  public void markKnown(String messageId) {
+    _knownIds.put(messageId, System.currentTimeMillis());
+  }
+
+  /**
+   * Forget the message, usually because it has been processed and removed.
+   * @param messageId
+   */
+  public void forget(String messageId) {
+    _knownIds.remove(messageId);
+  }
+
+  public boolean isKnown(String messageId) {
+    return _knownIds.containsKey(messageId);
+  }
+
+  public int getKnownMessageIdCount() {
+    return _knownIds.size();
+  }
+
+  /**
+   * Forget all the known ids and folder listings.
+   */
+  public void clear() {
+    _knownIds.clear();
+    _listedIds.clear();
+  }
+
+  /**
+   * Remove the known ids that are older than the TTL.
+   * @param now the current time in ms
+   * @return the number of evicted ids
+   */
+  int evictExpiredIds(long now) {
+    _lastEvictionTime = now;
+    int evicted = 0;
+    Iterator<Map.Entry<String, Long>> iter = _knownIds.entrySet().iterator();
+    while (iter.hasNext()) {
+      if (now - iter.next().getValue() >= _knownIdTtlMs) {
+        iter.remove();
+        evicted++;
+      }
+    }
+    if (evicted > 0) {
+      LOG.info("Evicted {} expired known message ids, {} remain.", evicted, _knownIds.size());
+      if (_monitor != null) {
+        _monitor.increaseEvictedMessageIds(evicted);
+      }
+    }
+    return evicted;
+  }
+}
@@ -0,0 +1,113 @@
+package org.apache.helix.messaging.handling;
+
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An executor strategy that runs the tasks of all keys on one shared work-stealing pool. Each
+ * key gets a {@link BoundedExecutorLane} that limits the number of its tasks running at the
+ * same time, so the total number of threads is bounded by the shared pool size no matter how
+ * many resources have a dedicated pool configured.
+ * The shared pool is created on demand, so the strategy can be used again after shutdown when
+ * the participant reconnects.
+ */
+public class SharedPoolExecutorStrategy implements ExecutorStrategy {
+  private static final Logger LOG = LoggerFactory.getLogger(SharedPoolExecutorStrategy.class);
+  private static final AtomicLong THREAD_UID = new AtomicLong(0);
+
+  private final String _name;
+  private final Supplier<ExecutorService> _sharedExecutorSupplier;
+  private ExecutorService _sharedExecutor;
+
+  public SharedPoolExecutorStrategy(final int poolSize) {
+    this("HelixTaskExecutor-shared_pool", () -> createForkJoinPool(poolSize));
+  }
+
+  protected SharedPoolExecutorStrategy(String name,
+      Supplier<ExecutorService> sharedExecutorSupplier) {
+    _name = name;
+    _sharedExecutorSupplier = sharedExecutorSupplier;
+  }
+
+  private static ForkJoinPool createForkJoinPool(int poolSize) {
+    // Async mode, message handling tasks are never joined
+    return new ForkJoinPool(poolSize, pool -> {
+      ForkJoinWorkerThread thread =
+          ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+      thread.setName("HelixTaskExecutor-shared_pool_thread_" + THREAD_UID.getAndIncrement());
+      return thread;
+    }, null, true);
+  }
+
+  @Override
+  public ExecutorService createExecutor(String key, int parallelism) {
+    return new BoundedExecutorLane(key, command -> getSharedExecutor().execute(command),
+        parallelism);
+  }
+
+  /**
+   * @return the name of the shared executor, which is used to report its metrics
+   */
+  public String getName() {
+    return _name;
+  }
+
+  /**
+   * @return the executor shared by all the keys
+   */
+  public synchronized ExecutorService getSharedExecutor() {
+    if (_sharedExecutor == null || _sharedExecutor.isShutdown()) {
+      _sharedExecutor = _sharedExecutorSupplier.get();
+    }
+    return _sharedExecutor;
+  }
+
+  @Override
+  public void shutdown() {
+    ExecutorService sharedExecutor;
+    synchronized (this) {
+      sharedExecutor = _sharedExecutor;
+      _sharedExecutor = null;
+    }
+    if (sharedExecutor == null) {
+      return;
+    }
+    LOG.info("Shutting down shared executor {}", _name);
+    sharedExecutor.shutdown();
+    try {
+      if (!sharedExecutor.awaitTermination(200, TimeUnit.MILLISECONDS)) {
+        sharedExecutor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      sharedExecutor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package org.apache.helix.messaging.handling;
+
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.helix.HelixException;
+
+/**
+ * An executor strategy that runs every task on its own virtual thread. Each key still gets a
+ * {@link BoundedExecutorLane} so the per-key parallelism is respected. Virtual threads are only
+ * available since JDK 21, so the executor is looked up by reflection; use {@link #isSupported()}
+ * to check before creating the strategy.
+ */
+public class VirtualThreadExecutorStrategy extends SharedPoolExecutorStrategy {
+  private static final String FACTORY_METHOD = "newVirtualThreadPerTaskExecutor";
+
+  public VirtualThreadExecutorStrategy() {
+    super("HelixTaskExecutor-virtual_threads",
+        VirtualThreadExecutorStrategy::createVirtualThreadExecutor);
+    if (!isSupported()) {
+      throw new HelixException("Virtual threads are not supported by the running JVM");
+    }
+  }
+
+  /**
+   * @return true if the running JVM supports virtual threads
+   */
+  public static boolean isSupported() {
+    return getFactoryMethod() != null;
+  }
+
+  private static Method getFactoryMethod() {
+    try {
+      return Executors.class.getMethod(FACTORY_METHOD);
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+  private static ExecutorService createVirtualThreadExecutor() {
+    Method factoryMethod = getFactoryMethod();
+    if (factoryMethod == null) {
+      throw new HelixException("Virtual threads are not supported by the running JVM");
+    }
+    try {
+      return (ExecutorService) factoryMethod.invoke(null);
+    } catch (Exception e) {
+      throw new HelixException("Failed to create the virtual thread executor", e);
+    }
+  }
+}
@@ -48,7 +48,8 @@ public class CurrentState extends HelixProperty {
     START_TIME,
     END_TIME,
     PREVIOUS_STATE,
-    TRIGGERED_BY// ,
+    TRIGGERED_BY,
+    TRANSITION_TIMESTAMPS// ,
              // BUCKET_SIZE
   }
 
@@ -82,7 +83,7 @@ public class CurrentState extends HelixProperty {
    */
   public Map<String, String> getPartitionStateMap() {
     Map<String, String> map = new HashMap<String, String>();
-    Map<String, Map<String, String>> mapFields = _record.getMapFields();
+    Map<String, Map<String, String>> mapFields = _record.getReadOnlyMapFields();
     for (String partitionName : mapFields.keySet()) {
       Map<String, String> tempMap = mapFields.get(partitionName);
       if (tempMap != null) {
@@ -143,6 +144,15 @@ public class CurrentState extends HelixProperty {
     return getProperty(partitionName, CurrentStateProperty.PREVIOUS_STATE);
   }
 
+  /**
+   * Get the encoded timestamps of the stages of the last state transition of a partition
+   * @param partitionName the name of the partition
+   * @return the encoded timestamps, see StateTransitionTimestamps, or null if not recorded
+   */
+  public String getTransitionTimestamps(String partitionName) {
+    return getProperty(partitionName, CurrentStateProperty.TRANSITION_TIMESTAMPS);
+  }
+
   private String getProperty(String partitionName, CurrentStateProperty property) {
     Map<String, String> mapField = _record.getMapField(partitionName);
     if (mapField != null) {
@@ -200,12 +210,17 @@ public class CurrentState extends HelixProperty {
     setProperty(partitionName, CurrentStateProperty.PREVIOUS_STATE, state);
   }
 
+  public void setTransitionTimestamps(String partitionName, String transitionTimestamps) {
+    setProperty(partitionName, CurrentStateProperty.TRANSITION_TIMESTAMPS, transitionTimestamps);
+  }
+
   private void setProperty(String partitionName, CurrentStateProperty property, String value) {
-    Map<String, Map<String, String>> mapFields = _record.getMapFields();
-    if (mapFields.get(partitionName) == null) {
-      mapFields.put(partitionName, new TreeMap<String, String>());
+    Map<String, String> map = _record.getMapField(partitionName);
+    if (map == null) {
+      map = new TreeMap<>();
+      _record.setMapField(partitionName, map);
     }
-    mapFields.get(partitionName).put(property.name(), value);
+    map.put(property.name(), value);
   }
 
   /**
@@ -75,7 +75,7 @@ public class CustomizedState extends HelixProperty {
    */
   public Map<String, String> getPartitionStateMap(CustomizedStateProperty property) {
     Map<String, String> map = new HashMap<String, String>();
-    Map<String, Map<String, String>> mapFields = _record.getMapFields();
+    Map<String, Map<String, String>> mapFields = _record.getReadOnlyMapFields();
     for (String partitionName : mapFields.keySet()) {
       Map<String, String> tempMap = mapFields.get(partitionName);
       if (tempMap != null) {
@@ -22,6 +22,7 @@ package org.apache.helix.model;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 
 import org.apache.helix.HelixProperty;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
@@ -88,7 +89,7 @@ public class ExternalView extends HelixProperty {
    * @return a set of partition names
    */
   public Set<String> getPartitionSet() {
-    return _record.getMapFields().keySet();
+    return new TreeSet<>(_record.getReadOnlyMapFields().keySet());
   }
 
   /**
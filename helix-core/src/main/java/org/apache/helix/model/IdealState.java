@@ -19,7 +19,6 @@ package org.apache.helix.model;
  * under the License.
  */
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -373,9 +372,9 @@ public class IdealState extends HelixProperty {
         || getRebalanceMode() == RebalanceMode.FULL_AUTO
         || getRebalanceMode() == RebalanceMode.USER_DEFINED
         || getRebalanceMode() == RebalanceMode.TASK) {
-      return _record.getListFields().keySet();
+      return new TreeSet<>(_record.getReadOnlyListFields().keySet());
     } else if (getRebalanceMode() == RebalanceMode.CUSTOMIZED) {
-      return _record.getMapFields().keySet();
+      return new TreeSet<>(_record.getReadOnlyMapFields().keySet());
     } else {
       logger.error("Invalid ideal state mode:" + getResourceName());
       return Collections.emptySet();
@@ -567,10 +566,10 @@ public class IdealState extends HelixProperty {
       String firstPartition = null;
       switch (getRebalanceMode()) {
       case SEMI_AUTO:
-        if (_record.getListFields().size() == 0) {
+        if (_record.getReadOnlyListFields().size() == 0) {
           replica = "0";
         } else {
-          firstPartition = new ArrayList<String>(_record.getListFields().keySet()).get(0);
+          firstPartition = _record.getReadOnlyListFields().keySet().iterator().next();
           replica =
               Integer.toString(firstPartition == null ? 0 : _record.getListField(firstPartition)
                   .size());
@@ -580,10 +579,10 @@ public class IdealState extends HelixProperty {
                 + replica + ", 1st partition: " + firstPartition);
         break;
       case CUSTOMIZED:
-        if (_record.getMapFields().size() == 0) {
+        if (_record.getReadOnlyMapFields().size() == 0) {
           replica = "0";
         } else {
-          firstPartition = new ArrayList<String>(_record.getMapFields().keySet()).get(0);
+          firstPartition = _record.getReadOnlyMapFields().keySet().iterator().next();
           replica =
               Integer.toString(firstPartition == null ? 0 : _record.getMapField(firstPartition)
                   .size());
@@ -102,7 +102,8 @@ public class Message extends HelixProperty {
     RELAY_TIME,
     RELAY_FROM,
     EXPIRY_PERIOD,
-    SRC_CLUSTER
+    SRC_CLUSTER,
+    BEST_POSSIBLE_COMPUTED_TIMESTAMP
   }
 
   /**
@@ -527,6 +528,24 @@ public class Message extends HelixProperty {
     _record.setLongField(Attributes.EXECUTE_START_TIMESTAMP.toString(), time);
   }
 
+  /**
+   * Set the time that the controller computed the best possible state that this message is
+   * generated for
+   * @param time UNIX timestamp (in ms)
+   */
+  public void setBestPossibleComputedTimeStamp(long time) {
+    _record.setLongField(Attributes.BEST_POSSIBLE_COMPUTED_TIMESTAMP.name(), time);
+  }
+
+  /**
+   * Get the time that the controller computed the best possible state that this message is
+   * generated for
+   * @return UNIX timestamp (in ms), or 0 if it is not recorded
+   */
+  public long getBestPossibleComputedTimeStamp() {
+    return _record.getLongField(Attributes.BEST_POSSIBLE_COMPUTED_TIMESTAMP.name(), 0L);
+  }
+
   /**
    * Get the time that this message was read
    * @return UNIX timestamp (in ms)
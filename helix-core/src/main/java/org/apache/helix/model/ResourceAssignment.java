@@ -70,7 +70,7 @@ public class ResourceAssignment extends HelixProperty {
    */
   public List<Partition> getMappedPartitions() {
     List<Partition> partitions = new ArrayList<Partition>();
-    for (String partitionName : _record.getMapFields().keySet()) {
+    for (String partitionName : _record.getReadOnlyMapFields().keySet()) {
       partitions.add(new Partition(partitionName));
     }
     return partitions;
@@ -82,7 +82,7 @@ public class ResourceAssignment extends HelixProperty {
    * @return map of (instance name, state)
    */
   public Map<String, String> getReplicaMap(Partition partition) {
-    if (_record.getMapFields().containsKey(partition.getPartitionName())) {
+    if (_record.getReadOnlyMapFields().containsKey(partition.getPartitionName())) {
       return _record.getMapField(partition.getPartitionName());
     }
     return Collections.emptyMap();
@@ -20,6 +20,7 @@ package org.apache.helix.model;
  */
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -58,7 +59,18 @@ public class ResourceConfig extends HelixProperty {
     GROUP_ROUTING_ENABLED,
     EXTERNAL_VIEW_DISABLED,
     DELAY_REBALANCE_ENABLED,
-    PARTITION_CAPACITY_MAP
+    PARTITION_CAPACITY_MAP,
+    PARTITIONER_TYPE,
+    PARTITIONER_RANGE_BOUNDARIES
+  }
+
+  /**
+   * The partitioners that map the keys of a resource to its partitions for key based routing
+   */
+  public enum PartitionerType {
+    MODULO, // hash(key) mod the number of partitions
+    JENKINS_HASH, // JenkinsHash(key) mod the number of partitions
+    RANGE // ranges of long keys, split by PARTITIONER_RANGE_BOUNDARIES
   }
 
   public enum ResourceConfigConstants {
@@ -334,6 +346,56 @@ public class ResourceConfig extends HelixProperty {
     return _record.getBooleanField(ResourceConfigProperty.EXTERNAL_VIEW_DISABLED.name(), false);
   }
 
+  /**
+   * Get the partitioner that maps the keys of this resource to its partitions
+   * @return the partitioner type, or null if none is declared
+   */
+  public PartitionerType getPartitionerType() {
+    return _record.getEnumField(ResourceConfigProperty.PARTITIONER_TYPE.name(),
+        PartitionerType.class, null);
+  }
+
+  /**
+   * Set the partitioner that maps the keys of this resource to its partitions
+   * @param partitionerType
+   */
+  public void setPartitionerType(PartitionerType partitionerType) {
+    _record.setEnumField(ResourceConfigProperty.PARTITIONER_TYPE.name(), partitionerType);
+  }
+
+  /**
+   * Get the sorted lower boundaries of the partitions 1 to n - 1 of the RANGE partitioner
+   * @return the boundaries, or an empty list if none is set
+   */
+  public List<Long> getPartitionerRangeBoundaries() {
+    String boundaries =
+        _record.getSimpleField(ResourceConfigProperty.PARTITIONER_RANGE_BOUNDARIES.name());
+    if (boundaries == null || boundaries.trim().isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<Long> boundaryList = new ArrayList<>();
+    for (String boundary : boundaries.split(",")) {
+      boundaryList.add(Long.parseLong(boundary.trim()));
+    }
+    return boundaryList;
+  }
+
+  /**
+   * Set the sorted lower boundaries of the partitions 1 to n - 1 of the RANGE partitioner
+   * @param boundaries
+   */
+  public void setPartitionerRangeBoundaries(List<Long> boundaries) {
+    StringBuilder builder = new StringBuilder();
+    for (Long boundary : boundaries) {
+      if (builder.length() > 0) {
+        builder.append(',');
+      }
+      builder.append(boundary);
+    }
+    _record.setSimpleField(ResourceConfigProperty.PARTITIONER_RANGE_BOUNDARIES.name(),
+        builder.toString());
+  }
+
   /**
    * Get rebalance config for this resource.
    * @return
@@ -566,6 +628,8 @@ public class ResourceConfig extends HelixProperty {
     private Map<String, List<String>> _preferenceLists;
     private Map<String, Map<String, String>> _mapFields;
     private Map<String, Map<String, Integer>> _partitionCapacityMap;
+    private PartitionerType _partitionerType;
+    private List<Long> _partitionerRangeBoundaries;
 
     public Builder(String resourceId) {
       _resourceId = resourceId;
@@ -788,6 +852,24 @@ public class ResourceConfig extends HelixProperty {
       return _mapFields;
     }
 
+    public Builder setPartitionerType(PartitionerType partitionerType) {
+      _partitionerType = partitionerType;
+      return this;
+    }
+
+    public PartitionerType getPartitionerType() {
+      return _partitionerType;
+    }
+
+    public Builder setPartitionerRangeBoundaries(List<Long> boundaries) {
+      _partitionerRangeBoundaries = boundaries;
+      return this;
+    }
+
+    public List<Long> getPartitionerRangeBoundaries() {
+      return _partitionerRangeBoundaries;
+    }
+
     private void validate() {
       if (_rebalanceConfig == null) {
         throw new IllegalArgumentException("RebalanceConfig not set!");
@@ -834,11 +916,19 @@ public class ResourceConfig extends HelixProperty {
       // TODO: Reenable the validation in the future when ResourceConfig is ready.
       // validate();
 
-      return new ResourceConfig(_resourceId, _monitorDisabled, _numPartitions, _stateModelDefRef,
-          _stateModelFactoryName, _numReplica, _minActiveReplica, _maxPartitionsPerInstance,
-          _instanceGroupTag, _helixEnabled, _resourceGroupName, _resourceType, _groupRoutingEnabled,
-          _externalViewDisabled, _rebalanceConfig, _stateTransitionTimeoutConfig, _preferenceLists,
-          _mapFields, _p2pMessageEnabled, _partitionCapacityMap);
+      ResourceConfig resourceConfig = new ResourceConfig(_resourceId, _monitorDisabled,
+          _numPartitions, _stateModelDefRef, _stateModelFactoryName, _numReplica,
+          _minActiveReplica, _maxPartitionsPerInstance, _instanceGroupTag, _helixEnabled,
+          _resourceGroupName, _resourceType, _groupRoutingEnabled, _externalViewDisabled,
+          _rebalanceConfig, _stateTransitionTimeoutConfig, _preferenceLists, _mapFields,
+          _p2pMessageEnabled, _partitionCapacityMap);
+      if (_partitionerType != null) {
+        resourceConfig.setPartitionerType(_partitionerType);
+      }
+      if (_partitionerRangeBoundaries != null) {
+        resourceConfig.setPartitionerRangeBoundaries(_partitionerRangeBoundaries);
+      }
+      return resourceConfig;
     }
   }
 
@@ -0,0 +1,138 @@
+package org.apache.helix.monitoring;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+
+import org.apache.helix.model.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The timestamps of each stage of one state transition, from the controller computing the best
+ * possible state to the controller observing the updated current state. The participant records
+ * the timestamps up to the transition finish into the current state of the partition in a compact
+ * encoded form, and the controller completes the trace when it reads the current state.
+ * All timestamps are UNIX timestamps in ms. A timestamp that is not recorded is -1.
+ */
+public class StateTransitionTimestamps {
+  private static final Logger LOG = LoggerFactory.getLogger(StateTransitionTimestamps.class);
+  private static final String DELIMITER = ",";
+  public static final long NOT_RECORDED = -1L;
+
+  public enum Stage {
+    BEST_POSSIBLE_COMPUTED,
+    MESSAGE_CREATED,
+    MESSAGE_READ,
+    HANDLER_STARTED,
+    TRANSITION_FINISHED,
+    // The zookeeper mtime of the current state read by the controller. It is the completion time
+    // of the last write to the current state, which may be a later update of another partition.
+    CURRENT_STATE_WRITTEN,
+    CONTROLLER_OBSERVED
+  }
+
+  private final long[] _timestamps;
+
+  public StateTransitionTimestamps() {
+    _timestamps = new long[Stage.values().length];
+    Arrays.fill(_timestamps, NOT_RECORDED);
+  }
+
+  /**
+   * Build the timestamps recorded on a state transition message by the controller and the
+   * participant.
+   * @param message the state transition message
+   * @return the timestamps up to the handler start
+   */
+  public static StateTransitionTimestamps fromMessage(Message message) {
+    StateTransitionTimestamps timestamps = new StateTransitionTimestamps();
+    timestamps.set(Stage.BEST_POSSIBLE_COMPUTED, message.getBestPossibleComputedTimeStamp());
+    timestamps.set(Stage.MESSAGE_CREATED, message.getCreateTimeStamp());
+    timestamps.set(Stage.MESSAGE_READ, message.getReadTimeStamp());
+    timestamps.set(Stage.HANDLER_STARTED, message.getExecuteStartTimeStamp());
+    return timestamps;
+  }
+
+  /**
+   * Decode the timestamps from the current state field.
+   * @param encoded the encoded timestamps
+   * @return the decoded timestamps, or null if the input is null or malformed
+   */
+  public static StateTransitionTimestamps decode(String encoded) {
+    if (encoded == null || encoded.isEmpty()) {
+      return null;
+    }
+    String[] fields = encoded.split(DELIMITER);
+    StateTransitionTimestamps timestamps = new StateTransitionTimestamps();
+    try {
+      for (int i = 0; i < fields.length && i < timestamps._timestamps.length; i++) {
+        timestamps._timestamps[i] = Long.parseLong(fields[i]);
+      }
+    } catch (NumberFormatException e) {
+      LOG.warn("Malformed state transition timestamps: {}", encoded);
+      return null;
+    }
+    return timestamps;
+  }
+
+  /**
+   * Encode the timestamps that the participant records, the timestamps filled in by the controller
+   * are never persisted.
+   * @return the encoded timestamps
+   */
+  public String encode() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < Stage.CURRENT_STATE_WRITTEN.ordinal(); i++) {
+      if (i > 0) {
+        sb.append(DELIMITER);
+      }
+      sb.append(_timestamps[i]);
+    }
+    return sb.toString();
+  }
+
+  public void set(Stage stage, long timestamp) {
+    _timestamps[stage.ordinal()] = timestamp > 0 ? timestamp : NOT_RECORDED;
+  }
+
+  public long get(Stage stage) {
+    return _timestamps[stage.ordinal()];
+  }
+
+  /**
+   * Get the latency between two stages.
+   * @return the latency in ms, or NOT_RECORDED if any of the timestamps is not recorded or the
+   *         latency is negative due to clock drift
+   */
+  public long getLatency(Stage from, Stage to) {
+    long fromTime = get(from);
+    long toTime = get(to);
+    if (fromTime == NOT_RECORDED || toTime == NOT_RECORDED || toTime < fromTime) {
+      return NOT_RECORDED;
+    }
+    return toTime - fromTime;
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(_timestamps);
+  }
+}
@@ -20,6 +20,7 @@ package org.apache.helix.monitoring.mbeans;
  */
 
 import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -47,6 +48,7 @@ import org.apache.helix.model.Message;
 import org.apache.helix.model.Partition;
 import org.apache.helix.model.Resource;
 import org.apache.helix.model.StateModelDefinition;
+import org.apache.helix.monitoring.StateTransitionTimestamps;
 import org.apache.helix.task.JobConfig;
 import org.apache.helix.task.TaskState;
 import org.apache.helix.task.WorkflowConfig;
@@ -66,6 +68,9 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
   static final String MESSAGE_QUEUE_DN_KEY = "messageQueue";
   static final String WORKFLOW_TYPE_DN_KEY = "workflowType";
   static final String JOB_TYPE_DN_KEY = "jobType";
+  static final String STATE_MODEL_DEF_DN_KEY = "stateModelDef";
+  static final String MONITOR_TYPE_DN_KEY = "monitorType";
+  static final String STATE_TRANSITION_LATENCY_MONITOR_TYPE = "StateTransitionLatency";
   static final String DEFAULT_WORKFLOW_JOB_TYPE = "DEFAULT";
   public static final String DEFAULT_TAG = "DEFAULT";
 
@@ -93,6 +98,9 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
       new ConcurrentHashMap<>();
   private final ConcurrentHashMap<String, InstanceMonitor> _instanceMonitorMap =
       new ConcurrentHashMap<>();
+  // resourceName -> stateModelDef -> latency monitor
+  private final ConcurrentHashMap<String, Map<String, StateTransitionLatencyMonitor>>
+      _stateTransitionLatencyMonitorMap = new ConcurrentHashMap<>();
 
   // phaseName -> eventMonitor
   protected final ConcurrentHashMap<String, ClusterEventMonitor> _clusterEventMonitorMap =
@@ -511,6 +519,10 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
    * @param resourceNames the resources that still exist
    */
   public void retainResourceMonitor(Set<String> resourceNames) {
+    Set<String> latencyMonitorsToRemove = new HashSet<>(_stateTransitionLatencyMonitorMap.keySet());
+    latencyMonitorsToRemove.removeAll(resourceNames);
+    unregisterStateTransitionLatencyMonitors(latencyMonitorsToRemove);
+
     Set<String> resourcesToRemove = new HashSet<>();
     synchronized (_resourceMonitorMap) {
       resourceNames.retainAll(_resourceMonitorMap.keySet());
@@ -607,6 +619,50 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
     return _resourceMonitorMap.get(resourceName);
   }
 
+  /**
+   * Record the stage latencies of one state transition that has been observed by the controller.
+   * @param resourceName the resource of the transition
+   * @param stateModelDef the state model of the resource
+   * @param timestamps the timestamps of each stage of the transition
+   */
+  public void updateStateTransitionLatency(String resourceName, String stateModelDef,
+      StateTransitionTimestamps timestamps) {
+    StateTransitionLatencyMonitor monitor =
+        getOrCreateStateTransitionLatencyMonitor(resourceName, stateModelDef);
+    if (monitor != null) {
+      monitor.updateLatency(timestamps);
+    }
+  }
+
+  private StateTransitionLatencyMonitor getOrCreateStateTransitionLatencyMonitor(
+      String resourceName, String stateModelDef) {
+    Map<String, StateTransitionLatencyMonitor> monitors =
+        _stateTransitionLatencyMonitorMap.get(resourceName);
+    if (monitors == null || !monitors.containsKey(stateModelDef)) {
+      synchronized (_stateTransitionLatencyMonitorMap) {
+        monitors = _stateTransitionLatencyMonitorMap.get(resourceName);
+        if (monitors == null) {
+          monitors = new ConcurrentHashMap<>();
+          _stateTransitionLatencyMonitorMap.put(resourceName, monitors);
+        }
+        if (!monitors.containsKey(stateModelDef)) {
+          try {
+            String beanName = getStateTransitionLatencyBeanName(resourceName, stateModelDef);
+            StateTransitionLatencyMonitor monitor =
+                new StateTransitionLatencyMonitor(_clusterName, resourceName, stateModelDef,
+                    getObjectName(beanName));
+            monitor.register();
+            monitors.put(stateModelDef, monitor);
+          } catch (JMException ex) {
+            LOG.error("Fail to register state transition latency mbean, resource: {}, "
+                + "state model: {}", resourceName, stateModelDef, ex);
+          }
+        }
+      }
+    }
+    return monitors.get(stateModelDef);
+  }
+
   public void resetMaxMissingTopStateGauge() {
     for (ResourceMonitor monitor : _resourceMonitorMap.values()) {
       monitor.resetMaxTopStateHandoffGauge();
@@ -839,6 +895,8 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
     synchronized (_resourceMonitorMap) {
       unregisterResources(_resourceMonitorMap.keySet());
     }
+    unregisterStateTransitionLatencyMonitors(
+        new ArrayList<>(_stateTransitionLatencyMonitorMap.keySet()));
   }
 
   private void unregisterResources(Collection<String> resources) {
@@ -849,10 +907,25 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
           monitor.unregister();
         }
       }
+      unregisterStateTransitionLatencyMonitors(resources);
       _resourceMonitorMap.keySet().removeAll(resources);
     }
   }
 
+  private void unregisterStateTransitionLatencyMonitors(Collection<String> resources) {
+    synchronized (_stateTransitionLatencyMonitorMap) {
+      for (String resourceName : resources) {
+        Map<String, StateTransitionLatencyMonitor> monitors =
+            _stateTransitionLatencyMonitorMap.remove(resourceName);
+        if (monitors != null) {
+          for (StateTransitionLatencyMonitor monitor : monitors.values()) {
+            monitor.unregister();
+          }
+        }
+      }
+    }
+  }
+
   private void unregisterAllEventMonitors() {
     synchronized (_clusterEventMonitorMap) {
       for (ClusterEventMonitor monitor : _clusterEventMonitorMap.values()) {
@@ -950,6 +1023,20 @@ public class ClusterStatusMonitor implements ClusterStatusMonitorMBean {
     return String.format("%s,%s=%s", clusterBeanName(), RESOURCE_DN_KEY, resourceName);
   }
 
+  /**
+   * Build state transition latency bean name:
+   * "cluster={clusterName},resourceName={resourceName},stateModelDef={stateModelDef},
+   * monitorType=StateTransitionLatency"
+   * @param resourceName
+   * @param stateModelDef
+   * @return state transition latency bean name
+   */
+  protected String getStateTransitionLatencyBeanName(String resourceName, String stateModelDef) {
+    return String.format("%s,%s=%s,%s=%s", getResourceBeanName(resourceName),
+        STATE_MODEL_DEF_DN_KEY, stateModelDef, MONITOR_TYPE_DN_KEY,
+        STATE_TRANSITION_LATENCY_MONITOR_TYPE);
+  }
+
   /**
    * Build per-instance resource bean name:
    * "cluster={clusterName},instanceName={instanceName},resourceName={resourceName}"
@@ -0,0 +1,117 @@
+package org.apache.helix.monitoring.mbeans;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMBeanProvider;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.HistogramDynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.SimpleDynamicMetric;
+
+/**
+ * Monitor of the participant message inbox: how many messages are waiting to be read, how many
+ * read message ids are remembered and how long it takes to fetch the new messages.
+ */
+public class MessageInboxMonitor extends DynamicMBeanProvider {
+  private static final String MBEAN_DESCRIPTION = "Helix Message Inbox Monitor";
+  private final String _sensorName;
+  private final String _domainName;
+  private final String _participantName;
+
+  private final SimpleDynamicMetric<Long> _inboxBacklogGauge;
+  private final SimpleDynamicMetric<Long> _knownMessageIdGauge;
+  private final SimpleDynamicMetric<Long> _fetchedMessageCounter;
+  private final SimpleDynamicMetric<Long> _evictedMessageIdCounter;
+  private final HistogramDynamicMetric _fetchLatencyGauge;
+
+  public MessageInboxMonitor(String domainName, String participantName) {
+    _domainName = domainName;
+    _participantName = participantName;
+    _sensorName = String.format("%s.%s", ParticipantMessageMonitor.PARTICIPANT_STATUS_KEY,
+        "MessageInbox");
+
+    _inboxBacklogGauge = new SimpleDynamicMetric<>("InboxBacklogGauge", 0L);
+    _knownMessageIdGauge = new SimpleDynamicMetric<>("KnownMessageIdGauge", 0L);
+    _fetchedMessageCounter = new SimpleDynamicMetric<>("FetchedMessageCounter", 0L);
+    _evictedMessageIdCounter = new SimpleDynamicMetric<>("EvictedMessageIdCounter", 0L);
+    _fetchLatencyGauge = new HistogramDynamicMetric("FetchLatencyGauge", new Histogram(
+        new SlidingTimeWindowArrayReservoir(getResetIntervalInMs(), TimeUnit.MILLISECONDS)));
+  }
+
+  @Override
+  public String getSensorName() {
+    return _sensorName;
+  }
+
+  /**
+   * Record one read of the inbox.
+   * @param backlog the number of listed messages that are not known yet
+   * @param knownMessageIds the number of remembered message ids
+   * @param fetchedMessages the number of messages fetched
+   * @param fetchLatency the time spent on fetching the messages in ms
+   */
+  public void updateInbox(long backlog, long knownMessageIds, long fetchedMessages,
+      long fetchLatency) {
+    _inboxBacklogGauge.updateValue(backlog);
+    _knownMessageIdGauge.updateValue(knownMessageIds);
+    incrementSimpleDynamicMetric(_fetchedMessageCounter, fetchedMessages);
+    _fetchLatencyGauge.updateValue(fetchLatency);
+  }
+
+  public void increaseEvictedMessageIds(long count) {
+    incrementSimpleDynamicMetric(_evictedMessageIdCounter, count);
+  }
+
+  public long getInboxBacklog() {
+    return _inboxBacklogGauge.getValue();
+  }
+
+  public long getKnownMessageIdCount() {
+    return _knownMessageIdGauge.getValue();
+  }
+
+  public long getFetchedMessageCount() {
+    return _fetchedMessageCounter.getValue();
+  }
+
+  public long getEvictedMessageIdCount() {
+    return _evictedMessageIdCounter.getValue();
+  }
+
+  @Override
+  public MessageInboxMonitor register() throws JMException {
+    List<DynamicMetric<?, ?>> attributeList = new ArrayList<>();
+    attributeList.add(_inboxBacklogGauge);
+    attributeList.add(_knownMessageIdGauge);
+    attributeList.add(_fetchedMessageCounter);
+    attributeList.add(_evictedMessageIdCounter);
+    attributeList.add(_fetchLatencyGauge);
+    doRegister(attributeList, MBEAN_DESCRIPTION, _domainName,
+        ParticipantMessageMonitor.PARTICIPANT_KEY, _participantName, "MonitorType",
+        MessageInboxMonitor.class.getSimpleName());
+    return this;
+  }
+}
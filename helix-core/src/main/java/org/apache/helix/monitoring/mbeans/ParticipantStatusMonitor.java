@@ -23,6 +23,7 @@ import java.lang.management.ManagementFactory;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ThreadPoolExecutor;
 import javax.management.JMException;
 import javax.management.MBeanServer;
@@ -43,6 +44,7 @@ public class ParticipantStatusMonitor {
   private MBeanServer _beanServer;
   private ParticipantMessageMonitor _messageMonitor;
   private MessageLatencyMonitor _messageLatencyMonitor;
+  private MessageInboxMonitor _messageInboxMonitor;
   private Map<String, ThreadPoolExecutorMonitor> _executorMonitors;
 
   public ParticipantStatusMonitor(boolean isParticipant, String instanceName) {
@@ -53,6 +55,9 @@ public class ParticipantStatusMonitor {
         _messageLatencyMonitor =
             new MessageLatencyMonitor(MonitorDomainNames.CLMParticipantReport.name(), instanceName);
         _messageLatencyMonitor.register();
+        _messageInboxMonitor =
+            new MessageInboxMonitor(MonitorDomainNames.CLMParticipantReport.name(), instanceName);
+        _messageInboxMonitor.register();
         _executorMonitors = new ConcurrentHashMap<>();
         register(_messageMonitor, getObjectName(_messageMonitor.getParticipantBeanName()));
       }
@@ -91,6 +96,13 @@ public class ParticipantStatusMonitor {
     }
   }
 
+  /**
+   * @return the message inbox monitor, or null if this is not a participant
+   */
+  public MessageInboxMonitor getMessageInboxMonitor() {
+    return _messageInboxMonitor;
+  }
+
   public void reportTransitionStat(StateTransitionContext cxt, StateTransitionDataPoint data) {
     if (_beanServer == null) {
       LOG.warn("bean server is null, skip reporting");
@@ -151,6 +163,9 @@ public class ParticipantStatusMonitor {
     if (_messageLatencyMonitor != null) {
       _messageLatencyMonitor.unregister();
     }
+    if (_messageInboxMonitor != null) {
+      _messageInboxMonitor.unregister();
+    }
     for (StateTransitionContext cxt : _monitorMap.keySet()) {
       try {
         ObjectName name = getObjectName(cxt.toString());
@@ -162,19 +177,34 @@ public class ParticipantStatusMonitor {
       }
     }
     _monitorMap.clear();
+    if (_executorMonitors != null) {
+      for (ThreadPoolExecutorMonitor monitor : _executorMonitors.values()) {
+        monitor.unregister();
+      }
+      _executorMonitors.clear();
+    }
   }
 
   public void createExecutorMonitor(String type, ExecutorService executor) {
     if (_executorMonitors == null) {
       return;
     }
-    if (! (executor instanceof ThreadPoolExecutor)) {
-      return;
-    }
-
     try {
-      _executorMonitors.put(type,
-          new ThreadPoolExecutorMonitor(type, (ThreadPoolExecutor) executor));
+      ThreadPoolExecutorMonitor monitor;
+      if (executor instanceof ThreadPoolExecutor) {
+        monitor = new ThreadPoolExecutorMonitor(type, (ThreadPoolExecutor) executor);
+      } else if (executor instanceof ForkJoinPool) {
+        monitor = new ThreadPoolExecutorMonitor(type, (ForkJoinPool) executor);
+      } else if (executor instanceof ThreadPoolExecutorMonitor.ExecutorStats) {
+        monitor = new ThreadPoolExecutorMonitor(type,
+            (ThreadPoolExecutorMonitor.ExecutorStats) executor);
+      } else {
+        return;
+      }
+      ThreadPoolExecutorMonitor prevMonitor = _executorMonitors.put(type, monitor);
+      if (prevMonitor != null) {
+        prevMonitor.unregister();
+      }
     } catch (JMException e) {
       LOG.warn(String.format(
           "Error in creating ThreadPoolExecutorMonitor for type=%s", type), e);
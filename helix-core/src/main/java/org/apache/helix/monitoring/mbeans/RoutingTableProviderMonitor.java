@@ -49,6 +49,11 @@ public class RoutingTableProviderMonitor extends DynamicMBeanProvider {
   private SimpleDynamicMetric<Long> _dataRefreshCounter;
   private HistogramDynamicMetric _dataRefreshLatencyGauge;
   private HistogramDynamicMetric _statePropLatencyGauge;
+  private HistogramDynamicMetric _routingTableRefreshLatencyGauge;
+  private HistogramDynamicMetric _routingTableRefreshAllocatedBytesGauge;
+  private SimpleDynamicMetric<Long> _reusedResourceCounter;
+  private SimpleDynamicMetric<Long> _rebuiltResourceCounter;
+  private SimpleDynamicMetric<Long> _verificationMismatchCounter;
 
   public RoutingTableProviderMonitor(final PropertyType propertyType, String clusterName) {
     _propertyType = propertyType;
@@ -64,6 +69,16 @@ public class RoutingTableProviderMonitor extends DynamicMBeanProvider {
     _callbackCounter = new SimpleDynamicMetric("CallbackCounter", 0l);
     _eventQueueSizeGauge = new SimpleDynamicMetric("EventQueueSizeGauge", 0l);
     _dataRefreshCounter = new SimpleDynamicMetric("DataRefreshCounter", 0l);
+    _routingTableRefreshLatencyGauge = new HistogramDynamicMetric(
+        "RoutingTableRefreshLatencyGauge", new Histogram(
+        new SlidingTimeWindowArrayReservoir(getResetIntervalInMs(), TimeUnit.MILLISECONDS)));
+    _routingTableRefreshAllocatedBytesGauge = new HistogramDynamicMetric(
+        "RoutingTableRefreshAllocatedBytesGauge", new Histogram(
+        new SlidingTimeWindowArrayReservoir(getResetIntervalInMs(), TimeUnit.MILLISECONDS)));
+    _reusedResourceCounter = new SimpleDynamicMetric<>("ReusedResourceCounter", 0L);
+    _rebuiltResourceCounter = new SimpleDynamicMetric<>("RebuiltResourceCounter", 0L);
+    _verificationMismatchCounter =
+        new SimpleDynamicMetric<>("VerificationMismatchCounter", 0L);
     if (propertyType.equals(PropertyType.CURRENTSTATES)) {
       _statePropLatencyGauge = new HistogramDynamicMetric("StatePropagationLatencyGauge",
           new Histogram(
@@ -92,6 +107,32 @@ public class RoutingTableProviderMonitor extends DynamicMBeanProvider {
     _dataRefreshLatencyGauge.updateValue(System.currentTimeMillis() - startTime);
   }
 
+  /**
+   * Record one rebuild of the routing table.
+   * @param latency the time spent on building the routing table in ms
+   * @param allocatedBytes the bytes allocated while building the routing table, or a negative
+   *          value if the JVM does not support measuring the allocation
+   * @param reusedResources the number of resources shared with the previous routing table
+   * @param rebuiltResources the number of resources built from their views
+   */
+  public void recordRoutingTableRefresh(long latency, long allocatedBytes, long reusedResources,
+      long rebuiltResources) {
+    _routingTableRefreshLatencyGauge.updateValue(latency);
+    if (allocatedBytes >= 0) {
+      _routingTableRefreshAllocatedBytesGauge.updateValue(allocatedBytes);
+    }
+    _reusedResourceCounter.updateValue(_reusedResourceCounter.getValue() + reusedResources);
+    _rebuiltResourceCounter.updateValue(_rebuiltResourceCounter.getValue() + rebuiltResources);
+  }
+
+  /**
+   * Record one periodic verification whose full rebuild differs from the incrementally maintained
+   * routing table.
+   */
+  public void increaseVerificationMismatchCounter() {
+    _verificationMismatchCounter.updateValue(_verificationMismatchCounter.getValue() + 1);
+  }
+
   public void recordStatePropagationLatency(long latency) {
     if (_statePropLatencyGauge != null) {
       _statePropLatencyGauge.updateValue(latency);
@@ -105,6 +146,11 @@ public class RoutingTableProviderMonitor extends DynamicMBeanProvider {
     attributeList.add(_callbackCounter);
     attributeList.add(_eventQueueSizeGauge);
     attributeList.add(_dataRefreshCounter);
+    attributeList.add(_routingTableRefreshLatencyGauge);
+    attributeList.add(_routingTableRefreshAllocatedBytesGauge);
+    attributeList.add(_reusedResourceCounter);
+    attributeList.add(_rebuiltResourceCounter);
+    attributeList.add(_verificationMismatchCounter);
     if (_statePropLatencyGauge != null) {
       attributeList.add(_statePropLatencyGauge);
     }
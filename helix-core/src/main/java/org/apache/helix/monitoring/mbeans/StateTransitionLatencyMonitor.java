@@ -0,0 +1,143 @@
+package org.apache.helix.monitoring.mbeans;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
+import org.apache.helix.monitoring.StateTransitionTimestamps;
+import org.apache.helix.monitoring.StateTransitionTimestamps.Stage;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMBeanProvider;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.HistogramDynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.SimpleDynamicMetric;
+
+/**
+ * Controller side monitor of the end-to-end state transition latency of one resource and state
+ * model, broken down into the stages between the controller, zookeeper and the participant.
+ */
+public class StateTransitionLatencyMonitor extends DynamicMBeanProvider {
+  public enum LatencyStage {
+    // best possible state computed -> message created, controller
+    MessageGeneration(Stage.BEST_POSSIBLE_COMPUTED, Stage.MESSAGE_CREATED),
+    // message created -> message read by participant, zookeeper and participant message callback
+    MessageDelivery(Stage.MESSAGE_CREATED, Stage.MESSAGE_READ),
+    // message read -> handler started, participant executor queue
+    ParticipantQueueing(Stage.MESSAGE_READ, Stage.HANDLER_STARTED),
+    // handler started -> transition finished, participant state model
+    TransitionExecution(Stage.HANDLER_STARTED, Stage.TRANSITION_FINISHED),
+    // transition finished -> current state write completed on zookeeper, participant and zookeeper
+    CurrentStateUpdate(Stage.TRANSITION_FINISHED, Stage.CURRENT_STATE_WRITTEN),
+    // current state written -> observed by controller, zookeeper and controller cache refresh
+    CurrentStatePropagation(Stage.CURRENT_STATE_WRITTEN, Stage.CONTROLLER_OBSERVED),
+    // best possible state computed -> observed by controller
+    EndToEnd(Stage.BEST_POSSIBLE_COMPUTED, Stage.CONTROLLER_OBSERVED),
+    // message created -> observed by controller, also covers the messages that are not generated
+    // by the resource pipeline and so have no best possible time
+    MessageToObserved(Stage.MESSAGE_CREATED, Stage.CONTROLLER_OBSERVED);
+
+    private final Stage _from;
+    private final Stage _to;
+
+    LatencyStage(Stage from, Stage to) {
+      _from = from;
+      _to = to;
+    }
+  }
+
+  private static final String MBEAN_DESCRIPTION = "Helix State Transition Latency Monitor";
+
+  private final String _clusterName;
+  private final String _resourceName;
+  private final String _stateModelDef;
+  private final ObjectName _objectName;
+
+  private final SimpleDynamicMetric<Long> _observedTransitionCounter;
+  private final Map<LatencyStage, HistogramDynamicMetric> _latencyGauges =
+      new EnumMap<>(LatencyStage.class);
+
+  public StateTransitionLatencyMonitor(String clusterName, String resourceName,
+      String stateModelDef, ObjectName objectName) {
+    _clusterName = clusterName;
+    _resourceName = resourceName;
+    _stateModelDef = stateModelDef;
+    _objectName = objectName;
+
+    _observedTransitionCounter = new SimpleDynamicMetric<>("ObservedTransitionCounter", 0L);
+    for (LatencyStage latencyStage : LatencyStage.values()) {
+      _latencyGauges.put(latencyStage,
+          new HistogramDynamicMetric(latencyStage.name() + "LatencyGauge", new Histogram(
+              new SlidingTimeWindowArrayReservoir(getResetIntervalInMs(), TimeUnit.MILLISECONDS))));
+    }
+  }
+
+  /**
+   * Record the stage latencies of one observed state transition. Stages with missing
+   * timestamps are skipped.
+   * @param timestamps the timestamps of the state transition
+   */
+  public void updateLatency(StateTransitionTimestamps timestamps) {
+    incrementSimpleDynamicMetric(_observedTransitionCounter);
+    for (LatencyStage latencyStage : LatencyStage.values()) {
+      long latency = timestamps.getLatency(latencyStage._from, latencyStage._to);
+      if (latency != StateTransitionTimestamps.NOT_RECORDED) {
+        _latencyGauges.get(latencyStage).updateValue(latency);
+      }
+    }
+  }
+
+  public long getObservedTransitionCounter() {
+    return _observedTransitionCounter.getValue();
+  }
+
+  public HistogramDynamicMetric getLatencyGauge(LatencyStage latencyStage) {
+    return _latencyGauges.get(latencyStage);
+  }
+
+  public String getResourceName() {
+    return _resourceName;
+  }
+
+  public String getStateModelDef() {
+    return _stateModelDef;
+  }
+
+  @Override
+  public String getSensorName() {
+    return String.format("%s.%s.%s.%s.%s", ClusterStatusMonitor.RESOURCE_STATUS_KEY, _clusterName,
+        ClusterStatusMonitor.DEFAULT_TAG, _resourceName, _stateModelDef);
+  }
+
+  @Override
+  public StateTransitionLatencyMonitor register() throws JMException {
+    List<DynamicMetric<?, ?>> attributeList = new ArrayList<>();
+    attributeList.add(_observedTransitionCounter);
+    attributeList.addAll(_latencyGauges.values());
+    doRegister(attributeList, MBEAN_DESCRIPTION, _objectName);
+    return this;
+  }
+}
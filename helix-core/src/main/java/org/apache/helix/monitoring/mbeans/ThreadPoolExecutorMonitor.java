@@ -19,6 +19,7 @@ package org.apache.helix.monitoring.mbeans;
  * under the License.
  */
 
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ThreadPoolExecutor;
 import javax.management.JMException;
 import javax.management.ObjectName;
@@ -26,14 +27,76 @@ import javax.management.ObjectName;
 public class ThreadPoolExecutorMonitor implements ThreadPoolExecutorMonitorMBean {
   public static final String TYPE = "Type";
 
+  /**
+   * The thread and queue statistics of an executor that is not a ThreadPoolExecutor.
+   */
+  public interface ExecutorStats {
+    int getCorePoolSize();
+
+    int getMaximumPoolSize();
+
+    int getQueueSize();
+
+    int getActiveCount();
+  }
+
   private ObjectName _objectName;
-  private ThreadPoolExecutor _executor;
+  private ExecutorStats _executorStats;
   private String _type;
 
-  public ThreadPoolExecutorMonitor(String type, ThreadPoolExecutor executor)
+  public ThreadPoolExecutorMonitor(String type, final ThreadPoolExecutor executor)
       throws JMException {
+    this(type, new ExecutorStats() {
+      @Override
+      public int getCorePoolSize() {
+        return executor.getCorePoolSize();
+      }
+
+      @Override
+      public int getMaximumPoolSize() {
+        return executor.getMaximumPoolSize();
+      }
+
+      @Override
+      public int getQueueSize() {
+        return executor.getQueue().size();
+      }
+
+      @Override
+      public int getActiveCount() {
+        return executor.getActiveCount();
+      }
+    });
+  }
+
+  public ThreadPoolExecutorMonitor(String type, final ForkJoinPool executor) throws JMException {
+    this(type, new ExecutorStats() {
+      @Override
+      public int getCorePoolSize() {
+        return executor.getParallelism();
+      }
+
+      @Override
+      public int getMaximumPoolSize() {
+        return executor.getPoolSize();
+      }
+
+      @Override
+      public int getQueueSize() {
+        return (int) Math.min(Integer.MAX_VALUE,
+            executor.getQueuedSubmissionCount() + executor.getQueuedTaskCount());
+      }
+
+      @Override
+      public int getActiveCount() {
+        return executor.getActiveThreadCount();
+      }
+    });
+  }
+
+  public ThreadPoolExecutorMonitor(String type, ExecutorStats executorStats) throws JMException {
     _type = type;
-    _executor = executor;
+    _executorStats = executorStats;
     _objectName = MBeanRegistrar
         .register(this, MonitorDomainNames.HelixThreadPoolExecutor.name(), TYPE, type);
   }
@@ -50,21 +113,21 @@ public class ThreadPoolExecutorMonitor implements ThreadPoolExecutorMonitorMBean
 
   @Override
   public int getThreadPoolCoreSizeGauge() {
-    return _executor.getCorePoolSize();
+    return _executorStats.getCorePoolSize();
   }
 
   @Override
   public int getThreadPoolMaxSizeGauge() {
-    return _executor.getMaximumPoolSize();
+    return _executorStats.getMaximumPoolSize();
   }
 
   @Override
   public int getQueueSizeGauge() {
-    return _executor.getQueue().size();
+    return _executorStats.getQueueSize();
   }
 
   @Override
   public int getNumOfActiveThreadsGauge() {
-    return _executor.getActiveCount();
+    return _executorStats.getActiveCount();
   }
 }
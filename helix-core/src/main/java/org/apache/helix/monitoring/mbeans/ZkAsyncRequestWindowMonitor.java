@@ -0,0 +1,141 @@
+package org.apache.helix.monitoring.mbeans;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMBeanProvider;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.HistogramDynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.SimpleDynamicMetric;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The async requests issued by the batch operations of all the ZkBaseDataAccessors in the
+ * process. The ZooKeeper servers limit the outstanding requests of all the clients, so the
+ * requests are aggregated instead of being reported per accessor.
+ */
+public class ZkAsyncRequestWindowMonitor extends DynamicMBeanProvider {
+  private static final Logger LOG = LoggerFactory.getLogger(ZkAsyncRequestWindowMonitor.class);
+  private static final String MBEAN_DESCRIPTION = "Helix ZkBaseDataAccessor Async Request Monitor";
+  public static final String MONITOR_TYPE = "AsyncRequestWindow";
+
+  private static volatile ZkAsyncRequestWindowMonitor _instance;
+
+  private final AtomicLong _inFlightCount = new AtomicLong(0L);
+  private final SimpleDynamicMetric<Long> _inFlightRequestGauge;
+  private final SimpleDynamicMetric<Long> _requestCounter;
+  private final SimpleDynamicMetric<Long> _throttledRequestCounter;
+  private final SimpleDynamicMetric<Long> _windowShrinkCounter;
+  private final HistogramDynamicMetric _requestLatencyGauge;
+
+  /**
+   * Use {@link #getInstance()} instead, the constructor is public for the MBean info only.
+   */
+  public ZkAsyncRequestWindowMonitor() {
+    _inFlightRequestGauge = new SimpleDynamicMetric<>("InFlightRequestGauge", 0L);
+    _requestCounter = new SimpleDynamicMetric<>("RequestCounter", 0L);
+    _throttledRequestCounter = new SimpleDynamicMetric<>("ThrottledRequestCounter", 0L);
+    _windowShrinkCounter = new SimpleDynamicMetric<>("WindowShrinkCounter", 0L);
+    _requestLatencyGauge = new HistogramDynamicMetric("RequestLatencyGauge", new Histogram(
+        new SlidingTimeWindowArrayReservoir(getResetIntervalInMs(), TimeUnit.MILLISECONDS)));
+  }
+
+  /**
+   * @return the monitor of the process, which is registered on the first call
+   */
+  public static ZkAsyncRequestWindowMonitor getInstance() {
+    if (_instance == null) {
+      synchronized (ZkAsyncRequestWindowMonitor.class) {
+        if (_instance == null) {
+          ZkAsyncRequestWindowMonitor monitor = new ZkAsyncRequestWindowMonitor();
+          try {
+            monitor.register();
+          } catch (JMException e) {
+            LOG.warn("Failed to register the ZkBaseDataAccessor async request monitor.", e);
+          }
+          _instance = monitor;
+        }
+      }
+    }
+    return _instance;
+  }
+
+  public static ObjectName getObjectName() throws JMException {
+    return new ObjectName(String
+        .format("%s:%s=%s", MonitorDomainNames.HelixZkClient.name(), "Type", MONITOR_TYPE));
+  }
+
+  @Override
+  public DynamicMBeanProvider register() throws JMException {
+    List<DynamicMetric<?, ?>> attributeList = new ArrayList<>();
+    attributeList.add(_inFlightRequestGauge);
+    attributeList.add(_requestCounter);
+    attributeList.add(_throttledRequestCounter);
+    attributeList.add(_windowShrinkCounter);
+    attributeList.add(_requestLatencyGauge);
+    doRegister(attributeList, MBEAN_DESCRIPTION, getObjectName());
+    return this;
+  }
+
+  @Override
+  public String getSensorName() {
+    return String.format("%s.%s", MonitorDomainNames.HelixZkClient.name(), MONITOR_TYPE);
+  }
+
+  /**
+   * Record an issued request.
+   * @param throttled true if the request waited for the window
+   */
+  public void recordRequestIssued(boolean throttled) {
+    _inFlightRequestGauge.updateValue(_inFlightCount.incrementAndGet());
+    synchronized (_requestCounter) {
+      _requestCounter.updateValue(_requestCounter.getValue() + 1);
+    }
+    if (throttled) {
+      synchronized (_throttledRequestCounter) {
+        _throttledRequestCounter.updateValue(_throttledRequestCounter.getValue() + 1);
+      }
+    }
+  }
+
+  /**
+   * Record a completed request.
+   * @param latency the time from issuing the request to its completion in ms
+   */
+  public void recordRequestCompleted(long latency) {
+    _inFlightRequestGauge.updateValue(_inFlightCount.decrementAndGet());
+    _requestLatencyGauge.updateValue(latency);
+  }
+
+  public void increaseWindowShrinkCounter() {
+    synchronized (_windowShrinkCounter) {
+      _windowShrinkCounter.updateValue(_windowShrinkCounter.getValue() + 1);
+    }
+  }
+}
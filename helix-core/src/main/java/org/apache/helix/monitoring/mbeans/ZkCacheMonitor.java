@@ -0,0 +1,105 @@
+package org.apache.helix.monitoring.mbeans;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMBeanProvider;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.SimpleDynamicMetric;
+
+/**
+ * The hits, misses and evictions of a bounded cache of a ZkCacheBaseDataAccessor.
+ */
+public class ZkCacheMonitor extends DynamicMBeanProvider {
+  private static final String MBEAN_DESCRIPTION = "Helix ZkCacheBaseDataAccessor Cache Monitor";
+  public static final String MONITOR_TYPE = "ZkCache";
+  public static final String CACHE_TYPE = "CacheType";
+
+  private final String _key;
+  private final String _cacheType;
+
+  private final SimpleDynamicMetric<Long> _hitCounter;
+  private final SimpleDynamicMetric<Long> _missCounter;
+  private final SimpleDynamicMetric<Long> _evictionCounter;
+  private final SimpleDynamicMetric<Long> _residentBytesGauge;
+  private final SimpleDynamicMetric<Long> _residentNodeGauge;
+  private final SimpleDynamicMetric<Long> _maxBytesGauge;
+
+  /**
+   * @param key the chroot path of the accessor
+   * @param cacheType the type of the cache, WriteThrough or ZkCallback
+   */
+  public ZkCacheMonitor(String key, String cacheType, long maxBytes) {
+    _key = key;
+    _cacheType = cacheType;
+    _hitCounter = new SimpleDynamicMetric<>("HitCounter", 0L);
+    _missCounter = new SimpleDynamicMetric<>("MissCounter", 0L);
+    _evictionCounter = new SimpleDynamicMetric<>("EvictionCounter", 0L);
+    _residentBytesGauge = new SimpleDynamicMetric<>("ResidentBytesGauge", 0L);
+    _residentNodeGauge = new SimpleDynamicMetric<>("ResidentNodeGauge", 0L);
+    _maxBytesGauge = new SimpleDynamicMetric<>("MaxBytesGauge", maxBytes);
+  }
+
+  public ObjectName getObjectName() throws JMException {
+    return new ObjectName(String
+        .format("%s:%s=%s,%s=%s,%s=%s", MonitorDomainNames.HelixZkClient.name(), "Type",
+            MONITOR_TYPE, "Key", ObjectName.quote(_key), CACHE_TYPE, _cacheType));
+  }
+
+  @Override
+  public ZkCacheMonitor register() throws JMException {
+    List<DynamicMetric<?, ?>> attributeList = new ArrayList<>();
+    attributeList.add(_hitCounter);
+    attributeList.add(_missCounter);
+    attributeList.add(_evictionCounter);
+    attributeList.add(_residentBytesGauge);
+    attributeList.add(_residentNodeGauge);
+    attributeList.add(_maxBytesGauge);
+    doRegister(attributeList, MBEAN_DESCRIPTION, getObjectName());
+    return this;
+  }
+
+  @Override
+  public String getSensorName() {
+    return String.format("%s.%s.%s.%s", MonitorDomainNames.HelixZkClient.name(), MONITOR_TYPE,
+        _key, _cacheType);
+  }
+
+  public synchronized void increaseHitCounter() {
+    _hitCounter.updateValue(_hitCounter.getValue() + 1);
+  }
+
+  public synchronized void increaseMissCounter() {
+    _missCounter.updateValue(_missCounter.getValue() + 1);
+  }
+
+  public synchronized void increaseEvictionCounter(long count) {
+    _evictionCounter.updateValue(_evictionCounter.getValue() + count);
+  }
+
+  public void updateResidentSize(long residentNodes, long residentBytes) {
+    _residentNodeGauge.updateValue(residentNodes);
+    _residentBytesGauge.updateValue(residentBytes);
+  }
+}
@@ -21,9 +21,11 @@ package org.apache.helix.spectator;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+
+import org.apache.helix.HelixProperty;
 import org.apache.helix.PropertyType;
 import org.apache.helix.model.CustomizedView;
 import org.apache.helix.model.ExternalView;
@@ -60,38 +62,45 @@ public class CustomizedViewRoutingTable extends RoutingTable {
   protected CustomizedViewRoutingTable(Collection<CustomizedView> customizedViews,
       Collection<InstanceConfig> instanceConfigs, Collection<LiveInstance> liveInstances,
       PropertyType propertytype, String customizedStateType) {
+    this(customizedViews, instanceConfigs, liveInstances, propertytype, customizedStateType, null);
+  }
+
+  /**
+   * Build the CustomizedViewRoutingTable, sharing the entries of the unchanged resources with the
+   * previous RoutingTable of the same customized state type.
+   */
+  protected CustomizedViewRoutingTable(Collection<CustomizedView> customizedViews,
+      Collection<InstanceConfig> instanceConfigs, Collection<LiveInstance> liveInstances,
+      PropertyType propertytype, String customizedStateType, RoutingTable previous) {
     super(Collections.<ExternalView> emptyList(), instanceConfigs, liveInstances,
         PropertyType.CUSTOMIZEDVIEW);
     _customizedStateType = customizedStateType;
     _customizedViews = new HashSet<>(customizedViews);
-    refresh(_customizedViews);
+    refreshViews(_customizedViews, previous);
   }
 
-  private void refresh(Collection<CustomizedView> customizedViewList) {
-    Map<String, InstanceConfig> instanceConfigMap = new HashMap<>();
-    if (customizedViewList != null && !customizedViewList.isEmpty()) {
-      for (InstanceConfig config : _instanceConfigs) {
-        instanceConfigMap.put(config.getId(), config);
-      }
-      for (CustomizedView customizeView : customizedViewList) {
-        String resourceName = customizeView.getId();
-        for (String partitionName : customizeView.getPartitionSet()) {
-          Map<String, String> stateMap = customizeView.getStateMap(partitionName);
-          for (String instanceName : stateMap.keySet()) {
-            String customizedState = stateMap.get(instanceName);
-            if (instanceConfigMap.containsKey(instanceName)) {
-              InstanceConfig instanceConfig = instanceConfigMap.get(instanceName);
-              addEntry(resourceName, partitionName, customizedState, instanceConfig);
-            } else {
-              logger.warn(
-                  "Participant {} is not found with proper configuration information. It might already be removed from the cluster. "
-                      + "Skip recording partition assignment entry: Partition {}, Participant {}, State {}.",
-                  instanceName, partitionName, instanceName, stateMap.get(instanceName));
-            }
-          }
+  @Override
+  protected Set<String> addResourceEntries(HelixProperty view) {
+    CustomizedView customizeView = (CustomizedView) view;
+    String resourceName = customizeView.getId();
+    Set<String> instances = new HashSet<>();
+    for (String partitionName : customizeView.getPartitionSet()) {
+      Map<String, String> stateMap = customizeView.getStateMap(partitionName);
+      for (String instanceName : stateMap.keySet()) {
+        instances.add(instanceName);
+        String customizedState = stateMap.get(instanceName);
+        InstanceConfig instanceConfig = getInstanceConfig(instanceName);
+        if (instanceConfig != null) {
+          addEntry(resourceName, partitionName, customizedState, instanceConfig);
+        } else {
+          logger.warn(
+              "Participant {} is not found with proper configuration information. It might already be removed from the cluster. "
+                  + "Skip recording partition assignment entry: Partition {}, Participant {}, State {}.",
+              instanceName, partitionName, instanceName, stateMap.get(instanceName));
         }
       }
     }
+    return instances;
   }
 
   /**
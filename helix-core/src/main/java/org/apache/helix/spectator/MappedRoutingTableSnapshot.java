@@ -0,0 +1,360 @@
+package org.apache.helix.spectator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import org.apache.helix.model.InstanceConfig;
+
+/**
+ * A routing table snapshot read from a file written by the RoutingTableFilePublisher. The
+ * resource entries stay in the mapped file, only the resource names and the instances are
+ * decoded when the snapshot is loaded, so loading a snapshot is cheap and the entries are shared
+ * by all the processes that map the same file.
+ * The lookups mirror the ones of the RoutingTableSnapshot, including the lookups by ids. The
+ * returned instance lists are sorted and unmodifiable views of the mapped file.
+ * It is immutable, use the RoutingTableFileReader to follow the published snapshots.
+ */
+public class MappedRoutingTableSnapshot {
+  private final ByteBuffer _buffer;
+  private final long _version;
+  private final long _publishTime;
+  private final String _propertyType;
+  private final String _stateType;
+  private final int _stringTableOffset;
+  private final InstanceConfig[] _instances;
+  private final String[] _resourceNames;
+  private final int[] _resourceOffsets;
+  private final Map<String, Integer> _resourceIds;
+
+  MappedRoutingTableSnapshot(ByteBuffer buffer) throws IOException {
+    _buffer = buffer;
+    if (buffer.limit() < RoutingTableFileFormat.HEADER_SIZE
+        || buffer.getInt(0) != RoutingTableFileFormat.MAGIC) {
+      throw new IOException("Not a routing table file");
+    }
+    if (buffer.getInt(4) != RoutingTableFileFormat.FORMAT_VERSION) {
+      throw new IOException("Unsupported routing table file format " + buffer.getInt(4));
+    }
+    if (buffer.getInt(RoutingTableFileFormat.FILE_SIZE_OFFSET) != buffer.limit()) {
+      throw new IOException("Truncated routing table file, expect "
+          + buffer.getInt(RoutingTableFileFormat.FILE_SIZE_OFFSET) + " bytes but got "
+          + buffer.limit());
+    }
+    try {
+      _version = buffer.getLong(RoutingTableFileFormat.VERSION_OFFSET);
+      _publishTime = buffer.getLong(RoutingTableFileFormat.PUBLISH_TIME_OFFSET);
+      _stringTableOffset = buffer.getInt(RoutingTableFileFormat.STRING_TABLE_OFFSET);
+      _propertyType = getString(buffer.getInt(RoutingTableFileFormat.PROPERTY_TYPE_OFFSET));
+      _stateType = getString(buffer.getInt(RoutingTableFileFormat.STATE_TYPE_OFFSET));
+
+      int instanceTableOffset = buffer.getInt(RoutingTableFileFormat.INSTANCE_TABLE_OFFSET);
+      _instances = new InstanceConfig[buffer.getInt(RoutingTableFileFormat.INSTANCE_COUNT_OFFSET)];
+      for (int i = 0; i < _instances.length; i++) {
+        int offset = instanceTableOffset + i * RoutingTableFileFormat.INSTANCE_ENTRY_SIZE;
+        InstanceConfig instance = new InstanceConfig(getString(buffer.getInt(offset)));
+        String hostName = getString(buffer.getInt(offset + 4));
+        if (hostName != null) {
+          instance.setHostName(hostName);
+        }
+        String port = getString(buffer.getInt(offset + 8));
+        if (port != null) {
+          instance.setPort(port);
+        }
+        _instances[i] = instance;
+      }
+
+      int resourceTableOffset = buffer.getInt(RoutingTableFileFormat.RESOURCE_TABLE_OFFSET);
+      int resourceCount = buffer.getInt(RoutingTableFileFormat.RESOURCE_COUNT_OFFSET);
+      _resourceNames = new String[resourceCount];
+      _resourceOffsets = new int[resourceCount];
+      _resourceIds = new HashMap<>();
+      for (int r = 0; r < resourceCount; r++) {
+        _resourceOffsets[r] = buffer.getInt(resourceTableOffset + 4 * r);
+        _resourceNames[r] = getString(buffer.getInt(_resourceOffsets[r]));
+        _resourceIds.put(_resourceNames[r], r);
+      }
+    } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+      throw new IOException("Corrupted routing table file", e);
+    }
+  }
+
+  /**
+   * @return the version of the snapshot, increased by one on each publish
+   */
+  public long getVersion() {
+    return _version;
+  }
+
+  /**
+   * @return the time the snapshot was published, in ms
+   */
+  public long getPublishTime() {
+    return _publishTime;
+  }
+
+  /**
+   * @return the name of the PropertyType the routing table was built from
+   */
+  public String getPropertyType() {
+    return _propertyType;
+  }
+
+  /**
+   * @return the customized state type the routing table was built from
+   */
+  public String getCustomizedStateType() {
+    return _stateType;
+  }
+
+  /**
+   * Return names of all resources in the snapshot.
+   */
+  public Collection<String> getResources() {
+    return Collections.unmodifiableList(Arrays.asList(_resourceNames));
+  }
+
+  /**
+   * Return all the instances that are referred by the resource entries.
+   */
+  public Collection<InstanceConfig> getInstanceConfigs() {
+    return Collections.unmodifiableList(Arrays.asList(_instances));
+  }
+
+  /**
+   * returns all instances for {resource} that are in a specific {state}.
+   * @param resourceName
+   * @param state
+   * @return empty set if there is no instance in a given state
+   */
+  public Set<InstanceConfig> getInstancesForResource(String resourceName, String state) {
+    int resourceId = getResourceId(resourceName);
+    return new HashSet<>(getInstancesForResource(resourceId, getStateId(resourceId, state)));
+  }
+
+  /**
+   * returns the instances for {resource,partition} pair that are in a specific {state}
+   * @param resourceName
+   * @param partitionName
+   * @param state
+   * @return empty list if there is no instance in a given state
+   */
+  public List<InstanceConfig> getInstancesForResource(String resourceName, String partitionName,
+      String state) {
+    int resourceId = getResourceId(resourceName);
+    return getInstancesForResource(resourceId, getPartitionId(resourceId, partitionName),
+        getStateId(resourceId, state));
+  }
+
+  /**
+   * Returns the id of the resource in this snapshot. The ids are only valid for the snapshot they
+   * are resolved from.
+   * @param resourceName
+   * @return the resource id, or RoutingTableSnapshot.UNKNOWN_ID if the resource has no entries
+   */
+  public int getResourceId(String resourceName) {
+    Integer id = _resourceIds.get(resourceName);
+    return id == null ? RoutingTableSnapshot.UNKNOWN_ID : id;
+  }
+
+  /**
+   * Returns the id of the partition in the resource.
+   * @param resourceId
+   * @param partitionName
+   * @return the partition id, or RoutingTableSnapshot.UNKNOWN_ID if the partition has no entries
+   */
+  public int getPartitionId(int resourceId, String partitionName) {
+    if (!isValid(resourceId, _resourceOffsets.length) || partitionName == null) {
+      return RoutingTableSnapshot.UNKNOWN_ID;
+    }
+    int offset = _resourceOffsets[resourceId];
+    int stateCount = _buffer.getInt(offset + 4);
+    return binarySearch(offset + 12 + 4 * stateCount, _buffer.getInt(offset + 8),
+        partitionName);
+  }
+
+  /**
+   * Returns the number of partitions of the resource that have entries.
+   * @param resourceId
+   * @return the partition count, 0 if the resource id is unknown
+   */
+  public int getPartitionCount(int resourceId) {
+    if (!isValid(resourceId, _resourceOffsets.length)) {
+      return 0;
+    }
+    return _buffer.getInt(_resourceOffsets[resourceId] + 8);
+  }
+
+  /**
+   * Returns the id of the state in the resource.
+   * @param resourceId
+   * @param state
+   * @return the state id, or RoutingTableSnapshot.UNKNOWN_ID if no instance of the resource is
+   *         in the state
+   */
+  public int getStateId(int resourceId, String state) {
+    if (!isValid(resourceId, _resourceOffsets.length) || state == null) {
+      return RoutingTableSnapshot.UNKNOWN_ID;
+    }
+    int offset = _resourceOffsets[resourceId];
+    return binarySearch(offset + 12, _buffer.getInt(offset + 4), state);
+  }
+
+  /**
+   * returns all instances for {resource} that are in a specific {state}, looked up by ids.
+   * @param resourceId
+   * @param stateId
+   * @return the sorted instances, empty list if the ids are unknown
+   */
+  public List<InstanceConfig> getInstancesForResource(int resourceId, int stateId) {
+    if (!isValid(resourceId, _resourceOffsets.length)) {
+      return Collections.emptyList();
+    }
+    int offset = _resourceOffsets[resourceId];
+    int stateCount = _buffer.getInt(offset + 4);
+    int partitionCount = _buffer.getInt(offset + 8);
+    if (!isValid(stateId, stateCount)) {
+      return Collections.emptyList();
+    }
+    return getInstanceList(offset + 12 + 4 * stateCount + 4 * partitionCount
+        + 8 * partitionCount * stateCount + 8 * stateId);
+  }
+
+  /**
+   * returns the instances for {resource,partition} pair that are in a specific {state}, looked
+   * up by ids.
+   * @param resourceId
+   * @param partitionId
+   * @param stateId
+   * @return the sorted instances, empty list if the ids are unknown
+   */
+  public List<InstanceConfig> getInstancesForResource(int resourceId, int partitionId,
+      int stateId) {
+    if (!isValid(resourceId, _resourceOffsets.length)) {
+      return Collections.emptyList();
+    }
+    int offset = _resourceOffsets[resourceId];
+    int stateCount = _buffer.getInt(offset + 4);
+    int partitionCount = _buffer.getInt(offset + 8);
+    if (!isValid(partitionId, partitionCount) || !isValid(stateId, stateCount)) {
+      return Collections.emptyList();
+    }
+    return getInstanceList(offset + 12 + 4 * stateCount + 4 * partitionCount
+        + 8 * (partitionId * stateCount + stateId));
+  }
+
+  private List<InstanceConfig> getInstanceList(int entryOffset) {
+    int count = _buffer.getInt(entryOffset + 4);
+    if (count == 0) {
+      return Collections.emptyList();
+    }
+    return new InstanceList(_buffer.getInt(entryOffset), count);
+  }
+
+  /**
+   * Binary search the string ids in [offset, offset + 4 * count) for the string.
+   */
+  private int binarySearch(int offset, int count, String string) {
+    int low = 0;
+    int high = count - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = compare(_buffer.getInt(offset + 4 * mid), string);
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return RoutingTableSnapshot.UNKNOWN_ID;
+  }
+
+  /**
+   * Compare the string in the file with the given string in the order of String.compareTo,
+   * without decoding it.
+   */
+  private int compare(int stringId, String string) {
+    int offset = _buffer.getInt(_stringTableOffset + 4 * stringId);
+    int length = _buffer.getInt(offset);
+    int minLength = Math.min(length, string.length());
+    for (int i = 0; i < minLength; i++) {
+      char c = _buffer.getChar(offset + 4 + 2 * i);
+      if (c != string.charAt(i)) {
+        return c - string.charAt(i);
+      }
+    }
+    return length - string.length();
+  }
+
+  private String getString(int stringId) {
+    if (stringId == RoutingTableFileFormat.NULL_STRING_ID) {
+      return null;
+    }
+    int offset = _buffer.getInt(_stringTableOffset + 4 * stringId);
+    char[] chars = new char[_buffer.getInt(offset)];
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = _buffer.getChar(offset + 4 + 2 * i);
+    }
+    return new String(chars);
+  }
+
+  private static boolean isValid(int id, int length) {
+    return id >= 0 && id < length;
+  }
+
+  /**
+   * A list of instances backed by the instance ids in the file.
+   */
+  private class InstanceList extends AbstractList<InstanceConfig> implements RandomAccess {
+    private final int _offset;
+    private final int _size;
+
+    InstanceList(int offset, int size) {
+      _offset = offset;
+      _size = size;
+    }
+
+    @Override
+    public InstanceConfig get(int index) {
+      if (!isValid(index, _size)) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + _size);
+      }
+      return _instances[_buffer.getInt(_offset + 4 * index)];
+    }
+
+    @Override
+    public int size() {
+      return _size;
+    }
+  }
+}
@@ -24,6 +24,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.helix.HelixConstants;
 import org.apache.helix.HelixDataAccessor;
@@ -54,6 +55,8 @@ class RoutingDataCache extends BasicClusterDataCache {
   // propertyCache, this hardcoded list of fields won't be necessary.
   private Map<String, CustomizedViewCache> _customizedViewCaches;
   private TargetExternalViewCache _targetExternalViewCache;
+  // The resources whose ExternalViews and CustomizedViews are refreshed, null for all resources
+  private volatile Set<String> _selectedResources;
 
   public RoutingDataCache(String clusterName, PropertyType sourceDataType) {
     this (clusterName, ImmutableMap.of(sourceDataType, Collections.emptyList()));
@@ -122,7 +125,14 @@ class RoutingDataCache extends BasicClusterDataCache {
       case CUSTOMIZEDVIEW: {
         if (_propertyDataChangedMap.get(HelixConstants.ChangeType.CUSTOMIZED_VIEW)) {
           for (String customizedStateType : _sourceDataTypeMap.get(PropertyType.CUSTOMIZEDVIEW)) {
-            _customizedViewCaches.get(customizedStateType).refresh(accessor);
+            CustomizedViewCache customizedViewCache =
+                _customizedViewCaches.get(customizedStateType);
+            Set<String> selectedResources = _selectedResources;
+            if (selectedResources == null) {
+              customizedViewCache.refresh(accessor);
+            } else {
+              customizedViewCache.refresh(accessor, selectedResources);
+            }
           }
           LOG.info("Reload CustomizedView for types "
               + _sourceDataTypeMap.get(PropertyType.CUSTOMIZEDVIEW) + " Takes "
@@ -150,6 +160,34 @@ class RoutingDataCache extends BasicClusterDataCache {
     }
   }
 
+  @Override
+  protected void refreshExternalViews(HelixDataAccessor accessor) {
+    Set<String> selectedResources = _selectedResources;
+    if (selectedResources == null) {
+      super.refreshExternalViews(accessor);
+    } else {
+      _externalViewCache.refresh(accessor, selectedResources);
+    }
+  }
+
+  /**
+   * Only refresh the ExternalViews and CustomizedViews of the given resources from now on. The
+   * views are reloaded on the next refresh.
+   * @param selectedResources the resources to refresh, or null to refresh all resources
+   */
+  public void setSelectedResources(Set<String> selectedResources) {
+    _selectedResources = selectedResources;
+    notifyDataChange(HelixConstants.ChangeType.EXTERNAL_VIEW);
+    notifyDataChange(HelixConstants.ChangeType.CUSTOMIZED_VIEW);
+  }
+
+  /**
+   * @return the resources whose views are refreshed, or null if all resources are refreshed
+   */
+  public Set<String> getSelectedResources() {
+    return _selectedResources;
+  }
+
   /**
    * Retrieves the TargetExternalView for all resources
    *
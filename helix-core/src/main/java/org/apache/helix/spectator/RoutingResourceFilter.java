@@ -0,0 +1,107 @@
+package org.apache.helix.spectator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Select the resources a RoutingTableProvider subscribes to. A filter either selects an explicit
+ * set of resources, or the resources whose IdealStates carry one of the given instance group
+ * tags. The tag of a resource is read once when the resource is first seen.
+ */
+public final class RoutingResourceFilter {
+  private final Set<String> _resourceNames;
+  private final Set<String> _instanceGroupTags;
+
+  private RoutingResourceFilter(Set<String> resourceNames, Set<String> instanceGroupTags) {
+    _resourceNames = resourceNames;
+    _instanceGroupTags = instanceGroupTags;
+  }
+
+  /**
+   * Select the given resources. The resources do not need to exist yet.
+   * @param resourceNames
+   * @return the filter
+   */
+  public static RoutingResourceFilter forResources(Collection<String> resourceNames) {
+    if (resourceNames == null) {
+      throw new IllegalArgumentException("The resource names should not be null");
+    }
+    return new RoutingResourceFilter(
+        Collections.unmodifiableSet(new HashSet<>(resourceNames)), null);
+  }
+
+  /**
+   * Select the resources tagged with any of the given instance group tags.
+   * @param instanceGroupTags
+   * @return the filter
+   */
+  public static RoutingResourceFilter forInstanceGroupTags(Collection<String> instanceGroupTags) {
+    if (instanceGroupTags == null || instanceGroupTags.isEmpty()) {
+      throw new IllegalArgumentException("The instance group tags should not be null or empty");
+    }
+    return new RoutingResourceFilter(null,
+        Collections.unmodifiableSet(new HashSet<>(instanceGroupTags)));
+  }
+
+  /**
+   * @return true if the resources are selected by their instance group tags
+   */
+  public boolean isTagBased() {
+    return _instanceGroupTags != null;
+  }
+
+  /**
+   * @return the selected resources, or an empty set if the filter is tag based
+   */
+  public Set<String> getResourceNames() {
+    return _resourceNames == null ? Collections.<String> emptySet() : _resourceNames;
+  }
+
+  /**
+   * @return the selected instance group tags, or an empty set if the filter is not tag based
+   */
+  public Set<String> getInstanceGroupTags() {
+    return _instanceGroupTags == null ? Collections.<String> emptySet() : _instanceGroupTags;
+  }
+
+  /**
+   * Check whether a resource is selected.
+   * @param resourceName
+   * @param instanceGroupTag the instance group tag of the resource, only used by the tag based
+   *          filters. Could be null.
+   * @return true if the resource is selected
+   */
+  public boolean matches(String resourceName, String instanceGroupTag) {
+    if (isTagBased()) {
+      return instanceGroupTag != null && _instanceGroupTags.contains(instanceGroupTag);
+    }
+    return _resourceNames.contains(resourceName);
+  }
+
+  @Override
+  public String toString() {
+    return isTagBased() ? "InstanceGroupTags: " + _instanceGroupTags
+        : "Resources: " + _resourceNames;
+  }
+}
@@ -0,0 +1,236 @@
+package org.apache.helix.spectator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.helix.AccessOption;
+import org.apache.helix.BaseDataAccessor;
+import org.apache.helix.HelixConstants;
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.model.IdealState;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.zkclient.IZkChildListener;
+import org.apache.helix.zookeeper.zkclient.IZkDataListener;
+import org.apache.helix.zookeeper.zkclient.annotation.PreFetchChangedData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watch the views of the resources selected by a RoutingResourceFilter only, instead of all the
+ * views under the view folders.
+ * A data watch is installed on the view znode of each selected resource in each folder. The
+ * watch also works as an exists watch, so a selected resource that is not created yet is picked
+ * up once its view is written. For a tag based filter, the children of the folders are watched as
+ * well, so the new resources are evaluated against the filter. Their IdealStates are read once to
+ * get the tags.
+ * The changed data is not prefetched, the views are read by the RoutingDataCache.
+ */
+@PreFetchChangedData(enabled = false)
+class RoutingResourceWatcher implements IZkDataListener, IZkChildListener {
+  private static final Logger logger = LoggerFactory.getLogger(RoutingResourceWatcher.class);
+
+  interface Listener {
+    /**
+     * Called when the set of selected resources is changed.
+     */
+    void onSelectedResourcesChange(Set<String> selectedResources);
+
+    /**
+     * Called when the view of a selected resource is changed.
+     */
+    void onViewChange(HelixConstants.ChangeType changeType, String path);
+  }
+
+  private final HelixDataAccessor _accessor;
+  private final BaseDataAccessor<ZNRecord> _baseAccessor;
+  // view folder path -> change type of the views in it
+  private final Map<String, HelixConstants.ChangeType> _viewFolders;
+  private final Listener _listener;
+
+  private RoutingResourceFilter _filter;
+  // resource -> whether its tag matches the filter, only for the tag based filters
+  private final Map<String, Boolean> _tagMatches = new HashMap<>();
+  private Set<String> _selectedResources = Collections.emptySet();
+  private final Set<String> _watchedPaths = new HashSet<>();
+  private boolean _isChildWatched = false;
+  private boolean _isStopped = false;
+
+  RoutingResourceWatcher(HelixDataAccessor accessor,
+      Map<String, HelixConstants.ChangeType> viewFolders, RoutingResourceFilter filter,
+      Listener listener) {
+    _accessor = accessor;
+    _baseAccessor = accessor.getBaseDataAccessor();
+    _viewFolders = viewFolders;
+    _filter = filter;
+    _listener = listener;
+  }
+
+  /**
+   * Install the watches of the current filter.
+   */
+  synchronized void start() {
+    updateWatches();
+  }
+
+  /**
+   * Replace the filter, the watches are updated accordingly.
+   */
+  synchronized void setFilter(RoutingResourceFilter filter) {
+    if (_isStopped) {
+      return;
+    }
+    _filter = filter;
+    _tagMatches.clear();
+    updateWatches();
+  }
+
+  synchronized RoutingResourceFilter getFilter() {
+    return _filter;
+  }
+
+  synchronized Set<String> getSelectedResources() {
+    return _selectedResources;
+  }
+
+  /**
+   * Remove all the watches. Once it is stopped, it should never be reused.
+   */
+  synchronized void stop() {
+    _isStopped = true;
+    for (String path : _watchedPaths) {
+      _baseAccessor.unsubscribeDataChanges(path, this);
+    }
+    _watchedPaths.clear();
+    unwatchFolders();
+  }
+
+  @Override
+  public void handleDataChange(String dataPath, Object data) {
+    notifyViewChange(dataPath);
+  }
+
+  @Override
+  public void handleDataDeleted(String dataPath) {
+    notifyViewChange(dataPath);
+  }
+
+  @Override
+  public synchronized void handleChildChange(String parentPath, List<String> currentChilds) {
+    if (_isStopped || !_filter.isTagBased()) {
+      return;
+    }
+    updateWatches();
+  }
+
+  private void notifyViewChange(String dataPath) {
+    HelixConstants.ChangeType changeType =
+        _viewFolders.get(dataPath.substring(0, dataPath.lastIndexOf('/')));
+    if (changeType != null) {
+      _listener.onViewChange(changeType, dataPath);
+    }
+  }
+
+  private void updateWatches() {
+    Set<String> selectedResources;
+    if (_filter.isTagBased()) {
+      selectedResources = selectTaggedResources();
+    } else {
+      unwatchFolders();
+      selectedResources = _filter.getResourceNames();
+    }
+
+    Set<String> paths = new HashSet<>();
+    for (String folder : _viewFolders.keySet()) {
+      for (String resource : selectedResources) {
+        paths.add(folder + "/" + resource);
+      }
+    }
+    for (String path : paths) {
+      if (!_watchedPaths.contains(path)) {
+        _baseAccessor.subscribeDataChanges(path, this);
+      }
+    }
+    for (String path : _watchedPaths) {
+      if (!paths.contains(path)) {
+        _baseAccessor.unsubscribeDataChanges(path, this);
+      }
+    }
+    _watchedPaths.clear();
+    _watchedPaths.addAll(paths);
+
+    if (!selectedResources.equals(_selectedResources)) {
+      logger.info("Selected resources are changed to {} by the filter {}.", selectedResources,
+          _filter);
+      _selectedResources = Collections.unmodifiableSet(selectedResources);
+      _listener.onSelectedResourcesChange(_selectedResources);
+    }
+  }
+
+  private Set<String> selectTaggedResources() {
+    Set<String> resources = new HashSet<>();
+    for (String folder : _viewFolders.keySet()) {
+      List<String> children;
+      if (_isChildWatched) {
+        children = _baseAccessor.getChildNames(folder, AccessOption.PERSISTENT);
+      } else {
+        children = _baseAccessor.subscribeChildChanges(folder, this);
+      }
+      if (children != null) {
+        resources.addAll(children);
+      }
+    }
+    _isChildWatched = true;
+
+    // Forget the tags of the removed resources, so a re-created resource is evaluated again
+    _tagMatches.keySet().retainAll(resources);
+    Set<String> selectedResources = new HashSet<>();
+    for (String resource : resources) {
+      Boolean matches = _tagMatches.get(resource);
+      if (matches == null) {
+        IdealState idealState = _accessor.getProperty(_accessor.keyBuilder().idealStates(resource));
+        if (idealState == null) {
+          // The resource is being created or dropped, evaluate it on the next change
+          continue;
+        }
+        matches = _filter.matches(resource, idealState.getInstanceGroupTag());
+        _tagMatches.put(resource, matches);
+      }
+      if (matches) {
+        selectedResources.add(resource);
+      }
+    }
+    return selectedResources;
+  }
+
+  private void unwatchFolders() {
+    if (_isChildWatched) {
+      for (String folder : _viewFolders.keySet()) {
+        _baseAccessor.unsubscribeChildChanges(folder, this);
+      }
+      _isChildWatched = false;
+    }
+  }
+}
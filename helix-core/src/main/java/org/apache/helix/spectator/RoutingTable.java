@@ -30,6 +30,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
+import org.apache.helix.HelixProperty;
 import org.apache.helix.PropertyType;
 import org.apache.helix.model.CurrentState;
 import org.apache.helix.model.ExternalView;
@@ -41,6 +42,11 @@ import org.slf4j.LoggerFactory;
 /**
  * A class to consume ExternalViews or CustomizedViews of a cluster and provide
  * {resource, partition, state} to {instances} map function.
+ * A RoutingTable is immutable once constructed. When it is built from a previous table, the
+ * entries of the resources whose view objects and instances did not change are shared with the
+ * previous table instead of being rebuilt. A table built from CurrentStates shares the entries of
+ * the resources whose CurrentStates did not change, and replaces only the entries of the changed
+ * instances in the other resources.
  */
 class RoutingTable {
   private static final Logger logger = LoggerFactory.getLogger(RoutingTable.class);
@@ -54,9 +60,28 @@ class RoutingTable {
   private final Collection<LiveInstance> _liveInstances;
   protected final Collection<InstanceConfig> _instanceConfigs;
   private final Collection<ExternalView> _externalViews;
+  private final Map<String, InstanceConfig> _instanceConfigMap;
+
+  // mapping a resourceName to the view that its entries are built from
+  private final Map<String, HelixProperty> _resourceViewMap;
+  // mapping a resourceName to the instances in its view, including the ones without config
+  private final Map<String, Set<String>> _resourceInstanceMap;
+  // mapping a resource group name to the names of its member resources
+  private final Map<String, Set<String>> _resourceGroupMemberMap;
+
+  // mapping an instanceName to the CurrentStates of its current session, and a resourceName to
+  // the CurrentStates of each instance. Only set when the table is built from CurrentStates.
+  private Map<String, Map<String, CurrentState>> _instanceCurrentStateMap;
+  private Map<String, Map<String, CurrentState>> _resourceCurrentStateMap;
 
   private final PropertyType _propertyType;
 
+  private int _reusedResourceCount = 0;
+  private int _rebuiltResourceCount = 0;
+
+  // compiled lazily on the first lookup by ids, the table is complete by then
+  private volatile RoutingTableIndex _index;
+
   @Deprecated
   public RoutingTable() {
     this(Collections.<ExternalView> emptyList(), Collections.<InstanceConfig> emptyList(),
@@ -74,11 +99,25 @@ class RoutingTable {
 
   public RoutingTable(Map<String, Map<String, Map<String, CurrentState>>> currentStateMap,
       Collection<InstanceConfig> instanceConfigs, Collection<LiveInstance> liveInstances) {
-    // TODO Aggregate currentState to an ExternalView in the RoutingTable, so there is no need to
-    // refresh according to the currentStateMap. - jjwang
+    this(currentStateMap, instanceConfigs, liveInstances, null);
+  }
+
+  /**
+   * Build the RoutingTable from the CurrentStates, only replacing the entries of the changed
+   * CurrentStates. An instance is changed if its CurrentState map of the live session, its config
+   * or its liveness differs from the previous RoutingTable. Only its CurrentStates that are not
+   * the same objects as before are changed, unless its config or its liveness changed.
+   * @param previous the previous RoutingTable, or null to build all the entries. The CurrentState
+   *          maps and the CurrentStates of the unchanged instances must be the same objects as in
+   *          the previous table, since they are compared by reference.
+   */
+  protected RoutingTable(Map<String, Map<String, Map<String, CurrentState>>> currentStateMap,
+      Collection<InstanceConfig> instanceConfigs, Collection<LiveInstance> liveInstances,
+      RoutingTable previous) {
     this(Collections.<ExternalView> emptyList(),
         instanceConfigs, liveInstances, PropertyType.CURRENTSTATES);
-    refresh(currentStateMap);
+    refresh(currentStateMap,
+        previous == null || previous._instanceCurrentStateMap == null ? null : previous);
   }
 
   public RoutingTable(Collection<ExternalView> externalViews,
@@ -89,80 +128,419 @@ class RoutingTable {
 
   protected RoutingTable(Collection<ExternalView> externalViews, Collection<InstanceConfig> instanceConfigs,
       Collection<LiveInstance> liveInstances, PropertyType propertytype) {
+    this(externalViews, instanceConfigs, liveInstances, propertytype, null);
+  }
+
+  /**
+   * Build the RoutingTable from the ExternalViews, sharing the entries of the unchanged resources
+   * with the previous RoutingTable.
+   * @param previous the previous RoutingTable of the same property type, or null to build all the
+   *          entries. The views and instance configs must be replaced, not modified, when they
+   *          change, since they are compared by reference.
+   */
+  protected RoutingTable(Collection<ExternalView> externalViews, Collection<InstanceConfig> instanceConfigs,
+      Collection<LiveInstance> liveInstances, PropertyType propertytype, RoutingTable previous) {
     // TODO Refactor these constructors so we don't have so many constructor.
     _propertyType = propertytype;
     _resourceInfoMap = new HashMap<>();
     _resourceGroupInfoMap = new HashMap<>();
+    _resourceViewMap = new HashMap<>();
+    _resourceInstanceMap = new HashMap<>();
+    _resourceGroupMemberMap = new HashMap<>();
     _liveInstances = new HashSet<>(liveInstances);
     _instanceConfigs = new HashSet<>(instanceConfigs);
+    _instanceConfigMap = new HashMap<>();
+    for (InstanceConfig config : _instanceConfigs) {
+      _instanceConfigMap.put(config.getId(), config);
+    }
     _externalViews = new HashSet<>(externalViews);
-    refresh(_externalViews);
-  }
-
-  private void refresh(Collection<ExternalView> externalViewList) {
-    Map<String, InstanceConfig> instanceConfigMap = new HashMap<>();
-    if (externalViewList != null && !externalViewList.isEmpty()) {
-      for (InstanceConfig config : _instanceConfigs) {
-        instanceConfigMap.put(config.getId(), config);
-      }
-      for (ExternalView extView : externalViewList) {
-        String resourceName = extView.getId();
-        for (String partitionName : extView.getPartitionSet()) {
-          Map<String, String> stateMap = extView.getStateMap(partitionName);
-          for (String instanceName : stateMap.keySet()) {
-            String currentState = stateMap.get(instanceName);
-            if (instanceConfigMap.containsKey(instanceName)) {
-              InstanceConfig instanceConfig = instanceConfigMap.get(instanceName);
-              if (extView.isGroupRoutingEnabled()) {
-                addEntry(resourceName, extView.getResourceGroupName(),
-                    extView.getInstanceGroupTag(), partitionName, currentState, instanceConfig);
-              } else {
-                addEntry(resourceName, partitionName, currentState, instanceConfig);
-              }
-            } else {
-              logger.warn(
-                  "Participant {} is not found with proper configuration information. It might already be removed from the cluster. "
-                      + "Skip recording partition assignment entry: Partition {}, Participant {}, State {}.",
-                  instanceName, partitionName, instanceName, stateMap.get(instanceName));
-            }
-          }
+    refreshViews(_externalViews, previous);
+  }
+
+  /**
+   * Add the entries of the views. The entries of a resource are shared with the previous
+   * RoutingTable if its view is the same object as the one the previous entries were built from
+   * and the configs of its instances are the same objects too. A resource group is rebuilt if any
+   * of its member resources is rebuilt or its members changed.
+   * @param views the ExternalViews or CustomizedViews
+   * @param previous the previous RoutingTable, or null
+   */
+  protected void refreshViews(Collection<? extends HelixProperty> views, RoutingTable previous) {
+    if (views == null || views.isEmpty()) {
+      return;
+    }
+    Set<String> changedInstances = previous == null ? null : getChangedInstances(previous);
+    Map<String, List<ExternalView>> resourceGroupViews = new HashMap<>();
+    Set<String> rebuiltResourceGroups = new HashSet<>();
+
+    for (HelixProperty view : views) {
+      String resourceName = view.getId();
+      _resourceViewMap.put(resourceName, view);
+      boolean reused = canReuseResource(previous, changedInstances, resourceName, view);
+      if (reused) {
+        ResourceInfo resourceInfo = previous._resourceInfoMap.get(resourceName);
+        if (resourceInfo != null) {
+          _resourceInfoMap.put(resourceName, resourceInfo);
+        }
+        _resourceInstanceMap.put(resourceName, previous._resourceInstanceMap.get(resourceName));
+        _reusedResourceCount++;
+      } else {
+        _resourceInstanceMap.put(resourceName, addResourceEntries(view));
+        _rebuiltResourceCount++;
+      }
+
+      if (view instanceof ExternalView && ((ExternalView) view).isGroupRoutingEnabled()) {
+        ExternalView extView = (ExternalView) view;
+        String resourceGroupName = extView.getResourceGroupName();
+        resourceGroupViews.computeIfAbsent(resourceGroupName, k -> new ArrayList<>()).add(extView);
+        if (!reused) {
+          rebuiltResourceGroups.add(resourceGroupName);
         }
       }
     }
+
+    for (Map.Entry<String, List<ExternalView>> entry : resourceGroupViews.entrySet()) {
+      String resourceGroupName = entry.getKey();
+      Set<String> members = new HashSet<>();
+      for (ExternalView extView : entry.getValue()) {
+        members.add(extView.getId());
+      }
+      _resourceGroupMemberMap.put(resourceGroupName, members);
+
+      ResourceGroupInfo previousGroupInfo =
+          previous == null ? null : previous._resourceGroupInfoMap.get(resourceGroupName);
+      if (previousGroupInfo != null && !rebuiltResourceGroups.contains(resourceGroupName)
+          && members.equals(previous._resourceGroupMemberMap.get(resourceGroupName))) {
+        _resourceGroupInfoMap.put(resourceGroupName, previousGroupInfo);
+      } else {
+        for (ExternalView extView : entry.getValue()) {
+          addResourceGroupEntries(extView);
+        }
+      }
+    }
+  }
+
+  private Set<String> getChangedInstances(RoutingTable previous) {
+    Set<String> changedInstances = new HashSet<>();
+    for (Map.Entry<String, InstanceConfig> entry : _instanceConfigMap.entrySet()) {
+      if (previous._instanceConfigMap.get(entry.getKey()) != entry.getValue()) {
+        changedInstances.add(entry.getKey());
+      }
+    }
+    for (String instanceName : previous._instanceConfigMap.keySet()) {
+      if (!_instanceConfigMap.containsKey(instanceName)) {
+        changedInstances.add(instanceName);
+      }
+    }
+    return changedInstances;
   }
 
-  private void refresh(Map<String, Map<String, Map<String, CurrentState>>> currentStateMap) {
-    Map<String, InstanceConfig> instanceConfigMap = new HashMap<>();
-    if (currentStateMap != null && !currentStateMap.isEmpty()) {
-      for (InstanceConfig config : _instanceConfigs) {
-        instanceConfigMap.put(config.getId(), config);
+  private boolean canReuseResource(RoutingTable previous, Set<String> changedInstances,
+      String resourceName, HelixProperty view) {
+    if (previous == null || previous._resourceViewMap.get(resourceName) != view) {
+      return false;
+    }
+    Set<String> instances = previous._resourceInstanceMap.get(resourceName);
+    if (instances == null) {
+      return false;
+    }
+    for (String instanceName : changedInstances) {
+      if (instances.contains(instanceName)) {
+        return false;
       }
-      for (LiveInstance liveInstance : _liveInstances) {
-        String instanceName = liveInstance.getInstanceName();
-        String sessionId = liveInstance.getEphemeralOwner();
-        InstanceConfig instanceConfig = instanceConfigMap.get(instanceName);
-        if (instanceConfig == null) {
+    }
+    return true;
+  }
+
+  /**
+   * Add the entries of one resource view.
+   * @param view the view of the resource
+   * @return the names of all the instances in the view
+   */
+  protected Set<String> addResourceEntries(HelixProperty view) {
+    ExternalView extView = (ExternalView) view;
+    String resourceName = extView.getId();
+    Set<String> instances = new HashSet<>();
+    for (String partitionName : extView.getPartitionSet()) {
+      Map<String, String> stateMap = extView.getStateMap(partitionName);
+      for (String instanceName : stateMap.keySet()) {
+        instances.add(instanceName);
+        String currentState = stateMap.get(instanceName);
+        InstanceConfig instanceConfig = _instanceConfigMap.get(instanceName);
+        if (instanceConfig != null) {
+          addEntry(resourceName, partitionName, currentState, instanceConfig);
+        } else {
           logger.warn(
               "Participant {} is not found with proper configuration information. It might already be removed from the cluster. "
-                  + "Skip recording partition assignments that are related to this instance.",
-              instanceName);
-          continue;
+                  + "Skip recording partition assignment entry: Partition {}, Participant {}, State {}.",
+              instanceName, partitionName, instanceName, stateMap.get(instanceName));
         }
+      }
+    }
+    return instances;
+  }
 
-        Map<String, CurrentState> currentStates = Collections.emptyMap();
-        if (currentStateMap.containsKey(instanceName)
-            && currentStateMap.get(instanceName).containsKey(sessionId)) {
-          currentStates = currentStateMap.get(instanceName).get(sessionId);
+  private void addResourceGroupEntries(ExternalView extView) {
+    for (String partitionName : extView.getPartitionSet()) {
+      Map<String, String> stateMap = extView.getStateMap(partitionName);
+      for (String instanceName : stateMap.keySet()) {
+        InstanceConfig instanceConfig = _instanceConfigMap.get(instanceName);
+        if (instanceConfig != null) {
+          addEntry(extView.getResourceGroupName(), extView.getInstanceGroupTag(), partitionName,
+              stateMap.get(instanceName), instanceConfig);
         }
+      }
+    }
+  }
 
-        for (CurrentState currentState : currentStates.values()) {
-          String resourceName = currentState.getResourceName();
-          Map<String, String> stateMap = currentState.getPartitionStateMap();
+  private void refresh(Map<String, Map<String, Map<String, CurrentState>>> currentStateMap,
+      RoutingTable previous) {
+    _instanceCurrentStateMap = new HashMap<>();
+    _resourceCurrentStateMap = new HashMap<>();
+    for (LiveInstance liveInstance : _liveInstances) {
+      String instanceName = liveInstance.getInstanceName();
+      String sessionId = liveInstance.getEphemeralOwner();
+      InstanceConfig instanceConfig = _instanceConfigMap.get(instanceName);
+      if (instanceConfig == null) {
+        logger.warn(
+            "Participant {} is not found with proper configuration information. It might already be removed from the cluster. "
+                + "Skip recording partition assignments that are related to this instance.",
+            instanceName);
+        continue;
+      }
 
-          for (String partitionName : stateMap.keySet()) {
-            String state = stateMap.get(partitionName);
-            addEntry(resourceName, partitionName, state, instanceConfig);
-          }
+      Map<String, CurrentState> currentStates = Collections.emptyMap();
+      if (currentStateMap != null && currentStateMap.containsKey(instanceName)
+          && currentStateMap.get(instanceName).containsKey(sessionId)) {
+        currentStates = currentStateMap.get(instanceName).get(sessionId);
+      }
+      _instanceCurrentStateMap.put(instanceName, currentStates);
+    }
+
+    if (previous == null) {
+      for (Map.Entry<String, Map<String, CurrentState>> entry : _instanceCurrentStateMap
+          .entrySet()) {
+        for (CurrentState currentState : entry.getValue().values()) {
+          _resourceCurrentStateMap
+              .computeIfAbsent(currentState.getResourceName(), k -> new HashMap<>())
+              .put(entry.getKey(), currentState);
+        }
+      }
+      for (Map.Entry<String, Map<String, CurrentState>> entry : _resourceCurrentStateMap
+          .entrySet()) {
+        addCurrentStateEntries(entry.getKey(), entry.getValue());
+      }
+      return;
+    }
+
+    // Find the CurrentStates that changed, by resource. The CurrentStates of an instance are
+    // compared by reference, all of them are changed if its config or its liveness changed.
+    Set<String> changedConfigInstances = getChangedInstances(previous);
+    Set<String> instanceNames = new HashSet<>(_instanceCurrentStateMap.keySet());
+    instanceNames.addAll(previous._instanceCurrentStateMap.keySet());
+    // mapping a changed resourceName to the changed instances and their new CurrentStates of it,
+    // null if an instance no longer has one
+    Map<String, Map<String, CurrentState>> changedResourceStates = new HashMap<>();
+    for (String instanceName : instanceNames) {
+      Map<String, CurrentState> previousStates =
+          previous._instanceCurrentStateMap.get(instanceName);
+      Map<String, CurrentState> currentStates = _instanceCurrentStateMap.get(instanceName);
+      boolean configChanged = changedConfigInstances.contains(instanceName);
+      if (previousStates == currentStates && !configChanged) {
+        continue;
+      }
+      Map<String, CurrentState> resourceStates = getResourceStates(currentStates);
+      Set<String> resourceNames = new HashSet<>(resourceStates.keySet());
+      addResourceNames(previousStates, resourceNames);
+      for (String resourceName : resourceNames) {
+        Map<String, CurrentState> previousResourceStates =
+            previous._resourceCurrentStateMap.get(resourceName);
+        CurrentState previousState =
+            previousResourceStates == null ? null : previousResourceStates.get(instanceName);
+        CurrentState currentState = resourceStates.get(resourceName);
+        if (configChanged || previousState != currentState) {
+          changedResourceStates.computeIfAbsent(resourceName, k -> new HashMap<>())
+              .put(instanceName, currentState);
+        }
+      }
+    }
+
+    for (Map.Entry<String, Map<String, CurrentState>> entry : previous._resourceCurrentStateMap
+        .entrySet()) {
+      String resourceName = entry.getKey();
+      if (!changedResourceStates.containsKey(resourceName)) {
+        _resourceCurrentStateMap.put(resourceName, entry.getValue());
+        ResourceInfo resourceInfo = previous._resourceInfoMap.get(resourceName);
+        if (resourceInfo != null) {
+          _resourceInfoMap.put(resourceName, resourceInfo);
+        }
+        _reusedResourceCount++;
+      }
+    }
+    for (Map.Entry<String, Map<String, CurrentState>> entry : changedResourceStates.entrySet()) {
+      updateCurrentStateEntries(entry.getKey(), entry.getValue(), previous);
+    }
+  }
+
+  /**
+   * @return mapping a resourceName to the CurrentState of it, empty if the instance has none
+   */
+  private static Map<String, CurrentState> getResourceStates(
+      Map<String, CurrentState> currentStates) {
+    if (currentStates == null) {
+      return Collections.emptyMap();
+    }
+    Map<String, CurrentState> resourceStates = new HashMap<>();
+    for (CurrentState currentState : currentStates.values()) {
+      resourceStates.put(currentState.getResourceName(), currentState);
+    }
+    return resourceStates;
+  }
+
+  private static void addResourceNames(Map<String, CurrentState> currentStates,
+      Set<String> resourceNames) {
+    if (currentStates != null) {
+      for (CurrentState currentState : currentStates.values()) {
+        resourceNames.add(currentState.getResourceName());
+      }
+    }
+  }
+
+  /**
+   * Update the entries of one resource from the previous RoutingTable, replacing only the entries
+   * of the changed instances. The entries of the other instances are not read from their
+   * CurrentStates again, and the partitions and states that no changed instance is in are shared
+   * with the previous entries.
+   * @param resourceName
+   * @param changedStates mapping a changed instanceName to its new CurrentState of the resource,
+   *          or null if it no longer has one
+   * @param previous the previous RoutingTable
+   */
+  private void updateCurrentStateEntries(String resourceName,
+      Map<String, CurrentState> changedStates, RoutingTable previous) {
+    Map<String, CurrentState> previousResourceStates =
+        previous._resourceCurrentStateMap.get(resourceName);
+    Map<String, CurrentState> resourceCurrentStates = new HashMap<>();
+    if (previousResourceStates != null) {
+      resourceCurrentStates.putAll(previousResourceStates);
+    }
+    ResourceInfo previousResourceInfo = previous._resourceInfoMap.get(resourceName);
+    ResourceInfo resourceInfo = previousResourceInfo == null ? new ResourceInfo()
+        : previousResourceInfo.copyForUpdate();
+    for (Map.Entry<String, CurrentState> entry : changedStates.entrySet()) {
+      String instanceName = entry.getKey();
+      CurrentState previousState = resourceCurrentStates.remove(instanceName);
+      if (previousState != null && previousResourceInfo != null) {
+        resourceInfo.removeEntries(previous._instanceConfigMap.get(instanceName),
+            previousState.getPartitionStateMap());
+      }
+      CurrentState currentState = entry.getValue();
+      if (currentState != null) {
+        resourceCurrentStates.put(instanceName, currentState);
+        InstanceConfig instanceConfig = _instanceConfigMap.get(instanceName);
+        for (Map.Entry<String, String> partitionState : currentState.getPartitionStateMap()
+            .entrySet()) {
+          resourceInfo.addEntry(partitionState.getKey(), partitionState.getValue(),
+              instanceConfig);
+        }
+      }
+    }
+    resourceInfo.finishUpdate();
+
+    if (!resourceCurrentStates.isEmpty()) {
+      _resourceCurrentStateMap.put(resourceName, resourceCurrentStates);
+    }
+    if (!resourceInfo.partitionInfoMap.isEmpty()) {
+      _resourceInfoMap.put(resourceName, resourceInfo);
+    }
+    _rebuiltResourceCount++;
+  }
+
+  /**
+   * Add the entries of one resource from the CurrentStates of the instances.
+   * @param resourceName
+   * @param resourceCurrentStates mapping an instanceName to its CurrentState of the resource
+   */
+  private void addCurrentStateEntries(String resourceName,
+      Map<String, CurrentState> resourceCurrentStates) {
+    for (Map.Entry<String, CurrentState> entry : resourceCurrentStates.entrySet()) {
+      InstanceConfig instanceConfig = _instanceConfigMap.get(entry.getKey());
+      Map<String, String> stateMap = entry.getValue().getPartitionStateMap();
+      for (Map.Entry<String, String> partitionState : stateMap.entrySet()) {
+        addEntry(resourceName, partitionState.getKey(), partitionState.getValue(),
+            instanceConfig);
+      }
+    }
+    _rebuiltResourceCount++;
+  }
+
+  /**
+   * Check whether the other RoutingTable has the same {resource, partition, state} to {instances}
+   * entries, regardless of the order of the instances.
+   */
+  boolean hasSameEntries(RoutingTable other) {
+    if (!_resourceInfoMap.keySet().equals(other._resourceInfoMap.keySet())) {
+      return false;
+    }
+    for (Map.Entry<String, ResourceInfo> entry : _resourceInfoMap.entrySet()) {
+      ResourceInfo resourceInfo = entry.getValue();
+      ResourceInfo otherResourceInfo = other._resourceInfoMap.get(entry.getKey());
+      if (resourceInfo != otherResourceInfo && !resourceInfo.hasSameEntries(otherResourceInfo)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the changes from the previous RoutingTable to this one. The resources whose entries are
+   * shared with the previous table are not compared.
+   * @param previous the previous RoutingTable, or null to return all the entries as added
+   */
+  List<RoutingTableDelta> getDeltas(RoutingTable previous) {
+    Map<String, ResourceInfo> previousResourceInfoMap =
+        previous == null ? Collections.<String, ResourceInfo> emptyMap()
+            : previous._resourceInfoMap;
+    RoutingTableDeltaBuilder builder = new RoutingTableDeltaBuilder();
+    for (Map.Entry<String, ResourceInfo> entry : _resourceInfoMap.entrySet()) {
+      ResourceInfo previousResourceInfo = previousResourceInfoMap.get(entry.getKey());
+      if (previousResourceInfo == entry.getValue()) {
+        continue;
+      }
+      if (previousResourceInfo == null) {
+        builder.resourceChanged(entry.getKey(), false, true);
+      }
+      addReplicaDeltas(builder, entry.getKey(), previousResourceInfo, entry.getValue());
+    }
+    for (Map.Entry<String, ResourceInfo> entry : previousResourceInfoMap.entrySet()) {
+      if (!_resourceInfoMap.containsKey(entry.getKey())) {
+        addReplicaDeltas(builder, entry.getKey(), entry.getValue(), null);
+        builder.resourceChanged(entry.getKey(), true, false);
+      }
+    }
+    return builder.build();
+  }
+
+  private static void addReplicaDeltas(RoutingTableDeltaBuilder builder, String resourceName,
+      ResourceInfo previousResourceInfo, ResourceInfo resourceInfo) {
+    Map<String, Map<String, String>> previousReplicaStates =
+        ResourceInfo.getReplicaStates(previousResourceInfo);
+    Map<String, Map<String, String>> replicaStates = ResourceInfo.getReplicaStates(resourceInfo);
+    for (Map.Entry<String, Map<String, String>> entry : replicaStates.entrySet()) {
+      Map<String, String> previousStates = previousReplicaStates.get(entry.getKey());
+      for (Map.Entry<String, String> stateEntry : entry.getValue().entrySet()) {
+        String previousState =
+            previousStates == null ? null : previousStates.get(stateEntry.getKey());
+        builder.replicaChanged(resourceName, entry.getKey(), stateEntry.getKey(), previousState,
+            stateEntry.getValue());
+      }
+    }
+    for (Map.Entry<String, Map<String, String>> entry : previousReplicaStates.entrySet()) {
+      Map<String, String> states = replicaStates.get(entry.getKey());
+      for (Map.Entry<String, String> stateEntry : entry.getValue().entrySet()) {
+        if (states == null || !states.containsKey(stateEntry.getKey())) {
+          builder.replicaChanged(resourceName, entry.getKey(), stateEntry.getKey(),
+              stateEntry.getValue(), null);
         }
       }
     }
@@ -178,12 +556,10 @@ class RoutingTable {
   }
 
   /**
-   * add an entry with a resource with resourceGrouping enabled.
+   * add an entry of a resource with resourceGrouping enabled to its resource group.
    */
-  private void addEntry(String resourceName, String resourceGroupName, String resourceTag,
-      String partitionName, String state, InstanceConfig config) {
-    addEntry(resourceName, partitionName, state, config);
-
+  private void addEntry(String resourceGroupName, String resourceTag, String partitionName,
+      String state, InstanceConfig config) {
     if (!_resourceGroupInfoMap.containsKey(resourceGroupName)) {
       _resourceGroupInfoMap.put(resourceGroupName, new ResourceGroupInfo());
     }
@@ -312,6 +688,23 @@ class RoutingTable {
     return Collections.unmodifiableList(instanceList);
   }
 
+  /**
+   * Returns the compiled index of the resource entries, building it on the first call.
+   */
+  RoutingTableIndex getIndex() {
+    RoutingTableIndex index = _index;
+    if (index == null) {
+      synchronized (this) {
+        index = _index;
+        if (index == null) {
+          index = new RoutingTableIndex(_resourceInfoMap);
+          _index = index;
+        }
+      }
+    }
+    return index;
+  }
+
   /**
    * Return all liveInstances in the cluster now.
    * @return
@@ -328,6 +721,13 @@ class RoutingTable {
     return Collections.unmodifiableCollection(_instanceConfigs);
   }
 
+  /**
+   * Return the config of the instance, or null if the instance has no config.
+   */
+  protected InstanceConfig getInstanceConfig(String instanceName) {
+    return _instanceConfigMap.get(instanceName);
+  }
+
   /**
    * Return names of all resources (shown in ExternalView) in this cluster.
    */
@@ -366,6 +766,15 @@ class RoutingTable {
     return Collections.unmodifiableList(instanceList);
   }
 
+  /**
+   * Returns the view that the entries of the resource are built from.
+   * @return the ExternalView or CustomizedView, or null if the table is not built from views or
+   *         the resource is not in the table
+   */
+  HelixProperty getResourceView(String resourceName) {
+    return _resourceViewMap.get(resourceName);
+  }
+
   /**
    * Returns ExternalViews.
    * @return a collection of ExternalViews
@@ -374,6 +783,20 @@ class RoutingTable {
     return Collections.unmodifiableCollection(_externalViews);
   }
 
+  /**
+   * Returns the number of resources whose entries are shared with the previous RoutingTable.
+   */
+  protected int getReusedResourceCount() {
+    return _reusedResourceCount;
+  }
+
+  /**
+   * Returns the number of resources whose entries are built by this RoutingTable.
+   */
+  protected int getRebuiltResourceCount() {
+    return _rebuiltResourceCount;
+  }
+
   /**
    * Returns PropertyTYpe
    * @return the PropertyTYpe of this RoutingTable
@@ -394,11 +817,17 @@ class RoutingTable {
   /**
    * Class to store instances, partitions and their states for each resource.
    */
-  class ResourceInfo {
+  static class ResourceInfo {
     // store PartitionInfo for each partition
     Map<String, PartitionInfo> partitionInfoMap;
     // stores the Set of Instances in a given state
     Map<String, Set<InstanceConfig>> stateInfoMap;
+    // the compiled entries, built once the entries are complete
+    private volatile RoutingTableIndex.CompiledResource compiledResource;
+    // the partitions and states whose entries are copied from the ResourceInfo being updated, null
+    // if all the entries are owned by this ResourceInfo
+    private Set<String> ownedPartitions;
+    private Set<String> ownedStates;
 
     public ResourceInfo() {
       partitionInfoMap = new HashMap<>();
@@ -406,19 +835,87 @@ class RoutingTable {
     }
 
     public void addEntry(String stateUnitKey, String state, InstanceConfig config) {
-      if (!stateInfoMap.containsKey(state)) {
-        stateInfoMap.put(state, new TreeSet<>(INSTANCE_CONFIG_COMPARATOR));
+      Set<InstanceConfig> set = getOwnedInstances(state);
+      if (set == null) {
+        set = new TreeSet<>(INSTANCE_CONFIG_COMPARATOR);
+        stateInfoMap.put(state, set);
       }
-      Set<InstanceConfig> set = stateInfoMap.get(state);
       set.add(config);
 
-      if (!partitionInfoMap.containsKey(stateUnitKey)) {
-        partitionInfoMap.put(stateUnitKey, new PartitionInfo());
+      PartitionInfo stateUnitKeyInfo = getOwnedPartition(stateUnitKey);
+      if (stateUnitKeyInfo == null) {
+        stateUnitKeyInfo = new PartitionInfo();
+        partitionInfoMap.put(stateUnitKey, stateUnitKeyInfo);
       }
-      PartitionInfo stateUnitKeyInfo = partitionInfoMap.get(stateUnitKey);
       stateUnitKeyInfo.addEntry(state, config);
     }
 
+    /**
+     * Returns a copy to update the entries of some instances in. The entries are shared with this
+     * ResourceInfo until they are changed, so this ResourceInfo is not changed.
+     */
+    ResourceInfo copyForUpdate() {
+      ResourceInfo copy = new ResourceInfo();
+      copy.partitionInfoMap.putAll(partitionInfoMap);
+      copy.stateInfoMap.putAll(stateInfoMap);
+      copy.ownedPartitions = new HashSet<>();
+      copy.ownedStates = new HashSet<>();
+      return copy;
+    }
+
+    /**
+     * Remove all the entries of an instance.
+     * @param config the config of the instance in the entries
+     * @param partitionStates mapping each partition of the instance to its state
+     */
+    void removeEntries(InstanceConfig config, Map<String, String> partitionStates) {
+      for (Map.Entry<String, String> entry : partitionStates.entrySet()) {
+        PartitionInfo partitionInfo = getOwnedPartition(entry.getKey());
+        if (partitionInfo != null) {
+          partitionInfo.removeEntry(entry.getValue(), config);
+          if (partitionInfo.stateInfoMap.isEmpty()) {
+            partitionInfoMap.remove(entry.getKey());
+          }
+        }
+      }
+      for (String state : new HashSet<>(partitionStates.values())) {
+        Set<InstanceConfig> set = getOwnedInstances(state);
+        if (set != null) {
+          set.remove(config);
+          if (set.isEmpty()) {
+            stateInfoMap.remove(state);
+          }
+        }
+      }
+    }
+
+    /**
+     * Stop copying the shared entries on change, once the update is complete.
+     */
+    void finishUpdate() {
+      ownedPartitions = null;
+      ownedStates = null;
+    }
+
+    private PartitionInfo getOwnedPartition(String stateUnitKey) {
+      PartitionInfo partitionInfo = partitionInfoMap.get(stateUnitKey);
+      if (partitionInfo != null && ownedPartitions != null && ownedPartitions.add(stateUnitKey)) {
+        partitionInfo = new PartitionInfo(partitionInfo);
+        partitionInfoMap.put(stateUnitKey, partitionInfo);
+      }
+      return partitionInfo;
+    }
+
+    private Set<InstanceConfig> getOwnedInstances(String state) {
+      Set<InstanceConfig> set = stateInfoMap.get(state);
+      if (set != null && ownedStates != null && ownedStates.add(state)) {
+        set = new TreeSet<>(INSTANCE_CONFIG_COMPARATOR);
+        set.addAll(stateInfoMap.get(state));
+        stateInfoMap.put(state, set);
+      }
+      return set;
+    }
+
     public Set<InstanceConfig> getInstances(String state) {
       return stateInfoMap.get(state);
     }
@@ -426,12 +923,81 @@ class RoutingTable {
     PartitionInfo get(String stateUnitKey) {
       return partitionInfoMap.get(stateUnitKey);
     }
+
+    boolean hasSameEntries(ResourceInfo other) {
+      if (!partitionInfoMap.keySet().equals(other.partitionInfoMap.keySet())) {
+        return false;
+      }
+      for (Map.Entry<String, PartitionInfo> entry : partitionInfoMap.entrySet()) {
+        Map<String, List<InstanceConfig>> stateMap = entry.getValue().stateInfoMap;
+        Map<String, List<InstanceConfig>> otherStateMap =
+            other.partitionInfoMap.get(entry.getKey()).stateInfoMap;
+        if (!stateMap.keySet().equals(otherStateMap.keySet())) {
+          return false;
+        }
+        for (Map.Entry<String, List<InstanceConfig>> stateEntry : stateMap.entrySet()) {
+          if (!getInstanceIds(stateEntry.getValue())
+              .equals(getInstanceIds(otherStateMap.get(stateEntry.getKey())))) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    /**
+     * @return mapping a partition to the state of each instance
+     */
+    static Map<String, Map<String, String>> getReplicaStates(ResourceInfo resourceInfo) {
+      if (resourceInfo == null) {
+        return Collections.emptyMap();
+      }
+      Map<String, Map<String, String>> replicaStates = new HashMap<>();
+      for (Map.Entry<String, PartitionInfo> entry : resourceInfo.partitionInfoMap.entrySet()) {
+        Map<String, String> states = new HashMap<>();
+        for (Map.Entry<String, List<InstanceConfig>> stateEntry : entry.getValue().stateInfoMap
+            .entrySet()) {
+          for (InstanceConfig instance : stateEntry.getValue()) {
+            states.put(instance.getInstanceName(), stateEntry.getKey());
+          }
+        }
+        replicaStates.put(entry.getKey(), states);
+      }
+      return replicaStates;
+    }
+
+    private static Set<String> getInstanceIds(List<InstanceConfig> instances) {
+      Set<String> ids = new HashSet<>();
+      for (InstanceConfig instance : instances) {
+        ids.add(instance.getId());
+      }
+      return ids;
+    }
+
+    /**
+     * Returns the compiled entries. A ResourceInfo may be shared by several RoutingTables, so it
+     * is compiled only once.
+     */
+    RoutingTableIndex.CompiledResource compile(String resourceName) {
+      RoutingTableIndex.CompiledResource compiled = compiledResource;
+      if (compiled == null) {
+        synchronized (this) {
+          compiled = compiledResource;
+          if (compiled == null) {
+            compiled = new RoutingTableIndex.CompiledResource(resourceName, this,
+                INSTANCE_CONFIG_COMPARATOR);
+            compiledResource = compiled;
+          }
+        }
+      }
+      return compiled;
+    }
   }
 
   /**
    * Class to store instances, partitions and their states for each resource group.
    */
-  class ResourceGroupInfo {
+  static class ResourceGroupInfo {
     // aggregated partitions and instances info for all resources in the resource group.
     ResourceInfo aggregatedResourceInfo;
 
@@ -485,13 +1051,20 @@ class RoutingTable {
     }
   }
 
-  class PartitionInfo {
+  static class PartitionInfo {
     Map<String, List<InstanceConfig>> stateInfoMap;
 
     public PartitionInfo() {
       stateInfoMap = new HashMap<>();
     }
 
+    PartitionInfo(PartitionInfo other) {
+      stateInfoMap = new HashMap<>();
+      for (Map.Entry<String, List<InstanceConfig>> entry : other.stateInfoMap.entrySet()) {
+        stateInfoMap.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+      }
+    }
+
     public void addEntry(String state, InstanceConfig config) {
       if (!stateInfoMap.containsKey(state)) {
         stateInfoMap.put(state, new ArrayList<InstanceConfig>());
@@ -500,6 +1073,16 @@ class RoutingTable {
       list.add(config);
     }
 
+    void removeEntry(String state, InstanceConfig config) {
+      List<InstanceConfig> list = stateInfoMap.get(state);
+      if (list != null) {
+        list.removeIf(instance -> INSTANCE_CONFIG_COMPARATOR.compare(instance, config) == 0);
+        if (list.isEmpty()) {
+          stateInfoMap.remove(state);
+        }
+      }
+    }
+
     List<InstanceConfig> get(String state) {
       return stateInfoMap.get(state);
     }
@@ -0,0 +1,199 @@
+package org.apache.helix.spectator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.helix.api.listeners.RoutingTableChangeListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Deliver the routing table changes to the RoutingTableChangeListeners in a separate thread, so a
+ * slow listener does not delay the routing table refreshes.
+ * The deltas of a refresh are computed once for all the listeners. Each listener has at most one
+ * pending notification for each routing table. If a listener has not received the pending
+ * notification when the routing table changes again, the new deltas are merged into the pending
+ * ones and the listener only receives the latest snapshot. So the queue is bounded by the number
+ * of listeners and routing tables, and the deltas a listener receives are always the changes
+ * since the previous snapshot delivered to it.
+ */
+class RoutingTableChangeDispatcher {
+  private static final Logger logger = LoggerFactory.getLogger(RoutingTableChangeDispatcher.class);
+
+  private final String _clusterName;
+  private final Thread _dispatchThread;
+  // mapping a reference key to the latest published routing table
+  private final Map<String, RoutingTable> _publishedTables = new HashMap<>();
+  private final Map<RoutingTableChangeListener, ListenerState> _listenerStates = new HashMap<>();
+  private final ArrayDeque<PendingChange> _pendingQueue = new ArrayDeque<>();
+  private long _coalescedCount = 0;
+  private volatile boolean _isShutdown = false;
+
+  RoutingTableChangeDispatcher(String clusterName) {
+    _clusterName = clusterName;
+    _dispatchThread = new Thread(this::dispatch,
+        "Helix-RoutingTableChangeDispatcher-" + clusterName);
+    _dispatchThread.setDaemon(true);
+    _dispatchThread.start();
+  }
+
+  /**
+   * Register a listener. Its first notification of each routing table carries the entries of the
+   * routing table published before it is added as added deltas.
+   */
+  synchronized void addListener(RoutingTableChangeListener listener, Object context) {
+    ListenerState state = new ListenerState(listener, context);
+    for (Map.Entry<String, RoutingTable> entry : _publishedTables.entrySet()) {
+      PendingChange pendingChange = state.getPendingChange(entry.getKey());
+      pendingChange._deltas.merge(entry.getValue().getDeltas(null));
+      pendingChange._routingTable = entry.getValue();
+    }
+    _listenerStates.put(listener, state);
+  }
+
+  /**
+   * Unregister a listener. Its pending notifications are dropped.
+   * @return the state of the removed listener, or null if the listener is not registered
+   */
+  synchronized ListenerState removeListener(RoutingTableChangeListener listener) {
+    return _listenerStates.remove(listener);
+  }
+
+  /**
+   * Queue the notifications of a routing table change to all the listeners.
+   * @param referenceKey the key of the routing table
+   * @param routingTable the new routing table
+   */
+  synchronized void publish(String referenceKey, RoutingTable routingTable) {
+    RoutingTable previous = _publishedTables.put(referenceKey, routingTable);
+    if (_listenerStates.isEmpty()) {
+      return;
+    }
+    List<RoutingTableDelta> deltas = routingTable.getDeltas(previous);
+    for (ListenerState state : _listenerStates.values()) {
+      PendingChange pendingChange = state.getPendingChange(referenceKey);
+      pendingChange._deltas.merge(deltas);
+      pendingChange._routingTable = routingTable;
+      if (pendingChange._isQueued) {
+        _coalescedCount++;
+      } else {
+        pendingChange._isQueued = true;
+        _pendingQueue.add(pendingChange);
+      }
+    }
+    notifyAll();
+  }
+
+  /**
+   * @return the number of notifications merged into a pending notification
+   */
+  synchronized long getCoalescedCount() {
+    return _coalescedCount;
+  }
+
+  /**
+   * @return the number of notifications waiting to be delivered
+   */
+  synchronized int getPendingCount() {
+    return _pendingQueue.size();
+  }
+
+  void shutdown() {
+    _isShutdown = true;
+    _dispatchThread.interrupt();
+  }
+
+  private void dispatch() {
+    while (!_isShutdown) {
+      ListenerState state;
+      RoutingTable routingTable;
+      List<RoutingTableDelta> deltas;
+      synchronized (this) {
+        try {
+          while (_pendingQueue.isEmpty() && !_isShutdown) {
+            wait();
+          }
+        } catch (InterruptedException e) {
+          logger.info("RoutingTableChangeDispatcher for cluster {} is interrupted.", _clusterName);
+          return;
+        }
+        if (_isShutdown) {
+          return;
+        }
+        PendingChange pendingChange = _pendingQueue.poll();
+        state = pendingChange._listenerState;
+        if (_listenerStates.get(state._listener) != state) {
+          // the listener has been removed
+          continue;
+        }
+        routingTable = pendingChange._routingTable;
+        deltas = pendingChange._deltas.build();
+        pendingChange._deltas = new RoutingTableDeltaBuilder();
+        pendingChange._isQueued = false;
+      }
+
+      long startTime = System.currentTimeMillis();
+      try {
+        state._listener.onRoutingTableChange(new RoutingTableSnapshot(routingTable), deltas,
+            state._context);
+      } catch (Exception e) {
+        logger.error("RoutingTableChangeListener {} failed to handle the routing table change.",
+            state._listener.getClass().getName(), e);
+      }
+      logger.info("RoutingTableProvider user callback time for cluster {}, took {} ms.",
+          _clusterName, System.currentTimeMillis() - startTime);
+    }
+  }
+
+  static class ListenerState {
+    private final RoutingTableChangeListener _listener;
+    private final Object _context;
+    // mapping a reference key to the changes not delivered to the listener yet
+    private final Map<String, PendingChange> _pendingChanges = new HashMap<>();
+
+    ListenerState(RoutingTableChangeListener listener, Object context) {
+      _listener = listener;
+      _context = context;
+    }
+
+    Object getContext() {
+      return _context;
+    }
+
+    PendingChange getPendingChange(String referenceKey) {
+      return _pendingChanges.computeIfAbsent(referenceKey, key -> new PendingChange(this));
+    }
+  }
+
+  private static class PendingChange {
+    private final ListenerState _listenerState;
+    private RoutingTableDeltaBuilder _deltas = new RoutingTableDeltaBuilder();
+    private RoutingTable _routingTable;
+    private boolean _isQueued = false;
+
+    PendingChange(ListenerState listenerState) {
+      _listenerState = listenerState;
+    }
+  }
+}
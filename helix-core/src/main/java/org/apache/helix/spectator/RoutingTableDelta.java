@@ -0,0 +1,153 @@
+package org.apache.helix.spectator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Objects;
+
+/**
+ * A change of the routing table between two snapshots delivered to a RoutingTableChangeListener.
+ * A resource change only carries the resource name. A replica change is the change of the state
+ * that an instance has for a partition of the resource.
+ */
+public final class RoutingTableDelta {
+  public enum Type {
+    RESOURCE_ADDED,
+    RESOURCE_REMOVED,
+    REPLICA_ADDED,
+    REPLICA_REMOVED,
+    REPLICA_STATE_CHANGED
+  }
+
+  private final Type _type;
+  private final String _resourceName;
+  private final String _partitionName;
+  private final String _instanceName;
+  private final String _previousState;
+  private final String _state;
+
+  private RoutingTableDelta(Type type, String resourceName, String partitionName,
+      String instanceName, String previousState, String state) {
+    _type = type;
+    _resourceName = resourceName;
+    _partitionName = partitionName;
+    _instanceName = instanceName;
+    _previousState = previousState;
+    _state = state;
+  }
+
+  static RoutingTableDelta resourceAdded(String resourceName) {
+    return new RoutingTableDelta(Type.RESOURCE_ADDED, resourceName, null, null, null, null);
+  }
+
+  static RoutingTableDelta resourceRemoved(String resourceName) {
+    return new RoutingTableDelta(Type.RESOURCE_REMOVED, resourceName, null, null, null, null);
+  }
+
+  /**
+   * The change of a replica from the previous state to the state, a null state stands for no
+   * replica.
+   * @return the delta, or null if the states are the same
+   */
+  static RoutingTableDelta replicaChanged(String resourceName, String partitionName,
+      String instanceName, String previousState, String state) {
+    Type type;
+    if (previousState == null) {
+      if (state == null) {
+        return null;
+      }
+      type = Type.REPLICA_ADDED;
+    } else if (state == null) {
+      type = Type.REPLICA_REMOVED;
+    } else if (!previousState.equals(state)) {
+      type = Type.REPLICA_STATE_CHANGED;
+    } else {
+      return null;
+    }
+    return new RoutingTableDelta(type, resourceName, partitionName, instanceName, previousState,
+        state);
+  }
+
+  public Type getType() {
+    return _type;
+  }
+
+  public String getResourceName() {
+    return _resourceName;
+  }
+
+  /**
+   * @return the partition of a replica change, null for a resource change
+   */
+  public String getPartitionName() {
+    return _partitionName;
+  }
+
+  /**
+   * @return the instance of a replica change, null for a resource change
+   */
+  public String getInstanceName() {
+    return _instanceName;
+  }
+
+  /**
+   * @return the state before a REPLICA_REMOVED or REPLICA_STATE_CHANGED change, otherwise null
+   */
+  public String getPreviousState() {
+    return _previousState;
+  }
+
+  /**
+   * @return the state after a REPLICA_ADDED or REPLICA_STATE_CHANGED change, otherwise null
+   */
+  public String getState() {
+    return _state;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof RoutingTableDelta)) {
+      return false;
+    }
+    RoutingTableDelta other = (RoutingTableDelta) obj;
+    return _type == other._type && Objects.equals(_resourceName, other._resourceName)
+        && Objects.equals(_partitionName, other._partitionName)
+        && Objects.equals(_instanceName, other._instanceName)
+        && Objects.equals(_previousState, other._previousState)
+        && Objects.equals(_state, other._state);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(_type, _resourceName, _partitionName, _instanceName, _previousState,
+        _state);
+  }
+
+  @Override
+  public String toString() {
+    if (_partitionName == null) {
+      return _type + "{" + _resourceName + "}";
+    }
+    return _type + "{" + _resourceName + ", " + _partitionName + ", " + _instanceName + ", "
+        + _previousState + " -> " + _state + "}";
+  }
+}
@@ -0,0 +1,145 @@
+package org.apache.helix.spectator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Accumulate the routing table changes into the net changes. Each resource and each replica is
+ * tracked once with its state before the first change and after the last change, so merging the
+ * changes of several routing table refreshes gives the same deltas as comparing the first and the
+ * last routing tables, and the size is bounded by the size of the routing tables.
+ */
+class RoutingTableDeltaBuilder {
+  // mapping a resourceName to {whether it existed before, whether it exists after}
+  private final Map<String, boolean[]> _resourceChanges = new LinkedHashMap<>();
+  // mapping a replica to {the state before, the state after}, null for no replica
+  private final Map<ReplicaKey, String[]> _replicaChanges = new LinkedHashMap<>();
+
+  void resourceChanged(String resourceName, boolean existed, boolean exists) {
+    boolean[] change = _resourceChanges.get(resourceName);
+    if (change == null) {
+      _resourceChanges.put(resourceName, new boolean[] { existed, exists });
+    } else {
+      change[1] = exists;
+    }
+  }
+
+  void replicaChanged(String resourceName, String partitionName, String instanceName,
+      String previousState, String state) {
+    ReplicaKey key = new ReplicaKey(resourceName, partitionName, instanceName);
+    String[] change = _replicaChanges.get(key);
+    if (change == null) {
+      _replicaChanges.put(key, new String[] { previousState, state });
+    } else {
+      change[1] = state;
+    }
+  }
+
+  /**
+   * Merge the deltas that happen after the merged changes.
+   */
+  void merge(Collection<RoutingTableDelta> deltas) {
+    for (RoutingTableDelta delta : deltas) {
+      switch (delta.getType()) {
+      case RESOURCE_ADDED:
+        resourceChanged(delta.getResourceName(), false, true);
+        break;
+      case RESOURCE_REMOVED:
+        resourceChanged(delta.getResourceName(), true, false);
+        break;
+      default:
+        replicaChanged(delta.getResourceName(), delta.getPartitionName(), delta.getInstanceName(),
+            delta.getPreviousState(), delta.getState());
+      }
+    }
+  }
+
+  /**
+   * @return the number of the tracked resources and replicas
+   */
+  int size() {
+    return _resourceChanges.size() + _replicaChanges.size();
+  }
+
+  /**
+   * @return the net deltas: the added resources, then the replica changes, then the removed
+   *         resources
+   */
+  List<RoutingTableDelta> build() {
+    if (size() == 0) {
+      return Collections.emptyList();
+    }
+    List<RoutingTableDelta> deltas = new ArrayList<>();
+    List<RoutingTableDelta> removedResources = new ArrayList<>();
+    for (Map.Entry<String, boolean[]> entry : _resourceChanges.entrySet()) {
+      boolean[] change = entry.getValue();
+      if (!change[0] && change[1]) {
+        deltas.add(RoutingTableDelta.resourceAdded(entry.getKey()));
+      } else if (change[0] && !change[1]) {
+        removedResources.add(RoutingTableDelta.resourceRemoved(entry.getKey()));
+      }
+    }
+    for (Map.Entry<ReplicaKey, String[]> entry : _replicaChanges.entrySet()) {
+      ReplicaKey key = entry.getKey();
+      RoutingTableDelta delta = RoutingTableDelta.replicaChanged(key._resourceName,
+          key._partitionName, key._instanceName, entry.getValue()[0], entry.getValue()[1]);
+      if (delta != null) {
+        deltas.add(delta);
+      }
+    }
+    deltas.addAll(removedResources);
+    return Collections.unmodifiableList(deltas);
+  }
+
+  private static final class ReplicaKey {
+    private final String _resourceName;
+    private final String _partitionName;
+    private final String _instanceName;
+
+    ReplicaKey(String resourceName, String partitionName, String instanceName) {
+      _resourceName = resourceName;
+      _partitionName = partitionName;
+      _instanceName = instanceName;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof ReplicaKey)) {
+        return false;
+      }
+      ReplicaKey other = (ReplicaKey) obj;
+      return _resourceName.equals(other._resourceName)
+          && _partitionName.equals(other._partitionName)
+          && _instanceName.equals(other._instanceName);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(_resourceName, _partitionName, _instanceName);
+    }
+  }
+}
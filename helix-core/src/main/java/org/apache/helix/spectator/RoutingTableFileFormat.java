@@ -0,0 +1,264 @@
+package org.apache.helix.spectator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.helix.HelixException;
+import org.apache.helix.model.InstanceConfig;
+
+/**
+ * The binary layout of a routing table file. All the numbers are big endian, and all the offsets
+ * are absolute byte offsets in the file.
+ *
+ * <pre>
+ * Header, HEADER_SIZE bytes:
+ *   int MAGIC, int FORMAT_VERSION, long snapshot version, long publish time in ms,
+ *   int property type string id, int state type string id,
+ *   int string count, int string table offset,
+ *   int instance count, int instance table offset,
+ *   int resource count, int resource table offset,
+ *   int file size, int reserved
+ * String table:
+ *   string count * int string offset,
+ *   each string: int char count, char count * UTF-16 chars
+ * Instance table, in the order the instances are first referenced:
+ *   instance count * {int name string id, int host string id, int port string id}
+ * Instance lists:
+ *   the instance ids of each {resource, partition, state} and {resource, state} entry
+ * Resource table, in the order of the resource names:
+ *   resource count * int resource offset,
+ *   each resource: int name string id, int state count, int partition count,
+ *     state count * int state string id, in the order of the state names,
+ *     partition count * int partition string id, in the order of the partition names,
+ *     partition count * state count * {int instance list offset, int instance count},
+ *     state count * {int instance list offset, int instance count}
+ * </pre>
+ *
+ * The resource, partition and state ids are the positions in the tables, the same as the ids of
+ * the RoutingTableSnapshot the file is written from. A string id of -1 stands for null.
+ */
+final class RoutingTableFileFormat {
+  static final int MAGIC = 0x48525446; // "HRTF"
+  static final int FORMAT_VERSION = 1;
+  static final int HEADER_SIZE = 64;
+
+  static final int VERSION_OFFSET = 8;
+  static final int PUBLISH_TIME_OFFSET = 16;
+  static final int PROPERTY_TYPE_OFFSET = 24;
+  static final int STATE_TYPE_OFFSET = 28;
+  static final int STRING_COUNT_OFFSET = 32;
+  static final int STRING_TABLE_OFFSET = 36;
+  static final int INSTANCE_COUNT_OFFSET = 40;
+  static final int INSTANCE_TABLE_OFFSET = 44;
+  static final int RESOURCE_COUNT_OFFSET = 48;
+  static final int RESOURCE_TABLE_OFFSET = 52;
+  static final int FILE_SIZE_OFFSET = 56;
+
+  static final int NULL_STRING_ID = -1;
+  static final int INSTANCE_ENTRY_SIZE = 12;
+
+  private RoutingTableFileFormat() {
+  }
+
+  /**
+   * Serialize the snapshot into the binary layout.
+   * @return the buffer, positioned at 0 and limited to the file size
+   */
+  static ByteBuffer write(RoutingTableSnapshot snapshot, long version, long publishTime) {
+    RoutingTableIndex index = snapshot.getIndex();
+    Writer writer = new Writer();
+    int propertyTypeId = writer.stringId(
+        snapshot.getPropertyType() == null ? null : snapshot.getPropertyType().name());
+    int stateTypeId = writer.stringId(snapshot.getCustomizedStateType());
+
+    // Collect the strings, the instances and the instance lists before laying them out
+    int resourceCount = index.getResourceCount();
+    ResourceEntry[] resources = new ResourceEntry[resourceCount];
+    for (int r = 0; r < resourceCount; r++) {
+      int stateCount = index.getStateCount(r);
+      int partitionCount = index.getPartitionCount(r);
+      ResourceEntry resource = new ResourceEntry(writer.stringId(index.getResourceName(r)),
+          stateCount, partitionCount);
+      for (int s = 0; s < stateCount; s++) {
+        resource._stateNameIds[s] = writer.stringId(index.getStateName(r, s));
+        resource._stateLists[s] = writer.instanceList(index.getInstances(r, s));
+      }
+      for (int p = 0; p < partitionCount; p++) {
+        resource._partitionNameIds[p] = writer.stringId(index.getPartitionName(r, p));
+        for (int s = 0; s < stateCount; s++) {
+          resource._partitionStateLists[p * stateCount + s] =
+              writer.instanceList(index.getInstances(r, p, s));
+        }
+      }
+      resources[r] = resource;
+    }
+
+    long stringTableOffset = HEADER_SIZE;
+    long instanceTableOffset = stringTableOffset + 4L * writer._strings.size();
+    for (String string : writer._strings) {
+      instanceTableOffset += 4 + 2L * string.length();
+    }
+    long instanceListsOffset =
+        instanceTableOffset + (long) INSTANCE_ENTRY_SIZE * writer._instances.size();
+    long resourceTableOffset = instanceListsOffset + 4L * writer._instanceIdCount;
+    long fileSize = resourceTableOffset + 4L * resourceCount;
+    for (ResourceEntry resource : resources) {
+      fileSize += resource.size();
+    }
+    if (fileSize > Integer.MAX_VALUE) {
+      throw new HelixException("The routing table is too large to write: " + fileSize + " bytes");
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate((int) fileSize);
+    buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(version).putLong(publishTime)
+        .putInt(propertyTypeId).putInt(stateTypeId)
+        .putInt(writer._strings.size()).putInt((int) stringTableOffset)
+        .putInt(writer._instances.size()).putInt((int) instanceTableOffset)
+        .putInt(resourceCount).putInt((int) resourceTableOffset)
+        .putInt((int) fileSize).putInt(0);
+
+    int stringOffset = (int) stringTableOffset + 4 * writer._strings.size();
+    for (String string : writer._strings) {
+      buffer.putInt(stringOffset);
+      stringOffset += 4 + 2 * string.length();
+    }
+    for (String string : writer._strings) {
+      buffer.putInt(string.length());
+      for (int i = 0; i < string.length(); i++) {
+        buffer.putChar(string.charAt(i));
+      }
+    }
+
+    for (InstanceConfig instance : writer._instances) {
+      buffer.putInt(writer.stringId(instance.getInstanceName()))
+          .putInt(writer.stringId(instance.getHostName()))
+          .putInt(writer.stringId(instance.getPort()));
+    }
+
+    for (int i = 0; i < writer._instanceIdCount; i++) {
+      buffer.putInt(writer._instanceIds[i]);
+    }
+
+    int resourceOffset = (int) resourceTableOffset + 4 * resourceCount;
+    for (ResourceEntry resource : resources) {
+      buffer.putInt(resourceOffset);
+      resourceOffset += resource.size();
+    }
+    for (ResourceEntry resource : resources) {
+      buffer.putInt(resource._nameId).putInt(resource._stateNameIds.length)
+          .putInt(resource._partitionNameIds.length);
+      for (int stateNameId : resource._stateNameIds) {
+        buffer.putInt(stateNameId);
+      }
+      for (int partitionNameId : resource._partitionNameIds) {
+        buffer.putInt(partitionNameId);
+      }
+      for (long list : resource._partitionStateLists) {
+        putInstanceList(buffer, (int) instanceListsOffset, list);
+      }
+      for (long list : resource._stateLists) {
+        putInstanceList(buffer, (int) instanceListsOffset, list);
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  private static void putInstanceList(ByteBuffer buffer, int instanceListsOffset, long list) {
+    // The list is encoded as {start index in the instance ids, count}
+    buffer.putInt(instanceListsOffset + 4 * (int) (list >>> 32)).putInt((int) list);
+  }
+
+  /**
+   * Collects the strings and the instances of a snapshot, and the instance lists as one array of
+   * instance ids.
+   */
+  private static class Writer {
+    private final Map<String, Integer> _stringIds = new HashMap<>();
+    private final List<String> _strings = new ArrayList<>();
+    private final Map<String, Integer> _instanceIdMap = new HashMap<>();
+    private final List<InstanceConfig> _instances = new ArrayList<>();
+    private int[] _instanceIds = new int[1024];
+    private int _instanceIdCount = 0;
+
+    int stringId(String string) {
+      if (string == null) {
+        return NULL_STRING_ID;
+      }
+      Integer id = _stringIds.get(string);
+      if (id == null) {
+        id = _strings.size();
+        _stringIds.put(string, id);
+        _strings.add(string);
+      }
+      return id;
+    }
+
+    /**
+     * @return {start index in the instance ids, count} packed in a long
+     */
+    long instanceList(List<InstanceConfig> instances) {
+      int start = _instanceIdCount;
+      for (InstanceConfig instance : instances) {
+        Integer id = _instanceIdMap.get(instance.getInstanceName());
+        if (id == null) {
+          id = _instances.size();
+          _instanceIdMap.put(instance.getInstanceName(), id);
+          _instances.add(instance);
+          stringId(instance.getInstanceName());
+          stringId(instance.getHostName());
+          stringId(instance.getPort());
+        }
+        if (_instanceIdCount == _instanceIds.length) {
+          _instanceIds = Arrays.copyOf(_instanceIds, _instanceIds.length * 2);
+        }
+        _instanceIds[_instanceIdCount++] = id;
+      }
+      return ((long) start << 32) | instances.size();
+    }
+  }
+
+  private static class ResourceEntry {
+    private final int _nameId;
+    private final int[] _stateNameIds;
+    private final int[] _partitionNameIds;
+    private final long[] _stateLists;
+    private final long[] _partitionStateLists;
+
+    ResourceEntry(int nameId, int stateCount, int partitionCount) {
+      _nameId = nameId;
+      _stateNameIds = new int[stateCount];
+      _partitionNameIds = new int[partitionCount];
+      _stateLists = new long[stateCount];
+      _partitionStateLists = new long[partitionCount * stateCount];
+    }
+
+    int size() {
+      return 12 + 4 * _stateNameIds.length + 4 * _partitionNameIds.length
+          + 8 * _partitionStateLists.length + 8 * _stateLists.length;
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package org.apache.helix.spectator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.helix.api.listeners.RoutingTableChangeListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publish the routing table snapshots into a file, so the other processes on the host can look up
+ * the routing table with a RoutingTableFileReader instead of running their own
+ * RoutingTableProvider and ZooKeeper session.
+ * Each snapshot is written into a temporary file in the same directory, then renamed over the
+ * published file atomically. The layout of the file is described in RoutingTableFileFormat.
+ *
+ * Register it as a RoutingTableChangeListener of a RoutingTableProvider that has a single source
+ * data type, every snapshot it receives replaces the published one.
+ */
+public class RoutingTableFilePublisher implements RoutingTableChangeListener {
+  private static final Logger logger = LoggerFactory.getLogger(RoutingTableFilePublisher.class);
+
+  private final Path _path;
+  private long _version;
+
+  /**
+   * @param path the file to publish the snapshots to. If it is an existing routing table file,
+   *          the versions continue from its version.
+   */
+  public RoutingTableFilePublisher(Path path) {
+    _path = path;
+    _version = 0;
+    if (Files.exists(path)) {
+      try {
+        _version = new RoutingTableFileReader(path).getSnapshot().getVersion();
+      } catch (IOException e) {
+        logger.warn("Failed to read the version of the existing routing table file {}.", path, e);
+      }
+    }
+  }
+
+  @Override
+  public void onRoutingTableChange(RoutingTableSnapshot routingTableSnapshot, Object context) {
+    try {
+      publish(routingTableSnapshot);
+    } catch (IOException e) {
+      logger.error("Failed to publish the routing table to {}.", _path, e);
+    }
+  }
+
+  /**
+   * Write the snapshot and replace the published file with it.
+   * @param snapshot
+   * @return the version of the published snapshot
+   * @throws IOException
+   */
+  public synchronized long publish(RoutingTableSnapshot snapshot) throws IOException {
+    long startTime = System.currentTimeMillis();
+    long version = _version + 1;
+    ByteBuffer buffer = RoutingTableFileFormat.write(snapshot, version, startTime);
+
+    Path directory = _path.toAbsolutePath().getParent();
+    Path tempPath = Files.createTempFile(directory, _path.getFileName().toString(), ".tmp");
+    try {
+      try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+      }
+      Files.move(tempPath, _path, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(tempPath);
+    }
+    _version = version;
+    logger.info("Published the routing table version {} to {}, {} bytes, took {} ms.", version,
+        _path, buffer.limit(), System.currentTimeMillis() - startTime);
+    return version;
+  }
+
+  /**
+   * @return the version of the last published snapshot, 0 if nothing is published
+   */
+  public synchronized long getPublishedVersion() {
+    return _version;
+  }
+
+  public Path getPath() {
+    return _path;
+  }
+}
@@ -0,0 +1,93 @@
+package org.apache.helix.spectator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Read the routing table snapshots published by a RoutingTableFilePublisher, without any
+ * connection to the cluster. The file is memory mapped, and mapped again by refresh() once the
+ * publisher has replaced it with a newer snapshot.
+ * Since the publisher replaces the file with an atomic rename, a mapped snapshot is never
+ * modified, and a reader never sees a partially written snapshot.
+ */
+public class RoutingTableFileReader {
+  private final Path _path;
+  private volatile MappedRoutingTableSnapshot _snapshot;
+  // Identify the mapped file, to tell whether it has been replaced
+  private Object _fileKey;
+  private long _lastModifiedTime;
+
+  /**
+   * Map the routing table file.
+   * @param path the file the publisher writes
+   * @throws IOException if the file does not exist or is not a valid routing table file
+   */
+  public RoutingTableFileReader(Path path) throws IOException {
+    _path = path;
+    refresh();
+  }
+
+  /**
+   * Map the file again if it has been replaced since the last refresh.
+   * @return true if a new snapshot is loaded
+   * @throws IOException if the file is not readable or not a valid routing table file, the
+   *           current snapshot is kept
+   */
+  public synchronized boolean refresh() throws IOException {
+    BasicFileAttributes attributes = Files.readAttributes(_path, BasicFileAttributes.class);
+    Object fileKey = attributes.fileKey();
+    long lastModifiedTime = attributes.lastModifiedTime().toMillis();
+    if (_snapshot != null && fileKey != null && fileKey.equals(_fileKey)
+        && lastModifiedTime == _lastModifiedTime) {
+      return false;
+    }
+
+    MappedRoutingTableSnapshot snapshot;
+    try (FileChannel channel = FileChannel.open(_path, StandardOpenOption.READ)) {
+      // The mapping stays valid after the channel is closed
+      snapshot = new MappedRoutingTableSnapshot(
+          channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+    _fileKey = fileKey;
+    _lastModifiedTime = lastModifiedTime;
+    if (_snapshot != null && _snapshot.getVersion() == snapshot.getVersion()) {
+      return false;
+    }
+    _snapshot = snapshot;
+    return true;
+  }
+
+  /**
+   * @return the latest snapshot mapped by refresh()
+   */
+  public MappedRoutingTableSnapshot getSnapshot() {
+    return _snapshot;
+  }
+
+  public Path getPath() {
+    return _path;
+  }
+}
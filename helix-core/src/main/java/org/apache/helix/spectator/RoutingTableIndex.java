@@ -0,0 +1,257 @@
+package org.apache.helix.spectator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.helix.model.InstanceConfig;
+
+/**
+ * A compiled, read-only index of the resource entries of a RoutingTable.
+ * Resources are interned to dense ids within the table, and partitions and states to dense ids
+ * within their resource. The instances of each {partition, state} and each {state} are kept as
+ * pre-sorted arrays wrapped once in unmodifiable lists, so a lookup by ids is a few array
+ * accesses and allocates nothing.
+ * The partitions named "{resource}_{index}" are also indexed by their partition index, so a key
+ * routed to a partition index does not need to build the partition name.
+ * The compiled form of a resource is cached on its ResourceInfo, so a resource whose entries are
+ * shared with the previous RoutingTable is not compiled again.
+ */
+final class RoutingTableIndex {
+  static final int NOT_FOUND = -1;
+  // Partitions whose index is beyond this bound are not indexed, to bound the array size
+  private static final int MAX_PARTITION_INDEX = 1 << 20;
+
+  private final Map<String, Integer> _resourceIds;
+  private final String[] _resourceNames;
+  private final CompiledResource[] _resources;
+
+  RoutingTableIndex(Map<String, RoutingTable.ResourceInfo> resourceInfoMap) {
+    _resourceIds = new HashMap<>();
+    _resources = new CompiledResource[resourceInfoMap.size()];
+    // Sort the names so the ids do not depend on the hash map iteration order
+    List<String> resourceNames = new ArrayList<>(resourceInfoMap.keySet());
+    Collections.sort(resourceNames);
+    _resourceNames = resourceNames.toArray(new String[resourceNames.size()]);
+    for (int i = 0; i < resourceNames.size(); i++) {
+      String resourceName = resourceNames.get(i);
+      _resourceIds.put(resourceName, i);
+      _resources[i] = resourceInfoMap.get(resourceName).compile(resourceName);
+    }
+  }
+
+  int getResourceId(String resourceName) {
+    Integer id = _resourceIds.get(resourceName);
+    return id == null ? NOT_FOUND : id;
+  }
+
+  int getResourceCount() {
+    return _resources.length;
+  }
+
+  String getResourceName(int resourceId) {
+    return isValid(resourceId, _resourceNames.length) ? _resourceNames[resourceId] : null;
+  }
+
+  String getPartitionName(int resourceId, int partitionId) {
+    CompiledResource resource = getResource(resourceId);
+    if (resource == null || !isValid(partitionId, resource._partitionNames.length)) {
+      return null;
+    }
+    return resource._partitionNames[partitionId];
+  }
+
+  int getPartitionId(int resourceId, String partitionName) {
+    CompiledResource resource = getResource(resourceId);
+    return resource == null ? NOT_FOUND : resource.getPartitionId(partitionName);
+  }
+
+  int getPartitionCount(int resourceId) {
+    CompiledResource resource = getResource(resourceId);
+    return resource == null ? 0 : resource._partitionStateInstances.length;
+  }
+
+  int getPartitionIdByIndex(int resourceId, int partitionIndex) {
+    CompiledResource resource = getResource(resourceId);
+    if (resource == null || !isValid(partitionIndex, resource._partitionIdByIndex.length)) {
+      return NOT_FOUND;
+    }
+    return resource._partitionIdByIndex[partitionIndex];
+  }
+
+  int getStateId(int resourceId, String state) {
+    CompiledResource resource = getResource(resourceId);
+    return resource == null ? NOT_FOUND : resource.getStateId(state);
+  }
+
+  int getStateCount(int resourceId) {
+    CompiledResource resource = getResource(resourceId);
+    return resource == null ? 0 : resource._stateNames.length;
+  }
+
+  String getStateName(int resourceId, int stateId) {
+    CompiledResource resource = getResource(resourceId);
+    if (resource == null || !isValid(stateId, resource._stateNames.length)) {
+      return null;
+    }
+    return resource._stateNames[stateId];
+  }
+
+  List<InstanceConfig> getInstances(int resourceId, int stateId) {
+    CompiledResource resource = getResource(resourceId);
+    if (resource == null || !isValid(stateId, resource._stateInstances.length)) {
+      return Collections.emptyList();
+    }
+    return resource._stateInstances[stateId];
+  }
+
+  List<InstanceConfig> getInstances(int resourceId, int partitionId, int stateId) {
+    CompiledResource resource = getResource(resourceId);
+    if (resource == null || !isValid(partitionId, resource._partitionStateInstances.length)
+        || !isValid(stateId, resource._stateInstances.length)) {
+      return Collections.emptyList();
+    }
+    return resource._partitionStateInstances[partitionId][stateId];
+  }
+
+  private CompiledResource getResource(int resourceId) {
+    return isValid(resourceId, _resources.length) ? _resources[resourceId] : null;
+  }
+
+  private static boolean isValid(int id, int length) {
+    return id >= 0 && id < length;
+  }
+
+  /**
+   * The compiled entries of one resource.
+   */
+  static final class CompiledResource {
+    private final String[] _partitionNames;
+    private final Map<String, Integer> _partitionIds;
+    // partition index -> partition id
+    private final int[] _partitionIdByIndex;
+    private final String[] _stateNames;
+    private final Map<String, Integer> _stateIds;
+    // state id -> sorted instances
+    private final List<InstanceConfig>[] _stateInstances;
+    // partition id -> state id -> sorted instances
+    private final List<InstanceConfig>[][] _partitionStateInstances;
+
+    @SuppressWarnings("unchecked")
+    CompiledResource(String resourceName, RoutingTable.ResourceInfo resourceInfo,
+        Comparator<InstanceConfig> comparator) {
+      List<String> states = new ArrayList<>(resourceInfo.stateInfoMap.keySet());
+      Collections.sort(states);
+      _stateNames = states.toArray(new String[states.size()]);
+      _stateIds = new HashMap<>();
+      _stateInstances = new List[states.size()];
+      for (int i = 0; i < states.size(); i++) {
+        _stateIds.put(states.get(i), i);
+        // The instance sets are TreeSets, they are already sorted
+        _stateInstances[i] = toList(resourceInfo.stateInfoMap.get(states.get(i)), null);
+      }
+
+      List<String> partitions = new ArrayList<>(resourceInfo.partitionInfoMap.keySet());
+      Collections.sort(partitions);
+      _partitionNames = partitions.toArray(new String[partitions.size()]);
+      _partitionIds = new HashMap<>();
+      _partitionStateInstances = new List[partitions.size()][];
+      for (int i = 0; i < partitions.size(); i++) {
+        _partitionIds.put(partitions.get(i), i);
+        RoutingTable.PartitionInfo partitionInfo =
+            resourceInfo.partitionInfoMap.get(partitions.get(i));
+        List<InstanceConfig>[] instancesByState = new List[states.size()];
+        for (int j = 0; j < states.size(); j++) {
+          List<InstanceConfig> instances = partitionInfo.get(states.get(j));
+          instancesByState[j] =
+              instances == null ? Collections.<InstanceConfig> emptyList()
+                  : toList(instances, comparator);
+        }
+        _partitionStateInstances[i] = instancesByState;
+      }
+      _partitionIdByIndex = indexPartitions(resourceName, partitions);
+    }
+
+    private static int[] indexPartitions(String resourceName, List<String> partitions) {
+      String prefix = resourceName + "_";
+      int[] partitionIndexes = new int[partitions.size()];
+      int maxIndex = NOT_FOUND;
+      for (int i = 0; i < partitions.size(); i++) {
+        partitionIndexes[i] = parsePartitionIndex(prefix, partitions.get(i));
+        maxIndex = Math.max(maxIndex, partitionIndexes[i]);
+      }
+      int[] partitionIdByIndex = new int[maxIndex + 1];
+      Arrays.fill(partitionIdByIndex, NOT_FOUND);
+      for (int i = 0; i < partitions.size(); i++) {
+        if (partitionIndexes[i] != NOT_FOUND) {
+          partitionIdByIndex[partitionIndexes[i]] = i;
+        }
+      }
+      return partitionIdByIndex;
+    }
+
+    private static int parsePartitionIndex(String prefix, String partitionName) {
+      if (!partitionName.startsWith(prefix) || partitionName.length() == prefix.length()
+          || partitionName.length() - prefix.length() > 7) {
+        return NOT_FOUND;
+      }
+      int index = 0;
+      for (int i = prefix.length(); i < partitionName.length(); i++) {
+        char c = partitionName.charAt(i);
+        if (c < '0' || c > '9') {
+          return NOT_FOUND;
+        }
+        index = index * 10 + (c - '0');
+      }
+      // "{resource}_007" is not the partition of index 7
+      if (partitionName.charAt(prefix.length()) == '0'
+          && partitionName.length() > prefix.length() + 1) {
+        return NOT_FOUND;
+      }
+      return index < MAX_PARTITION_INDEX ? index : NOT_FOUND;
+    }
+
+    int getPartitionId(String partitionName) {
+      Integer id = _partitionIds.get(partitionName);
+      return id == null ? NOT_FOUND : id;
+    }
+
+    int getStateId(String state) {
+      Integer id = _stateIds.get(state);
+      return id == null ? NOT_FOUND : id;
+    }
+
+    private static List<InstanceConfig> toList(Collection<InstanceConfig> instances,
+        Comparator<InstanceConfig> comparator) {
+      InstanceConfig[] array = instances.toArray(new InstanceConfig[instances.size()]);
+      if (comparator != null) {
+        Arrays.sort(array, comparator);
+      }
+      return Collections.unmodifiableList(Arrays.asList(array));
+    }
+  }
+}
@@ -19,6 +19,8 @@ package org.apache.helix.spectator;
  * under the License.
  */
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -40,6 +42,7 @@ import org.apache.helix.HelixConstants;
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixException;
 import org.apache.helix.HelixManager;
+import org.apache.helix.HelixProperty;
 import org.apache.helix.NotificationContext;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.PropertyType;
@@ -51,6 +54,7 @@ import org.apache.helix.api.listeners.ExternalViewChangeListener;
 import org.apache.helix.api.listeners.InstanceConfigChangeListener;
 import org.apache.helix.api.listeners.LiveInstanceChangeListener;
 import org.apache.helix.api.listeners.PreFetch;
+import org.apache.helix.api.listeners.ResourceConfigChangeListener;
 import org.apache.helix.api.listeners.RoutingTableChangeListener;
 import org.apache.helix.common.ClusterEventProcessor;
 import org.apache.helix.common.caches.CurrentStateSnapshot;
@@ -60,25 +64,40 @@ import org.apache.helix.controller.stages.ClusterEventType;
 import org.apache.helix.model.CurrentState;
 import org.apache.helix.model.CustomizedView;
 import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.IdealState;
 import org.apache.helix.model.InstanceConfig;
 import org.apache.helix.model.LiveInstance;
+import org.apache.helix.model.ResourceConfig;
 import org.apache.helix.monitoring.mbeans.RoutingTableProviderMonitor;
+import org.apache.helix.spectator.partitioner.Partitioner;
+import org.apache.helix.spectator.partitioner.PartitionerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class RoutingTableProvider
     implements ExternalViewChangeListener, InstanceConfigChangeListener, ConfigChangeListener,
                LiveInstanceChangeListener, CurrentStateChangeListener, CustomizedViewChangeListener,
-               CustomizedViewRootChangeListener {
+               CustomizedViewRootChangeListener, ResourceConfigChangeListener {
   private static final Logger logger = LoggerFactory.getLogger(RoutingTableProvider.class);
   private static final long DEFAULT_PERIODIC_REFRESH_INTERVAL = 300000L; // 5 minutes
   private final Map<String, AtomicReference<RoutingTable>> _routingTableRefMap;
   private final HelixManager _helixManager;
   private final RouterUpdater _routerUpdater;
   private final Map<PropertyType, List<String>> _sourceDataTypeMap;
-  private final Map<RoutingTableChangeListener, ListenerContext> _routingTableChangeListenerMap;
+  private final RoutingTableChangeDispatcher _routingTableChangeDispatcher;
   private final Map<PropertyType, RoutingTableProviderMonitor> _monitorMap;
 
+  // For key based routing. The resource configs are only watched once a key is routed.
+  private final Map<String, Partitioner> _customPartitionerMap = new ConcurrentHashMap<>();
+  // The resource configs that declare a partitioner, and the partitioners built from them
+  private volatile Map<String, ResourceConfig> _partitionerConfigMap = Collections.emptyMap();
+  private volatile Map<String, ConfigPartitioner> _configPartitionerMap = Collections.emptyMap();
+  private volatile boolean _isResourceConfigListenerAdded = false;
+
+  // For the selective subscription. Only the views of the selected resources are watched and read.
+  private volatile RoutingResourceFilter _resourceFilter;
+  private RoutingResourceWatcher _resourceWatcher;
+
   // For periodic refresh
   private long _lastRefreshTimestamp;
   private boolean _isPeriodicRefreshEnabled = true; // Default is enabled
@@ -136,14 +155,47 @@ public class RoutingTableProvider
   public RoutingTableProvider(HelixManager helixManager,
       Map<PropertyType, List<String>> sourceDataTypeMap, boolean isPeriodicRefreshEnabled,
       long periodRefreshInterval) throws HelixException {
+    this(helixManager, sourceDataTypeMap, isPeriodicRefreshEnabled, periodRefreshInterval, null);
+  }
+
+  /**
+   * Initialize an instance of RoutingTableProvider that only subscribes to the views of the
+   * resources selected by the filter.
+   * @param helixManager
+   * @param sourceDataType EXTERNALVIEW, the only source type that supports the resource filter
+   *          without a customized state type
+   * @param resourceFilter
+   * @throws HelixException
+   */
+  public RoutingTableProvider(HelixManager helixManager, PropertyType sourceDataType,
+      RoutingResourceFilter resourceFilter) throws HelixException {
+    this(helixManager, ImmutableMap.of(sourceDataType, Collections.emptyList()), true,
+        DEFAULT_PERIODIC_REFRESH_INTERVAL, resourceFilter);
+  }
+
+  /**
+   * Initialize an instance of RoutingTableProvider
+   * @param helixManager
+   * @param sourceDataTypeMap
+   * @param isPeriodicRefreshEnabled true if periodic refresh is enabled, false otherwise
+   * @param periodRefreshInterval only effective if isPeriodRefreshEnabled is true
+   * @param resourceFilter if not null, only the ExternalViews and CustomizedViews of the selected
+   *          resources are watched and read. The other resources are not in the routing tables.
+   *          Only supported by the EXTERNALVIEW and CUSTOMIZEDVIEW source types.
+   * @throws HelixException
+   */
+  public RoutingTableProvider(HelixManager helixManager,
+      Map<PropertyType, List<String>> sourceDataTypeMap, boolean isPeriodicRefreshEnabled,
+      long periodRefreshInterval, RoutingResourceFilter resourceFilter) throws HelixException {
 
     validateSourceDataTypeMap(sourceDataTypeMap);
+    validateResourceFilter(sourceDataTypeMap, resourceFilter);
 
     _routingTableRefMap = new HashMap<>();
     _helixManager = helixManager;
     _sourceDataTypeMap = sourceDataTypeMap;
-    _routingTableChangeListenerMap = new ConcurrentHashMap<>();
     String clusterName = _helixManager != null ? _helixManager.getClusterName() : null;
+    _routingTableChangeDispatcher = new RoutingTableChangeDispatcher(clusterName);
 
     // Initialize the tables
     for (PropertyType propertyType : _sourceDataTypeMap.keySet()) {
@@ -186,6 +238,11 @@ public class RoutingTableProvider
 
     // Start Updaters
     _routerUpdater = new RouterUpdater(clusterName, sourceDataTypeMap);
+    _resourceFilter = resourceFilter;
+    if (resourceFilter != null) {
+      // Nothing is selected until the watches are installed
+      _routerUpdater._dataCache.setSelectedResources(Collections.<String> emptySet());
+    }
     _routerUpdater.start();
 
     // Add listeners
@@ -221,7 +278,15 @@ public class RoutingTableProvider
    */
   private void addListeners() {
     if (_helixManager != null) {
+      if (_resourceFilter != null) {
+        addResourceWatcher();
+      }
       for (PropertyType propertyType : _sourceDataTypeMap.keySet()) {
+        if (_resourceFilter != null && (propertyType == PropertyType.EXTERNALVIEW
+            || propertyType == PropertyType.CUSTOMIZEDVIEW)) {
+          // The views are watched by the resource watcher
+          continue;
+        }
         switch (propertyType) {
         case EXTERNALVIEW:
           try {
@@ -289,6 +354,101 @@ public class RoutingTableProvider
     }
   }
 
+  /**
+   * Watch the views of the selected resources instead of adding the view change listeners.
+   */
+  private void addResourceWatcher() {
+    HelixDataAccessor accessor = _helixManager.getHelixDataAccessor();
+    PropertyKey.Builder keyBuilder = accessor.keyBuilder();
+    Map<String, HelixConstants.ChangeType> viewFolders = new HashMap<>();
+    if (_sourceDataTypeMap.containsKey(PropertyType.EXTERNALVIEW)) {
+      viewFolders.put(keyBuilder.externalViews().getPath(),
+          HelixConstants.ChangeType.EXTERNAL_VIEW);
+    }
+    for (String customizedStateType : _sourceDataTypeMap
+        .getOrDefault(PropertyType.CUSTOMIZEDVIEW, Collections.emptyList())) {
+      viewFolders.put(keyBuilder.customizedView(customizedStateType).getPath(),
+          HelixConstants.ChangeType.CUSTOMIZED_VIEW);
+    }
+
+    _resourceWatcher = new RoutingResourceWatcher(accessor, viewFolders, _resourceFilter,
+        new RoutingResourceWatcher.Listener() {
+          @Override
+          public void onSelectedResourcesChange(Set<String> selectedResources) {
+            _routerUpdater._dataCache.setSelectedResources(selectedResources);
+            for (PropertyType propertyType : _sourceDataTypeMap.keySet()) {
+              if (propertyType == PropertyType.EXTERNALVIEW) {
+                queueViewChange(HelixConstants.ChangeType.EXTERNAL_VIEW, null);
+              } else if (propertyType == PropertyType.CUSTOMIZEDVIEW) {
+                queueViewChange(HelixConstants.ChangeType.CUSTOMIZED_VIEW, null);
+              }
+            }
+          }
+
+          @Override
+          public void onViewChange(HelixConstants.ChangeType changeType, String path) {
+            queueViewChange(changeType, path);
+          }
+        });
+    try {
+      _resourceWatcher.start();
+    } catch (Exception e) {
+      shutdown();
+      throw new HelixException("Failed to watch the views of the selected resources!", e);
+    }
+  }
+
+  private void queueViewChange(HelixConstants.ChangeType changeType, String pathChanged) {
+    NotificationContext changeContext = new NotificationContext(_helixManager);
+    changeContext.setType(NotificationContext.Type.CALLBACK);
+    changeContext.setChangeType(changeType);
+    changeContext.setPathChanged(pathChanged);
+    _routerUpdater.queueEvent(changeContext,
+        changeType == HelixConstants.ChangeType.EXTERNAL_VIEW ? ClusterEventType.ExternalViewChange
+            : ClusterEventType.CustomizedViewChange, changeType);
+  }
+
+  private void validateResourceFilter(Map<PropertyType, List<String>> sourceDataTypeMap,
+      RoutingResourceFilter resourceFilter) {
+    if (resourceFilter == null) {
+      return;
+    }
+    for (PropertyType propertyType : sourceDataTypeMap.keySet()) {
+      if (propertyType != PropertyType.EXTERNALVIEW
+          && propertyType != PropertyType.CUSTOMIZEDVIEW) {
+        throw new IllegalArgumentException(String.format(
+            "The resource filter is not supported by the source data type %s!", propertyType));
+      }
+    }
+  }
+
+  /**
+   * Change the resources this RoutingTableProvider subscribes to. The views of the newly selected
+   * resources are watched and loaded, and the unselected resources are removed from the routing
+   * tables. Only allowed if the RoutingTableProvider was initialized with a resource filter.
+   * @param resourceFilter
+   */
+  public void setResourceFilter(RoutingResourceFilter resourceFilter) {
+    if (resourceFilter == null) {
+      throw new IllegalArgumentException("The resource filter should not be null");
+    }
+    if (_resourceFilter == null) {
+      throw new HelixException(
+          "The RoutingTableProvider was not initialized with a resource filter!");
+    }
+    _resourceFilter = resourceFilter;
+    if (_resourceWatcher != null) {
+      _resourceWatcher.setFilter(resourceFilter);
+    }
+  }
+
+  /**
+   * @return the resource filter, or null if all resources are subscribed to
+   */
+  public RoutingResourceFilter getResourceFilter() {
+    return _resourceFilter;
+  }
+
   /**
    * Check and validate the input of the sourceDataTypeMap parameter
    * @param sourceDataTypeMap
@@ -324,7 +484,7 @@ public class RoutingTableProvider
       _periodicRefreshExecutor.shutdown();
     }
     _routerUpdater.shutdown();
-
+    _routingTableChangeDispatcher.shutdown();
 
     for (PropertyType propertyType : _monitorMap.keySet()) {
       _monitorMap.get(propertyType).unregister();
@@ -332,7 +492,17 @@ public class RoutingTableProvider
 
     if (_helixManager != null) {
       PropertyKey.Builder keyBuilder = _helixManager.getHelixDataAccessor().keyBuilder();
+      if (_isResourceConfigListenerAdded) {
+        _helixManager.removeListener(keyBuilder.resourceConfigs(), this);
+      }
+      if (_resourceWatcher != null) {
+        _resourceWatcher.stop();
+      }
       for (PropertyType propertyType : _sourceDataTypeMap.keySet()) {
+        if (_resourceFilter != null && (propertyType == PropertyType.EXTERNALVIEW
+            || propertyType == PropertyType.CUSTOMIZEDVIEW)) {
+          continue;
+        }
         switch (propertyType) {
         case EXTERNALVIEW:
           _helixManager.removeListener(keyBuilder.externalViews(), this);
@@ -409,7 +579,9 @@ public class RoutingTableProvider
 
 
   /**
-   * Add RoutingTableChangeListener with user defined context
+   * Add RoutingTableChangeListener with user defined context. The listeners are called in a
+   * separate thread of the provider, and a listener that has not finished handling a change
+   * receives the latest snapshot with the merged deltas once it is done.
    * @param routingTableChangeListener
    * @param context user defined context
    */
@@ -427,7 +599,7 @@ public class RoutingTableProvider
   public void addRoutingTableChangeListener(
       final RoutingTableChangeListener routingTableChangeListener, Object context,
       boolean isTriggerCallback) {
-    _routingTableChangeListenerMap.put(routingTableChangeListener, new ListenerContext(context));
+    _routingTableChangeDispatcher.addListener(routingTableChangeListener, context);
     logger.info("Attach RoutingTableProviderChangeListener {}.",
         routingTableChangeListener.getClass().getName());
     if (isTriggerCallback) {
@@ -446,7 +618,9 @@ public class RoutingTableProvider
       final RoutingTableChangeListener routingTableChangeListener) {
     logger.info("Detach RoutingTableProviderChangeListener {}",
         routingTableChangeListener.getClass().getName());
-    return _routingTableChangeListenerMap.remove(routingTableChangeListener);
+    RoutingTableChangeDispatcher.ListenerState listenerState =
+        _routingTableChangeDispatcher.removeListener(routingTableChangeListener);
+    return listenerState == null ? null : new ListenerContext(listenerState.getContext());
   }
 
   /**
@@ -476,6 +650,116 @@ public class RoutingTableProvider
         .getInstancesForResource(resourceName, partitionName, state);
   }
 
+  /**
+   * returns the instances that are in a specific {state} for the partition of {resource} that the
+   * key is mapped to by the partitioner of the resource. The partition of index i is the partition
+   * named "{resource}_{i}".
+   * @param resourceName
+   * @param key
+   * @param state
+   * @return empty list if there is no instance in a given state
+   * @throws HelixException if no partitioner is declared for the resource
+   */
+  public List<InstanceConfig> getInstancesForKey(String resourceName, long key, String state) {
+    return getInstancesForPartitionIndex(resourceName,
+        getPartitioner(resourceName).getPartitionIndex(key), state);
+  }
+
+  /**
+   * returns the instances that are in a specific {state} for the partition of {resource} that the
+   * key is mapped to by the partitioner of the resource.
+   * @see #getInstancesForKey(String, long, String)
+   */
+  public List<InstanceConfig> getInstancesForKey(String resourceName, byte[] key, String state) {
+    return getInstancesForPartitionIndex(resourceName,
+        getPartitioner(resourceName).getPartitionIndex(key), state);
+  }
+
+  /**
+   * returns the instances that are in a specific {state} for the partition of {resource} that the
+   * key is mapped to by the partitioner of the resource.
+   * @see #getInstancesForKey(String, long, String)
+   */
+  public List<InstanceConfig> getInstancesForKey(String resourceName, String key, String state) {
+    return getInstancesForPartitionIndex(resourceName,
+        getPartitioner(resourceName).getPartitionIndex(key), state);
+  }
+
+  /**
+   * returns the instances for the partition of index {partitionIndex} of {resource} that are in a
+   * specific {state}. The lookup goes through the compiled index of the current routing table, so
+   * no partition name is built.
+   * @param resourceName
+   * @param partitionIndex
+   * @param state
+   * @return empty list if there is no instance in a given state
+   */
+  public List<InstanceConfig> getInstancesForPartitionIndex(String resourceName,
+      int partitionIndex, String state) {
+    RoutingTableIndex index = getRoutingTableRef(DEFAULT_PROPERTY_TYPE, DEFAULT_STATE_TYPE)
+        .getIndex();
+    int resourceId = index.getResourceId(resourceName);
+    return index.getInstances(resourceId, index.getPartitionIdByIndex(resourceId, partitionIndex),
+        index.getStateId(resourceId, state));
+  }
+
+  /**
+   * Get the partitioner of the resource. A partitioner set by
+   * {@link #setPartitioner(String, Partitioner)} takes precedence over the one declared in the
+   * ResourceConfig. The resource configs are watched since the first call. If the ResourceConfig
+   * does not set the number of partitions, the NUM_PARTITIONS of the IdealState carried by the
+   * ExternalView, or else the partition count of the ExternalView, is used. The partitioner is
+   * rebuilt once the count changes, which needs ExternalView as a source data type.
+   * @param resourceName
+   * @return the partitioner
+   * @throws HelixException if no partitioner is declared for the resource
+   */
+  public Partitioner getPartitioner(String resourceName) {
+    Partitioner partitioner = _customPartitionerMap.get(resourceName);
+    if (partitioner == null) {
+      partitioner = getConfigPartitioner(resourceName);
+    }
+    if (partitioner == null && !_isResourceConfigListenerAdded) {
+      addResourceConfigListener();
+      partitioner = getConfigPartitioner(resourceName);
+    }
+    if (partitioner == null) {
+      throw new HelixException("No partitioner is declared for resource " + resourceName);
+    }
+    return partitioner;
+  }
+
+  /**
+   * Set the partitioner of the resource, overriding the one declared in the ResourceConfig.
+   * @param resourceName
+   * @param partitioner the partitioner, or null to use the one declared in the ResourceConfig
+   */
+  public void setPartitioner(String resourceName, Partitioner partitioner) {
+    if (partitioner == null) {
+      _customPartitionerMap.remove(resourceName);
+    } else {
+      _customPartitionerMap.put(resourceName, partitioner);
+    }
+  }
+
+  private Partitioner getConfigPartitioner(String resourceName) {
+    ConfigPartitioner configPartitioner = _configPartitionerMap.get(resourceName);
+    return configPartitioner == null ? null : configPartitioner._partitioner;
+  }
+
+  private synchronized void addResourceConfigListener() {
+    if (_isResourceConfigListenerAdded || _helixManager == null) {
+      return;
+    }
+    try {
+      // The init callback loads the partitioners before this returns
+      _helixManager.addResourceConfigChangeListener(this);
+      _isResourceConfigListenerAdded = true;
+    } catch (Exception e) {
+      throw new HelixException("Failed to attach ResourceConfig Listener to HelixManager!", e);
+    }
+  }
+
   /**
    * returns the instances for {resource group,partition} pair in all resources belongs to the given
    * resource group that are in a specific {state}.
@@ -648,7 +932,8 @@ public class RoutingTableProvider
       PropertyKey.Builder keyBuilder = accessor.keyBuilder();
       List<InstanceConfig> configList = accessor.getChildValues(keyBuilder.instanceConfigs(), true);
       List<LiveInstance> liveInstances = accessor.getChildValues(keyBuilder.liveInstances(), true);
-      refreshExternalView(externalViewList, configList, liveInstances, keyReference);
+      // The supplied views may be modified in place by the application, build all the entries.
+      refreshExternalView(externalViewList, configList, liveInstances, keyReference, false);
     } else {
       ClusterEventType eventType;
       if (_sourceDataTypeMap.containsKey(PropertyType.EXTERNALVIEW)) {
@@ -679,6 +964,69 @@ public class RoutingTableProvider
     onInstanceConfigChange(configs, changeContext);
   }
 
+  @Override
+  @PreFetch(enabled = true)
+  public void onResourceConfigChange(List<ResourceConfig> resourceConfigs,
+      NotificationContext context) {
+    Map<String, ResourceConfig> partitionerConfigMap = new HashMap<>();
+    for (ResourceConfig resourceConfig : resourceConfigs) {
+      if (resourceConfig.getPartitionerType() != null) {
+        partitionerConfigMap.put(resourceConfig.getResourceName(), resourceConfig);
+      }
+    }
+    _partitionerConfigMap = partitionerConfigMap;
+    refreshConfigPartitioners();
+  }
+
+  /**
+   * Build the partitioners declared in the resource configs. A partitioner is only rebuilt if its
+   * config or its number of partitions changed, so this is called on every routing table refresh
+   * to follow the partition count changes of the resources.
+   */
+  private synchronized void refreshConfigPartitioners() {
+    Map<String, ConfigPartitioner> prevPartitionerMap = _configPartitionerMap;
+    Map<String, ConfigPartitioner> partitionerMap = new HashMap<>();
+    for (ResourceConfig resourceConfig : _partitionerConfigMap.values()) {
+      String resourceName = resourceConfig.getResourceName();
+      int numPartitions = resourceConfig.getNumPartitions() > 0 ? resourceConfig.getNumPartitions()
+          : getNumPartitions(resourceName);
+      ConfigPartitioner configPartitioner = prevPartitionerMap.get(resourceName);
+      if (configPartitioner == null || configPartitioner._config != resourceConfig
+          || configPartitioner._numPartitions != numPartitions) {
+        Partitioner partitioner = null;
+        try {
+          partitioner = PartitionerFactory.createPartitioner(resourceConfig, numPartitions);
+        } catch (IllegalArgumentException e) {
+          // Logged once, the partitioner is built again once the config or the count changes
+          logger.error("Invalid partitioner config of resource {} with {} partitions, skip it.",
+              resourceName, numPartitions, e);
+        }
+        configPartitioner = new ConfigPartitioner(resourceConfig, numPartitions, partitioner);
+      }
+      partitionerMap.put(resourceName, configPartitioner);
+    }
+    _configPartitionerMap = partitionerMap;
+  }
+
+  /**
+   * Get the number of partitions of a resource whose ResourceConfig does not set it, from the
+   * ExternalView in the routing tables. The ExternalView carries the simple fields of the
+   * IdealState.
+   * @return the number of partitions of the IdealState, or else the partition count of the
+   *         ExternalView, or 0 if unknown
+   */
+  private int getNumPartitions(String resourceName) {
+    for (AtomicReference<RoutingTable> routingTableRef : _routingTableRefMap.values()) {
+      HelixProperty view = routingTableRef.get().getResourceView(resourceName);
+      if (view instanceof ExternalView) {
+        int numPartitions = view.getRecord()
+            .getIntField(IdealState.IdealStateProperty.NUM_PARTITIONS.name(), -1);
+        return numPartitions > 0 ? numPartitions : ((ExternalView) view).getPartitionSet().size();
+      }
+    }
+    return 0;
+  }
+
   @Override
   @PreFetch(enabled = true)
   public void onLiveInstanceChange(List<LiveInstance> liveInstances,
@@ -814,45 +1162,140 @@ public class RoutingTableProvider
     }
   }
 
+  /**
+   * Refresh the routing table with the ExternalViews. The entries of the resources whose views and
+   * instance configs are the same objects as in the current routing table are reused, so changed
+   * views and configs must be new objects rather than modified in place.
+   */
   protected void refreshExternalView(Collection<ExternalView> externalViews,
       Collection<InstanceConfig> instanceConfigs, Collection<LiveInstance> liveInstances,
       String referenceKey) {
+    refreshExternalView(externalViews, instanceConfigs, liveInstances, referenceKey, true);
+  }
+
+  protected void refreshExternalView(Collection<ExternalView> externalViews,
+      Collection<InstanceConfig> instanceConfigs, Collection<LiveInstance> liveInstances,
+      String referenceKey, boolean reuseUnchangedResources) {
     long startTime = System.currentTimeMillis();
-    PropertyType propertyType = _routingTableRefMap.get(referenceKey).get().getPropertyType();
+    long startAllocatedBytes = getCurrentThreadAllocatedBytes();
+    RoutingTable currentRoutingTable = _routingTableRefMap.get(referenceKey).get();
+    PropertyType propertyType = currentRoutingTable.getPropertyType();
     RoutingTable newRoutingTable =
-        new RoutingTable(externalViews, instanceConfigs, liveInstances, propertyType);
+        new RoutingTable(externalViews, instanceConfigs, liveInstances, propertyType,
+            reuseUnchangedResources ? currentRoutingTable : null);
+    recordRoutingTableRefresh(newRoutingTable, startTime, startAllocatedBytes);
     resetRoutingTableAndNotify(startTime, newRoutingTable, referenceKey);
   }
 
+  /**
+   * Refresh the routing table with the CustomizedViews. The entries of the unchanged resources are
+   * reused in the same way as {@link #refreshExternalView(Collection, Collection, Collection, String)}.
+   */
   protected void refreshCustomizedView(Collection<CustomizedView> customizedViews,
       Collection<InstanceConfig> instanceConfigs, Collection<LiveInstance> liveInstances,
       String referenceKey) {
     long startTime = System.currentTimeMillis();
-    PropertyType propertyType = _routingTableRefMap.get(referenceKey).get().getPropertyType();
-    String customizedStateType = _routingTableRefMap.get(referenceKey).get().getStateType();
+    long startAllocatedBytes = getCurrentThreadAllocatedBytes();
+    RoutingTable currentRoutingTable = _routingTableRefMap.get(referenceKey).get();
+    PropertyType propertyType = currentRoutingTable.getPropertyType();
+    String customizedStateType = currentRoutingTable.getStateType();
     RoutingTable newRoutingTable = new CustomizedViewRoutingTable(customizedViews, instanceConfigs,
-        liveInstances, propertyType, customizedStateType);
+        liveInstances, propertyType, customizedStateType, currentRoutingTable);
+    recordRoutingTableRefresh(newRoutingTable, startTime, startAllocatedBytes);
     resetRoutingTableAndNotify(startTime, newRoutingTable, referenceKey);
   }
 
+  /**
+   * Refresh the routing table with the CurrentStates. Only the resources of the instances whose
+   * CurrentState maps or configs are not the same objects as in the current routing table are
+   * recomputed.
+   */
   protected void refreshCurrentState(Map<String, Map<String, Map<String, CurrentState>>> currentStateMap,
       Collection<InstanceConfig> instanceConfigs, Collection<LiveInstance> liveInstances,
       String referenceKey) {
     long startTime = System.currentTimeMillis();
+    long startAllocatedBytes = getCurrentThreadAllocatedBytes();
+    RoutingTable newRoutingTable = new RoutingTable(currentStateMap, instanceConfigs,
+        liveInstances, _routingTableRefMap.get(referenceKey).get());
+    recordRoutingTableRefresh(newRoutingTable, startTime, startAllocatedBytes);
+    resetRoutingTableAndNotify(startTime, newRoutingTable, referenceKey);
+  }
+
+  /**
+   * Rebuild the routing table from all the CurrentStates, and compare it with the incrementally
+   * maintained routing table. The current table and its shared entries are kept if the entries
+   * are the same, otherwise the rebuilt table replaces it. The listeners are notified either way,
+   * the same as a periodic refresh of the other source data types.
+   */
+  protected void verifyCurrentState(Map<String, Map<String, Map<String, CurrentState>>> currentStateMap,
+      Collection<InstanceConfig> instanceConfigs, Collection<LiveInstance> liveInstances,
+      String referenceKey) {
+    long startTime = System.currentTimeMillis();
+    long startAllocatedBytes = getCurrentThreadAllocatedBytes();
+    RoutingTable currentRoutingTable = _routingTableRefMap.get(referenceKey).get();
     RoutingTable newRoutingTable =
         new RoutingTable(currentStateMap, instanceConfigs, liveInstances);
+    recordRoutingTableRefresh(newRoutingTable, startTime, startAllocatedBytes);
+    if (newRoutingTable.hasSameEntries(currentRoutingTable)) {
+      logger.info("Verified the RoutingTable with the CurrentStates, took {} ms.",
+          System.currentTimeMillis() - startTime);
+      newRoutingTable = currentRoutingTable;
+    } else {
+      logger.warn("The RoutingTable maintained from the CurrentState changes differs from the "
+          + "CurrentStates, replace it with the rebuilt one.");
+      RoutingTableProviderMonitor monitor = _monitorMap.get(PropertyType.CURRENTSTATES);
+      if (monitor != null) {
+        monitor.increaseVerificationMismatchCounter();
+      }
+    }
     resetRoutingTableAndNotify(startTime, newRoutingTable, referenceKey);
   }
 
+  private void recordRoutingTableRefresh(RoutingTable newRoutingTable, long startTime,
+      long startAllocatedBytes) {
+    long latency = System.currentTimeMillis() - startTime;
+    long allocatedBytes = -1;
+    if (startAllocatedBytes >= 0) {
+      allocatedBytes = getCurrentThreadAllocatedBytes() - startAllocatedBytes;
+    }
+    RoutingTableProviderMonitor monitor = _monitorMap.get(newRoutingTable.getPropertyType());
+    if (monitor != null) {
+      monitor.recordRoutingTableRefresh(latency, allocatedBytes,
+          newRoutingTable.getReusedResourceCount(), newRoutingTable.getRebuiltResourceCount());
+    }
+    logger.info("Built the RoutingTable, reused {} resources and rebuilt {} resources, took {} ms, "
+            + "allocated {} bytes.", newRoutingTable.getReusedResourceCount(),
+        newRoutingTable.getRebuiltResourceCount(), latency, allocatedBytes);
+  }
+
+  /**
+   * @return the bytes allocated by the current thread so far, or -1 if the JVM does not support
+   *         measuring it
+   */
+  private static long getCurrentThreadAllocatedBytes() {
+    ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean allocationBean =
+          (com.sun.management.ThreadMXBean) threadMXBean;
+      if (allocationBean.isThreadAllocatedMemorySupported()
+          && allocationBean.isThreadAllocatedMemoryEnabled()) {
+        return allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return -1;
+  }
+
   private void resetRoutingTableAndNotify(long startTime, RoutingTable newRoutingTable, String referenceKey) {
     _routingTableRefMap.get(referenceKey).set(newRoutingTable);
+    if (!_partitionerConfigMap.isEmpty()) {
+      refreshConfigPartitioners();
+    }
     String clusterName = _helixManager != null ? _helixManager.getClusterName() : null;
     logger.info("Refreshed the RoutingTable for cluster {}, took {} ms.", clusterName,
         (System.currentTimeMillis() - startTime));
 
-    // TODO: move the callback user code logic to separate thread upon routing table statePropagation latency
-    // integration test result. If the latency is more than 2 secs, we need to change this part.
-    notifyRoutingTableChange(clusterName, referenceKey);
+    // The listeners are called in the dispatcher thread, a slow listener only delays itself
+    _routingTableChangeDispatcher.publish(referenceKey, newRoutingTable);
 
     // Update timestamp for last refresh
     if (_isPeriodicRefreshEnabled) {
@@ -860,21 +1303,6 @@ public class RoutingTableProvider
     }
   }
 
-  private void notifyRoutingTableChange(String clusterName, String referenceKey) {
-    // This call back is called in the main event queue of RoutingTableProvider. We add log to
-    // record time spent
-    // here. Potentially, we should call this callback in a separate thread if this is a bottleneck.
-    long startTime = System.currentTimeMillis();
-    for (Map.Entry<RoutingTableChangeListener, ListenerContext> entry : _routingTableChangeListenerMap
-        .entrySet()) {
-      entry.getKey().onRoutingTableChange(
-          new RoutingTableSnapshot(_routingTableRefMap.get(referenceKey).get()),
-          entry.getValue().getContext());
-    }
-    logger.info("RoutingTableProvider user callback time for cluster {}, took {} ms.", clusterName,
-        (System.currentTimeMillis() - startTime));
-  }
-
   private class RouterUpdater extends ClusterEventProcessor {
     private final RoutingDataCache _dataCache;
     private final Map<PropertyType, List<String>> _sourceDataTypeMap;
@@ -942,8 +1370,15 @@ public class RoutingTableProvider
               break;
             case CURRENTSTATES: {
               String keyReference = generateReferenceKey(propertyType.name(),  DEFAULT_STATE_TYPE);;
-              refreshCurrentState(_dataCache.getCurrentStatesMap(), _dataCache.getInstanceConfigMap().values(),
-                  _dataCache.getLiveInstances().values(), keyReference);
+              if (changeContext.getType() == NotificationContext.Type.PERIODIC_REFRESH) {
+                verifyCurrentState(_dataCache.getCurrentStatesMap(),
+                    _dataCache.getInstanceConfigMap().values(),
+                    _dataCache.getLiveInstances().values(), keyReference);
+              } else {
+                refreshCurrentState(_dataCache.getCurrentStatesMap(),
+                    _dataCache.getInstanceConfigMap().values(),
+                    _dataCache.getLiveInstances().values(), keyReference);
+              }
               recordPropagationLatency(System.currentTimeMillis(), _dataCache.getCurrentStateSnapshot());
             }
               break;
@@ -1018,6 +1453,22 @@ public class RoutingTableProvider
     }
   }
 
+  /**
+   * The partitioner declared in a resource config, with the number of partitions it is built with.
+   */
+  private static class ConfigPartitioner {
+    private final ResourceConfig _config;
+    private final int _numPartitions;
+    // null if the config is invalid
+    private final Partitioner _partitioner;
+
+    ConfigPartitioner(ResourceConfig config, int numPartitions, Partitioner partitioner) {
+      _config = config;
+      _numPartitions = numPartitions;
+      _partitioner = partitioner;
+    }
+  }
+
   protected class ListenerContext {
     private Object _context;
 
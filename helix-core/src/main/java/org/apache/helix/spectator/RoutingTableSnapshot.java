@@ -33,8 +33,16 @@ import org.apache.helix.model.LiveInstance;
 /**
  * The snapshot of RoutingTable information. It is immutable, it reflects the routing table
  * information at the time it is generated.
+ * Besides the lookups by names, the resource entries can be looked up by ids: resolve the ids of
+ * a resource, its partitions and states once per snapshot, then each lookup is an array access
+ * that allocates nothing. The returned instance lists are sorted and unmodifiable.
  */
 public class RoutingTableSnapshot {
+  /**
+   * The id returned for an unknown resource, partition or state.
+   */
+  public static final int UNKNOWN_ID = RoutingTableIndex.NOT_FOUND;
+
   private final RoutingTable _routingTable;
   private final PropertyType _propertyType;
   private final String _stateType;
@@ -121,6 +129,87 @@ public class RoutingTableSnapshot {
         resourceTags);
   }
 
+  /**
+   * Returns the id of the resource in this snapshot. The ids are only valid for the snapshot they
+   * are resolved from.
+   * @param resourceName
+   * @return the resource id, or UNKNOWN_ID if the resource has no entries
+   */
+  public int getResourceId(String resourceName) {
+    return _routingTable.getIndex().getResourceId(resourceName);
+  }
+
+  /**
+   * Returns the id of the partition in the resource.
+   * @param resourceId
+   * @param partitionName
+   * @return the partition id, or UNKNOWN_ID if the partition has no entries
+   */
+  public int getPartitionId(int resourceId, String partitionName) {
+    return _routingTable.getIndex().getPartitionId(resourceId, partitionName);
+  }
+
+  /**
+   * Returns the number of partitions of the resource that have entries. The partition ids are
+   * from 0 to the count - 1, in the order of the partition names.
+   * @param resourceId
+   * @return the partition count, 0 if the resource id is unknown
+   */
+  public int getPartitionCount(int resourceId) {
+    return _routingTable.getIndex().getPartitionCount(resourceId);
+  }
+
+  /**
+   * Returns the id of the partition named "{resource}_{partitionIndex}", without building the
+   * partition name.
+   * @param resourceId
+   * @param partitionIndex
+   * @return the partition id, or UNKNOWN_ID if the partition has no entries
+   */
+  public int getPartitionIdByIndex(int resourceId, int partitionIndex) {
+    return _routingTable.getIndex().getPartitionIdByIndex(resourceId, partitionIndex);
+  }
+
+  /**
+   * Returns the id of the state in the resource.
+   * @param resourceId
+   * @param state
+   * @return the state id, or UNKNOWN_ID if no instance of the resource is in the state
+   */
+  public int getStateId(int resourceId, String state) {
+    return _routingTable.getIndex().getStateId(resourceId, state);
+  }
+
+  /**
+   * returns all instances for {resource} that are in a specific {state}, looked up by ids.
+   * @param resourceId
+   * @param stateId
+   * @return the sorted instances, empty list if the ids are unknown
+   */
+  public List<InstanceConfig> getInstancesForResource(int resourceId, int stateId) {
+    return _routingTable.getIndex().getInstances(resourceId, stateId);
+  }
+
+  /**
+   * returns the instances for {resource,partition} pair that are in a specific {state}, looked
+   * up by ids.
+   * @param resourceId
+   * @param partitionId
+   * @param stateId
+   * @return the sorted instances, empty list if the ids are unknown
+   */
+  public List<InstanceConfig> getInstancesForResource(int resourceId, int partitionId,
+      int stateId) {
+    return _routingTable.getIndex().getInstances(resourceId, partitionId, stateId);
+  }
+
+  /**
+   * Returns the compiled index of the resource entries.
+   */
+  RoutingTableIndex getIndex() {
+    return _routingTable.getIndex();
+  }
+
   /**
    * Return all liveInstances in the cluster now.
    * @return
@@ -0,0 +1,88 @@
+package org.apache.helix.spectator.partitioner;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.helix.util.JenkinsHash;
+
+/**
+ * Maps a key to the partition of index JenkinsHash(key) mod the number of partitions. The key
+ * is folded into the hash 32 bits at a time, so the keys are spread evenly even if they share
+ * long prefixes or their String.hashCode() collide.
+ */
+public class JenkinsHashPartitioner implements Partitioner {
+  private static final long INT_MASK = 0xFFFFFFFFL;
+
+  private final int _numPartitions;
+  private final JenkinsHash _hash = new JenkinsHash();
+
+  public JenkinsHashPartitioner(int numPartitions) {
+    if (numPartitions <= 0) {
+      throw new IllegalArgumentException("Invalid number of partitions: " + numPartitions);
+    }
+    _numPartitions = numPartitions;
+  }
+
+  @Override
+  public int getNumPartitions() {
+    return _numPartitions;
+  }
+
+  @Override
+  public int getPartitionIndex(long key) {
+    return toIndex(_hash.hash(key & INT_MASK, key >>> 32));
+  }
+
+  @Override
+  public int getPartitionIndex(byte[] key) {
+    long hash = key.length;
+    int i = 0;
+    for (; i + 4 <= key.length; i += 4) {
+      long word = (key[i] & 0xFFL) | (key[i + 1] & 0xFFL) << 8 | (key[i + 2] & 0xFFL) << 16
+          | (key[i + 3] & 0xFFL) << 24;
+      hash = _hash.hash(word, hash);
+    }
+    if (i < key.length) {
+      long word = 0;
+      for (int shift = 0; i < key.length; i++, shift += 8) {
+        word |= (key[i] & 0xFFL) << shift;
+      }
+      hash = _hash.hash(word, hash);
+    }
+    return toIndex(hash);
+  }
+
+  @Override
+  public int getPartitionIndex(String key) {
+    long hash = key.length();
+    int i = 0;
+    for (; i + 2 <= key.length(); i += 2) {
+      hash = _hash.hash(key.charAt(i) | (long) key.charAt(i + 1) << 16, hash);
+    }
+    if (i < key.length()) {
+      hash = _hash.hash(key.charAt(i), hash);
+    }
+    return toIndex(hash);
+  }
+
+  private int toIndex(long hash) {
+    // The hash is an unsigned 32 bits value
+    return (int) (hash % _numPartitions);
+  }
+}
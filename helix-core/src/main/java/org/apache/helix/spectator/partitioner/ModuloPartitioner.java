@@ -0,0 +1,57 @@
+package org.apache.helix.spectator.partitioner;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+
+/**
+ * Maps a key to the partition of index hash(key) mod the number of partitions. Long keys are
+ * mapped by their value, byte[] keys by Arrays.hashCode() and String keys by String.hashCode().
+ */
+public class ModuloPartitioner implements Partitioner {
+  private final int _numPartitions;
+
+  public ModuloPartitioner(int numPartitions) {
+    if (numPartitions <= 0) {
+      throw new IllegalArgumentException("Invalid number of partitions: " + numPartitions);
+    }
+    _numPartitions = numPartitions;
+  }
+
+  @Override
+  public int getNumPartitions() {
+    return _numPartitions;
+  }
+
+  @Override
+  public int getPartitionIndex(long key) {
+    return (int) Math.floorMod(key, (long) _numPartitions);
+  }
+
+  @Override
+  public int getPartitionIndex(byte[] key) {
+    return Math.floorMod(Arrays.hashCode(key), _numPartitions);
+  }
+
+  @Override
+  public int getPartitionIndex(String key) {
+    return Math.floorMod(key.hashCode(), _numPartitions);
+  }
+}
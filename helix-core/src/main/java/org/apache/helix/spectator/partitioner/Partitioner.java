@@ -0,0 +1,50 @@
+package org.apache.helix.spectator.partitioner;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Maps the keys of a resource to the indexes of its partitions. The partition of index i is the
+ * partition named "{resource}_{i}", which is the default Helix partition naming.
+ * Implementations must be thread-safe and should not allocate on the lookup path.
+ */
+public interface Partitioner {
+  /**
+   * @return the number of partitions the keys are mapped to
+   */
+  int getNumPartitions();
+
+  /**
+   * @param key
+   * @return the partition index of the key, from 0 to getNumPartitions() - 1
+   */
+  int getPartitionIndex(long key);
+
+  /**
+   * @param key
+   * @return the partition index of the key, from 0 to getNumPartitions() - 1
+   */
+  int getPartitionIndex(byte[] key);
+
+  /**
+   * @param key
+   * @return the partition index of the key, from 0 to getNumPartitions() - 1
+   */
+  int getPartitionIndex(String key);
+}
@@ -0,0 +1,76 @@
+package org.apache.helix.spectator.partitioner;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.List;
+
+import org.apache.helix.model.ResourceConfig;
+
+/**
+ * Creates the partitioner declared in a ResourceConfig.
+ */
+public class PartitionerFactory {
+  private PartitionerFactory() {
+  }
+
+  /**
+   * Create the partitioner declared in the resource config.
+   * @param resourceConfig
+   * @return the partitioner, or null if the config declares no partitioner
+   * @throws IllegalArgumentException if the partitioner config is invalid
+   */
+  public static Partitioner createPartitioner(ResourceConfig resourceConfig) {
+    return createPartitioner(resourceConfig, 0);
+  }
+
+  /**
+   * Create the partitioner declared in the resource config.
+   * @param resourceConfig
+   * @param defaultNumPartitions the number of partitions used if the resource config does not set
+   *          it, e.g. the partition count of the IdealState. Non-positive if unknown.
+   * @return the partitioner, or null if the config declares no partitioner
+   * @throws IllegalArgumentException if the partitioner config is invalid
+   */
+  public static Partitioner createPartitioner(ResourceConfig resourceConfig,
+      int defaultNumPartitions) {
+    ResourceConfig.PartitionerType partitionerType = resourceConfig.getPartitionerType();
+    if (partitionerType == null) {
+      return null;
+    }
+    int numPartitions = resourceConfig.getNumPartitions() > 0 ? resourceConfig.getNumPartitions()
+        : defaultNumPartitions;
+    switch (partitionerType) {
+    case MODULO:
+      return new ModuloPartitioner(numPartitions);
+    case JENKINS_HASH:
+      return new JenkinsHashPartitioner(numPartitions);
+    case RANGE:
+      List<Long> boundaries = resourceConfig.getPartitionerRangeBoundaries();
+      if (numPartitions > 0 && numPartitions != boundaries.size() + 1) {
+        throw new IllegalArgumentException(String.format(
+            "Resource %s has %d partitions but %d range boundaries",
+            resourceConfig.getResourceName(), numPartitions, boundaries.size()));
+      }
+      return new RangePartitioner(boundaries);
+    default:
+      throw new IllegalArgumentException("Unsupported partitioner type: " + partitionerType);
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package org.apache.helix.spectator.partitioner;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Maps a key to the partition whose range contains it. The ranges are defined by the sorted
+ * lower boundaries of the partitions 1 to n - 1: partition 0 holds the keys lower than the first
+ * boundary, and partition i holds the keys from the i-th boundary (inclusive) to the next one.
+ * Long keys are mapped by their value. byte[] keys are mapped by their first 8 bytes read as a
+ * big-endian signed long, padded with zeros if shorter. String keys must be decimal numbers.
+ */
+public class RangePartitioner implements Partitioner {
+  private final long[] _boundaries;
+
+  public RangePartitioner(List<Long> boundaries) {
+    _boundaries = new long[boundaries.size()];
+    for (int i = 0; i < _boundaries.length; i++) {
+      _boundaries[i] = boundaries.get(i);
+      if (i > 0 && _boundaries[i] <= _boundaries[i - 1]) {
+        throw new IllegalArgumentException(
+            "The range boundaries must be strictly increasing: " + boundaries);
+      }
+    }
+  }
+
+  @Override
+  public int getNumPartitions() {
+    return _boundaries.length + 1;
+  }
+
+  @Override
+  public int getPartitionIndex(long key) {
+    int index = Arrays.binarySearch(_boundaries, key);
+    // A key equal to a boundary is the first key of the partition after it
+    return index >= 0 ? index + 1 : -index - 1;
+  }
+
+  @Override
+  public int getPartitionIndex(byte[] key) {
+    long value = 0;
+    for (int i = 0; i < Long.BYTES; i++) {
+      value = value << 8 | (i < key.length ? key[i] & 0xFFL : 0L);
+    }
+    return getPartitionIndex(value);
+  }
+
+  @Override
+  public int getPartitionIndex(String key) {
+    return getPartitionIndex(Long.parseLong(key));
+  }
+}
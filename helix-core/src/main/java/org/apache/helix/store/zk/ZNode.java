@@ -34,6 +34,8 @@ public class ZNode {
   final String _zkPath;
   private Stat _stat;
   Object _data;
+  // true if the data is evicted from a bounded cache, and is to be read from ZooKeeper again
+  private volatile boolean _dataEvicted = false;
   Set<String> _childSet;
 
   public ZNode(String zkPath, Object data, Stat stat) {
@@ -78,12 +80,25 @@ public class ZNode {
   public void setData(Object data) {
     // System.out.println("setData: " + _zkPath + ", data: " + data);
     _data = data;
+    _dataEvicted = false;
   }
 
   public Object getData() {
     return _data;
   }
 
+  /**
+   * Drop the data, keep the stat and the children.
+   */
+  public void evictData() {
+    _data = null;
+    _dataEvicted = true;
+  }
+
+  public boolean isDataEvicted() {
+    return _dataEvicted;
+  }
+
   public void setStat(Stat stat) {
     _stat = stat;
   }
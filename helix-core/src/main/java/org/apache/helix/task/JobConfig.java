@@ -181,6 +181,10 @@ public class JobConfig extends ResourceConfig {
 
   // Cache TaskConfig objects for targeted jobs' tasks to reduce object creation/GC overload
   private Map<String, TaskConfig> _targetedTaskConfigMap = new HashMap<>();
+  // The TaskConfig objects of an untargeted job, parsed on the first use and kept until the map
+  // configs they are parsed from change
+  private Map<String, TaskConfig> _taskConfigMap;
+  private long _taskConfigModCount;
 
   public JobConfig(HelixProperty property) {
     super(property.getRecord());
@@ -373,12 +377,20 @@ public class JobConfig extends ResourceConfig {
     if (targetResource != null) {
       return _targetedTaskConfigMap;
     }
-    Map<String, TaskConfig> taskConfigMap = new HashMap<>();
-    for (Map.Entry<String, Map<String, String>> entry : getMapConfigs().entrySet()) {
-      taskConfigMap.put(entry.getKey(),
-          new TaskConfig(null, entry.getValue(), entry.getKey(), null));
+    // The parsed task configs are kept until the map fields of the record change
+    long modCount = getRecord().getMapFieldsModCount();
+    if (_taskConfigMap == null || modCount < 0 || modCount != _taskConfigModCount) {
+      Map<String, TaskConfig> taskConfigMap = new HashMap<>();
+      for (Map.Entry<String, Map<String, String>> entry : getRecord().getReadOnlyMapFields()
+          .entrySet()) {
+        taskConfigMap.put(entry.getKey(),
+            new TaskConfig(null, entry.getValue(), entry.getKey(), null));
+      }
+      _taskConfigMap = taskConfigMap;
+      _taskConfigModCount = modCount;
     }
-    return taskConfigMap;
+    // The callers may change the returned map
+    return new HashMap<>(_taskConfigMap);
   }
 
   /**
@@ -40,10 +40,10 @@ import org.apache.helix.InstanceType;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.PropertyKey.Builder;
 import org.apache.helix.SystemPropertyKeys;
-import org.apache.helix.model.Error;
 import org.apache.helix.model.Message;
 import org.apache.helix.model.Message.MessageType;
-import org.apache.helix.model.StatusUpdate;
+import org.apache.helix.util.statusupdate.StatusUpdateSink;
+import org.apache.helix.util.statusupdate.StatusUpdateSinkFactory;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,6 +59,21 @@ public class StatusUpdateUtil {
   public static final boolean ERROR_LOG_TO_ZK_ENABLED =
       Boolean.getBoolean(SystemPropertyKeys.STATEUPDATEUTIL_ERROR_PERSISTENCY_ENABLED);
 
+  // If not set, the sink configured for the target instance in StatusUpdateSinkFactory is used
+  private final StatusUpdateSink _sink;
+
+  public StatusUpdateUtil() {
+    this(null);
+  }
+
+  /**
+   * @param sink the sink that receives all the status update and error records published by
+   *          this util
+   */
+  public StatusUpdateUtil(StatusUpdateSink sink) {
+    _sink = sink;
+  }
+
   public static class Transition implements Comparable<Transition> {
     private final String _msgID;
     private final long _timeStamp;
@@ -495,18 +510,20 @@ public class StatusUpdateUtil {
     }
 
     Builder keyBuilder = accessor.keyBuilder();
+    PropertyKey propertyKey;
+    if (isController) {
+      propertyKey = keyBuilder.controllerTaskStatus(statusUpdateSubPath, statusUpdateKey);
+    } else {
+      propertyKey =
+          keyBuilder.stateTransitionStatus(instanceName, sessionId, statusUpdateSubPath,
+              statusUpdateKey);
+    }
+    StatusUpdateSink sink = getSink(instanceName);
+
     if (!_recordedMessages.containsKey(message.getMsgId())) {
       ZNRecord statusUpdateRecord = createMessageLogRecord(message);
-      PropertyKey propertyKey;
-
-      if (isController) {
-        propertyKey = keyBuilder.controllerTaskStatus(statusUpdateSubPath, statusUpdateKey);
-      } else {
-        propertyKey =
-            keyBuilder.stateTransitionStatus(instanceName, sessionId, statusUpdateSubPath,
-                statusUpdateKey);
-      }
-      accessor.updateProperty(propertyKey, new StatusUpdate(statusUpdateRecord));
+      sink.publishStatusUpdate(message.getMsgId(), propertyKey, statusUpdateRecord, level,
+          accessor);
 
       if (_logger.isTraceEnabled()) {
         _logger.trace("StatusUpdate path:" + propertyKey.getPath() + ", updates:"
@@ -515,15 +532,7 @@ public class StatusUpdateUtil {
       _recordedMessages.put(message.getMsgId(), message.getMsgId());
     }
 
-    PropertyKey propertyKey;
-    if (isController) {
-      propertyKey = keyBuilder.controllerTaskStatus(statusUpdateSubPath, statusUpdateKey);
-    } else {
-      propertyKey =
-          keyBuilder.stateTransitionStatus(instanceName, sessionId, statusUpdateSubPath,
-              statusUpdateKey);
-    }
-    accessor.updateProperty(propertyKey, new StatusUpdate(record));
+    sink.publishStatusUpdate(message.getMsgId(), propertyKey, record, level, accessor);
 
     if (_logger.isTraceEnabled()) {
       _logger.trace("StatusUpdate path:" + propertyKey.getPath() + ", updates:" + record);
@@ -560,13 +569,17 @@ public class StatusUpdateUtil {
       return;
     }
     Builder keyBuilder = accessor.keyBuilder();
+    PropertyKey propertyKey;
     if (isController) {
-      // TODO need to fix: ERRORS_CONTROLLER doesn't have a form of
-      // ../{sessionId}/{subPath}
-      accessor.setProperty(keyBuilder.controllerTaskError(updateSubPath), new Error(record));
+      propertyKey = keyBuilder.controllerTaskError(updateSubPath);
     } else {
-      accessor.updateProperty(keyBuilder.stateTransitionError(instanceName, sessionId,
-          updateSubPath, updateKey), new Error(record));
+      propertyKey =
+          keyBuilder.stateTransitionError(instanceName, sessionId, updateSubPath, updateKey);
     }
+    getSink(instanceName).publishError(propertyKey, record, accessor);
+  }
+
+  private StatusUpdateSink getSink(String instanceName) {
+    return _sink != null ? _sink : StatusUpdateSinkFactory.getSink(instanceName);
   }
 }
@@ -0,0 +1,276 @@
+package org.apache.helix.util.statusupdate;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.helix.AccessOption;
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.PropertyType;
+import org.apache.helix.util.StatusUpdateUtil;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.datamodel.ZNRecordUpdater;
+import org.apache.helix.zookeeper.zkclient.DataUpdater;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A sink that keeps the status updates of one participant in a bounded in-memory ring buffer
+ * and periodically writes them to zookeeper in one batch. Records of the same status update
+ * znode are merged before the flush, so a state transition costs at most one write per
+ * partition per flush interval instead of one write per transition step.
+ * Successful (HELIX_INFO) status updates are sampled per message, so all the steps of a
+ * sampled message are kept together. Warnings and errors are never sampled out nor dropped when
+ * the buffer is full, and error records are written through to the delegate sink immediately.
+ * Like {@link ZkStatusUpdateSink}, whose writes the helix data accessor skips, the sink does not
+ * write the participant STATUSUPDATES znodes unless it is created to persist them.
+ */
+public class BufferedStatusUpdateSink implements StatusUpdateSink {
+  private static final Logger LOG = LoggerFactory.getLogger(BufferedStatusUpdateSink.class);
+  private static final int SAMPLE_BUCKETS = 10000;
+
+  private final String _name;
+  private final int _capacity;
+  private final int _sampleThreshold;
+  private final boolean _persistStatusUpdates;
+  private final StatusUpdateSink _errorSink;
+  private final ArrayDeque<BufferedRecord> _buffer;
+  private final ScheduledFuture<?> _flushTask;
+
+  private final AtomicLong _bufferedCount = new AtomicLong(0L);
+  private final AtomicLong _droppedCount = new AtomicLong(0L);
+  private final AtomicLong _sampledOutCount = new AtomicLong(0L);
+  private final AtomicLong _flushedCount = new AtomicLong(0L);
+
+  private static class BufferedRecord {
+    private final PropertyKey _key;
+    private final ZNRecord _record;
+    private final StatusUpdateUtil.Level _level;
+    private final HelixDataAccessor _accessor;
+
+    BufferedRecord(PropertyKey key, ZNRecord record, StatusUpdateUtil.Level level,
+        HelixDataAccessor accessor) {
+      _key = key;
+      _record = record;
+      _level = level;
+      _accessor = accessor;
+    }
+  }
+
+  /**
+   * @param name name of the sink owner, used for logging
+   * @param capacity max number of status update records held in the ring buffer. The oldest
+   *          successful record is dropped when the buffer is full, and a buffer full of warnings
+   *          and errors is flushed.
+   * @param flushIntervalMs interval between two batched flushes
+   * @param sampleRate fraction (0.0 - 1.0) of the successful messages to keep
+   * @param persistStatusUpdates true to write the participant STATUSUPDATES znodes
+   * @param errorSink the sink that error records are written through to
+   * @param scheduler the scheduler that runs the periodic flush
+   */
+  public BufferedStatusUpdateSink(String name, int capacity, long flushIntervalMs,
+      double sampleRate, boolean persistStatusUpdates, StatusUpdateSink errorSink,
+      ScheduledExecutorService scheduler) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Buffer capacity must be positive: " + capacity);
+    }
+    if (sampleRate < 0 || sampleRate > 1) {
+      throw new IllegalArgumentException("Sample rate must be within [0, 1]: " + sampleRate);
+    }
+    _name = name;
+    _capacity = capacity;
+    _sampleThreshold = (int) Math.round(sampleRate * SAMPLE_BUCKETS);
+    _persistStatusUpdates = persistStatusUpdates;
+    _errorSink = errorSink;
+    _buffer = new ArrayDeque<>(Math.min(capacity, 1024));
+    _flushTask = scheduler.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        flush();
+      }
+    }, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void publishStatusUpdate(String msgId, PropertyKey key, ZNRecord record,
+      StatusUpdateUtil.Level level, HelixDataAccessor accessor) {
+    if (key.getType() == PropertyType.STATUSUPDATES && !_persistStatusUpdates) {
+      if (LOG.isTraceEnabled()) {
+        LOG.trace("Update status. path: " + key.getPath() + ", record: " + record);
+      }
+      return;
+    }
+    if (level == StatusUpdateUtil.Level.HELIX_INFO && !isSampled(msgId)) {
+      _sampledOutCount.incrementAndGet();
+      return;
+    }
+    BufferedRecord bufferedRecord = new BufferedRecord(key, record, level, accessor);
+    synchronized (_buffer) {
+      if (_buffer.size() < _capacity || dropOldestInfoRecord()) {
+        _buffer.addLast(bufferedRecord);
+        bufferedRecord = null;
+      } else if (level == StatusUpdateUtil.Level.HELIX_INFO) {
+        // The buffer is full of warnings and errors, drop the new successful record instead
+        _droppedCount.incrementAndGet();
+        return;
+      }
+    }
+    if (bufferedRecord != null) {
+      // Warnings and errors are not dropped, write out the full buffer to make room
+      flush();
+      synchronized (_buffer) {
+        _buffer.addLast(bufferedRecord);
+      }
+    }
+    _bufferedCount.incrementAndGet();
+  }
+
+  /**
+   * Drop the oldest successful record in the buffer, the caller holds the buffer lock.
+   * @return true if a record is dropped
+   */
+  private boolean dropOldestInfoRecord() {
+    Iterator<BufferedRecord> iterator = _buffer.iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next()._level == StatusUpdateUtil.Level.HELIX_INFO) {
+        iterator.remove();
+        _droppedCount.incrementAndGet();
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void publishError(PropertyKey key, ZNRecord record, HelixDataAccessor accessor) {
+    _errorSink.publishError(key, record, accessor);
+  }
+
+  private boolean isSampled(String msgId) {
+    if (_sampleThreshold >= SAMPLE_BUCKETS) {
+      return true;
+    }
+    if (msgId == null) {
+      return false;
+    }
+    return (msgId.hashCode() & Integer.MAX_VALUE) % SAMPLE_BUCKETS < _sampleThreshold;
+  }
+
+  @Override
+  public void flush() {
+    List<BufferedRecord> records;
+    synchronized (_buffer) {
+      if (_buffer.isEmpty()) {
+        return;
+      }
+      records = new ArrayList<>(_buffer);
+      _buffer.clear();
+    }
+
+    // Merge the records of the same znode, grouped by the accessor of the reporting manager
+    Map<HelixDataAccessor, Map<String, ZNRecord>> mergedRecords = new IdentityHashMap<>();
+    for (BufferedRecord bufferedRecord : records) {
+      Map<String, ZNRecord> pathToRecord = mergedRecords.get(bufferedRecord._accessor);
+      if (pathToRecord == null) {
+        pathToRecord = new LinkedHashMap<>();
+        mergedRecords.put(bufferedRecord._accessor, pathToRecord);
+      }
+      String path = bufferedRecord._key.getPath();
+      ZNRecord merged = pathToRecord.get(path);
+      if (merged == null) {
+        pathToRecord.put(path, new ZNRecord(bufferedRecord._record));
+      } else {
+        merged.merge(bufferedRecord._record);
+      }
+    }
+
+    for (Map.Entry<HelixDataAccessor, Map<String, ZNRecord>> entry : mergedRecords.entrySet()) {
+      List<String> paths = new ArrayList<>(entry.getValue().keySet());
+      List<DataUpdater<ZNRecord>> updaters = new ArrayList<>(paths.size());
+      for (ZNRecord record : entry.getValue().values()) {
+        updaters.add(new ZNRecordUpdater(record));
+      }
+      try {
+        // HelixDataAccessor.updateChildren writes the paths as they are. Unlike updateProperty,
+        // it does not skip the STATUSUPDATES writes, which are only buffered if persisted.
+        entry.getKey().updateChildren(paths, updaters, AccessOption.PERSISTENT);
+        _flushedCount.addAndGet(paths.size());
+      } catch (Exception e) {
+        LOG.warn("Failed to flush {} status update records of {}", paths.size(), _name, e);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    _flushTask.cancel(false);
+    flush();
+    _errorSink.close();
+  }
+
+  /**
+   * @return number of status update records that are accepted into the buffer
+   */
+  public long getBufferedCount() {
+    return _bufferedCount.get();
+  }
+
+  /**
+   * @return number of successful status update records that are dropped because the buffer was
+   *         full
+   */
+  public long getDroppedCount() {
+    return _droppedCount.get();
+  }
+
+  /**
+   * @return number of successful status update records that are not sampled
+   */
+  public long getSampledOutCount() {
+    return _sampledOutCount.get();
+  }
+
+  /**
+   * @return number of status update znodes written by the batched flushes
+   */
+  public long getFlushedCount() {
+    return _flushedCount.get();
+  }
+
+  /**
+   * @return number of status update records currently held in the buffer
+   */
+  public int getBufferSize() {
+    synchronized (_buffer) {
+      return _buffer.size();
+    }
+  }
+}
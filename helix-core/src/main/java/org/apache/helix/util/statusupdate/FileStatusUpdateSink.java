@@ -0,0 +1,138 @@
+package org.apache.helix.util.statusupdate;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.HelixException;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.util.StatusUpdateUtil;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A sink that appends every status update and error record to a local file instead of
+ * zookeeper. Each line holds the publish time, the record type, the znode path the record
+ * would have been written to and the record content.
+ */
+public class FileStatusUpdateSink implements StatusUpdateSink {
+  private static final Logger LOG = LoggerFactory.getLogger(FileStatusUpdateSink.class);
+
+  private final File _file;
+  private final Writer _writer;
+  private final ScheduledFuture<?> _flushTask;
+  private boolean _closed = false;
+
+  /**
+   * Create a sink that is only flushed by {@link #flush()} and {@link #close()}.
+   * @param file the file to append the records to
+   */
+  public FileStatusUpdateSink(File file) {
+    this(file, 0L, null);
+  }
+
+  /**
+   * @param file the file to append the records to
+   * @param flushIntervalMs interval between two periodic flushes
+   * @param scheduler the scheduler that runs the periodic flush, null for no periodic flush
+   */
+  public FileStatusUpdateSink(File file, long flushIntervalMs,
+      ScheduledExecutorService scheduler) {
+    _file = file;
+    try {
+      File parent = file.getAbsoluteFile().getParentFile();
+      if (parent != null && !parent.exists() && !parent.mkdirs()) {
+        throw new IOException("Failed to create directory " + parent);
+      }
+      _writer = new BufferedWriter(
+          new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new HelixException("Failed to open status update file " + file, e);
+    }
+    _flushTask = scheduler == null ? null : scheduler.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        flush();
+      }
+    }, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void publishStatusUpdate(String msgId, PropertyKey key, ZNRecord record,
+      StatusUpdateUtil.Level level, HelixDataAccessor accessor) {
+    append("STATUSUPDATE", key, record);
+  }
+
+  @Override
+  public void publishError(PropertyKey key, ZNRecord record, HelixDataAccessor accessor) {
+    append("ERROR", key, record);
+  }
+
+  private synchronized void append(String type, PropertyKey key, ZNRecord record) {
+    if (_closed) {
+      return;
+    }
+    try {
+      _writer.write(System.currentTimeMillis() + " " + type + " " + key.getPath() + " " + record
+          + System.lineSeparator());
+    } catch (IOException e) {
+      LOG.warn("Failed to write status update record {} to {}", record.getId(), _file, e);
+    }
+  }
+
+  @Override
+  public synchronized void flush() {
+    if (_closed) {
+      return;
+    }
+    try {
+      _writer.flush();
+    } catch (IOException e) {
+      LOG.warn("Failed to flush status update file {}", _file, e);
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    if (_closed) {
+      return;
+    }
+    _closed = true;
+    if (_flushTask != null) {
+      _flushTask.cancel(false);
+    }
+    try {
+      _writer.close();
+    } catch (IOException e) {
+      LOG.warn("Failed to close status update file {}", _file, e);
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package org.apache.helix.util.statusupdate;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.util.StatusUpdateUtil;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+
+/**
+ * Destination of the diagnostic status update and error records generated by
+ * {@link StatusUpdateUtil}. A sink decides when, where and whether a record is persisted.
+ */
+public interface StatusUpdateSink {
+
+  /**
+   * Publish a status update record that belongs to the STATUSUPDATES tree.
+   * @param msgId the id of the message the record is about
+   * @param key the status update property key the record would be merged into
+   * @param record the status update record
+   * @param level the level of the status update
+   * @param accessor the data accessor of the reporting helix manager
+   */
+  void publishStatusUpdate(String msgId, PropertyKey key, ZNRecord record,
+      StatusUpdateUtil.Level level, HelixDataAccessor accessor);
+
+  /**
+   * Publish an error record that belongs to the ERRORS tree. Error records must never be
+   * sampled out.
+   * @param key the error property key
+   * @param record the error record
+   * @param accessor the data accessor of the reporting helix manager
+   */
+  void publishError(PropertyKey key, ZNRecord record, HelixDataAccessor accessor);
+
+  /**
+   * Persist any record that is held by the sink.
+   */
+  void flush();
+
+  /**
+   * Flush and release all the resources held by the sink.
+   */
+  void close();
+}
@@ -0,0 +1,188 @@
+package org.apache.helix.util.statusupdate;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.helix.SystemPropertyKeys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates and holds the status update sink of each instance in this JVM. The sink type is
+ * configured by system properties, see {@link SystemPropertyKeys#STATUS_UPDATE_SINK_TYPE}.
+ * Buffered and file sinks are shared by all the StatusUpdateUtil objects of the same instance
+ * and are flushed periodically by one shared daemon thread. Once the sink of an instance is
+ * closed, the status updates of the instance go to zookeeper as by default until the instance
+ * opens its sink again.
+ */
+public class StatusUpdateSinkFactory {
+  private static final Logger LOG = LoggerFactory.getLogger(StatusUpdateSinkFactory.class);
+
+  public enum SinkType {
+    ZK,
+    BUFFERED,
+    FILE
+  }
+
+  public static final int DEFAULT_BUFFER_CAPACITY = 10000;
+  public static final long DEFAULT_FLUSH_INTERVAL_MS = 5000L;
+  public static final double DEFAULT_SAMPLE_RATE = 1.0;
+
+  private static final StatusUpdateSink ZK_SINK = new ZkStatusUpdateSink();
+  private static final Map<String, StatusUpdateSink> SINKS = new ConcurrentHashMap<>();
+  // Guarded by SINKS
+  private static final Set<String> CLOSED_INSTANCES = ConcurrentHashMap.newKeySet();
+  private static ScheduledExecutorService _flushScheduler;
+
+  private StatusUpdateSinkFactory() {
+  }
+
+  /**
+   * Get the status update sink of the instance. The sink is created on first access, unless the
+   * sink of the instance has been closed.
+   * @param instanceName the instance that publishes the status updates
+   * @return the status update sink
+   */
+  public static StatusUpdateSink getSink(String instanceName) {
+    SinkType sinkType = getSinkType();
+    if (sinkType == SinkType.ZK || instanceName == null) {
+      return ZK_SINK;
+    }
+    StatusUpdateSink sink = SINKS.get(instanceName);
+    if (sink == null) {
+      synchronized (SINKS) {
+        sink = SINKS.get(instanceName);
+        if (sink == null) {
+          if (CLOSED_INSTANCES.contains(instanceName)) {
+            // A late status update after the instance is disconnected
+            return ZK_SINK;
+          }
+          sink = createSink(sinkType, instanceName);
+          SINKS.put(instanceName, sink);
+        }
+      }
+    }
+    return sink;
+  }
+
+  /**
+   * Allow the status update sink of the instance to be created again after it is closed.
+   * @param instanceName
+   */
+  public static void openSink(String instanceName) {
+    if (instanceName == null) {
+      return;
+    }
+    synchronized (SINKS) {
+      CLOSED_INSTANCES.remove(instanceName);
+    }
+  }
+
+  /**
+   * Flush and remove the status update sink of the instance, if any. No sink is created for the
+   * instance until {@link #openSink(String)} is called.
+   * @param instanceName
+   */
+  public static void closeSink(String instanceName) {
+    if (instanceName == null) {
+      return;
+    }
+    StatusUpdateSink sink;
+    synchronized (SINKS) {
+      CLOSED_INSTANCES.add(instanceName);
+      sink = SINKS.remove(instanceName);
+    }
+    if (sink != null) {
+      try {
+        sink.close();
+      } catch (Exception e) {
+        LOG.warn("Failed to close status update sink of {}", instanceName, e);
+      }
+    }
+  }
+
+  private static SinkType getSinkType() {
+    String type = System.getProperty(SystemPropertyKeys.STATUS_UPDATE_SINK_TYPE);
+    if (type == null) {
+      return SinkType.ZK;
+    }
+    try {
+      return SinkType.valueOf(type.toUpperCase());
+    } catch (IllegalArgumentException e) {
+      LOG.warn("Unknown status update sink type {}, use {}", type, SinkType.ZK);
+      return SinkType.ZK;
+    }
+  }
+
+  private static StatusUpdateSink createSink(SinkType sinkType, String instanceName) {
+    long flushIntervalMs = Long.getLong(SystemPropertyKeys.STATUS_UPDATE_SINK_FLUSH_INTERVAL_MS,
+        DEFAULT_FLUSH_INTERVAL_MS);
+    switch (sinkType) {
+    case BUFFERED:
+      int capacity = Integer.getInteger(SystemPropertyKeys.STATUS_UPDATE_SINK_BUFFER_CAPACITY,
+          DEFAULT_BUFFER_CAPACITY);
+      double sampleRate = DEFAULT_SAMPLE_RATE;
+      String sampleRateStr = System.getProperty(SystemPropertyKeys.STATUS_UPDATE_SINK_SAMPLE_RATE);
+      if (sampleRateStr != null) {
+        try {
+          sampleRate = Double.parseDouble(sampleRateStr);
+        } catch (NumberFormatException e) {
+          LOG.warn("Invalid status update sample rate {}, use {}", sampleRateStr, sampleRate);
+        }
+      }
+      boolean persistStatusUpdates =
+          Boolean.getBoolean(SystemPropertyKeys.STATUS_UPDATE_SINK_PERSIST_STATUS_UPDATES);
+      LOG.info("Create buffered status update sink for {}, capacity: {}, flush interval: {}ms, "
+              + "sample rate: {}, persist status updates: {}", instanceName, capacity,
+          flushIntervalMs, sampleRate, persistStatusUpdates);
+      return new BufferedStatusUpdateSink(instanceName, capacity, flushIntervalMs, sampleRate,
+          persistStatusUpdates, ZK_SINK, getFlushScheduler());
+    case FILE:
+      String dir = System.getProperty(SystemPropertyKeys.STATUS_UPDATE_SINK_FILE_DIR,
+          System.getProperty("java.io.tmpdir"));
+      File file = new File(dir, instanceName + ".statusupdates.log");
+      LOG.info("Create file status update sink for {} at {}", instanceName, file);
+      return new FileStatusUpdateSink(file, flushIntervalMs, getFlushScheduler());
+    default:
+      return ZK_SINK;
+    }
+  }
+
+  private static synchronized ScheduledExecutorService getFlushScheduler() {
+    if (_flushScheduler == null) {
+      _flushScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "StatusUpdateSinkFlusher");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    return _flushScheduler;
+  }
+}
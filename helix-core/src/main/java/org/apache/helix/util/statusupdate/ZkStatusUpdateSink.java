@@ -0,0 +1,61 @@
+package org.apache.helix.util.statusupdate;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.PropertyType;
+import org.apache.helix.model.Error;
+import org.apache.helix.model.StatusUpdate;
+import org.apache.helix.util.StatusUpdateUtil;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+
+/**
+ * The default sink, which writes every record to zookeeper through the data accessor as soon
+ * as it is published.
+ */
+public class ZkStatusUpdateSink implements StatusUpdateSink {
+  @Override
+  public void publishStatusUpdate(String msgId, PropertyKey key, ZNRecord record,
+      StatusUpdateUtil.Level level, HelixDataAccessor accessor) {
+    accessor.updateProperty(key, new StatusUpdate(record));
+  }
+
+  @Override
+  public void publishError(PropertyKey key, ZNRecord record, HelixDataAccessor accessor) {
+    if (key.getType() == PropertyType.ERRORS_CONTROLLER) {
+      // TODO need to fix: ERRORS_CONTROLLER doesn't have a form of
+      // ../{sessionId}/{subPath}
+      accessor.setProperty(key, new Error(record));
+    } else {
+      accessor.updateProperty(key, new Error(record));
+    }
+  }
+
+  @Override
+  public void flush() {
+    // nothing is buffered
+  }
+
+  @Override
+  public void close() {
+    // nothing to release
+  }
+}
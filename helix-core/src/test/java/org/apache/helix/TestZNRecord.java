@@ -19,11 +19,16 @@ package org.apache.helix;
  * under the License.
  */
 
+import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
+import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordSerializer;
 import org.testng.Assert;
 import org.testng.AssertJUnit;
 import org.testng.annotations.Test;
@@ -124,4 +129,127 @@ public class TestZNRecord {
     expectRecord.setMapField("mapKey2", expectMap2);
     Assert.assertEquals(record, expectRecord, "Should be equal.");
   }
+
+  @Test
+  public void testCopyOnWrite() {
+    ZNRecord record = new ZNRecord("record");
+    record.setSimpleField("simpleKey1", "simpleValue1");
+    record.setListField("listKey1", new ArrayList<>(Arrays.asList("listValue1")));
+    Map<String, String> map1 = new TreeMap<>();
+    map1.put("mapKey1", "mapValue1");
+    record.setMapField("mapKey1", map1);
+
+    // changes of the copy are not visible to the record, and the other way around
+    ZNRecord copy = new ZNRecord(record);
+    Assert.assertEquals(copy, record);
+    copy.setSimpleField("simpleKey2", "simpleValue2");
+    record.setListField("listKey2", new ArrayList<String>());
+    copy.getMapFields().remove("mapKey1");
+    Assert.assertNull(record.getSimpleField("simpleKey2"));
+    Assert.assertNull(copy.getListField("listKey2"));
+    Assert.assertEquals(record.getMapField("mapKey1"), map1);
+    Assert.assertEquals(copy.getSimpleField("simpleKey1"), "simpleValue1");
+    Assert.assertEquals(copy.getListField("listKey1"), Arrays.asList("listValue1"));
+
+    // the copy of a copy
+    ZNRecord copyOfCopy = new ZNRecord(copy, "copyOfCopy");
+    ZNRecord delta = new ZNRecord("delta");
+    delta.setSimpleField("simpleKey1", "simpleValue1");
+    delta.setListField("listKey3", new ArrayList<String>());
+    copy.subtract(delta);
+    copyOfCopy.merge(delta);
+    Assert.assertNull(copy.getSimpleField("simpleKey1"));
+    Assert.assertEquals(copyOfCopy.getSimpleField("simpleKey1"), "simpleValue1");
+    Assert.assertNull(copy.getListField("listKey3"));
+    Assert.assertNotNull(copyOfCopy.getListField("listKey3"));
+    copyOfCopy.update(record);
+    Assert.assertNull(copy.getListField("listKey2"));
+    Assert.assertNotNull(copyOfCopy.getListField("listKey2"));
+    Assert.assertTrue(copy.getMapFields().isEmpty());
+    Assert.assertEquals(copyOfCopy.getMapField("mapKey1"), map1);
+
+    // the field maps returned to or set by the callers are copied by the copies
+    Map<String, String> simpleFields = record.getSimpleFields();
+    Map<String, List<String>> listFields = new HashMap<>();
+    listFields.put("listKey1", Arrays.asList("listValue1"));
+    record.setListFields(listFields);
+    ZNRecord copy2 = new ZNRecord(record);
+    simpleFields.put("simpleKey3", "simpleValue3");
+    listFields.put("listKey3", new ArrayList<String>());
+    Assert.assertEquals(record.getSimpleField("simpleKey3"), "simpleValue3");
+    Assert.assertNull(copy2.getSimpleField("simpleKey3"));
+    Assert.assertNull(copy2.getListField("listKey3"));
+    Assert.assertTrue(copy2.getListFields() instanceof TreeMap);
+
+    try {
+      copy2.getReadOnlySimpleFields().put("simpleKey4", "simpleValue4");
+      Assert.fail("Should not change the read only simple fields");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testCopyOfDeserializedRecord() throws Exception {
+    ZNRecord record = new ZNRecord("record");
+    record.setSimpleField("simpleKey1", "simpleValue1");
+    record.setListField("listKey1", new ArrayList<>(Arrays.asList("listValue1")));
+    record.setMapField("mapKey1", new TreeMap<>(Collections.singletonMap("mapKey1", "mapValue1")));
+
+    // the serializer does not copy the field maps of the record, nor mark them escaped
+    ZNRecordSerializer serializer = new ZNRecordSerializer();
+    byte[] bytes = serializer.serialize(record);
+    assertFieldsShared(record, new ZNRecord(record));
+
+    // the field maps of the deserialized record are shared by its copies
+    org.apache.helix.zookeeper.datamodel.ZNRecord deserialized =
+        (org.apache.helix.zookeeper.datamodel.ZNRecord) serializer.deserialize(bytes);
+    Assert.assertEquals(deserialized, record);
+    Assert.assertEquals(deserialized.getMapField("mapKey1"), record.getMapField("mapKey1"));
+    org.apache.helix.zookeeper.datamodel.ZNRecord copy =
+        new org.apache.helix.zookeeper.datamodel.ZNRecord(deserialized);
+    assertFieldsShared(deserialized, copy);
+    Assert.assertEquals(serializer.serialize(copy), bytes);
+
+    // and are still copied on the first change
+    copy.setSimpleField("simpleKey2", "simpleValue2");
+    Assert.assertNull(deserialized.getSimpleField("simpleKey2"));
+  }
+
+  @Test
+  public void testMapFieldsModCount() {
+    ZNRecord record = new ZNRecord("record");
+    record.setMapField("mapKey1", new TreeMap<>(Collections.singletonMap("mapKey1", "mapValue1")));
+    long modCount = record.getMapFieldsModCount();
+    Assert.assertTrue(modCount >= 0);
+
+    // reading or copying the map fields does not change the count
+    record.getMapField("mapKey1");
+    record.getReadOnlyMapFields();
+    ZNRecord copy = new ZNRecord(record);
+    Assert.assertEquals(record.getMapFieldsModCount(), modCount);
+
+    // replacing a map field changes the count, even if the number of map fields is the same
+    record.setMapField("mapKey1", new TreeMap<>(Collections.singletonMap("mapKey2", "mapValue2")));
+    Assert.assertTrue(record.getMapFieldsModCount() != modCount);
+    modCount = copy.getMapFieldsModCount();
+    copy.update(record);
+    Assert.assertTrue(copy.getMapFieldsModCount() != modCount);
+
+    // the count is unknown once the map fields are returned to a caller
+    record.getMapFields();
+    Assert.assertEquals(record.getMapFieldsModCount(), -1);
+    Assert.assertTrue(new ZNRecord(record).getMapFieldsModCount() >= 0);
+  }
+
+  private static void assertFieldsShared(org.apache.helix.zookeeper.datamodel.ZNRecord record,
+      org.apache.helix.zookeeper.datamodel.ZNRecord copy) throws Exception {
+    for (String fieldName : Arrays.asList("simpleFields", "mapFields", "listFields")) {
+      Field field =
+          org.apache.helix.zookeeper.datamodel.ZNRecord.class.getDeclaredField(fieldName);
+      field.setAccessible(true);
+      Assert.assertTrue(field.get(record) instanceof TreeMap, fieldName + " should be sorted");
+      Assert.assertSame(field.get(copy), field.get(record), fieldName + " should be shared");
+    }
+  }
 }
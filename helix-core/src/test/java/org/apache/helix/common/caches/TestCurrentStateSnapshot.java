@@ -21,9 +21,12 @@ package org.apache.helix.common.caches;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.helix.HelixProperty;
 import org.apache.helix.MockAccessor;
 import org.apache.helix.PropertyKey;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
@@ -129,4 +132,64 @@ public class TestCurrentStateSnapshot {
     Assert.assertTrue(endTimesMap.get(keyBuilder.currentState(instanceName, instance.getEphemeralOwner(), resourceName))
         .get(partitionName) == 300);
   }
+
+  // A current state that is removed between listing and reading is reloaded as null, it should be
+  // skipped instead of failing the end time calculation of all the current states.
+  @Test(description = "testRemovedCurrentState")
+  public void testRemovedCurrentState() {
+    String instanceName = "instance1";
+    String resourceName = "resource";
+    String removedResourceName = "removedResource";
+    String partitionName = "resource_partition1";
+
+    AtomicBoolean removeBeforeRead = new AtomicBoolean(false);
+    MockAccessor accessor = new MockAccessor() {
+      @Override
+      public <T extends HelixProperty> List<T> getProperty(List<PropertyKey> keys,
+          boolean throwException) {
+        if (removeBeforeRead.get()) {
+          for (PropertyKey key : keys) {
+            if (key.getPath().endsWith("/" + removedResourceName)) {
+              removeProperty(key);
+            }
+          }
+        }
+        return super.getProperty(keys, throwException);
+      }
+    };
+    PropertyKey.Builder keyBuilder = accessor.keyBuilder();
+
+    ZNRecord record = new ZNRecord(instanceName);
+    record.setEphemeralOwner(12345);
+    LiveInstance instance = new LiveInstance(record);
+    Assert.assertTrue(accessor.setProperty(keyBuilder.liveInstance(instanceName), instance));
+    String sessionId = instance.getEphemeralOwner();
+    PropertyKey key = keyBuilder.currentState(instanceName, sessionId, resourceName);
+    PropertyKey removedKey = keyBuilder.currentState(instanceName, sessionId, removedResourceName);
+
+    CurrentState currentState = new CurrentState(resourceName);
+    currentState.setEndTime(partitionName, 100);
+    Assert.assertTrue(accessor.setProperty(key, currentState));
+    Assert.assertTrue(accessor.setProperty(removedKey, new CurrentState(removedResourceName)));
+
+    CurrentStateCache cache = new CurrentStateCache("cluster");
+    Map<String, LiveInstance> liveInstanceMap = new HashMap<>();
+    liveInstanceMap.put(instanceName, instance);
+    Assert.assertTrue(cache.refresh(accessor, liveInstanceMap));
+
+    // Both current states change, and one of them is removed once it has been listed
+    currentState = new CurrentState(resourceName);
+    currentState.setEndTime(partitionName, 300);
+    Assert.assertTrue(accessor.setProperty(key, currentState));
+    CurrentState removedState = new CurrentState(removedResourceName);
+    removedState.setEndTime(partitionName, 300);
+    Assert.assertTrue(accessor.setProperty(removedKey, removedState));
+    removeBeforeRead.set(true);
+    Assert.assertTrue(cache.refresh(accessor, liveInstanceMap));
+
+    Map<PropertyKey, Map<String, Long>> endTimesMap =
+        cache.getSnapshot().getNewCurrentStateEndTimes();
+    Assert.assertEquals(endTimesMap.size(), 1);
+    Assert.assertEquals(endTimesMap.get(key).get(partitionName).longValue(), 300L);
+  }
 }
@@ -20,10 +20,12 @@ package org.apache.helix.common.caches;
  */
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import org.apache.helix.HelixDataAccessor;
 import org.apache.helix.HelixProperty;
 import org.apache.helix.PropertyKey;
@@ -34,6 +36,8 @@ import org.testng.annotations.Test;
 
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -116,6 +120,36 @@ public class TestPropertyCache {
         new PropertyKey.Builder("fake").instance("instance2"));
   }
 
+  @Test(description = "Unit test for the cache refresh of the selected objects")
+  public void testSelectedObjectsRefresh() {
+    HelixDataAccessor accessor = mock(HelixDataAccessor.class);
+    PropertyCache<HelixProperty> propertyCache = new PropertyCache<>(MOCK_CONTROL_CONTEXT_PROVIDER,
+        "mock property cache", new PropertyCache.PropertyCacheKeyFuncs<HelixProperty>() {
+          @Override
+          public PropertyKey getRootKey(HelixDataAccessor accessor) {
+            return new PropertyKey.Builder("fake").instances();
+          }
+
+          @Override
+          public PropertyKey getObjPropertyKey(HelixDataAccessor accessor, String objName) {
+            return new PropertyKey.Builder("fake").instance(objName);
+          }
+
+          @Override
+          public String getObjName(HelixProperty obj) {
+            return obj.getRecord().getId();
+          }
+        }, true);
+    when(accessor.getProperty(any(List.class), any(Boolean.class)))
+        .thenReturn(ImmutableList.of(new HelixProperty("instance1")));
+
+    propertyCache.refresh(accessor, ImmutableList.of("instance1"));
+
+    Assert.assertEquals(propertyCache.getPropertyMap().keySet(), ImmutableSet.of("instance1"));
+    // The other objects are not listed
+    verify(accessor, never()).getChildNames(any(PropertyKey.class));
+  }
+
   @Test(description = "First set the property cache and update the object from caller")
   public void testDefensiveCopyOnDataUpdate() {
     @SuppressWarnings("unchecked")
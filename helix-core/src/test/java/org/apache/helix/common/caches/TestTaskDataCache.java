@@ -0,0 +1,193 @@
+package org.apache.helix.common.caches;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.helix.AccessOption;
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.PropertyType;
+import org.apache.helix.TestHelper;
+import org.apache.helix.ZkUnitTestBase;
+import org.apache.helix.manager.zk.ZKHelixDataAccessor;
+import org.apache.helix.manager.zk.ZkBaseDataAccessor;
+import org.apache.helix.model.ResourceConfig;
+import org.apache.helix.task.JobConfig;
+import org.apache.helix.task.JobContext;
+import org.apache.helix.task.TaskConfig;
+import org.apache.helix.task.TaskConstants;
+import org.apache.helix.task.TaskPartitionState;
+import org.apache.helix.task.WorkflowConfig;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit test for the incremental refresh of {@link TaskDataCache}
+ */
+public class TestTaskDataCache extends ZkUnitTestBase {
+  private static final int CONTEXT_COUNT = 5;
+
+  @Test
+  public void testIncrementalContextRefresh() {
+    String clusterName = TestHelper.getTestClassName() + "_" + TestHelper.getTestMethodName();
+    ZkBaseDataAccessor<ZNRecord> baseAccessor = new ZkBaseDataAccessor<>(_gZkClient);
+    HelixDataAccessor accessor = new ZKHelixDataAccessor(clusterName, baseAccessor);
+    String contextRoot = String.format("/%s/%s%s", clusterName, PropertyType.PROPERTYSTORE.name(),
+        TaskConstants.REBALANCER_CONTEXT_ROOT);
+    try {
+      for (int i = 0; i < CONTEXT_COUNT; i++) {
+        baseAccessor.create(getContextPath(contextRoot, "job_" + i), createContext("job_" + i),
+            AccessOption.PERSISTENT);
+      }
+      TaskDataCache cache = new TaskDataCache(clusterName);
+
+      cache.refresh(accessor, Collections.emptyMap());
+      Assert.assertEquals(cache.getContexts().size(), CONTEXT_COUNT);
+      Assert.assertEquals(cache.getContextReadCount(), CONTEXT_COUNT);
+      Assert.assertEquals(cache.getContextReusedCount(), 0);
+
+      // Nothing changed, all the contexts are reused
+      cache.refresh(accessor, Collections.emptyMap());
+      Assert.assertEquals(cache.getContexts().size(), CONTEXT_COUNT);
+      Assert.assertEquals(cache.getContextReadCount(), 0);
+      Assert.assertEquals(cache.getContextReusedCount(), CONTEXT_COUNT);
+
+      // The context changed by others is read again
+      ZNRecord changed = createContext("job_0");
+      changed.setSimpleField("changed", "true");
+      baseAccessor.set(getContextPath(contextRoot, "job_0"), changed, AccessOption.PERSISTENT);
+      cache.refresh(accessor, Collections.emptyMap());
+      Assert.assertEquals(cache.getContextReadCount(), 1);
+      Assert.assertEquals(cache.getContextReusedCount(), CONTEXT_COUNT - 1);
+      Assert.assertEquals(cache.getContexts().get("job_0").getSimpleField("changed"), "true");
+
+      // The context written by the cache itself is not read back
+      JobContext jobContext = cache.getJobContext("job_1");
+      jobContext.setStartTime(1000L);
+      cache.updateJobContext("job_1", jobContext);
+      // The changes after the update are not cached
+      jobContext.setStartTime(2000L);
+      Assert.assertEquals(cache.getJobContext("job_1").getStartTime(), 1000L);
+      cache.persistDataChanges(accessor);
+      cache.refresh(accessor, Collections.emptyMap());
+      Assert.assertEquals(cache.getContextReadCount(), 0);
+      Assert.assertEquals(cache.getContextReusedCount(), CONTEXT_COUNT);
+      Assert.assertEquals(cache.getJobContext("job_1").getStartTime(), 1000L);
+      Assert.assertEquals(new JobContext(
+          baseAccessor.get(getContextPath(contextRoot, "job_1"), null, 0)).getStartTime(), 1000L);
+
+      // The changes of a context that are not updated to the cache do not change the cache
+      JobContext runningContext = new JobContext(createContext("job_4"));
+      runningContext.setPartitionState(0, TaskPartitionState.RUNNING);
+      baseAccessor.set(getContextPath(contextRoot, "job_4"), runningContext.getRecord(),
+          AccessOption.PERSISTENT);
+      cache.refresh(accessor, Collections.emptyMap());
+      Assert.assertEquals(cache.getContextReadCount(), 1);
+      cache.getJobContext("job_4").setPartitionState(0, TaskPartitionState.COMPLETED);
+      cache.refresh(accessor, Collections.emptyMap());
+      Assert.assertEquals(cache.getContextReadCount(), 0);
+      Assert.assertEquals(cache.getJobContext("job_4").getPartitionState(0),
+          TaskPartitionState.RUNNING);
+
+      // The context recreated by others is read again, the new and the removed ones are synced
+      baseAccessor.remove(contextRoot + "/job_2", 0);
+      baseAccessor.create(getContextPath(contextRoot, "job_2"), createContext("job_2"),
+          AccessOption.PERSISTENT);
+      baseAccessor.remove(contextRoot + "/job_3", 0);
+      baseAccessor.create(getContextPath(contextRoot, "job_new"), createContext("job_new"),
+          AccessOption.PERSISTENT);
+      cache.refresh(accessor, Collections.emptyMap());
+      Assert.assertEquals(cache.getContextReadCount(), 2);
+      Assert.assertEquals(cache.getContextReusedCount(), CONTEXT_COUNT - 2);
+      Assert.assertEquals(cache.getContexts().keySet().size(), CONTEXT_COUNT);
+      Assert.assertFalse(cache.getContexts().containsKey("job_3"));
+      Assert.assertTrue(cache.getContexts().containsKey("job_new"));
+    } finally {
+      _gZkClient.deleteRecursively("/" + clusterName);
+    }
+  }
+
+  @Test
+  public void testConfigReuse() {
+    ResourceConfig workflowResource =
+        new ResourceConfig(new WorkflowConfig.Builder("Workflow").build().getRecord());
+    JobConfig job = new JobConfig.Builder().setWorkflow("Workflow").setJobId("Workflow_Job")
+        .setCommand("Dummy").addTaskConfigs(Collections
+            .singletonList(new TaskConfig(null, new HashMap<String, String>(), "task", null)))
+        .build();
+    ResourceConfig jobResource = new ResourceConfig(job.getRecord());
+    for (ResourceConfig resourceConfig : Arrays.asList(workflowResource, jobResource)) {
+      resourceConfig.getRecord().setVersion(1);
+      resourceConfig.getRecord().setCreationTime(1000L);
+      resourceConfig.getRecord().setModifiedTime(1000L);
+    }
+    Map<String, ResourceConfig> resourceConfigMap = new HashMap<>();
+    resourceConfigMap.put("Workflow", workflowResource);
+    resourceConfigMap.put("Workflow_Job", jobResource);
+
+    TaskDataCache cache = new TaskDataCache(AbstractDataCache.UNKNOWN_CLUSTER);
+    cache.refresh(null, resourceConfigMap);
+    WorkflowConfig workflowConfig = cache.getWorkflowConfig("Workflow");
+    JobConfig jobConfig = cache.getJobConfig("Workflow_Job");
+    Assert.assertNotNull(workflowConfig);
+    Assert.assertNotNull(jobConfig);
+    // The task configs are parsed once, and the callers get their own map
+    Map<String, TaskConfig> taskConfigMap = jobConfig.getTaskConfigMap();
+    Assert.assertEquals(taskConfigMap.keySet(), Collections.singleton("task"));
+    taskConfigMap.clear();
+    Assert.assertSame(jobConfig.getTaskConfigMap().get("task"),
+        jobConfig.getTaskConfigMap().get("task"));
+    // and are parsed again once the map fields change
+    TaskConfig taskConfig = jobConfig.getTaskConfigMap().get("task");
+    jobConfig.getRecord().setMapField("task", new HashMap<>(taskConfig.getConfigMap()));
+    Assert.assertNotSame(jobConfig.getTaskConfigMap().get("task"), taskConfig);
+    taskConfig = jobConfig.getTaskConfigMap().get("task");
+    Assert.assertSame(jobConfig.getTaskConfigMap().get("task"), taskConfig);
+
+    // The configs of the same version are reused
+    cache.refresh(null, new HashMap<>(resourceConfigMap));
+    Assert.assertSame(cache.getWorkflowConfig("Workflow"), workflowConfig);
+    Assert.assertSame(cache.getJobConfig("Workflow_Job"), jobConfig);
+
+    // The configs of a new version are parsed again
+    ZNRecord newJobRecord = new ZNRecord(jobResource.getRecord());
+    newJobRecord.setVersion(2);
+    newJobRecord.setModifiedTime(2000L);
+    resourceConfigMap.put("Workflow_Job", new ResourceConfig(newJobRecord));
+    cache.refresh(null, resourceConfigMap);
+    Assert.assertSame(cache.getWorkflowConfig("Workflow"), workflowConfig);
+    Assert.assertNotSame(cache.getJobConfig("Workflow_Job"), jobConfig);
+    Assert.assertEquals(cache.getJobConfig("Workflow_Job").getRecord().getVersion(), 2);
+  }
+
+  private static String getContextPath(String contextRoot, String resourceName) {
+    return String.format("%s/%s/%s", contextRoot, resourceName, TaskConstants.CONTEXT_NODE);
+  }
+
+  private static ZNRecord createContext(String resourceName) {
+    ZNRecord context = new ZNRecord(TaskConstants.CONTEXT_NODE);
+    context.setSimpleField("NAME", resourceName);
+    return context;
+  }
+}
@@ -0,0 +1,190 @@
+package org.apache.helix.integration.spectator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.helix.HelixManager;
+import org.apache.helix.HelixManagerFactory;
+import org.apache.helix.InstanceType;
+import org.apache.helix.PropertyType;
+import org.apache.helix.TestHelper;
+import org.apache.helix.common.ZkTestBase;
+import org.apache.helix.integration.manager.ClusterControllerManager;
+import org.apache.helix.integration.manager.MockParticipantManager;
+import org.apache.helix.model.BuiltInStateModelDefinitions;
+import org.apache.helix.model.IdealState;
+import org.apache.helix.spectator.RoutingResourceFilter;
+import org.apache.helix.spectator.RoutingTableProvider;
+import org.apache.helix.tools.ClusterVerifiers.BestPossibleExternalViewVerifier;
+import org.apache.helix.tools.ClusterVerifiers.ZkHelixClusterVerifier;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class TestRoutingTableProviderResourceFilter extends ZkTestBase {
+  private static final String STATE_MODEL = BuiltInStateModelDefinitions.MasterSlave.name();
+  private static final String CLUSTER_NAME =
+      CLUSTER_PREFIX + "_" + TestRoutingTableProviderResourceFilter.class.getSimpleName();
+  private static final int PARTICIPANT_NUMBER = 3;
+  private static final int PARTICIPANT_START_PORT = 12918;
+  private static final String TAG_A = "TagA";
+  private static final String TAG_B = "TagB";
+
+  private HelixManager _spectator;
+  private List<MockParticipantManager> _participants = new ArrayList<>();
+  private List<String> _instances = new ArrayList<>();
+  private ClusterControllerManager _controller;
+  private ZkHelixClusterVerifier _clusterVerifier;
+
+  @BeforeClass
+  public void beforeClass() throws Exception {
+    System.out.println(
+        "START " + getShortClassName() + " at " + new Date(System.currentTimeMillis()));
+
+    _gSetupTool.addCluster(CLUSTER_NAME, true);
+    for (int i = 0; i < PARTICIPANT_NUMBER; i++) {
+      String instance = PARTICIPANT_PREFIX + "_" + (PARTICIPANT_START_PORT + i);
+      _gSetupTool.addInstanceToCluster(CLUSTER_NAME, instance);
+      _gSetupTool.addInstanceTag(CLUSTER_NAME, instance, TAG_A);
+      _gSetupTool.addInstanceTag(CLUSTER_NAME, instance, TAG_B);
+      _instances.add(instance);
+    }
+    for (String instance : _instances) {
+      MockParticipantManager participant =
+          new MockParticipantManager(ZK_ADDR, CLUSTER_NAME, instance);
+      participant.syncStart();
+      _participants.add(participant);
+    }
+
+    createTaggedDB("TestDB0", TAG_A);
+    createTaggedDB("TestDB1", TAG_B);
+    createTaggedDB("TestDB2", TAG_A);
+
+    _controller = new ClusterControllerManager(ZK_ADDR, CLUSTER_NAME, CONTROLLER_PREFIX + "_0");
+    _controller.syncStart();
+
+    _spectator = HelixManagerFactory
+        .getZKHelixManager(CLUSTER_NAME, "spectator", InstanceType.SPECTATOR, ZK_ADDR);
+    _spectator.connect();
+
+    _clusterVerifier = new BestPossibleExternalViewVerifier.Builder(CLUSTER_NAME)
+        .setZkClient(_gZkClient)
+        .setWaitTillVerify(TestHelper.DEFAULT_REBALANCE_PROCESSING_WAIT_TIME).build();
+    Assert.assertTrue(_clusterVerifier.verifyByPolling());
+  }
+
+  @AfterClass
+  public void afterClass() {
+    for (MockParticipantManager participant : _participants) {
+      participant.syncStop();
+    }
+    _controller.syncStop();
+    _spectator.disconnect();
+    deleteCluster(CLUSTER_NAME);
+  }
+
+  @Test
+  public void testExplicitResources() throws Exception {
+    RoutingTableProvider routingTableProvider = new RoutingTableProvider(_spectator,
+        PropertyType.EXTERNALVIEW,
+        RoutingResourceFilter.forResources(Arrays.asList("TestDB0", "TestDB3")));
+    try {
+      Assert.assertTrue(verifyResources(routingTableProvider, "TestDB0"));
+      Assert.assertFalse(
+          routingTableProvider.getInstancesForResource("TestDB0", "TestDB0_0", "MASTER")
+              .isEmpty());
+      Assert.assertTrue(
+          routingTableProvider.getInstancesForResource("TestDB1", "TestDB1_0", "MASTER")
+              .isEmpty());
+
+      // A selected resource is picked up once it is created
+      createTaggedDB("TestDB3", TAG_B);
+      Assert.assertTrue(_clusterVerifier.verifyByPolling());
+      Assert.assertTrue(verifyResources(routingTableProvider, "TestDB0", "TestDB3"));
+
+      // Switch to another resource
+      routingTableProvider
+          .setResourceFilter(RoutingResourceFilter.forResources(Arrays.asList("TestDB1")));
+      Assert.assertTrue(verifyResources(routingTableProvider, "TestDB1"));
+    } finally {
+      routingTableProvider.shutdown();
+      _gSetupTool.dropResourceFromCluster(CLUSTER_NAME, "TestDB3");
+      Assert.assertTrue(_clusterVerifier.verifyByPolling());
+    }
+  }
+
+  @Test(dependsOnMethods = "testExplicitResources")
+  public void testInstanceGroupTags() throws Exception {
+    RoutingTableProvider routingTableProvider = new RoutingTableProvider(_spectator,
+        PropertyType.EXTERNALVIEW,
+        RoutingResourceFilter.forInstanceGroupTags(Collections.singletonList(TAG_A)));
+    try {
+      Assert.assertTrue(verifyResources(routingTableProvider, "TestDB0", "TestDB2"));
+
+      // A new resource with the tag is selected, a new resource without it is not
+      createTaggedDB("TestDB4", TAG_A);
+      createTaggedDB("TestDB5", TAG_B);
+      Assert.assertTrue(_clusterVerifier.verifyByPolling());
+      Assert.assertTrue(verifyResources(routingTableProvider, "TestDB0", "TestDB2", "TestDB4"));
+
+      // A dropped resource is removed
+      _gSetupTool.dropResourceFromCluster(CLUSTER_NAME, "TestDB4");
+      Assert.assertTrue(_clusterVerifier.verifyByPolling());
+      Assert.assertTrue(verifyResources(routingTableProvider, "TestDB0", "TestDB2"));
+
+      routingTableProvider.setResourceFilter(
+          RoutingResourceFilter.forInstanceGroupTags(Collections.singletonList(TAG_B)));
+      Assert.assertTrue(verifyResources(routingTableProvider, "TestDB1", "TestDB5"));
+    } finally {
+      routingTableProvider.shutdown();
+      _gSetupTool.dropResourceFromCluster(CLUSTER_NAME, "TestDB5");
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testUnsupportedSourceDataType() {
+    new RoutingTableProvider(_spectator, PropertyType.CURRENTSTATES,
+        RoutingResourceFilter.forResources(Collections.singletonList("TestDB0")));
+  }
+
+  private void createTaggedDB(String db, String tag) {
+    createDBInSemiAuto(_gSetupTool, CLUSTER_NAME, db, _instances, STATE_MODEL, 4, 3);
+    IdealState idealState =
+        _gSetupTool.getClusterManagementTool().getResourceIdealState(CLUSTER_NAME, db);
+    idealState.setInstanceGroupTag(tag);
+    _gSetupTool.getClusterManagementTool().setResourceIdealState(CLUSTER_NAME, db, idealState);
+  }
+
+  private boolean verifyResources(RoutingTableProvider routingTableProvider, String... resources)
+      throws Exception {
+    Set<String> expected = new HashSet<>(Arrays.asList(resources));
+    return TestHelper.verify(
+        () -> expected.equals(new HashSet<>(routingTableProvider.getResources())),
+        TestHelper.WAIT_DURATION);
+  }
+}
@@ -25,6 +25,7 @@ import java.util.Date;
 import java.util.List;
 
 import org.apache.helix.AccessOption;
+import org.apache.helix.DataAccessorTransaction;
 import org.apache.helix.PropertyPathBuilder;
 import org.apache.helix.TestHelper;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
@@ -160,4 +161,56 @@ public class TestWtCacheSyncOpSingleThread extends ZkUnitTestBase {
     deleteCluster(clusterName);
     System.out.println("END " + clusterName + " at " + new Date(System.currentTimeMillis()));
   }
+
+  @Test
+  public void testCommitZkCacheBaseDataAccessor() {
+    String className = TestHelper.getTestClassName();
+    String methodName = TestHelper.getTestMethodName();
+    String clusterName = className + "_" + methodName;
+    System.out.println("START " + clusterName + " at " + new Date(System.currentTimeMillis()));
+
+    String extViewPath = PropertyPathBuilder.externalView(clusterName);
+    ZkBaseDataAccessor<ZNRecord> baseAccessor = new ZkBaseDataAccessor<>(_gZkClient);
+    baseAccessor.create(extViewPath, null, AccessOption.PERSISTENT);
+
+    List<String> cachePaths = Collections.singletonList(extViewPath);
+    ZkCacheBaseDataAccessor<ZNRecord> accessor =
+        new ZkCacheBaseDataAccessor<>(baseAccessor, null, cachePaths, null);
+
+    // the created znodes are cached
+    DataAccessorTransaction<ZNRecord> transaction = new DataAccessorTransaction<>();
+    for (int i = 0; i < 3; i++) {
+      String path = PropertyPathBuilder.externalView(clusterName, "TestDB" + i);
+      transaction.create(path, new ZNRecord("TestDB" + i), AccessOption.PERSISTENT);
+    }
+    Assert.assertTrue(accessor.commit(transaction));
+    for (int i = 0; i < 3; i++) {
+      String path = PropertyPathBuilder.externalView(clusterName, "TestDB" + i);
+      Assert.assertNotNull(accessor._wtCache.get(path), "Should cache: " + path);
+    }
+    boolean ret = TestHelper.verifyZkCache(cachePaths, accessor._wtCache._cache, _gZkClient, false);
+    Assert.assertTrue(ret, "wtCache doesn't match data on Zk");
+
+    // the removed znodes are purged, the set ones are updated
+    String removedPath = PropertyPathBuilder.externalView(clusterName, "TestDB0");
+    String setPath = PropertyPathBuilder.externalView(clusterName, "TestDB1");
+    ZNRecord newRecord = new ZNRecord("TestDB1");
+    newRecord.setSimpleField("key", "value");
+    Assert.assertTrue(accessor.commit(new DataAccessorTransaction<ZNRecord>()
+        .remove(removedPath, 0).set(setPath, newRecord, 0)));
+    Assert.assertNull(accessor._wtCache.get(removedPath), "Should purge: " + removedPath);
+    Assert.assertEquals(accessor._wtCache.get(setPath).getStat().getVersion(), 1);
+    ret = TestHelper.verifyZkCache(cachePaths, accessor._wtCache._cache, _gZkClient, false);
+    Assert.assertTrue(ret, "wtCache doesn't match data on Zk");
+
+    // a failed transaction changes neither ZooKeeper nor the cache
+    Assert.assertFalse(accessor.commit(new DataAccessorTransaction<ZNRecord>()
+        .remove(setPath, 1).remove(removedPath, -1)));
+    Assert.assertNotNull(accessor._wtCache.get(setPath), "Should keep: " + setPath);
+    ret = TestHelper.verifyZkCache(cachePaths, accessor._wtCache._cache, _gZkClient, false);
+    Assert.assertTrue(ret, "wtCache doesn't match data on Zk");
+
+    deleteCluster(clusterName);
+    System.out.println("END " + clusterName + " at " + new Date(System.currentTimeMillis()));
+  }
 }
@@ -0,0 +1,126 @@
+package org.apache.helix.manager.zk;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.helix.zookeeper.zkclient.callback.ZkAsyncRetryThread;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestZkAsyncRequestWindow {
+
+  @Test
+  public void testWindowBound() throws Exception {
+    ZkAsyncRequestWindow window = new ZkAsyncRequestWindow(4, 0L);
+    List<ZkAsyncRequestWindow.Permit> permits = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      permits.add(window.acquire());
+    }
+    Assert.assertNull(window.tryAcquire());
+    Assert.assertEquals(window.getInFlightCount(), 4);
+
+    // a blocked acquire proceeds once a request completes
+    CountDownLatch acquired = new CountDownLatch(1);
+    Thread thread = new Thread(() -> {
+      window.acquire();
+      acquired.countDown();
+    });
+    thread.start();
+    Assert.assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+    Assert.assertTrue(permits.get(0).release());
+    Assert.assertTrue(acquired.await(10, TimeUnit.SECONDS));
+    thread.join();
+
+    // a permit is released once
+    Assert.assertFalse(permits.get(0).release());
+    Assert.assertEquals(window.getInFlightCount(), 4);
+    Assert.assertEquals(window.getWindowSize(), 4);
+  }
+
+  @Test
+  public void testAcquireInCallbackThread() throws Exception {
+    ZkAsyncRequestWindow window = new ZkAsyncRequestWindow(4, 0L);
+    // the callback thread releases the permits, so it must not wait for them
+    AtomicReference<Exception> error = new AtomicReference<>();
+    Thread thread = new ZkAsyncRetryThread("TestZkAsyncRequestWindow") {
+      @Override
+      public void run() {
+        try {
+          window.acquire();
+        } catch (Exception e) {
+          error.set(e);
+        }
+      }
+    };
+    thread.start();
+    thread.join(10000L);
+    Assert.assertTrue(error.get() instanceof IllegalArgumentException);
+    Assert.assertEquals(window.getInFlightCount(), 0);
+  }
+
+  @Test
+  public void testNoLimit() {
+    ZkAsyncRequestWindow window = new ZkAsyncRequestWindow(0, 0L);
+    for (int i = 0; i < 100; i++) {
+      Assert.assertNotNull(window.tryAcquire());
+    }
+    Assert.assertEquals(window.getInFlightCount(), 100);
+  }
+
+  @Test
+  public void testAdaptiveWindowSize() throws Exception {
+    ZkAsyncRequestWindow window = new ZkAsyncRequestWindow(64, 100L);
+
+    // a window of slow requests halves the window
+    completeRequests(window, 64, 150L);
+    Assert.assertEquals(window.getWindowSize(), 32);
+    completeRequests(window, 32, 150L);
+    Assert.assertEquals(window.getWindowSize(), ZkAsyncRequestWindow.MIN_WINDOW_SIZE);
+    completeRequests(window, ZkAsyncRequestWindow.MIN_WINDOW_SIZE, 150L);
+    Assert.assertEquals(window.getWindowSize(), ZkAsyncRequestWindow.MIN_WINDOW_SIZE);
+
+    // a window of fast requests grows the window by a quarter, up to the max
+    completeRequests(window, ZkAsyncRequestWindow.MIN_WINDOW_SIZE, 0L);
+    Assert.assertEquals(window.getWindowSize(), 20);
+    for (int i = 0; i < 10; i++) {
+      completeRequests(window, window.getWindowSize(), 0L);
+    }
+    Assert.assertEquals(window.getWindowSize(), 64);
+  }
+
+  private void completeRequests(ZkAsyncRequestWindow window, int count, long latency)
+      throws InterruptedException {
+    List<ZkAsyncRequestWindow.Permit> permits = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      permits.add(window.acquire());
+    }
+    if (latency > 0) {
+      Thread.sleep(latency);
+    }
+    for (ZkAsyncRequestWindow.Permit permit : permits) {
+      permit.release();
+    }
+  }
+}
@@ -28,6 +28,7 @@ import java.util.stream.Collectors;
 import com.google.common.collect.ImmutableList;
 import org.apache.helix.AccessOption;
 import org.apache.helix.BaseDataAccessor;
+import org.apache.helix.DataAccessorTransaction;
 import org.apache.helix.PropertyPathBuilder;
 import org.apache.helix.TestHelper;
 import org.apache.helix.zookeeper.api.client.RealmAwareZkClient;
@@ -36,11 +37,14 @@ import org.apache.helix.zookeeper.datamodel.ZNRecordUpdater;
 import org.apache.helix.ZkUnitTestBase;
 import org.apache.helix.manager.zk.ZkBaseDataAccessor.AccessResult;
 import org.apache.helix.manager.zk.ZkBaseDataAccessor.RetCode;
+import org.apache.helix.monitoring.mbeans.ZkAsyncRequestWindowMonitor;
 import org.apache.helix.zookeeper.exception.ZkClientException;
 import org.apache.helix.zookeeper.zkclient.DataUpdater;
 import org.apache.helix.zookeeper.zkclient.exception.ZkException;
 import org.apache.helix.zookeeper.zkclient.exception.ZkMarshallingError;
 import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.KeeperException.Code;
 import org.apache.zookeeper.data.Stat;
 import org.mockito.Mockito;
 import org.testng.Assert;
@@ -626,4 +630,112 @@ public class TestZkBaseDataAccessor extends ZkUnitTestBase {
         + new Date(System.currentTimeMillis()));
   }
 
+  @Test
+  public void testStreamingAsyncGet() throws Exception {
+    String root = _rootPath;
+    ZkBaseDataAccessor<ZNRecord> accessor = new ZkBaseDataAccessor<>(_gZkClient);
+    // the tests unregister all the MBeans, read the process-wide monitor directly
+    ZkAsyncRequestWindowMonitor monitor = ZkAsyncRequestWindowMonitor.getInstance();
+    long requestCount = (long) monitor.getAttribute("RequestCounter");
+
+    List<String> paths = new ArrayList<>();
+    List<ZNRecord> records = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      String msgId = "msg_" + i;
+      paths.add(PropertyPathBuilder.instanceMessage(root, "host_1", msgId));
+      records.add(new ZNRecord(msgId));
+    }
+    boolean[] success = accessor.createChildren(paths, records, AccessOption.PERSISTENT);
+    for (int i = 0; i < 100; i++) {
+      Assert.assertTrue(success[i], "Should succeed in create msg_" + i);
+    }
+    paths.add(PropertyPathBuilder.instanceMessage(root, "host_1", "msg_100"));
+
+    // each record is handed over once, the missing one with NONODE
+    ZNRecord[] readRecords = new ZNRecord[paths.size()];
+    Code[] readRcs = new Code[paths.size()];
+    accessor.get(paths, 0, (index, path, record, stat, rc) -> {
+      Assert.assertNull(readRcs[index], "Should read " + path + " once");
+      Assert.assertEquals(path, paths.get(index));
+      readRecords[index] = record;
+      readRcs[index] = rc;
+    });
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals(readRcs[i], Code.OK);
+      Assert.assertEquals(readRecords[i].getId(), "msg_" + i);
+    }
+    Assert.assertEquals(readRcs[100], Code.NONODE);
+    Assert.assertNull(readRecords[100]);
+
+    // the batch get is served by the same pipeline
+    List<Stat> stats = new ArrayList<>();
+    List<ZNRecord> getRecords = accessor.get(paths, stats, 0, false);
+    Assert.assertEquals(getRecords.subList(0, 100), records);
+    Assert.assertNull(getRecords.get(100));
+    Assert.assertNull(stats.get(100));
+
+    // the create, the streaming get and the batch get each issue a request per path
+    long newRequestCount = (long) monitor.getAttribute("RequestCounter");
+    Assert.assertTrue(newRequestCount - requestCount >= 100 + 2 * paths.size());
+  }
+
+  @Test
+  public void testCommitTransaction() {
+    String root = "/" + _rootPath;
+    ZkBaseDataAccessor<ZNRecord> accessor = new ZkBaseDataAccessor<>(_gZkClient);
+    String parentPath = root + "/transaction";
+    String path0 = parentPath + "/msg_0";
+    String path1 = parentPath + "/msg_1";
+
+    DataAccessorTransaction<ZNRecord> transaction = new DataAccessorTransaction<ZNRecord>()
+        .create(root, null, AccessOption.PERSISTENT)
+        .create(parentPath, null, AccessOption.PERSISTENT)
+        .create(path0, new ZNRecord("msg_0"), AccessOption.PERSISTENT)
+        .create(path1, new ZNRecord("msg_1"), AccessOption.PERSISTENT);
+    Assert.assertTrue(accessor.commit(transaction));
+    Assert.assertEquals(accessor.get(path0, null, 0).getId(), "msg_0");
+    Assert.assertEquals(accessor.get(path1, null, 0).getId(), "msg_1");
+
+    // a failed operation fails the whole transaction
+    ZNRecord record = new ZNRecord("msg_0");
+    record.setSimpleField("key", "value");
+    transaction = new DataAccessorTransaction<ZNRecord>()
+        .check(path0, 1)
+        .set(path0, record, 0)
+        .remove(path1, -1);
+    Assert.assertFalse(accessor.commit(transaction));
+    Assert.assertNull(accessor.get(path0, null, 0).getSimpleField("key"));
+    Assert.assertTrue(accessor.exists(path1, 0));
+
+    transaction = new DataAccessorTransaction<ZNRecord>()
+        .check(path0, 0)
+        .set(path0, record, 0)
+        .remove(path1, -1);
+    Assert.assertTrue(accessor.commit(transaction));
+    Assert.assertEquals(accessor.get(path0, null, 0).getSimpleField("key"), "value");
+    Assert.assertFalse(accessor.exists(path1, 0));
+
+    // the failure of the first failed operation is thrown with its code
+    try {
+      accessor.commitOrThrow(new DataAccessorTransaction<ZNRecord>().remove(parentPath, -1));
+      Assert.fail("Should fail to remove a ZNode with children");
+    } catch (ZkException e) {
+      Assert.assertEquals(((KeeperException) e.getCause()).code(), Code.NOTEMPTY);
+    }
+    Assert.assertTrue(accessor.exists(parentPath, 0));
+
+    // a transaction over the request size limit is split, and applied in order
+    char[] chars = new char[ZNRecord.SIZE_LIMIT / 3];
+    Arrays.fill(chars, 'a');
+    transaction = new DataAccessorTransaction<>();
+    for (int i = 0; i < 5; i++) {
+      ZNRecord largeRecord = new ZNRecord("large_" + i);
+      largeRecord.setSimpleField("key", new String(chars));
+      transaction.create(parentPath + "/large_" + i, largeRecord, AccessOption.PERSISTENT);
+    }
+    Assert.assertTrue(accessor.commit(transaction));
+    for (int i = 0; i < 5; i++) {
+      Assert.assertEquals(accessor.get(parentPath + "/large_" + i, null, 0).getId(), "large_" + i);
+    }
+  }
 }
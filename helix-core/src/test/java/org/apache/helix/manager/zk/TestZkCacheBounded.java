@@ -0,0 +1,181 @@
+package org.apache.helix.manager.zk;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.helix.AccessOption;
+import org.apache.helix.TestHelper;
+import org.apache.helix.ZkUnitTestBase;
+import org.apache.helix.monitoring.mbeans.ZkCacheMonitor;
+import org.apache.helix.store.HelixPropertyListener;
+import org.apache.helix.store.zk.ZNode;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.zookeeper.data.Stat;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestZkCacheBounded extends ZkUnitTestBase {
+  private static final int RECORD_COUNT = 10;
+  // each record is estimated at a little more than 1000 bytes, so 3 of them fit in the budget
+  private static final long MAX_BYTES = 3500L;
+
+  private static ZNRecord createRecord(String id) {
+    ZNRecord record = new ZNRecord(id);
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      sb.append((char) ('a' + i % 26));
+    }
+    record.setSimpleField("value", sb.toString());
+    return record;
+  }
+
+  @Test
+  public void testWriteThroughCacheEviction() throws Exception {
+    String root = "/" + TestHelper.getTestClassName() + "_" + TestHelper.getTestMethodName();
+    _gZkClient.createPersistent(root, true);
+    ZkCacheBaseDataAccessor<ZNRecord> accessor =
+        new ZkCacheBaseDataAccessor.Builder<ZNRecord>().setZkAddress(ZK_ADDR)
+            .setChrootPath(root).setWtCachePaths(Collections.singletonList(root))
+            .setCacheMaxBytes(MAX_BYTES)
+            .setCachePinnedPaths(Collections.singletonList("/pinned")).build();
+    try {
+      Assert.assertTrue(accessor.create("/pinned/config", createRecord("config"),
+          AccessOption.PERSISTENT));
+      List<String> paths = new ArrayList<>();
+      for (int i = 0; i < RECORD_COUNT; i++) {
+        String path = "/data/record_" + i;
+        paths.add(path);
+        Assert.assertTrue(
+            accessor.create(path, createRecord("record_" + i), AccessOption.PERSISTENT));
+      }
+
+      // the budget is kept, the pinned data is accounted but not evicted
+      CacheBudget budget = accessor._wtCache._budget;
+      Assert.assertNotNull(budget);
+      long recordSize = CacheBudget.estimateSize(createRecord("record_0"), null);
+      Assert.assertTrue(budget.getResidentBytes() <= MAX_BYTES + recordSize,
+          "Resident bytes " + budget.getResidentBytes() + " are over the budget");
+      ZNode pinned = accessor._wtCache.get(root + "/pinned/config");
+      Assert.assertFalse(pinned.isDataEvicted());
+      Assert.assertNotNull(pinned.getData());
+
+      // the least recently used data is evicted, the znode is kept
+      ZNode evicted = accessor._wtCache.get(root + "/data/record_0");
+      Assert.assertNotNull(evicted);
+      Assert.assertTrue(evicted.isDataEvicted());
+      Assert.assertNull(evicted.getData());
+      Assert.assertTrue(accessor.exists("/data/record_0", 0));
+      Assert.assertEquals(accessor.getChildNames("/data", 0).size(), RECORD_COUNT);
+
+      // the evicted data is read again from ZooKeeper
+      for (int i = 0; i < RECORD_COUNT; i++) {
+        Stat stat = new Stat();
+        ZNRecord record = accessor.get(paths.get(i), stat, 0);
+        Assert.assertEquals(record, createRecord("record_" + i));
+        Assert.assertEquals(stat.getVersion(), 0);
+      }
+      List<Stat> stats = new ArrayList<>();
+      List<ZNRecord> records = accessor.get(paths, stats, 0, true);
+      for (int i = 0; i < RECORD_COUNT; i++) {
+        Assert.assertEquals(records.get(i), createRecord("record_" + i));
+        Assert.assertNotNull(stats.get(i), "Should return the stat of " + paths.get(i));
+      }
+      Assert.assertFalse(accessor._wtCache.get(root + "/pinned/config").isDataEvicted());
+
+      // the data of the removed znodes is no longer accounted
+      Assert.assertTrue(accessor.remove("/data", 0));
+      Assert.assertEquals(budget.getResidentBytes(),
+          CacheBudget.estimateSize(createRecord("config"), null));
+
+      MBeanServer beanServer = ManagementFactory.getPlatformMBeanServer();
+      ObjectName objectName =
+          new ZkCacheMonitor(root, "WriteThrough", MAX_BYTES).getObjectName();
+      long hits = (long) beanServer.getAttribute(objectName, "HitCounter");
+      long misses = (long) beanServer.getAttribute(objectName, "MissCounter");
+      long evictions = (long) beanServer.getAttribute(objectName, "EvictionCounter");
+      Assert.assertTrue(hits > 0, "Should record the hits");
+      Assert.assertTrue(misses >= RECORD_COUNT - 3, "Should record the misses");
+      Assert.assertTrue(evictions >= RECORD_COUNT - 3, "Should record the evictions");
+      Assert.assertEquals(beanServer.getAttribute(objectName, "MaxBytesGauge"), MAX_BYTES);
+    } finally {
+      accessor.close();
+      _gZkClient.deleteRecursively(root);
+    }
+  }
+
+  @Test
+  public void testZkCallbackCacheEviction() throws Exception {
+    String root = "/" + TestHelper.getTestClassName() + "_" + TestHelper.getTestMethodName();
+    ZkBaseDataAccessor<ZNRecord> extAccessor = new ZkBaseDataAccessor<>(_gZkClient);
+    extAccessor.create(root + "/data", null, AccessOption.PERSISTENT);
+
+    ZkCacheBaseDataAccessor<ZNRecord> accessor =
+        new ZkCacheBaseDataAccessor.Builder<ZNRecord>().setZkAddress(ZK_ADDR)
+            .setChrootPath(root).setZkCachePaths(Collections.singletonList(root + "/data"))
+            .setCacheMaxBytes(MAX_BYTES).build();
+    final ConcurrentLinkedQueue<String> changedPaths = new ConcurrentLinkedQueue<>();
+    accessor.subscribe("/data", new HelixPropertyListener() {
+      @Override
+      public void onDataChange(String path) {
+        changedPaths.add(path);
+      }
+
+      @Override
+      public void onDataCreate(String path) {
+      }
+
+      @Override
+      public void onDataDelete(String path) {
+      }
+    });
+    try {
+      for (int i = 0; i < RECORD_COUNT; i++) {
+        extAccessor.create(root + "/data/record_" + i, createRecord("record_" + i),
+            AccessOption.PERSISTENT);
+      }
+      final String evictedPath = root + "/data/record_0";
+      Assert.assertTrue(TestHelper.verify(() -> {
+        ZNode znode = accessor._zkCache.get(evictedPath);
+        return znode != null && znode.isDataEvicted();
+      }, TestHelper.WAIT_DURATION), "Should evict the data of " + evictedPath);
+
+      // the listeners are still notified of the changes of the evicted znodes
+      ZNRecord update = createRecord("record_0");
+      update.setSimpleField("updated", "true");
+      extAccessor.set(evictedPath, update, AccessOption.PERSISTENT);
+      Assert.assertTrue(TestHelper.verify(() -> changedPaths.contains("/data/record_0"),
+          TestHelper.WAIT_DURATION), "Should notify the change of the evicted znode");
+      Assert.assertEquals(accessor._zkCache.get(evictedPath).getStat().getVersion(), 1);
+
+      ZNRecord record = accessor.get("/data/record_0", null, 0);
+      Assert.assertEquals(record, update);
+    } finally {
+      accessor.close();
+      _gZkClient.deleteRecursively(root);
+    }
+  }
+}
@@ -73,7 +73,6 @@ import org.apache.helix.participant.StateMachineEngine;
 import org.apache.helix.tools.StateModelConfigGenerator;
 import org.apache.helix.zookeeper.api.client.RealmAwareZkClient;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
-import org.apache.helix.zookeeper.exception.ZkClientException;
 import org.apache.helix.zookeeper.zkclient.exception.ZkException;
 import org.apache.zookeeper.KeeperException;
 import org.apache.zookeeper.data.Stat;
@@ -203,34 +202,45 @@ public class TestZkHelixAdmin extends ZkUnitTestBase {
       Assert.fail("HelixManager failed disconnecting");
     }
 
-    // Tests that ZkClientException thrown from ZkClient should be caught
+    // Tests that ZkException thrown from the transaction should be caught and retried,
     // and it should be converted HelixException to be rethrown
     String instancePath = PropertyPathBuilder.instance(clusterName, config.getInstanceName());
     String instanceConfigPath = PropertyPathBuilder.instanceConfig(clusterName, instanceName);
     String liveInstancePath = PropertyPathBuilder.liveInstance(clusterName, instanceName);
     RealmAwareZkClient mockZkClient = Mockito.mock(RealmAwareZkClient.class);
-    // Mock the exists() method to let dropInstance() reach deleteRecursively().
+    // Mock the exists() method to let dropInstance() reach the transaction.
     Mockito.when(mockZkClient.exists(instanceConfigPath)).thenReturn(true);
     Mockito.when(mockZkClient.exists(instancePath)).thenReturn(true);
     Mockito.when(mockZkClient.exists(liveInstancePath)).thenReturn(false);
-    Mockito.doThrow(new ZkClientException("ZkClientException: failed to delete " + instancePath,
-        new ZkException("ZkException: failed to delete " + instancePath,
-            new KeeperException.NotEmptyException(
-                "NotEmptyException: directory" + instancePath + " is not empty"))))
-        .when(mockZkClient).deleteRecursively(instancePath);
+    Mockito.doThrow(new ZkException("ZkException: failed to delete " + instancePath,
+        new KeeperException.NotEmptyException(
+            "NotEmptyException: directory" + instancePath + " is not empty")))
+        .when(mockZkClient).multi(Mockito.any());
 
     HelixAdmin helixAdminMock = new ZKHelixAdmin(mockZkClient);
     try {
       helixAdminMock.dropInstance(clusterName, config);
       Assert.fail("Should throw HelixException");
     } catch (HelixException expected) {
-      // This exception is expected because it is converted from ZkClientException and rethrown.
+      // This exception is expected because it is converted from ZkException and rethrown.
       Assert.assertEquals(expected.getMessage(),
           "Failed to drop instance: " + config.getInstanceName() + ". Retry times: 3");
-    } catch (ZkClientException e) {
-      if (e.getMessage().equals("ZkClientException: failed to delete " + instancePath)) {
-        Assert.fail("Should not throw ZkClientException because it should be caught.");
-      }
+      Assert.assertTrue(expected.getCause() instanceof ZkException);
+    } catch (ZkException e) {
+      Assert.fail("Should not throw ZkException because it should be caught.");
+    }
+
+    // The other failures are not retried
+    Mockito.doThrow(new ZkException("ZkException: failed to delete " + instancePath,
+        KeeperException.create(KeeperException.Code.NOAUTH, instancePath)))
+        .when(mockZkClient).multi(Mockito.any());
+    try {
+      helixAdminMock.dropInstance(clusterName, config);
+      Assert.fail("Should throw HelixException");
+    } catch (HelixException expected) {
+      Assert.assertEquals(expected.getMessage(),
+          "Failed to drop instance: " + config.getInstanceName() + ". Retry times: 0");
+      Assert.assertTrue(expected.getCause().getCause() instanceof KeeperException.NoAuthException);
     }
 
     tool.dropInstance(clusterName, config); // correctly drop the instance
@@ -375,6 +385,51 @@ public class TestZkHelixAdmin extends ZkUnitTestBase {
     System.out.println("END " + clusterName + " at " + new Date(System.currentTimeMillis()));
   }
 
+  // add instance keeps the folders left by a previous drop, and drop instance removes the whole
+  // instance tree
+  @Test
+  public void testAddDropInstanceWithNestedNodes() {
+    String className = TestHelper.getTestClassName();
+    String methodName = TestHelper.getTestMethodName();
+    String clusterName = className + "_" + methodName;
+
+    HelixAdmin tool = new ZKHelixAdmin(_gZkClient);
+    tool.addCluster(clusterName, true);
+    String instanceName = "host1_9999";
+    _gZkClient.createPersistent(PropertyPathBuilder.instanceMessage(clusterName, instanceName),
+        true);
+
+    InstanceConfig config = new InstanceConfig(instanceName);
+    tool.addInstance(clusterName, config);
+    Assert.assertEquals(tool.getInstanceConfig(clusterName, instanceName).getId(), instanceName);
+    Assert.assertTrue(
+        _gZkClient.exists(PropertyPathBuilder.instanceCurrentState(clusterName, instanceName)));
+    Assert.assertTrue(
+        _gZkClient.exists(PropertyPathBuilder.instanceHistory(clusterName, instanceName)));
+
+    String statusUpdatePath =
+        PropertyPathBuilder.instanceStatusUpdate(clusterName, instanceName) + "/session_0";
+    for (int i = 0; i < 10; i++) {
+      _gZkClient.createPersistent(statusUpdatePath + "/resource_" + i, true);
+    }
+    tool.dropInstance(clusterName, config);
+    Assert.assertFalse(_gZkClient.exists(PropertyPathBuilder.instance(clusterName, instanceName)));
+    Assert.assertFalse(
+        _gZkClient.exists(PropertyPathBuilder.instanceConfig(clusterName, instanceName)));
+
+    // add resource fails as a whole without the state model
+    try {
+      tool.addResource(clusterName, "test-db", 4, "MasterSlave");
+      Assert.fail("should fail if the state model does not exist");
+    } catch (HelixException e) {
+      // OK
+    }
+    Assert.assertFalse(_gZkClient
+        .exists(new PropertyKey.Builder(clusterName).idealStates("test-db").getPath()));
+
+    tool.dropCluster(clusterName);
+  }
+
   // test add/remove message constraint
   @Test
   public void testAddRemoveMsgConstraint() {
@@ -19,7 +19,13 @@ package org.apache.helix.manager.zk.client;
  * under the License.
  */
 
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 
 import org.apache.helix.TestHelper;
 import org.apache.helix.ZkUnitTestBase;
@@ -27,6 +33,9 @@ import org.apache.helix.zookeeper.api.client.HelixZkClient;
 import org.apache.helix.zookeeper.exception.ZkClientException;
 import org.apache.helix.zookeeper.zkclient.IZkDataListener;
 import org.apache.helix.zookeeper.zkclient.ZkConnection;
+import org.apache.helix.zookeeper.zkclient.metric.ZkClientMonitor;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -80,6 +89,68 @@ public class TestHelixZkClient extends ZkUnitTestBase {
     deleteCluster("testZkConnectionManager");
   }
 
+  @Test(dependsOnMethods = "testZkConnectionManager")
+  public void testPathScopedWatchers() throws Exception {
+    final String TEST_ROOT = "/testPathScopedWatchers/IDEALSTATES";
+    final String TEST_PATH = TEST_ROOT + TEST_NODE;
+    final String MONITOR_KEY = "testPathScopedWatchers";
+
+    ZkConnectionManager zkConnectionManager =
+        new ZkConnectionManager(new ZkConnection(ZK_ADDR), HelixZkClient.DEFAULT_CONNECTION_TIMEOUT,
+            MONITOR_KEY);
+    Assert.assertTrue(zkConnectionManager.waitUntilConnected(1, TimeUnit.SECONDS));
+    zkConnectionManager.createPersistent(TEST_PATH, true);
+
+    BlockingQueue<WatchedEvent> pathEvents = new LinkedBlockingQueue<>();
+    BlockingQueue<WatchedEvent> subtreeEvents = new LinkedBlockingQueue<>();
+    BlockingQueue<WatchedEvent> idleEvents = new LinkedBlockingQueue<>();
+    Watcher pathWatcher = pathEvents::add;
+    Watcher subtreeWatcher = subtreeEvents::add;
+    Watcher idleWatcher = idleEvents::add;
+    // A path can be watched by a path scoped watcher only
+    Assert.assertFalse(zkConnectionManager.addWatchedPath(pathWatcher, TEST_PATH, false));
+    Assert.assertTrue(zkConnectionManager.registerPathScopedWatcher(pathWatcher));
+    Assert.assertTrue(zkConnectionManager.registerPathScopedWatcher(subtreeWatcher));
+    Assert.assertTrue(zkConnectionManager.registerPathScopedWatcher(idleWatcher));
+    Assert.assertTrue(zkConnectionManager.addWatchedPath(pathWatcher, TEST_PATH, false));
+    Assert.assertTrue(zkConnectionManager.addWatchedPath(subtreeWatcher, TEST_ROOT, true));
+
+    // The event of the path is forwarded to the watchers of the path only
+    zkConnectionManager.watchForData(TEST_PATH);
+    zkConnectionManager.writeData(TEST_PATH, "Test");
+    Assert.assertEquals(pathEvents.poll(10, TimeUnit.SECONDS).getPath(), TEST_PATH);
+    Assert.assertEquals(subtreeEvents.poll(10, TimeUnit.SECONDS).getPath(), TEST_PATH);
+
+    zkConnectionManager.watchForData(TEST_ROOT);
+    zkConnectionManager.writeData(TEST_ROOT, "Test");
+    Assert.assertEquals(subtreeEvents.poll(10, TimeUnit.SECONDS).getPath(), TEST_ROOT);
+    Assert.assertTrue(pathEvents.isEmpty());
+    Assert.assertTrue(idleEvents.isEmpty());
+
+    // Two events are forwarded to 3 watchers in total, and skipped by 3 watchers in total
+    MBeanServer beanServer = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = ZkClientMonitor.getObjectName("ZkConnectionManager", MONITOR_KEY, null);
+    Assert.assertTrue(TestHelper.verify(
+        () -> (long) beanServer.getAttribute(name, "ForwardedEventCounter") == 2,
+        TestHelper.WAIT_DURATION));
+    Assert.assertEquals((long) beanServer.getAttribute(name, "ForwardedWatcherCounter"), 3);
+    Assert.assertEquals((long) beanServer.getAttribute(name, "SkippedWatcherCounter"), 3);
+    Assert.assertEquals((long) beanServer.getAttribute(name, "ForwardingFanOutGauge.Max"), 2);
+
+    Assert.assertTrue(zkConnectionManager.removeWatchedPath(pathWatcher, TEST_PATH, false));
+    zkConnectionManager.watchForData(TEST_PATH);
+    zkConnectionManager.writeData(TEST_PATH, "Test2");
+    Assert.assertEquals(subtreeEvents.poll(10, TimeUnit.SECONDS).getPath(), TEST_PATH);
+    Assert.assertTrue(pathEvents.isEmpty());
+
+    Assert.assertEquals(zkConnectionManager.unregisterWatcher(pathWatcher), 2);
+    Assert.assertEquals(zkConnectionManager.unregisterWatcher(subtreeWatcher), 1);
+    Assert.assertEquals(zkConnectionManager.unregisterWatcher(idleWatcher), 0);
+    zkConnectionManager.deleteRecursively(TEST_ROOT);
+    zkConnectionManager.close();
+    deleteCluster("testPathScopedWatchers");
+  }
+
   @Test(dependsOnMethods = "testZkConnectionManager")
   public void testSharingZkClient() throws Exception {
     final String TEST_ROOT = "/testSharingZkClient/IDEALSTATES";
@@ -0,0 +1,186 @@
+package org.apache.helix.messaging;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.helix.Criteria;
+import org.apache.helix.Criteria.DataSource;
+import org.apache.helix.HelixException;
+import org.apache.helix.InstanceType;
+import org.apache.helix.MockAccessor;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.PropertyType;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.LiveInstance;
+import org.apache.helix.spectator.RoutingTableProvider;
+import org.apache.helix.spectator.RoutingTableSnapshot;
+import org.apache.helix.tools.DefaultIdealStateCalculator;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TestCriteriaEvaluator {
+  private static final String CLUSTER = "TestCriteriaEvaluatorCluster";
+  private static final int NUM_INSTANCES = 5;
+
+  private final MockAccessor _accessor = new MockAccessor(CLUSTER);
+  private final List<ExternalView> _externalViews = new ArrayList<>();
+  private final List<LiveInstance> _liveInstances = new ArrayList<>();
+
+  @BeforeClass
+  public void beforeClass() {
+    PropertyKey.Builder keyBuilder = _accessor.keyBuilder();
+    List<String> instances = new ArrayList<>();
+    for (int i = 0; i < NUM_INSTANCES; i++) {
+      instances.add("localhost_" + (12918 + i));
+    }
+    // The last instance is not live
+    for (String instance : instances.subList(0, NUM_INSTANCES - 1)) {
+      LiveInstance liveInstance = new LiveInstance(instance);
+      liveInstance.setSessionId("session_" + instance);
+      _accessor.setProperty(keyBuilder.liveInstance(instance), liveInstance);
+      _liveInstances.add(liveInstance);
+    }
+    for (String db : new String[] { "TestDB", "TestDB2", "MyDB" }) {
+      ExternalView externalView = new ExternalView(DefaultIdealStateCalculator
+          .calculateIdealState(instances, 10, 2, db, "MASTER", "SLAVE"));
+      _accessor.setProperty(keyBuilder.externalView(db), externalView);
+      _externalViews.add(externalView);
+    }
+  }
+
+  @Test
+  public void testIndexedEvaluationMatchesZkEvaluation() {
+    CriteriaEvaluator zkEvaluator = new CriteriaEvaluator();
+    CriteriaEvaluator indexedEvaluator = new CriteriaEvaluator();
+    RoutingTableProvider routingTableProvider = mockRoutingTableProvider();
+    indexedEvaluator.attachRoutingTableProvider(routingTableProvider, CLUSTER);
+    verify(routingTableProvider).addRoutingTableChangeListener(indexedEvaluator, null);
+
+    String[][] criteriaList = {
+        // instance, resource, partition, state
+        { "%", "TestDB", "%", "MASTER" },
+        { "localhost_12918", "TestDB", "TestDB_1", "" },
+        { "%", "%", "%", "SLAVE" },
+        { "localhost_1291%", "%", "", "" },
+        { "%", "%", "TestDB_%", "MASTER" },
+        { "%", "%", "TestDB%1", "%" },
+        { "LOCALHOST_12918", "%", "testdb_1", "master" },
+        { "localhost_12922", "%", "%", "%" },
+        { "%", "MyDB", "%", "" },
+        { "", "%", "MyDB_1%", "" },
+    };
+    for (String[] fields : criteriaList) {
+      Criteria criteria = createCriteria(DataSource.EXTERNALVIEW, fields);
+      Set<Map<String, String>> expected =
+          new HashSet<>(zkEvaluator.evaluateCriteria(criteria, _accessor));
+      Set<Map<String, String>> actual =
+          new HashSet<>(indexedEvaluator.evaluateCriteria(criteria, _accessor));
+      Assert.assertTrue(actual.equals(expected), criteria.toString());
+    }
+
+    Criteria liveInstanceCriteria =
+        createCriteria(DataSource.LIVEINSTANCES, new String[] { "%", "", "", "" });
+    Assert.assertTrue(
+        new HashSet<>(indexedEvaluator.evaluateCriteria(liveInstanceCriteria, _accessor))
+            .equals(new HashSet<>(zkEvaluator.evaluateCriteria(liveInstanceCriteria, _accessor))));
+    Assert.assertEquals(indexedEvaluator.evaluateCriteria(liveInstanceCriteria, _accessor).size(),
+        NUM_INSTANCES - 1);
+
+    // Criteria of other clusters are not evaluated with the index
+    Criteria otherClusterCriteria =
+        createCriteria(DataSource.EXTERNALVIEW, new String[] { "%", "TestDB", "%", "" });
+    otherClusterCriteria.setClusterName("OtherCluster");
+    Assert.assertNull(indexedEvaluator.getIndexedLiveInstanceSessions(otherClusterCriteria));
+    Assert.assertEquals(indexedEvaluator.getIndexedLiveInstanceSessions(
+        createCriteria(DataSource.EXTERNALVIEW, criteriaList[0])).get("localhost_12918"),
+        "session_localhost_12918");
+  }
+
+  @Test
+  public void testMissingResource() {
+    CriteriaEvaluator indexedEvaluator = new CriteriaEvaluator();
+    indexedEvaluator.attachRoutingTableProvider(mockRoutingTableProvider(), CLUSTER);
+    Criteria criteria =
+        createCriteria(DataSource.EXTERNALVIEW, new String[] { "%", "NoSuchDB", "%", "" });
+    try {
+      indexedEvaluator.evaluateCriteria(criteria, _accessor);
+      Assert.fail("Should fail on a resource that does not exist");
+    } catch (HelixException e) {
+      // expected, same as reading the external view from zookeeper
+    }
+  }
+
+  @Test
+  public void testIndexRefreshedOnRoutingTableChange() {
+    CriteriaEvaluator indexedEvaluator = new CriteriaEvaluator();
+    RoutingTableProvider routingTableProvider = mockRoutingTableProvider();
+    indexedEvaluator.attachRoutingTableProvider(routingTableProvider, CLUSTER);
+    Criteria criteria =
+        createCriteria(DataSource.EXTERNALVIEW, new String[] { "%", "%", "%", "MASTER" });
+    Assert.assertFalse(indexedEvaluator.evaluateCriteria(criteria, _accessor).isEmpty());
+
+    // All instances go offline
+    indexedEvaluator.onRoutingTableChange(
+        mockSnapshot(_externalViews, new ArrayList<LiveInstance>()), null);
+    Assert.assertTrue(indexedEvaluator.evaluateCriteria(criteria, _accessor).isEmpty());
+
+    indexedEvaluator.detachRoutingTableProvider(routingTableProvider);
+    Assert.assertFalse(indexedEvaluator.evaluateCriteria(criteria, _accessor).isEmpty());
+  }
+
+  private RoutingTableProvider mockRoutingTableProvider() {
+    RoutingTableSnapshot snapshot = mockSnapshot(_externalViews, _liveInstances);
+    RoutingTableProvider routingTableProvider = mock(RoutingTableProvider.class);
+    when(routingTableProvider.getRoutingTableSnapshot(PropertyType.EXTERNALVIEW))
+        .thenReturn(snapshot);
+    return routingTableProvider;
+  }
+
+  private RoutingTableSnapshot mockSnapshot(Collection<ExternalView> externalViews,
+      Collection<LiveInstance> liveInstances) {
+    RoutingTableSnapshot snapshot = mock(RoutingTableSnapshot.class);
+    when(snapshot.getPropertyType()).thenReturn(PropertyType.EXTERNALVIEW);
+    when(snapshot.getExternalViews()).thenReturn(externalViews);
+    when(snapshot.getLiveInstances()).thenReturn(liveInstances);
+    return snapshot;
+  }
+
+  private Criteria createCriteria(DataSource dataSource, String[] fields) {
+    Criteria criteria = new Criteria();
+    criteria.setRecipientInstanceType(InstanceType.PARTICIPANT);
+    criteria.setDataSource(dataSource);
+    criteria.setInstanceName(fields[0]);
+    criteria.setResource(fields[1]);
+    criteria.setPartition(fields[2]);
+    criteria.setPartitionState(fields[3]);
+    return criteria;
+  }
+}
@@ -0,0 +1,128 @@
+package org.apache.helix.messaging.handling;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.helix.TestHelper;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class TestBoundedExecutorLane {
+  private ExecutorService _sharedPool;
+
+  @BeforeClass
+  public void beforeClass() {
+    _sharedPool = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterClass
+  public void afterClass() {
+    _sharedPool.shutdownNow();
+  }
+
+  @Test
+  public void testConcurrencyLimit() throws Exception {
+    BoundedExecutorLane lane = new BoundedExecutorLane("testLane", _sharedPool, 2);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+    final AtomicInteger finished = new AtomicInteger();
+    for (int i = 0; i < 5; i++) {
+      lane.submit(() -> {
+        int current = running.incrementAndGet();
+        maxRunning.accumulateAndGet(current, Math::max);
+        release.await();
+        running.decrementAndGet();
+        finished.incrementAndGet();
+        return null;
+      });
+    }
+
+    Assert.assertTrue(TestHelper.verify(() -> lane.getActiveCount() == 2, 5000));
+    Assert.assertEquals(lane.getQueueSize(), 3);
+    release.countDown();
+    Assert.assertTrue(TestHelper.verify(() -> finished.get() == 5, 5000));
+    Assert.assertEquals(maxRunning.get(), 2);
+    Assert.assertEquals(lane.getQueueSize(), 0);
+
+    lane.shutdown();
+    Assert.assertTrue(lane.awaitTermination(1, TimeUnit.SECONDS));
+    Assert.assertFalse(_sharedPool.isShutdown());
+  }
+
+  @Test
+  public void testShutdownNow() throws Exception {
+    BoundedExecutorLane lane = new BoundedExecutorLane("testLane", _sharedPool, 1);
+    final CountDownLatch started = new CountDownLatch(1);
+    Future<?> running = lane.submit(() -> {
+      started.countDown();
+      Thread.sleep(60 * 1000L);
+      return null;
+    });
+    lane.submit(() -> {
+    });
+    Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+    List<Runnable> waitingTasks = lane.shutdownNow();
+    Assert.assertEquals(waitingTasks.size(), 1);
+    Assert.assertTrue(lane.awaitTermination(5, TimeUnit.SECONDS));
+    Assert.assertTrue(running.isDone());
+    try {
+      lane.submit(() -> {
+      });
+      Assert.fail("Submitting to a shut down lane should be rejected");
+    } catch (RejectedExecutionException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testCancelRunningTask() throws Exception {
+    BoundedExecutorLane lane = new BoundedExecutorLane("testLane", _sharedPool, 1);
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch interrupted = new CountDownLatch(1);
+    Future<?> future = lane.submit(() -> {
+      started.countDown();
+      try {
+        Thread.sleep(60 * 1000L);
+      } catch (InterruptedException e) {
+        interrupted.countDown();
+      }
+    });
+    Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+    future.cancel(true);
+    Assert.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+
+    // The permit is released so the next task of the lane runs
+    Future<Boolean> next = lane.submit(() -> true);
+    Assert.assertTrue(next.get(5, TimeUnit.SECONDS));
+    lane.shutdown();
+  }
+}
@@ -341,6 +341,41 @@ public class TestHelixTaskExecutor {
     System.out.println("END TestCMTaskExecutor.testNormalMsgExecution()");
   }
 
+  @Test()
+  public void testSharedPoolExecutorStrategy() throws Exception {
+    HelixTaskExecutor executor = new HelixTaskExecutor();
+    HelixManager manager = new MockClusterManager();
+    ExecutorStrategy executorStrategy = new SharedPoolExecutorStrategy(2);
+
+    TestMessageHandlerFactory factory = new TestMessageHandlerFactory();
+    TestMessageHandlerFactory2 factory2 = new TestMessageHandlerFactory2();
+    executor.registerMessageHandlerFactory(factory.getMessageType(), factory, 1, executorStrategy);
+    executor.registerMessageHandlerFactory(factory2.getMessageType(), factory2, 2,
+        executorStrategy);
+    Assert.assertTrue(
+        executor._executorMap.get(factory.getMessageType()) instanceof BoundedExecutorLane);
+
+    NotificationContext changeContext = new NotificationContext(manager);
+    changeContext.setChangeType(HelixConstants.ChangeType.MESSAGE);
+    List<Message> msgList = new ArrayList<>();
+    for (String type : ImmutableList.of(factory.getMessageType(), factory2.getMessageType())) {
+      for (int i = 0; i < 3; i++) {
+        Message msg = new Message(type, UUID.randomUUID().toString());
+        msg.setTgtSessionId(manager.getSessionId());
+        msg.setTgtName("Localhost_1123");
+        msg.setSrcName("127.101.1.23_2234");
+        msg.setCorrelationId(UUID.randomUUID().toString());
+        msgList.add(msg);
+      }
+    }
+    executor.onMessage("someInstance", msgList, changeContext);
+
+    Assert.assertTrue(TestHelper.verify(
+        () -> factory._processedMsgIds.size() == 3 && factory2._processedMsgIds.size() == 3,
+        TestHelper.WAIT_DURATION));
+    executor.shutdown();
+  }
+
   @Test()
   public void testDuplicatedMessage() throws InterruptedException {
     System.out.println("START TestHelixTaskExecutor.testDuplicatedMessage()");
@@ -907,18 +942,20 @@ public class TestHelixTaskExecutor {
     changeContext.setChangeType(HelixConstants.ChangeType.MESSAGE);
 
     // Simulate read message already, then processing message. Should read and handle no message.
-    executor._knownMessageIds.addAll(messageIds);
+    for (String messageId : messageIds) {
+      executor._messageInbox.markKnown(messageId);
+    }
     executor.onMessage("someInstance", Collections.EMPTY_LIST, changeContext);
     Thread.sleep(3000);
     AssertJUnit.assertEquals(0, factory._processedMsgIds.size());
-    executor._knownMessageIds.clear();
+    executor._messageInbox.clear();
 
     // Processing message normally
     executor.onMessage("someInstance", Collections.EMPTY_LIST, changeContext);
     Thread.sleep(3000);
     AssertJUnit.assertEquals(nMsgs1, factory._processedMsgIds.size());
-    // After all messages are processed, _knownMessageIds should be empty.
-    Assert.assertTrue(executor._knownMessageIds.isEmpty());
+    // After all messages are processed, the known message ids should be empty.
+    Assert.assertEquals(executor._messageInbox.getKnownMessageIdCount(), 0);
     System.out.println("END " + TestHelper.getTestMethodName());
   }
 
@@ -0,0 +1,170 @@
+package org.apache.helix.messaging.handling;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.helix.HelixDataAccessor;
+import org.apache.helix.MockAccessor;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.model.Message;
+import org.apache.helix.model.Message.MessageState;
+import org.apache.helix.monitoring.mbeans.MessageInboxMonitor;
+import org.apache.helix.monitoring.mbeans.MonitorDomainNames;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+
+public class TestParticipantMessageInbox {
+  private static final String INSTANCE = "localhost_12918";
+  private static final long TTL_MS = 60 * 60 * 1000L;
+
+  @Test
+  public void testReadNewMessagesOnly() {
+    MockAccessor accessor = new MockAccessor();
+    MessageInboxMonitor monitor =
+        new MessageInboxMonitor(MonitorDomainNames.CLMParticipantReport.name(), INSTANCE);
+    ParticipantMessageInbox inbox = new ParticipantMessageInbox(TTL_MS, 100, monitor);
+    List<String> messageIds = createMessages(accessor, 3);
+
+    List<Message> messages = readNewMessages(inbox, accessor, null);
+    Assert.assertEquals(messages.size(), 3);
+    Assert.assertEquals(monitor.getInboxBacklog(), 3);
+    Assert.assertEquals(monitor.getFetchedMessageCount(), 3);
+
+    inbox.markKnown(messageIds.get(0));
+    inbox.markKnown(messageIds.get(1));
+    messages = readNewMessages(inbox, accessor, null);
+    Assert.assertEquals(messages.size(), 1);
+    Assert.assertEquals(messages.get(0).getId(), messageIds.get(2));
+    Assert.assertEquals(monitor.getInboxBacklog(), 1);
+    Assert.assertEquals(monitor.getKnownMessageIdCount(), 2);
+    Assert.assertEquals(monitor.getFetchedMessageCount(), 4);
+
+    // The removed message is forgotten once the folder listing no longer contains it
+    accessor.removeProperty(accessor.keyBuilder().message(INSTANCE, messageIds.get(0)));
+    readNewMessages(inbox, accessor, null);
+    Assert.assertFalse(inbox.isKnown(messageIds.get(0)));
+    Assert.assertTrue(inbox.isKnown(messageIds.get(1)));
+  }
+
+  @Test
+  public void testReuseListedIds() {
+    MockAccessor accessor = new MockAccessor();
+    ParticipantMessageInbox inbox = new ParticipantMessageInbox(TTL_MS, 100, null);
+    List<String> messageIds = createMessages(accessor, 3);
+
+    // Only the listed ids are read, the folder is not listed again
+    HelixDataAccessor spyAccessor = Mockito.spy(accessor);
+    List<Message> messages = readNewMessages(inbox, spyAccessor,
+        Collections.singletonList(messageIds.get(1)));
+    Assert.assertEquals(messages.size(), 1);
+    Assert.assertEquals(messages.get(0).getId(), messageIds.get(1));
+    Mockito.verify(spyAccessor, Mockito.never()).getChildNames(Mockito.any(PropertyKey.class));
+
+    // A listed id whose message is already removed is skipped
+    messages = readNewMessages(inbox, spyAccessor, Collections.singletonList("removedMessage"));
+    Assert.assertTrue(messages.isEmpty());
+  }
+
+  @Test
+  public void testBatchedFetch() {
+    MockAccessor accessor = new MockAccessor();
+    ParticipantMessageInbox inbox = new ParticipantMessageInbox(TTL_MS, 2, null);
+    Set<String> messageIds = new HashSet<>(createMessages(accessor, 5));
+
+    HelixDataAccessor spyAccessor = Mockito.spy(accessor);
+    List<Message> messages = readNewMessages(inbox, spyAccessor, null);
+    Set<String> readIds = new HashSet<>();
+    for (Message message : messages) {
+      readIds.add(message.getId());
+    }
+    Assert.assertTrue(readIds.equals(messageIds));
+    Mockito.verify(spyAccessor, Mockito.times(3))
+        .getProperty(anyListOf(PropertyKey.class), eq(false));
+  }
+
+  @Test
+  public void testKnownIdExpiry() {
+    MockAccessor accessor = new MockAccessor();
+    MessageInboxMonitor monitor =
+        new MessageInboxMonitor(MonitorDomainNames.CLMParticipantReport.name(), INSTANCE);
+    ParticipantMessageInbox inbox = new ParticipantMessageInbox(TTL_MS, 100, monitor);
+    List<String> messageIds = createMessages(accessor, 3);
+    // The first message has been read and the second one failed, both are marked in ZK
+    setMessageState(accessor, messageIds.get(0), MessageState.READ);
+    setMessageState(accessor, messageIds.get(1), MessageState.UNPROCESSABLE);
+
+    inbox.markKnown(messageIds.get(0));
+    inbox.markKnown(messageIds.get(1));
+    inbox.markKnown("neverListedMessage");
+    Assert.assertEquals(inbox.evictExpiredIds(System.currentTimeMillis()), 0);
+    Assert.assertEquals(inbox.evictExpiredIds(System.currentTimeMillis() + TTL_MS), 3);
+    Assert.assertEquals(monitor.getEvictedMessageIdCount(), 3);
+    Assert.assertEquals(inbox.getKnownMessageIdCount(), 0);
+
+    // The expired messages that are no longer new are fetched once more and become known again
+    List<Message> messages = readNewMessages(inbox, accessor, null);
+    Assert.assertEquals(messages.size(), 3);
+    Assert.assertTrue(inbox.isKnown(messageIds.get(0)));
+    Assert.assertTrue(inbox.isKnown(messageIds.get(1)));
+    Assert.assertFalse(inbox.isKnown(messageIds.get(2)));
+    messages = readNewMessages(inbox, accessor, null);
+    Assert.assertEquals(messages.size(), 1);
+    Assert.assertEquals(messages.get(0).getId(), messageIds.get(2));
+
+    inbox.clear();
+    Assert.assertEquals(inbox.getKnownMessageIdCount(), 0);
+  }
+
+  private List<Message> readNewMessages(ParticipantMessageInbox inbox,
+      HelixDataAccessor accessor, List<String> listedIds) {
+    PropertyKey.Builder keyBuilder = accessor.keyBuilder();
+    return inbox.readNewMessages(accessor, keyBuilder.messages(INSTANCE),
+        messageId -> keyBuilder.message(INSTANCE, messageId), listedIds);
+  }
+
+  private void setMessageState(MockAccessor accessor, String messageId, MessageState state) {
+    PropertyKey key = accessor.keyBuilder().message(INSTANCE, messageId);
+    Message message = accessor.getProperty(key);
+    message.setMsgState(state);
+    accessor.setProperty(key, message);
+  }
+
+  private List<String> createMessages(MockAccessor accessor, int count) {
+    List<String> messageIds = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      Message message = new Message(Message.MessageType.STATE_TRANSITION,
+          UUID.randomUUID().toString());
+      message.setTgtName(INSTANCE);
+      accessor.setProperty(accessor.keyBuilder().message(INSTANCE, message.getId()), message);
+      messageIds.add(message.getId());
+    }
+    return messageIds;
+  }
+}
@@ -124,6 +124,17 @@ public class TestRoutingTableProviderMonitor {
     Assert.assertTrue(newLatency >= latency);
     Assert.assertEquals((long) _beanServer.getAttribute(name, "DataRefreshCounter"), 2);
 
+    monitor.recordRoutingTableRefresh(20, 1024, 3, 1);
+    // A negative allocation means it is not measured
+    monitor.recordRoutingTableRefresh(10, -1, 4, 0);
+    Assert.assertEquals(
+        (long) _beanServer.getAttribute(name, "RoutingTableRefreshLatencyGauge.Max"), 20);
+    Assert.assertEquals(
+        (long) _beanServer.getAttribute(name, "RoutingTableRefreshAllocatedBytesGauge.Max"),
+        1024);
+    Assert.assertEquals((long) _beanServer.getAttribute(name, "ReusedResourceCounter"), 7);
+    Assert.assertEquals((long) _beanServer.getAttribute(name, "RebuiltResourceCounter"), 1);
+
     monitor.unregister();
   }
 
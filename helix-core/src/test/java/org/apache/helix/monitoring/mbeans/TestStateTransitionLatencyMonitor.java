@@ -0,0 +1,110 @@
+package org.apache.helix.monitoring.mbeans;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.apache.helix.monitoring.StateTransitionTimestamps;
+import org.apache.helix.monitoring.StateTransitionTimestamps.Stage;
+import org.apache.helix.monitoring.mbeans.StateTransitionLatencyMonitor.LatencyStage;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestStateTransitionLatencyMonitor {
+  @Test
+  public void testEncodeDecode() {
+    StateTransitionTimestamps timestamps = new StateTransitionTimestamps();
+    timestamps.set(Stage.MESSAGE_CREATED, 100L);
+    timestamps.set(Stage.MESSAGE_READ, 110L);
+    timestamps.set(Stage.HANDLER_STARTED, 0L);
+    timestamps.set(Stage.CURRENT_STATE_WRITTEN, 400L);
+    timestamps.set(Stage.CONTROLLER_OBSERVED, 500L);
+
+    StateTransitionTimestamps decoded = StateTransitionTimestamps.decode(timestamps.encode());
+    Assert.assertNotNull(decoded);
+    Assert.assertEquals(decoded.get(Stage.BEST_POSSIBLE_COMPUTED),
+        StateTransitionTimestamps.NOT_RECORDED);
+    Assert.assertEquals(decoded.get(Stage.MESSAGE_CREATED), 100L);
+    Assert.assertEquals(decoded.get(Stage.HANDLER_STARTED), StateTransitionTimestamps.NOT_RECORDED);
+    // The timestamps filled in by the controller are never persisted
+    Assert.assertEquals(decoded.get(Stage.CURRENT_STATE_WRITTEN),
+        StateTransitionTimestamps.NOT_RECORDED);
+    Assert.assertEquals(decoded.get(Stage.CONTROLLER_OBSERVED),
+        StateTransitionTimestamps.NOT_RECORDED);
+    Assert.assertEquals(decoded.getLatency(Stage.MESSAGE_CREATED, Stage.MESSAGE_READ), 10L);
+
+    Assert.assertNull(StateTransitionTimestamps.decode(null));
+    Assert.assertNull(StateTransitionTimestamps.decode("1,abc"));
+  }
+
+  @Test
+  public void testUpdateLatency() throws JMException {
+    StateTransitionLatencyMonitor monitor =
+        new StateTransitionLatencyMonitor("testCluster", "TestDB", "MasterSlave",
+            new ObjectName("testDomain:key=value"));
+    Assert.assertEquals(monitor.getSensorName(),
+        "ResourceStatus.testCluster.DEFAULT.TestDB.MasterSlave");
+
+    StateTransitionTimestamps timestamps = new StateTransitionTimestamps();
+    timestamps.set(Stage.BEST_POSSIBLE_COMPUTED, 1000L);
+    timestamps.set(Stage.MESSAGE_CREATED, 1010L);
+    timestamps.set(Stage.MESSAGE_READ, 1030L);
+    timestamps.set(Stage.HANDLER_STARTED, 1060L);
+    timestamps.set(Stage.TRANSITION_FINISHED, 1100L);
+    timestamps.set(Stage.CURRENT_STATE_WRITTEN, 1150L);
+    timestamps.set(Stage.CONTROLLER_OBSERVED, 1210L);
+    monitor.updateLatency(timestamps);
+
+    Assert.assertEquals(monitor.getObservedTransitionCounter(), 1L);
+    assertLatency(monitor, LatencyStage.MessageGeneration, 10L);
+    assertLatency(monitor, LatencyStage.MessageDelivery, 20L);
+    assertLatency(monitor, LatencyStage.ParticipantQueueing, 30L);
+    assertLatency(monitor, LatencyStage.TransitionExecution, 40L);
+    assertLatency(monitor, LatencyStage.CurrentStateUpdate, 50L);
+    assertLatency(monitor, LatencyStage.CurrentStatePropagation, 60L);
+    assertLatency(monitor, LatencyStage.EndToEnd, 210L);
+    assertLatency(monitor, LatencyStage.MessageToObserved, 200L);
+
+    // Without the best possible time, only the end to end latency is skipped.
+    // A negative latency caused by clock drift is skipped.
+    timestamps.set(Stage.BEST_POSSIBLE_COMPUTED, 0L);
+    timestamps.set(Stage.CONTROLLER_OBSERVED, 1140L);
+    monitor.updateLatency(timestamps);
+    Assert.assertEquals(monitor.getObservedTransitionCounter(), 2L);
+    Assert.assertEquals(getAttribute(monitor, LatencyStage.EndToEnd, "Mean").doubleValue(),
+        210.0d);
+    Assert.assertEquals(getAttribute(monitor, LatencyStage.MessageToObserved, "Mean").doubleValue(),
+        165.0d);
+    Assert.assertEquals(
+        getAttribute(monitor, LatencyStage.CurrentStatePropagation, "Mean").doubleValue(), 60.0d);
+  }
+
+  private void assertLatency(StateTransitionLatencyMonitor monitor, LatencyStage stage,
+      long latency) {
+    Assert.assertEquals(getAttribute(monitor, stage, "Max").longValue(), latency);
+  }
+
+  private Number getAttribute(StateTransitionLatencyMonitor monitor, LatencyStage stage,
+      String attribute) {
+    return monitor.getLatencyGauge(stage)
+        .getAttributeValue(stage.name() + "LatencyGauge." + attribute);
+  }
+}
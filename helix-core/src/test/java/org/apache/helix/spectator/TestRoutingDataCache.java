@@ -192,4 +192,24 @@ public class TestRoutingDataCache extends ZkStandAloneCMTestBase {
       Assert.assertTrue(_clusterVerifier.verifyByPolling());
     }
   }
+
+  @Test(dependsOnMethods = { "testCurrentStatesSelectiveUpdate" })
+  public void testCurrentStatesKeptPerInstance() {
+    MockZkHelixDataAccessor accessor =
+        new MockZkHelixDataAccessor(CLUSTER_NAME, new ZkBaseDataAccessor<>(_gZkClient));
+    RoutingDataCache cache = new RoutingDataCache(CLUSTER_NAME, PropertyType.CURRENTSTATES);
+    cache.refresh(accessor);
+    Map<String, Map<String, Map<String, CurrentState>>> currentStates =
+        cache.getCurrentStatesMap();
+    Assert.assertEquals(currentStates.size(), _participants.length);
+
+    // A CurrentState change without any new state keeps the same state maps of the instances
+    accessor.clearReadCounters();
+    cache.notifyDataChange(HelixConstants.ChangeType.CURRENT_STATE);
+    cache.refresh(accessor);
+    Assert.assertEquals(accessor.getReadCount(PropertyType.CURRENTSTATES), 0);
+    for (String instance : currentStates.keySet()) {
+      Assert.assertSame(cache.getCurrentStatesMap().get(instance), currentStates.get(instance));
+    }
+  }
 }
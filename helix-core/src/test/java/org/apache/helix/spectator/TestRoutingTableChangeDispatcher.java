@@ -0,0 +1,214 @@
+package org.apache.helix.spectator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.helix.PropertyType;
+import org.apache.helix.api.listeners.RoutingTableChangeListener;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.LiveInstance;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestRoutingTableChangeDispatcher {
+  private static final PropertyType EXTERNALVIEW = PropertyType.EXTERNALVIEW;
+  private static final List<String> INSTANCES =
+      Arrays.asList("localhost_12918", "localhost_12919", "localhost_12920");
+
+  @Test
+  public void testDeltas() {
+    ExternalView db0 = createExternalView("TestDB0");
+    ExternalView db1 = createExternalView("TestDB1");
+    RoutingTable routingTable = createRoutingTable(db0, db1);
+
+    ExternalView newDb0 = createExternalView("TestDB0");
+    newDb0.setState("TestDB0_0", INSTANCES.get(0), "SLAVE");
+    newDb0.setState("TestDB0_0", INSTANCES.get(1), "MASTER");
+    newDb0.getRecord().getMapField("TestDB0_1").remove(INSTANCES.get(1));
+    newDb0.setState("TestDB0_1", INSTANCES.get(2), "SLAVE");
+    ExternalView db2 = createExternalView("TestDB2");
+    RoutingTable newRoutingTable = new RoutingTable(Arrays.asList(newDb0, db1, db2),
+        createInstanceConfigs(), Collections.<LiveInstance> emptyList(), EXTERNALVIEW,
+        routingTable);
+
+    List<RoutingTableDelta> deltas = newRoutingTable.getDeltas(routingTable);
+    List<RoutingTableDelta> expected = new ArrayList<>();
+    expected.add(RoutingTableDelta.resourceAdded("TestDB2"));
+    for (int i = 0; i < 2; i++) {
+      String partition = "TestDB2_" + i;
+      expected.add(RoutingTableDelta.replicaChanged("TestDB2", partition, INSTANCES.get(i), null,
+          "MASTER"));
+      expected.add(RoutingTableDelta.replicaChanged("TestDB2", partition,
+          INSTANCES.get((i + 1) % 2), null, "SLAVE"));
+    }
+    expected.add(RoutingTableDelta.replicaChanged("TestDB0", "TestDB0_0", INSTANCES.get(0),
+        "MASTER", "SLAVE"));
+    expected.add(RoutingTableDelta.replicaChanged("TestDB0", "TestDB0_0", INSTANCES.get(1),
+        "SLAVE", "MASTER"));
+    expected.add(RoutingTableDelta.replicaChanged("TestDB0", "TestDB0_1", INSTANCES.get(1),
+        "MASTER", null));
+    expected.add(RoutingTableDelta.replicaChanged("TestDB0", "TestDB0_1", INSTANCES.get(2), null,
+        "SLAVE"));
+    Assert.assertEquals(new HashSet<>(deltas), new HashSet<>(expected));
+    Assert.assertEquals(deltas.size(), expected.size());
+    Assert.assertEquals(deltas.get(0), RoutingTableDelta.resourceAdded("TestDB2"));
+
+    // Removing a resource removes its replicas, and the resource removal is the last delta
+    RoutingTable removedRoutingTable = new RoutingTable(Arrays.asList(newDb0, db2),
+        createInstanceConfigs(), Collections.<LiveInstance> emptyList(), EXTERNALVIEW,
+        newRoutingTable);
+    deltas = removedRoutingTable.getDeltas(newRoutingTable);
+    Assert.assertEquals(deltas.size(), 5);
+    Assert.assertEquals(deltas.get(4), RoutingTableDelta.resourceRemoved("TestDB1"));
+    Assert.assertTrue(removedRoutingTable.getDeltas(removedRoutingTable).isEmpty());
+  }
+
+  @Test
+  public void testCoalescedNotifications() throws InterruptedException {
+    RoutingTableChangeDispatcher dispatcher =
+        new RoutingTableChangeDispatcher("TestRoutingTableChangeDispatcher");
+    try {
+      RoutingTable routingTable = createRoutingTable(createExternalView("TestDB0"));
+      dispatcher.publish("key", routingTable);
+
+      CountDownLatch blocked = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+      BlockingQueue<List<RoutingTableDelta>> received = new LinkedBlockingQueue<>();
+      BlockingQueue<Object> contexts = new LinkedBlockingQueue<>();
+      RoutingTableChangeListener listener = new RoutingTableChangeListener() {
+        @Override
+        public void onRoutingTableChange(RoutingTableSnapshot routingTableSnapshot,
+            Object context) {
+          Assert.fail("The deltas should be delivered");
+        }
+
+        @Override
+        public void onRoutingTableChange(RoutingTableSnapshot routingTableSnapshot,
+            List<RoutingTableDelta> deltas, Object context) {
+          received.add(deltas);
+          contexts.add(context);
+          blocked.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      };
+      Object context = new Object();
+      dispatcher.addListener(listener, context);
+
+      // The first notification carries the entries published before the listener is added
+      ExternalView db0 = createExternalView("TestDB0");
+      db0.setState("TestDB0_0", INSTANCES.get(2), "SLAVE");
+      RoutingTable routingTable1 = new RoutingTable(Collections.singletonList(db0),
+          createInstanceConfigs(), Collections.<LiveInstance> emptyList(), EXTERNALVIEW,
+        routingTable);
+      dispatcher.publish("key", routingTable1);
+      Assert.assertTrue(blocked.await(10, TimeUnit.SECONDS));
+      List<RoutingTableDelta> deltas = received.poll(10, TimeUnit.SECONDS);
+      Assert.assertEquals(deltas.size(), 6);
+      Assert.assertSame(contexts.poll(), context);
+
+      // The listener is blocked, the following changes are merged into one notification
+      ExternalView db0Changed = createExternalView("TestDB0");
+      db0Changed.setState("TestDB0_0", INSTANCES.get(2), "OFFLINE");
+      RoutingTable routingTable2 = new RoutingTable(Collections.singletonList(db0Changed),
+          createInstanceConfigs(), Collections.<LiveInstance> emptyList(), EXTERNALVIEW,
+          routingTable1);
+      dispatcher.publish("key", routingTable2);
+      RoutingTable routingTable3 = new RoutingTable(
+          Arrays.asList(db0Changed, createExternalView("TestDB1")), createInstanceConfigs(),
+          Collections.<LiveInstance> emptyList(), EXTERNALVIEW, routingTable2);
+      dispatcher.publish("key", routingTable3);
+      Assert.assertEquals(dispatcher.getPendingCount(), 1);
+      Assert.assertEquals(dispatcher.getCoalescedCount(), 1);
+
+      release.countDown();
+      deltas = received.poll(10, TimeUnit.SECONDS);
+      Assert.assertNotNull(deltas);
+      Assert.assertEquals(new HashSet<>(deltas),
+          new HashSet<>(routingTable3.getDeltas(routingTable1)));
+      Assert.assertTrue(deltas.contains(RoutingTableDelta
+          .replicaChanged("TestDB0", "TestDB0_0", INSTANCES.get(2), "SLAVE", "OFFLINE")));
+      Assert.assertTrue(deltas.contains(RoutingTableDelta.resourceAdded("TestDB1")));
+
+      // A removed listener is not notified
+      Assert.assertSame(dispatcher.removeListener(listener).getContext(), context);
+      Assert.assertNull(dispatcher.removeListener(listener));
+      dispatcher.publish("key", routingTable);
+      Assert.assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+    } finally {
+      dispatcher.shutdown();
+    }
+  }
+
+  @Test
+  public void testDeltaBuilderMerge() {
+    RoutingTableDeltaBuilder builder = new RoutingTableDeltaBuilder();
+    builder.merge(Arrays.asList(RoutingTableDelta.resourceAdded("TestDB0"),
+        RoutingTableDelta.replicaChanged("TestDB0", "TestDB0_0", "localhost_1", null, "SLAVE")));
+    builder.merge(Collections.singletonList(
+        RoutingTableDelta.replicaChanged("TestDB0", "TestDB0_0", "localhost_1", "SLAVE",
+            "MASTER")));
+    Assert.assertEquals(builder.build(), Arrays.asList(RoutingTableDelta.resourceAdded("TestDB0"),
+        RoutingTableDelta.replicaChanged("TestDB0", "TestDB0_0", "localhost_1", null, "MASTER")));
+
+    // The changes that cancel each other out are dropped
+    builder.merge(Arrays.asList(
+        RoutingTableDelta.replicaChanged("TestDB0", "TestDB0_0", "localhost_1", "MASTER", null),
+        RoutingTableDelta.resourceRemoved("TestDB0")));
+    Assert.assertTrue(builder.build().isEmpty());
+    Assert.assertEquals(builder.size(), 2);
+  }
+
+  private RoutingTable createRoutingTable(ExternalView... externalViews) {
+    return new RoutingTable(Arrays.asList(externalViews), createInstanceConfigs(),
+        Collections.<LiveInstance> emptyList());
+  }
+
+  private List<InstanceConfig> createInstanceConfigs() {
+    List<InstanceConfig> configs = new ArrayList<>();
+    for (String instanceName : INSTANCES) {
+      configs.add(new InstanceConfig(instanceName));
+    }
+    return configs;
+  }
+
+  private ExternalView createExternalView(String resource) {
+    ExternalView externalView = new ExternalView(resource);
+    for (int i = 0; i < 2; i++) {
+      String partition = resource + "_" + i;
+      externalView.setState(partition, INSTANCES.get(i), "MASTER");
+      externalView.setState(partition, INSTANCES.get((i + 1) % 2), "SLAVE");
+    }
+    return externalView;
+  }
+}
@@ -0,0 +1,183 @@
+package org.apache.helix.spectator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.LiveInstance;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestRoutingTableFile {
+  private static final List<String> INSTANCES =
+      Arrays.asList("localhost_12918", "localhost_12919", "localhost_12920");
+  private static final List<String> STATES = Arrays.asList("MASTER", "SLAVE", "OFFLINE");
+
+  private Path _directory;
+  private Path _path;
+
+  @BeforeMethod
+  public void beforeMethod() throws IOException {
+    _directory = Files.createTempDirectory(TestRoutingTableFile.class.getSimpleName());
+    _path = _directory.resolve("routing");
+  }
+
+  @AfterMethod
+  public void afterMethod() throws IOException {
+    FileUtils.deleteDirectory(_directory.toFile());
+  }
+
+  @Test
+  public void testLookups() throws IOException {
+    RoutingTableSnapshot snapshot = createSnapshot(createExternalView("TestDB0", 4),
+        createExternalView("TestDB1", 2));
+    RoutingTableFilePublisher publisher = new RoutingTableFilePublisher(_path);
+    Assert.assertEquals(publisher.publish(snapshot), 1L);
+
+    MappedRoutingTableSnapshot mapped = new RoutingTableFileReader(_path).getSnapshot();
+    Assert.assertEquals(mapped.getVersion(), 1L);
+    Assert.assertEquals(mapped.getPropertyType(), snapshot.getPropertyType().name());
+    Assert.assertTrue(
+        new HashSet<>(mapped.getResources()).equals(new HashSet<>(snapshot.getResources())));
+
+    for (String resource : Arrays.asList("TestDB0", "TestDB1")) {
+      int resourceId = mapped.getResourceId(resource);
+      Assert.assertEquals(resourceId, snapshot.getResourceId(resource));
+      Assert.assertEquals(mapped.getPartitionCount(resourceId),
+          snapshot.getPartitionCount(resourceId));
+      for (String state : STATES) {
+        int stateId = mapped.getStateId(resourceId, state);
+        Assert.assertEquals(stateId, snapshot.getStateId(resourceId, state));
+        Assert.assertEquals(toNames(mapped.getInstancesForResource(resourceId, stateId)),
+            toNames(snapshot.getInstancesForResource(resourceId, stateId)));
+        Assert.assertTrue(new HashSet<>(toNames(mapped.getInstancesForResource(resource, state)))
+            .equals(new HashSet<>(toNames(snapshot.getInstancesForResource(resource, state)))));
+        for (int p = 0; p < 4; p++) {
+          String partition = resource + "_" + p;
+          int partitionId = mapped.getPartitionId(resourceId, partition);
+          Assert.assertEquals(partitionId, snapshot.getPartitionId(resourceId, partition));
+          Assert.assertEquals(
+              toNames(mapped.getInstancesForResource(resourceId, partitionId, stateId)),
+              toNames(snapshot.getInstancesForResource(resourceId, partitionId, stateId)));
+          Assert.assertEquals(toNames(mapped.getInstancesForResource(resource, partition, state)),
+              toNames(snapshot.getInstancesForResource(resourceId, partitionId, stateId)));
+        }
+      }
+    }
+
+    InstanceConfig instance = mapped.getInstancesForResource("TestDB0", "TestDB0_0", "MASTER")
+        .get(0);
+    Assert.assertEquals(instance.getHostName(), "localhost");
+    Assert.assertEquals(instance.getPort(), instance.getInstanceName().split("_")[1]);
+    Assert.assertEquals(mapped.getResourceId("NotExist"), RoutingTableSnapshot.UNKNOWN_ID);
+    Assert.assertTrue(mapped.getInstancesForResource("NotExist", "NotExist_0", "MASTER").isEmpty());
+    Assert.assertTrue(mapped.getInstancesForResource("TestDB1", "TestDB1_9", "MASTER").isEmpty());
+  }
+
+  @Test
+  public void testRefresh() throws IOException {
+    RoutingTableFilePublisher publisher = new RoutingTableFilePublisher(_path);
+    publisher.publish(createSnapshot(createExternalView("TestDB0", 2)));
+    RoutingTableFileReader reader = new RoutingTableFileReader(_path);
+    MappedRoutingTableSnapshot mapped = reader.getSnapshot();
+    Assert.assertFalse(reader.refresh());
+
+    ExternalView externalView = createExternalView("TestDB0", 2);
+    externalView.setState("TestDB0_0", INSTANCES.get(0), "SLAVE");
+    externalView.setState("TestDB0_0", INSTANCES.get(1), "MASTER");
+    publisher.onRoutingTableChange(createSnapshot(externalView), null);
+    Assert.assertTrue(reader.refresh());
+    Assert.assertEquals(reader.getSnapshot().getVersion(), 2L);
+    Assert.assertEquals(
+        reader.getSnapshot().getInstancesForResource("TestDB0", "TestDB0_0", "MASTER").get(0)
+            .getInstanceName(), INSTANCES.get(1));
+    // The previous snapshot is still readable
+    Assert.assertEquals(mapped.getInstancesForResource("TestDB0", "TestDB0_0", "MASTER").get(0)
+        .getInstanceName(), INSTANCES.get(0));
+
+    // A new publisher continues the versions
+    Assert.assertEquals(new RoutingTableFilePublisher(_path).getPublishedVersion(), 2L);
+  }
+
+  @Test
+  public void testInvalidFile() throws IOException {
+    new RoutingTableFilePublisher(_path)
+        .publish(createSnapshot(createExternalView("TestDB0", 2)));
+    byte[] bytes = Files.readAllBytes(_path);
+    Files.write(_path, Arrays.copyOf(bytes, bytes.length - 1));
+    try {
+      new RoutingTableFileReader(_path);
+      Assert.fail("A truncated file should not be loaded");
+    } catch (IOException e) {
+      // expected
+    }
+
+    Files.write(_path, new byte[RoutingTableFileFormat.HEADER_SIZE]);
+    try {
+      new RoutingTableFileReader(_path);
+      Assert.fail("A file without the magic number should not be loaded");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  private RoutingTableSnapshot createSnapshot(ExternalView... externalViews) {
+    List<InstanceConfig> configs = new ArrayList<>();
+    for (String instanceName : INSTANCES) {
+      InstanceConfig config = new InstanceConfig(instanceName);
+      config.setHostName("localhost");
+      config.setPort(instanceName.split("_")[1]);
+      configs.add(config);
+    }
+    return new RoutingTableSnapshot(new RoutingTable(Arrays.asList(externalViews), configs,
+        Collections.<LiveInstance> emptyList()));
+  }
+
+  private ExternalView createExternalView(String resource, int partitions) {
+    ExternalView externalView = new ExternalView(resource);
+    for (int i = 0; i < partitions; i++) {
+      String partition = resource + "_" + i;
+      externalView.setState(partition, INSTANCES.get(i % 2), "MASTER");
+      externalView.setState(partition, INSTANCES.get((i + 1) % 2), "SLAVE");
+      externalView.setState(partition, INSTANCES.get(2), i == 0 ? "OFFLINE" : "SLAVE");
+    }
+    return externalView;
+  }
+
+  private List<String> toNames(Iterable<InstanceConfig> instances) {
+    List<String> names = new ArrayList<>();
+    for (InstanceConfig instance : instances) {
+      names.add(instance.getInstanceName());
+    }
+    return names;
+  }
+}
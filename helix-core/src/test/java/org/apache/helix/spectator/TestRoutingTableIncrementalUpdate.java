@@ -0,0 +1,352 @@
+package org.apache.helix.spectator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.helix.PropertyType;
+import org.apache.helix.model.CurrentState;
+import org.apache.helix.model.CustomizedView;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.LiveInstance;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestRoutingTableIncrementalUpdate {
+  private static final String INSTANCE_0 = "localhost_12918";
+  private static final String INSTANCE_1 = "localhost_12919";
+  private static final String INSTANCE_2 = "localhost_12920";
+
+  @Test
+  public void testReuseUnchangedResources() {
+    List<InstanceConfig> configs = createInstanceConfigs(INSTANCE_0, INSTANCE_1);
+    ExternalView db0 = createExternalView("TestDB0", INSTANCE_0, INSTANCE_1);
+    ExternalView db1 = createExternalView("TestDB1", INSTANCE_0, INSTANCE_1);
+    RoutingTable routingTable = buildRoutingTable(Arrays.asList(db0, db1), configs, null);
+    Assert.assertEquals(routingTable.getRebuiltResourceCount(), 2);
+    Assert.assertEquals(routingTable.getReusedResourceCount(), 0);
+
+    // Move the master of one partition of TestDB1
+    ExternalView newDb1 = createExternalView("TestDB1", INSTANCE_0, INSTANCE_1);
+    newDb1.setState("TestDB1_0", INSTANCE_0, "SLAVE");
+    newDb1.setState("TestDB1_0", INSTANCE_1, "MASTER");
+    RoutingTable newRoutingTable =
+        buildRoutingTable(Arrays.asList(db0, newDb1), configs, routingTable);
+    Assert.assertEquals(newRoutingTable.getReusedResourceCount(), 1);
+    Assert.assertEquals(newRoutingTable.getRebuiltResourceCount(), 1);
+    Assert.assertSame(newRoutingTable.get("TestDB0"), routingTable.get("TestDB0"));
+    Assert.assertNotSame(newRoutingTable.get("TestDB1"), routingTable.get("TestDB1"));
+    Assert.assertEquals(
+        newRoutingTable.getInstancesForResource("TestDB1", "TestDB1_0", "MASTER").get(0)
+            .getInstanceName(), INSTANCE_1);
+    // The previous table is not changed
+    Assert.assertEquals(
+        routingTable.getInstancesForResource("TestDB1", "TestDB1_0", "MASTER").get(0)
+            .getInstanceName(), INSTANCE_0);
+
+    // Drop TestDB0
+    RoutingTable droppedRoutingTable =
+        buildRoutingTable(Collections.singletonList(newDb1), configs, newRoutingTable);
+    Assert.assertNull(droppedRoutingTable.get("TestDB0"));
+    Assert.assertTrue(new HashSet<>(droppedRoutingTable.getResources())
+        .equals(Collections.singleton("TestDB1")));
+    Assert.assertEquals(droppedRoutingTable.getReusedResourceCount(), 1);
+  }
+
+  @Test
+  public void testRebuildOnInstanceConfigChange() {
+    List<InstanceConfig> configs = createInstanceConfigs(INSTANCE_0, INSTANCE_1);
+    ExternalView db0 = createExternalView("TestDB0", INSTANCE_0, INSTANCE_1);
+    // INSTANCE_2 has no config yet, so its entries are skipped
+    ExternalView db1 = createExternalView("TestDB1", INSTANCE_0, INSTANCE_2);
+    RoutingTable routingTable = buildRoutingTable(Arrays.asList(db0, db1), configs, null);
+    Assert.assertTrue(routingTable.getInstancesForResource("TestDB1", "SLAVE").isEmpty());
+
+    // Adding the config of INSTANCE_2 only rebuilds the resource that refers to it
+    List<InstanceConfig> newConfigs = new ArrayList<>(configs);
+    newConfigs.addAll(createInstanceConfigs(INSTANCE_2));
+    RoutingTable newRoutingTable =
+        buildRoutingTable(Arrays.asList(db0, db1), newConfigs, routingTable);
+    Assert.assertSame(newRoutingTable.get("TestDB0"), routingTable.get("TestDB0"));
+    Assert.assertEquals(newRoutingTable.getRebuiltResourceCount(), 1);
+    Assert.assertEquals(newRoutingTable.getInstancesForResource("TestDB1", "SLAVE").size(), 1);
+
+    // Replacing the config of INSTANCE_1 rebuilds TestDB0 only
+    List<InstanceConfig> replacedConfigs = new ArrayList<>(newConfigs);
+    replacedConfigs.set(1, createInstanceConfigs(INSTANCE_1).get(0));
+    RoutingTable replacedRoutingTable =
+        buildRoutingTable(Arrays.asList(db0, db1), replacedConfigs, newRoutingTable);
+    Assert.assertNotSame(replacedRoutingTable.get("TestDB0"), newRoutingTable.get("TestDB0"));
+    Assert.assertSame(replacedRoutingTable.get("TestDB1"), newRoutingTable.get("TestDB1"));
+  }
+
+  @Test
+  public void testResourceGroup() {
+    List<InstanceConfig> configs = createInstanceConfigs(INSTANCE_0, INSTANCE_1);
+    ExternalView db0 = createGroupExternalView("TestDB0", "TestGroup", "TagA");
+    ExternalView db1 = createGroupExternalView("TestDB1", "TestGroup", "TagB");
+    RoutingTable routingTable = buildRoutingTable(Arrays.asList(db0, db1), configs, null);
+    Assert.assertEquals(routingTable.getInstancesForResourceGroup("TestGroup", "MASTER").size(),
+        1);
+
+    RoutingTable sameRoutingTable =
+        buildRoutingTable(Arrays.asList(db0, db1), configs, routingTable);
+    Assert.assertSame(sameRoutingTable.getResourceGroup("TestGroup"),
+        routingTable.getResourceGroup("TestGroup"));
+
+    // A changed member rebuilds the group
+    ExternalView newDb1 = createGroupExternalView("TestDB1", "TestGroup", "TagB");
+    newDb1.setState("TestDB1_0", INSTANCE_1, "MASTER");
+    RoutingTable newRoutingTable =
+        buildRoutingTable(Arrays.asList(db0, newDb1), configs, sameRoutingTable);
+    Assert.assertNotSame(newRoutingTable.getResourceGroup("TestGroup"),
+        sameRoutingTable.getResourceGroup("TestGroup"));
+    Assert.assertEquals(newRoutingTable.getInstancesForResourceGroup("TestGroup", "MASTER").size(),
+        2);
+    Assert.assertEquals(newRoutingTable
+        .getInstancesForResourceGroup("TestGroup", "MASTER", Collections.singletonList("TagA"))
+        .size(), 1);
+
+    // A removed member rebuilds the group
+    RoutingTable removedRoutingTable =
+        buildRoutingTable(Collections.singletonList(db0), configs, newRoutingTable);
+    Assert.assertSame(removedRoutingTable.get("TestDB0"), newRoutingTable.get("TestDB0"));
+    Assert.assertEquals(
+        removedRoutingTable.getInstancesForResourceGroup("TestGroup", "MASTER").size(), 1);
+    Assert.assertTrue(removedRoutingTable
+        .getInstancesForResourceGroup("TestGroup", "MASTER", Collections.singletonList("TagB"))
+        .isEmpty());
+  }
+
+  @Test
+  public void testCustomizedView() {
+    List<InstanceConfig> configs = createInstanceConfigs(INSTANCE_0, INSTANCE_1);
+    CustomizedView view0 = new CustomizedView("TestDB0");
+    view0.setState("TestDB0_0", INSTANCE_0, "ONLINE");
+    CustomizedView view1 = new CustomizedView("TestDB1");
+    view1.setState("TestDB1_0", INSTANCE_1, "ONLINE");
+    RoutingTable routingTable = new CustomizedViewRoutingTable(Arrays.asList(view0, view1),
+        configs, Collections.<LiveInstance> emptyList(), PropertyType.CUSTOMIZEDVIEW, "typeA",
+        null);
+
+    CustomizedView newView1 = new CustomizedView("TestDB1");
+    newView1.setState("TestDB1_0", INSTANCE_0, "ONLINE");
+    RoutingTable newRoutingTable = new CustomizedViewRoutingTable(Arrays.asList(view0, newView1),
+        configs, Collections.<LiveInstance> emptyList(), PropertyType.CUSTOMIZEDVIEW, "typeA",
+        routingTable);
+    Assert.assertSame(newRoutingTable.get("TestDB0"), routingTable.get("TestDB0"));
+    Assert.assertEquals(newRoutingTable.getReusedResourceCount(), 1);
+    Assert.assertEquals(
+        newRoutingTable.getInstancesForResource("TestDB1", "TestDB1_0", "ONLINE").get(0)
+            .getInstanceName(), INSTANCE_0);
+    Assert.assertEquals(newRoutingTable.getStateType(), "typeA");
+  }
+
+  @Test
+  public void testCurrentStates() {
+    List<InstanceConfig> configs = createInstanceConfigs(INSTANCE_0, INSTANCE_1, INSTANCE_2);
+    List<LiveInstance> liveInstances = createLiveInstances(INSTANCE_0, INSTANCE_1, INSTANCE_2);
+    Map<String, Map<String, Map<String, CurrentState>>> currentStateMap = new HashMap<>();
+    putCurrentStates(currentStateMap, INSTANCE_0, createCurrentState("TestDB0", "MASTER"),
+        createCurrentState("TestDB1", "SLAVE"));
+    putCurrentStates(currentStateMap, INSTANCE_1, createCurrentState("TestDB0", "SLAVE"),
+        createCurrentState("TestDB1", "MASTER"));
+    putCurrentStates(currentStateMap, INSTANCE_2, createCurrentState("TestDB2", "MASTER"));
+    RoutingTable routingTable =
+        new RoutingTable(currentStateMap, configs, liveInstances, null);
+    Assert.assertEquals(routingTable.getRebuiltResourceCount(), 3);
+
+    // Unchanged CurrentState maps share all the resources
+    RoutingTable sameRoutingTable =
+        new RoutingTable(currentStateMap, configs, liveInstances, routingTable);
+    Assert.assertEquals(sameRoutingTable.getReusedResourceCount(), 3);
+    Assert.assertEquals(sameRoutingTable.getRebuiltResourceCount(), 0);
+
+    // A change on INSTANCE_2 only recomputes its resource
+    Map<String, Map<String, Map<String, CurrentState>>> newCurrentStateMap =
+        new HashMap<>(currentStateMap);
+    putCurrentStates(newCurrentStateMap, INSTANCE_2, createCurrentState("TestDB2", "SLAVE"));
+    RoutingTable newRoutingTable =
+        new RoutingTable(newCurrentStateMap, configs, liveInstances, sameRoutingTable);
+    Assert.assertEquals(newRoutingTable.getRebuiltResourceCount(), 1);
+    Assert.assertSame(newRoutingTable.get("TestDB0"), routingTable.get("TestDB0"));
+    Assert.assertSame(newRoutingTable.get("TestDB1"), routingTable.get("TestDB1"));
+    Assert.assertTrue(newRoutingTable.getInstancesForResource("TestDB2", "MASTER").isEmpty());
+    Assert.assertEquals(newRoutingTable.getInstancesForResource("TestDB2", "SLAVE").size(), 1);
+    Assert.assertFalse(newRoutingTable.hasSameEntries(sameRoutingTable));
+    Assert.assertTrue(newRoutingTable.hasSameEntries(
+        new RoutingTable(newCurrentStateMap, configs, liveInstances)));
+
+    // INSTANCE_0 goes offline, the resources it had CurrentStates of are recomputed
+    RoutingTable offlineRoutingTable = new RoutingTable(newCurrentStateMap, configs,
+        createLiveInstances(INSTANCE_1, INSTANCE_2), newRoutingTable);
+    Assert.assertEquals(offlineRoutingTable.getRebuiltResourceCount(), 2);
+    Assert.assertSame(offlineRoutingTable.get("TestDB2"), newRoutingTable.get("TestDB2"));
+    Assert.assertTrue(offlineRoutingTable.getInstancesForResource("TestDB0", "MASTER").isEmpty());
+    Assert.assertEquals(
+        offlineRoutingTable.getInstancesForResource("TestDB0", "TestDB0_0", "SLAVE").get(0)
+            .getInstanceName(), INSTANCE_1);
+    Assert.assertTrue(offlineRoutingTable.hasSameEntries(new RoutingTable(newCurrentStateMap,
+        configs, createLiveInstances(INSTANCE_1, INSTANCE_2))));
+
+    // INSTANCE_2 drops its only resource
+    Map<String, Map<String, Map<String, CurrentState>>> droppedCurrentStateMap =
+        new HashMap<>(newCurrentStateMap);
+    putCurrentStates(droppedCurrentStateMap, INSTANCE_2);
+    RoutingTable droppedRoutingTable = new RoutingTable(droppedCurrentStateMap, configs,
+        createLiveInstances(INSTANCE_1, INSTANCE_2), offlineRoutingTable);
+    Assert.assertTrue(new HashSet<>(droppedRoutingTable.getResources())
+        .equals(new HashSet<>(Arrays.asList("TestDB0", "TestDB1"))));
+  }
+
+  @Test
+  public void testCurrentStateDeltas() {
+    List<InstanceConfig> configs = createInstanceConfigs(INSTANCE_0, INSTANCE_1);
+    List<LiveInstance> liveInstances = createLiveInstances(INSTANCE_0, INSTANCE_1);
+    CurrentState db0 = createCurrentState("TestDB0", "MASTER");
+    CurrentState db1 = new CurrentState("TestDB1");
+    db1.setState("TestDB1_0", "MASTER");
+    CurrentState otherDb1 = new CurrentState("TestDB1");
+    otherDb1.setState("TestDB1_1", "MASTER");
+    Map<String, Map<String, Map<String, CurrentState>>> currentStateMap = new HashMap<>();
+    putCurrentStates(currentStateMap, INSTANCE_0, db0, db1);
+    putCurrentStates(currentStateMap, INSTANCE_1, otherDb1);
+    RoutingTable routingTable = new RoutingTable(currentStateMap, configs, liveInstances, null);
+
+    // A change of one CurrentState of INSTANCE_0 does not recompute its other resource, and only
+    // replaces the entries of INSTANCE_0
+    Map<String, Map<String, Map<String, CurrentState>>> newCurrentStateMap =
+        new HashMap<>(currentStateMap);
+    CurrentState newDb1 = new CurrentState("TestDB1");
+    newDb1.setState("TestDB1_0", "SLAVE");
+    putCurrentStates(newCurrentStateMap, INSTANCE_0, db0, newDb1);
+    RoutingTable newRoutingTable =
+        new RoutingTable(newCurrentStateMap, configs, liveInstances, routingTable);
+    Assert.assertEquals(newRoutingTable.getRebuiltResourceCount(), 1);
+    Assert.assertSame(newRoutingTable.get("TestDB0"), routingTable.get("TestDB0"));
+    Assert.assertSame(newRoutingTable.get("TestDB1").get("TestDB1_1"),
+        routingTable.get("TestDB1").get("TestDB1_1"));
+    Assert.assertEquals(
+        newRoutingTable.getInstancesForResource("TestDB1", "TestDB1_0", "SLAVE").get(0)
+            .getInstanceName(), INSTANCE_0);
+    Assert.assertEquals(newRoutingTable.getInstancesForResource("TestDB1", "MASTER").size(), 1);
+    Assert.assertTrue(newRoutingTable.hasSameEntries(
+        new RoutingTable(newCurrentStateMap, configs, liveInstances)));
+    // The previous table is not changed
+    Assert.assertEquals(routingTable.getInstancesForResource("TestDB1", "MASTER").size(), 2);
+    Assert.assertTrue(
+        routingTable.getInstancesForResource("TestDB1", "TestDB1_0", "SLAVE").isEmpty());
+
+    // A replaced config replaces the entries of its instance in all its resources
+    List<InstanceConfig> newConfigs =
+        Arrays.asList(createInstanceConfigs(INSTANCE_0).get(0), configs.get(1));
+    RoutingTable configRoutingTable =
+        new RoutingTable(newCurrentStateMap, newConfigs, liveInstances, newRoutingTable);
+    Assert.assertEquals(configRoutingTable.getRebuiltResourceCount(), 2);
+    Assert.assertSame(
+        configRoutingTable.getInstancesForResource("TestDB0", "TestDB0_0", "MASTER").get(0),
+        newConfigs.get(0));
+    Assert.assertSame(configRoutingTable.getInstancesForResource("TestDB1", "SLAVE").iterator()
+        .next(), newConfigs.get(0));
+    Assert.assertTrue(configRoutingTable.hasSameEntries(
+        new RoutingTable(newCurrentStateMap, newConfigs, liveInstances)));
+
+    // The resource is removed with the last entries
+    Map<String, Map<String, Map<String, CurrentState>>> droppedCurrentStateMap =
+        new HashMap<>(newCurrentStateMap);
+    putCurrentStates(droppedCurrentStateMap, INSTANCE_0, newDb1);
+    RoutingTable droppedRoutingTable =
+        new RoutingTable(droppedCurrentStateMap, newConfigs, liveInstances, configRoutingTable);
+    Assert.assertNull(droppedRoutingTable.get("TestDB0"));
+    Assert.assertTrue(droppedRoutingTable.hasSameEntries(
+        new RoutingTable(droppedCurrentStateMap, newConfigs, liveInstances)));
+  }
+
+  private void putCurrentStates(Map<String, Map<String, Map<String, CurrentState>>> currentStateMap,
+      String instanceName, CurrentState... currentStates) {
+    Map<String, CurrentState> resourceStates = new HashMap<>();
+    for (CurrentState currentState : currentStates) {
+      resourceStates.put(currentState.getResourceName(), currentState);
+    }
+    currentStateMap.put(instanceName,
+        Collections.singletonMap(instanceName + "_session", resourceStates));
+  }
+
+  private CurrentState createCurrentState(String resource, String state) {
+    CurrentState currentState = new CurrentState(resource);
+    currentState.setState(resource + "_0", state);
+    return currentState;
+  }
+
+  private List<LiveInstance> createLiveInstances(String... instanceNames) {
+    List<LiveInstance> liveInstances = new ArrayList<>();
+    for (String instanceName : instanceNames) {
+      LiveInstance liveInstance = new LiveInstance(instanceName);
+      liveInstance.setSessionId(instanceName + "_session");
+      liveInstances.add(liveInstance);
+    }
+    return liveInstances;
+  }
+
+  private RoutingTable buildRoutingTable(List<ExternalView> externalViews,
+      List<InstanceConfig> configs, RoutingTable previous) {
+    return new RoutingTable(externalViews, configs, Collections.<LiveInstance> emptyList(),
+        PropertyType.EXTERNALVIEW, previous);
+  }
+
+  private ExternalView createExternalView(String resource, String master, String slave) {
+    ExternalView externalView = new ExternalView(resource);
+    for (int i = 0; i < 2; i++) {
+      externalView.setState(resource + "_" + i, master, "MASTER");
+      externalView.setState(resource + "_" + i, slave, "SLAVE");
+    }
+    return externalView;
+  }
+
+  private ExternalView createGroupExternalView(String resource, String group, String tag) {
+    ExternalView externalView = new ExternalView(resource);
+    externalView.getRecord()
+        .setSimpleField(ExternalView.ExternalViewProperty.RESOURCE_GROUP_NAME.name(), group);
+    externalView.getRecord()
+        .setSimpleField(ExternalView.ExternalViewProperty.INSTANCE_GROUP_TAG.name(), tag);
+    externalView.getRecord()
+        .setBooleanField(ExternalView.ExternalViewProperty.GROUP_ROUTING_ENABLED.name(), true);
+    externalView.setState(group + "_0", INSTANCE_0, "MASTER");
+    return externalView;
+  }
+
+  private List<InstanceConfig> createInstanceConfigs(String... instanceNames) {
+    List<InstanceConfig> configs = new ArrayList<>();
+    for (String instanceName : instanceNames) {
+      InstanceConfig config = new InstanceConfig(instanceName);
+      config.setHostName("localhost");
+      config.setPort(instanceName.split("_")[1]);
+      configs.add(config);
+    }
+    return configs;
+  }
+}
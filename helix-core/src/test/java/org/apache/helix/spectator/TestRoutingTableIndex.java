@@ -0,0 +1,153 @@
+package org.apache.helix.spectator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.helix.PropertyType;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.LiveInstance;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestRoutingTableIndex {
+  private static final List<String> INSTANCES =
+      Arrays.asList("localhost_12918", "localhost_12919", "localhost_12920");
+
+  @Test
+  public void testLookupByIds() {
+    ExternalView db0 = createExternalView("TestDB0", 4);
+    ExternalView db1 = createExternalView("TestDB1", 2);
+    RoutingTableSnapshot snapshot = new RoutingTableSnapshot(
+        new RoutingTable(Arrays.asList(db0, db1), createInstanceConfigs(),
+            Collections.<LiveInstance> emptyList()));
+
+    for (ExternalView externalView : Arrays.asList(db0, db1)) {
+      String resource = externalView.getResourceName();
+      int resourceId = snapshot.getResourceId(resource);
+      Assert.assertTrue(resourceId != RoutingTableSnapshot.UNKNOWN_ID);
+      Assert.assertEquals(snapshot.getPartitionCount(resourceId),
+          externalView.getPartitionSet().size());
+      for (String state : Arrays.asList("MASTER", "SLAVE")) {
+        int stateId = snapshot.getStateId(resourceId, state);
+        Assert.assertEquals(snapshot.getInstancesForResource(resourceId, stateId),
+            new ArrayList<>(snapshot.getInstancesForResource(resource, state)));
+        for (String partition : externalView.getPartitionSet()) {
+          int partitionId = snapshot.getPartitionId(resourceId, partition);
+          List<InstanceConfig> instances =
+              snapshot.getInstancesForResource(resourceId, partitionId, stateId);
+          List<InstanceConfig> expected =
+              new ArrayList<>(snapshot.getInstancesForResource(resource, partition, state));
+          expected.sort((c1, c2) -> c1.getId().compareTo(c2.getId()));
+          Assert.assertEquals(instances, expected);
+          // The same list is returned, nothing is allocated per lookup
+          Assert.assertSame(snapshot.getInstancesForResource(resourceId, partitionId, stateId),
+              instances);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testUnknownIds() {
+    RoutingTableSnapshot snapshot = new RoutingTableSnapshot(
+        new RoutingTable(Collections.singletonList(createExternalView("TestDB0", 2)),
+            createInstanceConfigs(), Collections.<LiveInstance> emptyList()));
+    int resourceId = snapshot.getResourceId("TestDB0");
+    int stateId = snapshot.getStateId(resourceId, "MASTER");
+
+    Assert.assertEquals(snapshot.getResourceId("NotExist"), RoutingTableSnapshot.UNKNOWN_ID);
+    Assert.assertEquals(snapshot.getPartitionId(resourceId, "NotExist"),
+        RoutingTableSnapshot.UNKNOWN_ID);
+    Assert.assertEquals(snapshot.getStateId(resourceId, "OFFLINE"),
+        RoutingTableSnapshot.UNKNOWN_ID);
+    Assert.assertEquals(snapshot.getPartitionId(RoutingTableSnapshot.UNKNOWN_ID, "TestDB0_0"),
+        RoutingTableSnapshot.UNKNOWN_ID);
+    Assert.assertEquals(snapshot.getPartitionCount(RoutingTableSnapshot.UNKNOWN_ID), 0);
+    Assert.assertTrue(snapshot
+        .getInstancesForResource(RoutingTableSnapshot.UNKNOWN_ID, 0, stateId).isEmpty());
+    Assert.assertTrue(snapshot.getInstancesForResource(resourceId, 5, stateId).isEmpty());
+    Assert.assertTrue(snapshot
+        .getInstancesForResource(resourceId, 0, RoutingTableSnapshot.UNKNOWN_ID).isEmpty());
+    Assert.assertTrue(snapshot.getInstancesForResource(resourceId, 99).isEmpty());
+
+    // A state that only some partitions are in
+    ExternalView externalView = createExternalView("TestDB1", 2);
+    externalView.setState("TestDB1_0", INSTANCES.get(2), "OFFLINE");
+    snapshot = new RoutingTableSnapshot(new RoutingTable(Collections.singletonList(externalView),
+        createInstanceConfigs(), Collections.<LiveInstance> emptyList()));
+    resourceId = snapshot.getResourceId("TestDB1");
+    int offlineId = snapshot.getStateId(resourceId, "OFFLINE");
+    Assert.assertEquals(snapshot.getInstancesForResource(resourceId,
+        snapshot.getPartitionId(resourceId, "TestDB1_0"), offlineId).size(), 1);
+    Assert.assertTrue(snapshot.getInstancesForResource(resourceId,
+        snapshot.getPartitionId(resourceId, "TestDB1_1"), offlineId).isEmpty());
+  }
+
+  @Test
+  public void testSharedResourceCompiledOnce() {
+    List<InstanceConfig> configs = createInstanceConfigs();
+    ExternalView db0 = createExternalView("TestDB0", 2);
+    ExternalView db1 = createExternalView("TestDB1", 2);
+    RoutingTable routingTable = new RoutingTable(Arrays.asList(db0, db1), configs,
+        Collections.<LiveInstance> emptyList(), PropertyType.EXTERNALVIEW, null);
+    RoutingTableSnapshot snapshot = new RoutingTableSnapshot(routingTable);
+    int resourceId = snapshot.getResourceId("TestDB0");
+    List<InstanceConfig> instances = snapshot.getInstancesForResource(resourceId, 0,
+        snapshot.getStateId(resourceId, "MASTER"));
+
+    // TestDB0 is shared with the new table, so its compiled entries are shared too
+    ExternalView newDb1 = createExternalView("TestDB1", 2);
+    newDb1.setState("TestDB1_0", INSTANCES.get(0), "SLAVE");
+    RoutingTableSnapshot newSnapshot = new RoutingTableSnapshot(
+        new RoutingTable(Arrays.asList(db0, newDb1), configs,
+            Collections.<LiveInstance> emptyList(), PropertyType.EXTERNALVIEW, routingTable));
+    int newResourceId = newSnapshot.getResourceId("TestDB0");
+    Assert.assertSame(newSnapshot.getInstancesForResource(newResourceId, 0,
+        newSnapshot.getStateId(newResourceId, "MASTER")), instances);
+  }
+
+  private ExternalView createExternalView(String resource, int partitions) {
+    ExternalView externalView = new ExternalView(resource);
+    for (int i = 0; i < partitions; i++) {
+      String partition = resource + "_" + i;
+      externalView.setState(partition, INSTANCES.get(i % 2), "MASTER");
+      // Insert the slaves in the reverse order of their names
+      externalView.setState(partition, INSTANCES.get(2), "SLAVE");
+      externalView.setState(partition, INSTANCES.get((i + 1) % 2), "SLAVE");
+    }
+    return externalView;
+  }
+
+  private List<InstanceConfig> createInstanceConfigs() {
+    List<InstanceConfig> configs = new ArrayList<>();
+    for (String instanceName : INSTANCES) {
+      InstanceConfig config = new InstanceConfig(instanceName);
+      config.setHostName("localhost");
+      config.setPort(instanceName.split("_")[1]);
+      configs.add(config);
+    }
+    return configs;
+  }
+}
@@ -0,0 +1,225 @@
+package org.apache.helix.spectator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.helix.HelixException;
+import org.apache.helix.PropertyType;
+import org.apache.helix.model.ExternalView;
+import org.apache.helix.model.IdealState;
+import org.apache.helix.model.InstanceConfig;
+import org.apache.helix.model.LiveInstance;
+import org.apache.helix.model.ResourceConfig;
+import org.apache.helix.model.ResourceConfig.PartitionerType;
+import org.apache.helix.spectator.partitioner.ModuloPartitioner;
+import org.apache.helix.spectator.partitioner.Partitioner;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestRoutingTableProviderKeyRouting {
+  private static final String RESOURCE = "TestDB";
+  private static final int NUM_PARTITIONS = 12;
+  private static final int NUM_INSTANCES = 4;
+
+  @Test
+  public void testRouteKeys() {
+    RoutingTableProvider provider = createProvider();
+    try {
+      provider.setPartitioner(RESOURCE, new ModuloPartitioner(NUM_PARTITIONS));
+      for (long key = 0; key < 100; key++) {
+        String partition = RESOURCE + "_" + (key % NUM_PARTITIONS);
+        Assert.assertEquals(provider.getInstancesForKey(RESOURCE, key, "MASTER"),
+            provider.getInstancesForResource(RESOURCE, partition, "MASTER"));
+        Assert.assertEquals(provider.getInstancesForKey(RESOURCE, key, "SLAVE"),
+            sorted(provider.getInstancesForResource(RESOURCE, partition, "SLAVE")));
+      }
+      String key = "user_123";
+      Assert.assertEquals(provider.getInstancesForKey(RESOURCE, key, "MASTER"),
+          provider.getInstancesForResource(RESOURCE,
+              RESOURCE + "_" + Math.floorMod(key.hashCode(), NUM_PARTITIONS), "MASTER"));
+
+      // Unknown partition index, state and resource
+      Assert.assertTrue(provider.getInstancesForPartitionIndex(RESOURCE, NUM_PARTITIONS, "MASTER")
+          .isEmpty());
+      Assert.assertTrue(provider.getInstancesForKey(RESOURCE, 1L, "OFFLINE").isEmpty());
+      provider.setPartitioner("NotExist", new ModuloPartitioner(NUM_PARTITIONS));
+      Assert.assertTrue(provider.getInstancesForKey("NotExist", 1L, "MASTER").isEmpty());
+    } finally {
+      provider.shutdown();
+    }
+  }
+
+  @Test
+  public void testPartitionerFromResourceConfig() {
+    RoutingTableProvider provider = createProvider();
+    try {
+      try {
+        provider.getInstancesForKey(RESOURCE, 1L, "MASTER");
+        Assert.fail("A resource without partitioner should be rejected");
+      } catch (HelixException expected) {
+        // expected
+      }
+
+      ResourceConfig config = new ResourceConfig.Builder(RESOURCE)
+          .setNumPartitions(NUM_PARTITIONS).setPartitionerType(PartitionerType.MODULO).build();
+      // An invalid config is skipped
+      ResourceConfig invalidConfig = new ResourceConfig.Builder("InvalidDB")
+          .setPartitionerType(PartitionerType.JENKINS_HASH).build();
+      List<ResourceConfig> configs = new ArrayList<>();
+      configs.add(config);
+      configs.add(invalidConfig);
+      provider.onResourceConfigChange(configs, null);
+      Assert.assertTrue(provider.getPartitioner(RESOURCE) instanceof ModuloPartitioner);
+      Assert.assertEquals(provider.getInstancesForKey(RESOURCE, 5L, "MASTER"),
+          provider.getInstancesForResource(RESOURCE, RESOURCE + "_5", "MASTER"));
+
+      // A custom partitioner overrides the declared one
+      Partitioner custom = new ModuloPartitioner(1);
+      provider.setPartitioner(RESOURCE, custom);
+      Assert.assertSame(provider.getPartitioner(RESOURCE), custom);
+      Assert.assertEquals(provider.getInstancesForKey(RESOURCE, 5L, "MASTER"),
+          provider.getInstancesForResource(RESOURCE, RESOURCE + "_0", "MASTER"));
+      provider.setPartitioner(RESOURCE, null);
+      Assert.assertTrue(provider.getPartitioner(RESOURCE) instanceof ModuloPartitioner);
+
+      // The declared partitioner is removed with its config
+      provider.onResourceConfigChange(Collections.<ResourceConfig> emptyList(), null);
+      try {
+        provider.getPartitioner(RESOURCE);
+        Assert.fail("A resource without partitioner should be rejected");
+      } catch (HelixException expected) {
+        // expected
+      }
+    } finally {
+      provider.shutdown();
+    }
+  }
+
+  @Test
+  public void testPartitionCountFromExternalView() {
+    RoutingTableProvider provider = new RoutingTableProvider();
+    try {
+      // The config does not set the number of partitions, and the view is not read yet
+      provider.onResourceConfigChange(Collections.singletonList(new ResourceConfig.Builder(RESOURCE)
+          .setPartitionerType(PartitionerType.MODULO).build()), null);
+      try {
+        provider.getPartitioner(RESOURCE);
+        Assert.fail("A partitioner without partitions should not be built");
+      } catch (HelixException expected) {
+        // expected
+      }
+
+      // The count of the ExternalView is used once it is read
+      refreshExternalView(provider, createExternalView(NUM_PARTITIONS, -1));
+      Partitioner partitioner = provider.getPartitioner(RESOURCE);
+      Assert.assertEquals(partitioner.getNumPartitions(), NUM_PARTITIONS);
+      // and the partitioner is kept while the count does not change
+      refreshExternalView(provider, createExternalView(NUM_PARTITIONS, -1));
+      Assert.assertSame(provider.getPartitioner(RESOURCE), partitioner);
+
+      // The NUM_PARTITIONS of the IdealState carried by the view takes precedence
+      int numPartitions = NUM_PARTITIONS * 2;
+      refreshExternalView(provider, createExternalView(NUM_PARTITIONS, numPartitions));
+      Assert.assertEquals(provider.getPartitioner(RESOURCE).getNumPartitions(), numPartitions);
+
+      // The repartitioned resource routes the keys to the new partitions
+      refreshExternalView(provider, createExternalView(numPartitions, numPartitions));
+      long key = NUM_PARTITIONS + 1;
+      Assert.assertEquals(provider.getInstancesForKey(RESOURCE, key, "MASTER"),
+          provider.getInstancesForResource(RESOURCE, RESOURCE + "_" + key, "MASTER"));
+    } finally {
+      provider.shutdown();
+    }
+  }
+
+  @Test
+  public void testPartitionIndex() {
+    // Partitions that do not follow the default naming are not indexed
+    ExternalView externalView = new ExternalView(RESOURCE);
+    externalView.setState(RESOURCE + "_1", "localhost_0", "MASTER");
+    externalView.setState(RESOURCE + "_01", "localhost_1", "MASTER");
+    externalView.setState(RESOURCE + "_x", "localhost_1", "MASTER");
+    externalView.setState("Other_2", "localhost_1", "MASTER");
+    RoutingTableSnapshot snapshot = new RoutingTableSnapshot(
+        new RoutingTable(Collections.singletonList(externalView), createInstanceConfigs(),
+            Collections.<LiveInstance> emptyList()));
+    int resourceId = snapshot.getResourceId(RESOURCE);
+    int stateId = snapshot.getStateId(resourceId, "MASTER");
+    Assert.assertEquals(snapshot.getPartitionIdByIndex(resourceId, 0),
+        RoutingTableSnapshot.UNKNOWN_ID);
+    Assert.assertEquals(snapshot.getPartitionIdByIndex(resourceId, 1),
+        snapshot.getPartitionId(resourceId, RESOURCE + "_1"));
+    Assert.assertEquals(snapshot.getPartitionIdByIndex(resourceId, 2),
+        RoutingTableSnapshot.UNKNOWN_ID);
+    Assert.assertEquals(snapshot.getInstancesForResource(resourceId,
+        snapshot.getPartitionIdByIndex(resourceId, 1), stateId).get(0).getInstanceName(),
+        "localhost_0");
+  }
+
+  private RoutingTableProvider createProvider() {
+    RoutingTableProvider provider = new RoutingTableProvider();
+    refreshExternalView(provider, createExternalView(NUM_PARTITIONS, -1));
+    return provider;
+  }
+
+  /**
+   * @param idealStatePartitions the NUM_PARTITIONS of the IdealState, not set if negative
+   */
+  private ExternalView createExternalView(int numPartitions, int idealStatePartitions) {
+    ExternalView externalView = new ExternalView(RESOURCE);
+    for (int i = 0; i < numPartitions; i++) {
+      String partition = RESOURCE + "_" + i;
+      externalView.setState(partition, "localhost_" + (i % NUM_INSTANCES), "MASTER");
+      externalView.setState(partition, "localhost_" + ((i + 1) % NUM_INSTANCES), "SLAVE");
+      externalView.setState(partition, "localhost_" + ((i + 2) % NUM_INSTANCES), "SLAVE");
+    }
+    if (idealStatePartitions >= 0) {
+      externalView.getRecord().setIntField(IdealState.IdealStateProperty.NUM_PARTITIONS.name(),
+          idealStatePartitions);
+    }
+    return externalView;
+  }
+
+  private void refreshExternalView(RoutingTableProvider provider, ExternalView externalView) {
+    provider.refreshExternalView(Collections.singletonList(externalView),
+        createInstanceConfigs(), Collections.<LiveInstance> emptyList(),
+        PropertyType.EXTERNALVIEW.name() + "_" + RoutingTableProvider.DEFAULT_STATE_TYPE);
+  }
+
+  private List<InstanceConfig> createInstanceConfigs() {
+    List<InstanceConfig> configs = new ArrayList<>();
+    for (int i = 0; i < NUM_INSTANCES; i++) {
+      InstanceConfig config = new InstanceConfig("localhost_" + i);
+      config.setHostName("localhost");
+      config.setPort(Integer.toString(i));
+      configs.add(config);
+    }
+    return configs;
+  }
+
+  private List<InstanceConfig> sorted(List<InstanceConfig> instances) {
+    List<InstanceConfig> sorted = new ArrayList<>(instances);
+    sorted.sort((c1, c2) -> c1.getId().compareTo(c2.getId()));
+    return sorted;
+  }
+}
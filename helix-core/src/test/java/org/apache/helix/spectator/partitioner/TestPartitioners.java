@@ -0,0 +1,135 @@
+package org.apache.helix.spectator.partitioner;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.helix.model.ResourceConfig;
+import org.apache.helix.model.ResourceConfig.PartitionerType;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestPartitioners {
+
+  @Test
+  public void testModuloPartitioner() {
+    Partitioner partitioner = new ModuloPartitioner(8);
+    Assert.assertEquals(partitioner.getNumPartitions(), 8);
+    Assert.assertEquals(partitioner.getPartitionIndex(13L), 5);
+    Assert.assertEquals(partitioner.getPartitionIndex(-3L), 5);
+    Assert.assertEquals(partitioner.getPartitionIndex(Long.MIN_VALUE), 0);
+    Assert.assertEquals(partitioner.getPartitionIndex("key"),
+        Math.floorMod("key".hashCode(), 8));
+    byte[] bytes = "key".getBytes(StandardCharsets.UTF_8);
+    Assert.assertEquals(partitioner.getPartitionIndex(bytes),
+        Math.floorMod(Arrays.hashCode(bytes), 8));
+  }
+
+  @Test
+  public void testJenkinsHashPartitioner() {
+    Partitioner partitioner = new JenkinsHashPartitioner(16);
+    int[] counts = new int[16];
+    for (int i = 0; i < 16000; i++) {
+      String key = "user_" + i;
+      int index = partitioner.getPartitionIndex(key);
+      Assert.assertTrue(index >= 0 && index < 16);
+      // The same key is always mapped to the same partition
+      Assert.assertEquals(partitioner.getPartitionIndex(key), index);
+      counts[index]++;
+
+      int byteIndex = partitioner.getPartitionIndex(key.getBytes(StandardCharsets.UTF_8));
+      Assert.assertTrue(byteIndex >= 0 && byteIndex < 16);
+      int longIndex = partitioner.getPartitionIndex((long) i << 40 | i);
+      Assert.assertTrue(longIndex >= 0 && longIndex < 16);
+    }
+    // The keys are spread over all the partitions
+    for (int count : counts) {
+      Assert.assertTrue(count > 500, Arrays.toString(counts));
+    }
+  }
+
+  @Test
+  public void testRangePartitioner() {
+    Partitioner partitioner = new RangePartitioner(Arrays.asList(100L, 200L, 300L));
+    Assert.assertEquals(partitioner.getNumPartitions(), 4);
+    Assert.assertEquals(partitioner.getPartitionIndex(Long.MIN_VALUE), 0);
+    Assert.assertEquals(partitioner.getPartitionIndex(99L), 0);
+    Assert.assertEquals(partitioner.getPartitionIndex(100L), 1);
+    Assert.assertEquals(partitioner.getPartitionIndex(250L), 2);
+    Assert.assertEquals(partitioner.getPartitionIndex(300L), 3);
+    Assert.assertEquals(partitioner.getPartitionIndex(Long.MAX_VALUE), 3);
+    Assert.assertEquals(partitioner.getPartitionIndex("150"), 1);
+    // 0x0000_0000_0000_00C8 = 200, big-endian
+    Assert.assertEquals(
+        partitioner.getPartitionIndex(new byte[] { 0, 0, 0, 0, 0, 0, 0, (byte) 200 }), 2);
+    // Shorter keys are padded with zeros
+    Assert.assertEquals(partitioner.getPartitionIndex(new byte[] { 1 }), 3);
+
+    try {
+      new RangePartitioner(Arrays.asList(100L, 100L));
+      Assert.fail("Boundaries that are not increasing should be rejected");
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testCreateFromResourceConfig() {
+    ResourceConfig config = new ResourceConfig.Builder("TestDB").setNumPartitions(4)
+        .setPartitionerType(PartitionerType.JENKINS_HASH).build();
+    Partitioner partitioner = PartitionerFactory.createPartitioner(config);
+    Assert.assertTrue(partitioner instanceof JenkinsHashPartitioner);
+    Assert.assertEquals(partitioner.getNumPartitions(), 4);
+
+    config = new ResourceConfig.Builder("TestDB").setPartitionerType(PartitionerType.RANGE)
+        .setPartitionerRangeBoundaries(Arrays.asList(10L, 20L)).build();
+    Assert.assertEquals(config.getPartitionerRangeBoundaries(), Arrays.asList(10L, 20L));
+    partitioner = PartitionerFactory.createPartitioner(config);
+    Assert.assertTrue(partitioner instanceof RangePartitioner);
+    Assert.assertEquals(partitioner.getNumPartitions(), 3);
+
+    Assert.assertNull(PartitionerFactory.createPartitioner(new ResourceConfig("TestDB")));
+
+    // The number of partitions does not match the range boundaries
+    config.getRecord().setIntField(ResourceConfig.ResourceConfigProperty.NUM_PARTITIONS.name(), 8);
+    try {
+      PartitionerFactory.createPartitioner(config);
+      Assert.fail("Mismatched range boundaries should be rejected");
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+    // MODULO needs the number of partitions, which falls back to the given default
+    config = new ResourceConfig.Builder("TestDB").setPartitionerType(PartitionerType.MODULO)
+        .build();
+    partitioner = PartitionerFactory.createPartitioner(config, 6);
+    Assert.assertTrue(partitioner instanceof ModuloPartitioner);
+    Assert.assertEquals(partitioner.getNumPartitions(), 6);
+    Assert.assertEquals(PartitionerFactory
+        .createPartitioner(new ResourceConfig.Builder("TestDB").setNumPartitions(4)
+            .setPartitionerType(PartitionerType.MODULO).build(), 6).getNumPartitions(), 4);
+    try {
+      PartitionerFactory.createPartitioner(config);
+      Assert.fail("A partitioner without partitions should be rejected");
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,223 @@
+package org.apache.helix.util.statusupdate;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.helix.AccessOption;
+import org.apache.helix.MockAccessor;
+import org.apache.helix.PropertyKey;
+import org.apache.helix.SystemPropertyKeys;
+import org.apache.helix.TestHelper;
+import org.apache.helix.util.StatusUpdateUtil.Level;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class TestBufferedStatusUpdateSink {
+  private static final String INSTANCE = "localhost_12918";
+  private static final String SESSION = "session_0";
+  private static final long FLUSH_INTERVAL_MS = 60 * 60 * 1000L;
+
+  private ScheduledExecutorService _scheduler;
+
+  @BeforeClass
+  public void beforeClass() {
+    _scheduler = Executors.newSingleThreadScheduledExecutor();
+  }
+
+  @AfterClass
+  public void afterClass() {
+    _scheduler.shutdownNow();
+  }
+
+  @Test
+  public void testMergeAndFlush() {
+    MockAccessor accessor = new MockAccessor();
+    BufferedStatusUpdateSink sink =
+        new BufferedStatusUpdateSink(INSTANCE, 3, FLUSH_INTERVAL_MS, 1.0, true,
+            new ZkStatusUpdateSink(), _scheduler);
+    PropertyKey key0 = statusUpdateKey(accessor, "TestDB_0");
+    PropertyKey key1 = statusUpdateKey(accessor, "TestDB_1");
+
+    sink.publishStatusUpdate("msg_0", key0, createRecord("step_0"), Level.HELIX_INFO, accessor);
+    sink.publishStatusUpdate("msg_0", key0, createRecord("step_1"), Level.HELIX_INFO, accessor);
+    sink.publishStatusUpdate("msg_1", key1, createRecord("step_0"), Level.HELIX_INFO, accessor);
+    // Nothing is written before the flush
+    Assert.assertNull(accessor.getBaseDataAccessor().get(key0.getPath(), null, 0));
+
+    // The buffer is full, the oldest record is dropped
+    sink.publishStatusUpdate("msg_1", key1, createRecord("step_1"), Level.HELIX_INFO, accessor);
+    Assert.assertEquals(sink.getDroppedCount(), 1);
+    Assert.assertEquals(sink.getBufferSize(), 3);
+
+    sink.flush();
+    Assert.assertEquals(sink.getBufferSize(), 0);
+    Assert.assertEquals(sink.getFlushedCount(), 2);
+    ZNRecord record0 =
+        (ZNRecord) accessor.getBaseDataAccessor().get(key0.getPath(), null, AccessOption.PERSISTENT);
+    Assert.assertEquals(record0.getMapFields().keySet(), Collections.singleton("step_1"));
+    ZNRecord record1 =
+        (ZNRecord) accessor.getBaseDataAccessor().get(key1.getPath(), null, AccessOption.PERSISTENT);
+    Assert.assertEquals(record1.getMapFields().size(), 2);
+    sink.close();
+  }
+
+  @Test
+  public void testOverflowKeepsWarnings() {
+    MockAccessor accessor = new MockAccessor();
+    BufferedStatusUpdateSink sink =
+        new BufferedStatusUpdateSink(INSTANCE, 2, FLUSH_INTERVAL_MS, 1.0, true,
+            new ZkStatusUpdateSink(), _scheduler);
+    PropertyKey key = statusUpdateKey(accessor, "TestDB_0");
+
+    // The successful record is dropped instead of the older warning
+    sink.publishStatusUpdate("msg_0", key, createRecord("warning_0"), Level.HELIX_WARNING,
+        accessor);
+    sink.publishStatusUpdate("msg_0", key, createRecord("info_0"), Level.HELIX_INFO, accessor);
+    sink.publishStatusUpdate("msg_0", key, createRecord("warning_1"), Level.HELIX_WARNING,
+        accessor);
+    Assert.assertEquals(sink.getDroppedCount(), 1);
+    // A buffer full of warnings drops the new successful record
+    sink.publishStatusUpdate("msg_0", key, createRecord("info_1"), Level.HELIX_INFO, accessor);
+    Assert.assertEquals(sink.getDroppedCount(), 2);
+    Assert.assertNull(accessor.getBaseDataAccessor().get(key.getPath(), null, 0));
+    // and is flushed to make room for a new warning
+    sink.publishStatusUpdate("msg_0", key, createRecord("error"), Level.HELIX_ERROR, accessor);
+    Assert.assertEquals(sink.getDroppedCount(), 2);
+    Assert.assertEquals(sink.getBufferSize(), 1);
+
+    sink.close();
+    ZNRecord record =
+        (ZNRecord) accessor.getBaseDataAccessor().get(key.getPath(), null, AccessOption.PERSISTENT);
+    Assert.assertEquals(record.getMapFields().keySet(),
+        new HashSet<>(Arrays.asList("warning_0", "warning_1", "error")));
+  }
+
+  @Test
+  public void testSinkFactory() throws Exception {
+    String instance = "TestSinkFactory_" + System.currentTimeMillis();
+    File dir = Files.createTempDirectory("statusupdates").toFile();
+    System.setProperty(SystemPropertyKeys.STATUS_UPDATE_SINK_TYPE, "file");
+    System.setProperty(SystemPropertyKeys.STATUS_UPDATE_SINK_FILE_DIR, dir.getPath());
+    try {
+      StatusUpdateSink sink = StatusUpdateSinkFactory.getSink(instance);
+      Assert.assertTrue(sink instanceof FileStatusUpdateSink);
+      Assert.assertSame(StatusUpdateSinkFactory.getSink(instance), sink);
+
+      // No sink is created for a closed instance until it is opened again
+      StatusUpdateSinkFactory.closeSink(instance);
+      Assert.assertTrue(StatusUpdateSinkFactory.getSink(instance) instanceof ZkStatusUpdateSink);
+      StatusUpdateSinkFactory.openSink(instance);
+      StatusUpdateSink reopenedSink = StatusUpdateSinkFactory.getSink(instance);
+      Assert.assertTrue(reopenedSink instanceof FileStatusUpdateSink);
+      Assert.assertNotSame(reopenedSink, sink);
+      StatusUpdateSinkFactory.closeSink(instance);
+    } finally {
+      System.clearProperty(SystemPropertyKeys.STATUS_UPDATE_SINK_TYPE);
+      System.clearProperty(SystemPropertyKeys.STATUS_UPDATE_SINK_FILE_DIR);
+    }
+  }
+
+  @Test
+  public void testFileSinkFlushTask() throws Exception {
+    File file = File.createTempFile("statusupdates", ".log");
+    MockAccessor accessor = new MockAccessor();
+    PropertyKey key = statusUpdateKey(accessor, "TestDB_0");
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    try {
+      FileStatusUpdateSink sink = new FileStatusUpdateSink(file, 10L, scheduler);
+      sink.publishStatusUpdate("msg_0", key, createRecord("info"), Level.HELIX_INFO, accessor);
+      Assert.assertTrue(TestHelper.verify(() -> file.length() > 0, TestHelper.WAIT_DURATION));
+
+      // The periodic flush is cancelled once the sink is closed
+      sink.close();
+      scheduler.shutdown();
+      Assert.assertTrue(scheduler.awaitTermination(10, TimeUnit.SECONDS));
+    } finally {
+      scheduler.shutdownNow();
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testSampling() {
+    MockAccessor accessor = new MockAccessor();
+    BufferedStatusUpdateSink sink =
+        new BufferedStatusUpdateSink(INSTANCE, 100, FLUSH_INTERVAL_MS, 0.0, true,
+            new ZkStatusUpdateSink(), _scheduler);
+    PropertyKey key = statusUpdateKey(accessor, "TestDB_0");
+
+    sink.publishStatusUpdate("msg_0", key, createRecord("info"), Level.HELIX_INFO, accessor);
+    sink.publishStatusUpdate("msg_0", key, createRecord("warning"), Level.HELIX_WARNING,
+        accessor);
+    sink.publishStatusUpdate("msg_0", key, createRecord("error"), Level.HELIX_ERROR, accessor);
+    Assert.assertEquals(sink.getSampledOutCount(), 1);
+    Assert.assertEquals(sink.getBufferedCount(), 2);
+
+    sink.close();
+    ZNRecord record =
+        (ZNRecord) accessor.getBaseDataAccessor().get(key.getPath(), null, AccessOption.PERSISTENT);
+    Assert.assertEquals(record.getMapFields().size(), 2);
+    Assert.assertFalse(record.getMapFields().containsKey("info"));
+  }
+
+  @Test
+  public void testStatusUpdatesNotPersisted() {
+    MockAccessor accessor = new MockAccessor();
+    BufferedStatusUpdateSink sink =
+        new BufferedStatusUpdateSink(INSTANCE, 100, FLUSH_INTERVAL_MS, 1.0, false,
+            new ZkStatusUpdateSink(), _scheduler);
+    PropertyKey key = statusUpdateKey(accessor, "TestDB_0");
+    PropertyKey controllerKey =
+        accessor.keyBuilder().controllerTaskStatus("TestType", "TestDB_0");
+
+    // The participant status updates are skipped as the helix data accessor does
+    sink.publishStatusUpdate("msg_0", key, createRecord("info"), Level.HELIX_INFO, accessor);
+    sink.publishStatusUpdate("msg_0", controllerKey, createRecord("info"), Level.HELIX_INFO,
+        accessor);
+    Assert.assertEquals(sink.getBufferedCount(), 1);
+
+    sink.close();
+    Assert.assertEquals(sink.getFlushedCount(), 1);
+    Assert.assertNull(accessor.getBaseDataAccessor().get(key.getPath(), null, 0));
+    Assert.assertNotNull(accessor.getBaseDataAccessor()
+        .get(controllerKey.getPath(), null, AccessOption.PERSISTENT));
+  }
+
+  private PropertyKey statusUpdateKey(MockAccessor accessor, String partition) {
+    return accessor.keyBuilder().stateTransitionStatus(INSTANCE, SESSION, "TestDB", partition);
+  }
+
+  private ZNRecord createRecord(String step) {
+    ZNRecord record = new ZNRecord(SESSION + "__TestDB");
+    record.setMapField(step, Collections.singletonMap("AdditionalInfo", step));
+    return record;
+  }
+}
@@ -223,6 +223,8 @@ public interface RealmAwareZkClient {
 
   boolean delete(final String path);
 
+  boolean delete(final String path, final int expectedVersion);
+
   <T extends Object> T readData(String path);
 
   <T extends Object> T readData(String path, boolean returnNullIfPathNotExists);
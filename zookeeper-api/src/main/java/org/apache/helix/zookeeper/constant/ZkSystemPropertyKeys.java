@@ -26,8 +26,8 @@ public class ZkSystemPropertyKeys {
 
   /**
    * Setting this property to true in system properties enables auto compression in ZK serializer.
-   * The data will be automatically compressed by
-   * {@link org.apache.helix.zookeeper.util.GZipCompressionUtil} when being written to Zookeeper
+   * The data will be automatically compressed by the codec set by
+   * {@value ZK_SERIALIZER_ZNRECORD_COMPRESSION_CODEC} when being written to Zookeeper
    * if size of serialized data exceeds the write size limit, which by default is 1 MB or could be
    * set by {@value ZK_SERIALIZER_ZNRECORD_WRITE_SIZE_LIMIT_BYTES}.
    * <p>
@@ -51,6 +51,51 @@ public class ZkSystemPropertyKeys {
   public static final String ZK_SERIALIZER_ZNRECORD_WRITE_SIZE_LIMIT_BYTES =
       "zk.serializer.znrecord.write.size.limit.bytes";
 
+  /**
+   * The name of the {@link org.apache.helix.zookeeper.util.compression.CompressionCodec} that
+   * compresses the ZNRecords and the bucketed data of ZkBucketDataAccessor, unless
+   * {@value ZK_SERIALIZER_ZNRECORD_COMPRESSION_CODEC_PATHS} selects another codec for the path.
+   * The built-in codecs are "GZIP", "DEFLATE" and "DEFLATE_DICTIONARY". Only the GZIP data can be
+   * read by the older Helix versions, so set another codec after all the readers are upgraded.
+   * <p>
+   * The default value is "GZIP".
+   */
+  public static final String ZK_SERIALIZER_ZNRECORD_COMPRESSION_CODEC =
+      "zk.serializer.znrecord.compression.codec";
+
+  /**
+   * The codecs selected by the ZooKeeper paths, as a comma separated list of "regex=codec name",
+   * for example ".*&#47;IDEALSTATES/.*=DEFLATE". The codec of the first regex that matches the
+   * whole path is used. The paths that match no regex use the codec set by
+   * {@value ZK_SERIALIZER_ZNRECORD_COMPRESSION_CODEC}.
+   * <p>
+   * By default no path selects a codec.
+   */
+  public static final String ZK_SERIALIZER_ZNRECORD_COMPRESSION_CODEC_PATHS =
+      "zk.serializer.znrecord.compression.codec.paths";
+
+  /**
+   * The ZNRecord field classes whose values are deduplicated by the ZNRecord deserializers, as a
+   * comma separated list of {@link
+   * org.apache.helix.zookeeper.datamodel.serializer.ZNRecordStringPool.FieldClass}, for example
+   * "MAP_FIELDS,LIST_FIELDS". The values are interned in a weak pool shared by all the
+   * deserializers of the process. The keys are always canonicalized by the JSON parser.
+   * <p>
+   * By default no field class is set, and the values are not deduplicated.
+   */
+  public static final String ZK_SERIALIZER_ZNRECORD_STRING_POOL_FIELDS =
+      "zk.serializer.znrecord.string.pool.fields";
+
+  /**
+   * The maximum number of strings in the pool set by
+   * {@value ZK_SERIALIZER_ZNRECORD_STRING_POOL_FIELDS}. When the pool is full, the new values are
+   * not pooled until some pooled strings are garbage collected.
+   * <p>
+   * The default value is 1048576.
+   */
+  public static final String ZK_SERIALIZER_ZNRECORD_STRING_POOL_MAX_SIZE =
+      "zk.serializer.znrecord.string.pool.max.size";
+
   /**
    * This property determines the behavior of ZkClient issuing an sync() to server upon new session
    * established.
@@ -61,6 +106,17 @@ public class ZkSystemPropertyKeys {
   public static final String ZK_AUTOSYNC_ENABLED =
       "zk.zkclient.autosync.enabled";
 
+  /**
+   * The number of lanes that deliver the data and child change events of a ZkClient. The events of
+   * the same listener are delivered in order by the same lane, and the session events are
+   * delivered after the events sent before them. If the value is not larger than 1, all the
+   * events are delivered by the single ZkClient event thread.
+   *
+   * <p>
+   *   The default value is 1
+   */
+  public static final String ZK_EVENT_THREAD_LANES = "zk.zkclient.event.thread.lanes";
+
   /** System property key for jute.maxbuffer */
   public static final String JUTE_MAXBUFFER = "jute.maxbuffer";
 
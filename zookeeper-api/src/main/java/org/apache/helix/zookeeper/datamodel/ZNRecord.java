@@ -20,9 +20,11 @@ package org.apache.helix.zookeeper.datamodel;
  */
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.helix.zookeeper.constant.ZkSystemPropertyKeys;
 import org.apache.helix.zookeeper.datamodel.serializer.JacksonPayloadSerializer;
@@ -31,6 +33,7 @@ import org.codehaus.jackson.annotate.JsonCreator;
 import org.codehaus.jackson.annotate.JsonIgnore;
 import org.codehaus.jackson.annotate.JsonIgnoreProperties;
 import org.codehaus.jackson.annotate.JsonProperty;
+import org.codehaus.jackson.annotate.JsonPropertyOrder;
 import org.codehaus.jackson.map.annotate.JsonSerialize;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,8 +41,14 @@ import org.slf4j.LoggerFactory;
 /**
  * Generic Record Format to store data at a Node This can be used to store
  * simpleFields mapFields listFields
+ * <p>
+ * The copies of a record share its simple, map and list field maps until either record changes
+ * them. Each field map is copied on the first change, or when it is returned by its getter, since
+ * the caller may change it. The maps and lists in the map and list fields are shared by the copies
+ * as before. Use the read only getters to read the field maps without copying them.
  */
 @JsonIgnoreProperties(ignoreUnknown = true)
+@JsonPropertyOrder({"id", "simpleFields", "mapFields", "listFields"})
 @JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
 public class ZNRecord {
   static Logger _logger = LoggerFactory.getLogger(ZNRecord.class);
@@ -65,11 +74,25 @@ public class ZNRecord {
   // We don't want the _deltaList to be serialized and deserialized
   private List<ZNRecordDelta> _deltaList = new ArrayList<ZNRecordDelta>();
 
-  private Map<String, String> simpleFields;
-  private Map<String, Map<String, String>> mapFields;
-  private Map<String, List<String>> listFields;
+  // The field maps are replaced by their copies on the first change after they are shared, and
+  // the maps of a record in a cache may be replaced while other threads read it.
+  private volatile Map<String, String> simpleFields;
+  private volatile Map<String, Map<String, String>> mapFields;
+  private volatile Map<String, List<String>> listFields;
   private byte[] rawPayload;
 
+  // The copy-on-write states of the field maps, at the bit offset of each field map. A SHARED map
+  // is referenced by the copies of the record and is copied before it is changed. An ESCAPED map
+  // is referenced by a caller who may change it, so the copies of the record copy it.
+  private static final int SIMPLE_FIELDS = 0;
+  private static final int MAP_FIELDS = 2;
+  private static final int LIST_FIELDS = 4;
+  private static final int SHARED = 1;
+  private static final int ESCAPED = 2;
+  private volatile int _fieldStates;
+  // Counts the changes of the map field entries, see getMapFieldsModCount()
+  private final AtomicLong _mapFieldsModCount = new AtomicLong();
+
   private PayloadSerializer _serializer;
 
   // the version field of zookeeper Stat
@@ -109,10 +132,13 @@ public class ZNRecord {
    * @param id
    */
   public ZNRecord(ZNRecord record, String id) {
-    this(id);
-    simpleFields.putAll(record.getSimpleFields());
-    mapFields.putAll(record.getMapFields());
-    listFields.putAll(record.getListFields());
+    this.id = id;
+    _serializer = new JacksonPayloadSerializer();
+    synchronized (record) {
+      simpleFields = copyFields(record, record.simpleFields, SIMPLE_FIELDS);
+      mapFields = copyFields(record, record.mapFields, MAP_FIELDS);
+      listFields = copyFields(record, record.listFields, LIST_FIELDS);
+    }
     if (record.rawPayload != null) {
       rawPayload = new byte[record.rawPayload.length];
       System.arraycopy(record.rawPayload, 0, rawPayload, 0, record.rawPayload.length);
@@ -125,6 +151,92 @@ public class ZNRecord {
     _ephemeralOwner = record.getEphemeralOwner();
   }
 
+  /**
+   * Share a field map of the source record if it is a sorted map as this constructor creates,
+   * otherwise copy it. Called with the lock of the source record.
+   */
+  private <V> Map<String, V> copyFields(ZNRecord source, Map<String, V> fields, int field) {
+    if ((source._fieldStates & (ESCAPED << field)) == 0 && fields instanceof TreeMap
+        && ((TreeMap<String, V>) fields).comparator() == null) {
+      source._fieldStates |= SHARED << field;
+      _fieldStates |= SHARED << field;
+      return fields;
+    }
+    return new TreeMap<>(fields);
+  }
+
+  /**
+   * Stop sharing a field map with the copies of this record. Called with the lock of this record.
+   * @param escaped true if the map is returned to a caller
+   * @return true if the map was shared, and must be replaced by its copy
+   */
+  private boolean ownFields(int field, boolean escaped) {
+    boolean shared = (_fieldStates & (SHARED << field)) != 0;
+    _fieldStates &= ~(SHARED << field);
+    if (escaped) {
+      _fieldStates |= ESCAPED << field;
+    }
+    return shared;
+  }
+
+  /**
+   * @return false if the field map is not shared, and is already marked escaped if required. The
+   *         states are volatile, so they are read without the lock.
+   */
+  private boolean needsOwnFields(int field, boolean escaped) {
+    int state = _fieldStates >> field & (SHARED | ESCAPED);
+    return escaped ? state != ESCAPED : (state & SHARED) != 0;
+  }
+
+  private Map<String, String> getOwnedSimpleFields(boolean escaped) {
+    if (needsOwnFields(SIMPLE_FIELDS, escaped)) {
+      synchronized (this) {
+        if (ownFields(SIMPLE_FIELDS, escaped)) {
+          simpleFields = new TreeMap<>(simpleFields);
+        }
+      }
+    }
+    return simpleFields;
+  }
+
+  private Map<String, Map<String, String>> getOwnedMapFields(boolean escaped) {
+    _mapFieldsModCount.incrementAndGet();
+    if (needsOwnFields(MAP_FIELDS, escaped)) {
+      synchronized (this) {
+        if (ownFields(MAP_FIELDS, escaped)) {
+          mapFields = new TreeMap<>(mapFields);
+        }
+      }
+    }
+    return mapFields;
+  }
+
+  private Map<String, List<String>> getOwnedListFields(boolean escaped) {
+    if (needsOwnFields(LIST_FIELDS, escaped)) {
+      synchronized (this) {
+        if (ownFields(LIST_FIELDS, escaped)) {
+          listFields = new TreeMap<>(listFields);
+        }
+      }
+    }
+    return listFields;
+  }
+
+  /**
+   * Mark a field map set by a caller escaped. Called with the lock of this record.
+   */
+  private void setFieldsEscaped(int field) {
+    _fieldStates = _fieldStates & ~(SHARED << field) | ESCAPED << field;
+  }
+
+  /**
+   * Mark a field map parsed by an ObjectMapper neither shared nor escaped. Called with the lock of
+   * this record.
+   */
+  private void setFieldsParsed(int field) {
+    _fieldStates &= ~((SHARED | ESCAPED) << field);
+  }
+
   /**
    * Set a custom {@link PayloadSerializer} to allow including arbitrary data
    * @param serializer
@@ -156,54 +268,155 @@ public class ZNRecord {
    * Get all plain key, value fields
    * @return Map of simple fields
    */
-  @JsonProperty
+  @JsonIgnore(true)
   public Map<String, String> getSimpleFields() {
-    return simpleFields;
+    return getOwnedSimpleFields(true);
   }
 
   /**
    * Set all plain key, value fields
    * @param simpleFields
    */
-  @JsonProperty
+  @JsonIgnore(true)
   public void setSimpleFields(Map<String, String> simpleFields) {
-    this.simpleFields = simpleFields;
+    synchronized (this) {
+      this.simpleFields = simpleFields;
+      setFieldsEscaped(SIMPLE_FIELDS);
+    }
   }
 
   /**
    * Get all fields whose values are key, value properties
    * @return all map fields
    */
-  @JsonProperty
+  @JsonIgnore(true)
   public Map<String, Map<String, String>> getMapFields() {
-    return mapFields;
+    return getOwnedMapFields(true);
   }
 
   /**
    * Set all fields whose values are key, value properties
    * @param mapFields
    */
-  @JsonProperty
+  @JsonIgnore(true)
   public void setMapFields(Map<String, Map<String, String>> mapFields) {
-    this.mapFields = mapFields;
+    synchronized (this) {
+      this.mapFields = mapFields;
+      _mapFieldsModCount.incrementAndGet();
+      setFieldsEscaped(MAP_FIELDS);
+    }
+  }
+
+  /**
+   * Internal to Helix, not part of the ZNRecord API and may change without notice. It is public
+   * only for the Helix data models in other packages.
+   * <p>
+   * Get a count that changes whenever the map fields may have been added, removed or replaced, so
+   * the objects parsed from the map fields can be reused while it does not change. The changes
+   * inside a map of the map fields are not counted.
+   * @return the modification count of the map fields, or -1 if the map fields are returned to a
+   *         caller who may change them at any time
+   */
+  @JsonIgnore(true)
+  public long getMapFieldsModCount() {
+    return (_fieldStates & (ESCAPED << MAP_FIELDS)) != 0 ? -1 : _mapFieldsModCount.get();
   }
 
   /**
    * Get all fields whose values are a list of values
    * @return all list fields
    */
-  @JsonProperty
+  @JsonIgnore(true)
   public Map<String, List<String>> getListFields() {
-    return listFields;
+    return getOwnedListFields(true);
   }
 
   /**
    * Set all fields whose values are a list of values
    * @param listFields
    */
-  @JsonProperty
+  @JsonIgnore(true)
   public void setListFields(Map<String, List<String>> listFields) {
-    this.listFields = listFields;
+    synchronized (this) {
+      this.listFields = listFields;
+      setFieldsEscaped(LIST_FIELDS);
+    }
+  }
+
+  /**
+   * Get all plain key, value fields without copying the fields shared with the copies of this
+   * record
+   * @return a read only view of the simple fields
+   */
+  @JsonIgnore(true)
+  public Map<String, String> getReadOnlySimpleFields() {
+    return Collections.unmodifiableMap(simpleFields);
+  }
+
+  /**
+   * Get all map fields without copying the fields shared with the copies of this record. The maps
+   * in the map fields are not read only.
+   * @return a read only view of the map fields
+   */
+  @JsonIgnore(true)
+  public Map<String, Map<String, String>> getReadOnlyMapFields() {
+    return Collections.unmodifiableMap(mapFields);
+  }
+
+  /**
+   * Get all list fields without copying the fields shared with the copies of this record. The
+   * lists in the list fields are not read only.
+   * @return a read only view of the list fields
+   */
+  @JsonIgnore(true)
+  public Map<String, List<String>> getReadOnlyListFields() {
+    return Collections.unmodifiableMap(listFields);
+  }
+
+  /*
+   * The ObjectMapper reads and writes the field maps through the accessors below, so it neither
+   * copies the maps that are written, nor marks the parsed maps escaped, as no caller refers to
+   * them. The parsed maps are sorted maps, so they are shared by the copies of the record.
+   */
+
+  @JsonProperty("simpleFields")
+  private Map<String, String> getJsonSimpleFields() {
+    return getReadOnlySimpleFields();
+  }
+
+  @JsonProperty("simpleFields")
+  private void setJsonSimpleFields(TreeMap<String, String> simpleFields) {
+    synchronized (this) {
+      this.simpleFields = simpleFields;
+      setFieldsParsed(SIMPLE_FIELDS);
+    }
+  }
+
+  @JsonProperty("mapFields")
+  private Map<String, Map<String, String>> getJsonMapFields() {
+    return getReadOnlyMapFields();
+  }
+
+  @JsonProperty("mapFields")
+  private void setJsonMapFields(TreeMap<String, Map<String, String>> mapFields) {
+    synchronized (this) {
+      this.mapFields = mapFields;
+      _mapFieldsModCount.incrementAndGet();
+      setFieldsParsed(MAP_FIELDS);
+    }
+  }
+
+  @JsonProperty("listFields")
+  private Map<String, List<String>> getJsonListFields() {
+    return getReadOnlyListFields();
+  }
+
+  @JsonProperty("listFields")
+  private void setJsonListFields(TreeMap<String, List<String>> listFields) {
+    synchronized (this) {
+      this.listFields = listFields;
+      setFieldsParsed(LIST_FIELDS);
+    }
   }
 
   /**
@@ -213,7 +426,7 @@ public class ZNRecord {
    */
   @JsonProperty
   public void setSimpleField(String k, String v) {
-    simpleFields.put(k, v);
+    getOwnedSimpleFields(false).put(k, v);
   }
 
   /**
@@ -223,7 +436,7 @@ public class ZNRecord {
    */
   @JsonProperty
   public void setSimpleFieldIfAbsent(String k, String v) {
-    simpleFields.putIfAbsent(k, v);
+    getOwnedSimpleFields(false).putIfAbsent(k, v);
   }
 
   @JsonProperty
@@ -284,7 +497,7 @@ public class ZNRecord {
    * @param v
    */
   public void setMapField(String k, Map<String, String> v) {
-    mapFields.put(k, v);
+    getOwnedMapFields(false).put(k, v);
   }
 
   /**
@@ -293,7 +506,7 @@ public class ZNRecord {
    * @param v
    */
   public void setListField(String k, List<String> v) {
-    listFields.put(k, v);
+    getOwnedListFields(false).put(k, v);
   }
 
   /**
@@ -536,13 +749,13 @@ public class ZNRecord {
       merge(record.getDeltaList());
       return;
     }
-    simpleFields.putAll(record.simpleFields);
+    getOwnedSimpleFields(false).putAll(record.simpleFields);
     for (String key : record.mapFields.keySet()) {
       Map<String, String> map = mapFields.get(key);
       if (map != null) {
         map.putAll(record.mapFields.get(key));
       } else {
-        mapFields.put(key, record.mapFields.get(key));
+        getOwnedMapFields(false).put(key, record.mapFields.get(key));
       }
     }
     for (String key : record.listFields.keySet()) {
@@ -553,7 +766,7 @@ public class ZNRecord {
       if (list != null) {
         list.addAll(record.listFields.get(key));
       } else {
-        listFields.put(key, record.listFields.get(key));
+        getOwnedListFields(false).put(key, record.listFields.get(key));
       }
     }
   }
@@ -569,9 +782,9 @@ public class ZNRecord {
    */
   public void update(ZNRecord record) {
     if (record != null) {
-      simpleFields.putAll(record.simpleFields);
-      listFields.putAll(record.listFields);
-      mapFields.putAll(record.mapFields);
+      getOwnedSimpleFields(false).putAll(record.simpleFields);
+      getOwnedListFields(false).putAll(record.listFields);
+      getOwnedMapFields(false).putAll(record.mapFields);
     }
   }
 
@@ -606,22 +819,22 @@ public class ZNRecord {
       return false;
     }
     ZNRecord that = (ZNRecord) obj;
-    if (this.getSimpleFields().size() != that.getSimpleFields().size()) {
+    if (this.simpleFields.size() != that.simpleFields.size()) {
       return false;
     }
-    if (this.getMapFields().size() != that.getMapFields().size()) {
+    if (this.mapFields.size() != that.mapFields.size()) {
       return false;
     }
-    if (this.getListFields().size() != that.getListFields().size()) {
+    if (this.listFields.size() != that.listFields.size()) {
       return false;
     }
-    if (!this.getSimpleFields().equals(that.getSimpleFields())) {
+    if (!this.simpleFields.equals(that.simpleFields)) {
       return false;
     }
-    if (!this.getMapFields().equals(that.getMapFields())) {
+    if (!this.mapFields.equals(that.mapFields)) {
       return false;
     }
-    if (!this.getListFields().equals(that.getListFields())) {
+    if (!this.listFields.equals(that.listFields)) {
       return false;
     }
 
@@ -635,18 +848,18 @@ public class ZNRecord {
    * @param value
    */
   public void subtract(ZNRecord value) {
-    for (String key : value.getSimpleFields().keySet()) {
-      simpleFields.remove(key);
+    for (String key : value.simpleFields.keySet()) {
+      getOwnedSimpleFields(false).remove(key);
     }
 
-    for (String key : value.getListFields().keySet()) {
-      listFields.remove(key);
+    for (String key : value.listFields.keySet()) {
+      getOwnedListFields(false).remove(key);
     }
 
-    for (String key : value.getMapFields().keySet()) {
+    for (String key : value.mapFields.keySet()) {
       Map<String, String> map = value.getMapField(key);
       if (map == null) {
-        mapFields.remove(key);
+        getOwnedMapFields(false).remove(key);
       } else {
         Map<String, String> nestedMap = mapFields.get(key);
         if (nestedMap != null) {
@@ -654,7 +867,7 @@ public class ZNRecord {
             nestedMap.remove(mapKey);
           }
           if (nestedMap.size() == 0) {
-            mapFields.remove(key);
+            getOwnedMapFields(false).remove(key);
           }
         }
       }
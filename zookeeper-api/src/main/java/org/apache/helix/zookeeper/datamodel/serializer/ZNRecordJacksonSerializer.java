@@ -63,6 +63,7 @@ public class ZNRecordJacksonSerializer implements ZkSerializer {
     ZNRecord record;
     try {
       record = OBJECT_MAPPER.readValue(bytes, ZNRecord.class);
+      ZNRecordStringPool.getInstance().intern(record);
     } catch (IOException e) {
       throw new ZkMarshallingError("Exception during deserialization!", e);
     }
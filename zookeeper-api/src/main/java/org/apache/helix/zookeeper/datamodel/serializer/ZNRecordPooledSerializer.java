@@ -0,0 +1,285 @@
+package org.apache.helix.zookeeper.datamodel.serializer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordStringPool.FieldClass;
+import org.apache.helix.zookeeper.util.ReusableByteArrayOutputStream;
+import org.apache.helix.zookeeper.util.ZNRecordUtil;
+import org.apache.helix.zookeeper.util.compression.CompressionCodecs;
+import org.apache.helix.zookeeper.zkclient.exception.ZkMarshallingError;
+import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A ZNRecord serializer that streams a record over a JsonGenerator and a JsonParser, without the
+ * ObjectMapper tree or the intermediate copies of {@link ZNRecordSerializer}.
+ * - The output is written to a buffer reused by the thread, and copied once into the result.
+ * - A compressed record is compressed from the reused buffer, by the codec configured for its
+ *   path in {@link CompressionCodecs}.
+ * - The fields are parsed into the maps of the record.
+ *
+ * The output is byte for byte the output of {@link ZNRecordSerializer}, so both serializers read
+ * the data written by the other. The list field bound ({@link ZNRecord#LIST_FIELD_BOUND}) is
+ * applied to the output only, the record is not modified.
+ */
+public class ZNRecordPooledSerializer implements ZkSerializer {
+  private static final Logger LOG = LoggerFactory.getLogger(ZNRecordPooledSerializer.class);
+
+  // The JsonFactory is thread-safe, and shares its symbol tables and buffer recyclers between
+  // the generators and parsers it creates
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private static final ThreadLocal<ReusableByteArrayOutputStream> OUTPUT_BUFFER =
+      ThreadLocal.withInitial(ReusableByteArrayOutputStream::new);
+
+  private static final String ID = "id";
+  private static final String SIMPLE_FIELDS = "simpleFields";
+  private static final String MAP_FIELDS = "mapFields";
+  private static final String LIST_FIELDS = "listFields";
+  private static final String RAW_PAYLOAD = "rawPayload";
+
+  @Override
+  public byte[] serialize(Object data) throws ZkMarshallingError {
+    return serialize(data, null);
+  }
+
+  /**
+   * Serialize the record, compressed by the codec configured for the path if the record needs
+   * compression.
+   */
+  @Override
+  public byte[] serialize(Object data, String path) throws ZkMarshallingError {
+    if (!(data instanceof ZNRecord)) {
+      // null is NOT an instance of any class
+      LOG.error("Input object must be of type ZNRecord but it is " + data
+          + ". Will not write to zk");
+      throw new ZkMarshallingError("Input object is not of type ZNRecord (was " + data + ")");
+    }
+    ZNRecord record = (ZNRecord) data;
+
+    ReusableByteArrayOutputStream buffer = OUTPUT_BUFFER.get();
+    byte[] serializedBytes;
+    boolean isCompressed = false;
+    try {
+      write(record, buffer);
+      if (ZNRecordUtil.shouldCompress(record, buffer.size())) {
+        serializedBytes = CompressionCodecs.compress(buffer.getBuffer(), 0, buffer.size(), path);
+        isCompressed = true;
+      } else {
+        serializedBytes = buffer.toByteArray();
+      }
+    } catch (Exception e) {
+      LOG.error(
+          "Exception during data serialization. ZNRecord ID: {} will not be written to zk.",
+          record.getId(), e);
+      throw new ZkMarshallingError(e);
+    } finally {
+      buffer.release();
+    }
+
+    int writeSizeLimit = ZNRecordUtil.getSerializerWriteSizeLimit();
+    if (serializedBytes.length > writeSizeLimit) {
+      LOG.error("Data size: {} is greater than {} bytes, is compressed: {}, ZNRecord.id: {}."
+              + " Data will not be written to Zookeeper.", serializedBytes.length, writeSizeLimit,
+          isCompressed, record.getId());
+      throw new ZkMarshallingError(
+          "Data size: " + serializedBytes.length + " is greater than " + writeSizeLimit
+              + " bytes, is compressed: " + isCompressed + ", ZNRecord.id: " + record.getId());
+    }
+    return serializedBytes;
+  }
+
+  private static void write(ZNRecord record, OutputStream out) throws IOException {
+    int listFieldBound = getListFieldBound(record);
+    try (JsonGenerator g = JSON_FACTORY.createGenerator(out)) {
+      g.useDefaultPrettyPrinter();
+      g.writeStartObject();
+      g.writeStringField(ID, record.getId());
+
+      g.writeObjectFieldStart(SIMPLE_FIELDS);
+      for (Map.Entry<String, String> entry : record.getReadOnlySimpleFields().entrySet()) {
+        g.writeStringField(entry.getKey(), entry.getValue());
+      }
+      g.writeEndObject();
+
+      g.writeObjectFieldStart(MAP_FIELDS);
+      for (Map.Entry<String, Map<String, String>> entry : record.getReadOnlyMapFields()
+          .entrySet()) {
+        if (entry.getValue() == null) {
+          g.writeNullField(entry.getKey());
+          continue;
+        }
+        g.writeObjectFieldStart(entry.getKey());
+        for (Map.Entry<String, String> mapEntry : entry.getValue().entrySet()) {
+          g.writeStringField(mapEntry.getKey(), mapEntry.getValue());
+        }
+        g.writeEndObject();
+      }
+      g.writeEndObject();
+
+      g.writeObjectFieldStart(LIST_FIELDS);
+      for (Map.Entry<String, List<String>> entry : record.getReadOnlyListFields().entrySet()) {
+        List<String> list = entry.getValue();
+        if (list == null) {
+          g.writeNullField(entry.getKey());
+          continue;
+        }
+        g.writeArrayFieldStart(entry.getKey());
+        int size = Math.min(list.size(), listFieldBound);
+        for (int i = 0; i < size; i++) {
+          g.writeString(list.get(i));
+        }
+        g.writeEndArray();
+      }
+      g.writeEndObject();
+
+      byte[] rawPayload = record.getRawPayload();
+      if (rawPayload != null) {
+        g.writeBinaryField(RAW_PAYLOAD, rawPayload);
+      }
+      g.writeEndObject();
+    }
+  }
+
+  private static int getListFieldBound(ZNRecord record) {
+    int max = Integer.MAX_VALUE;
+    String maxStr = record.getSimpleField(ZNRecord.LIST_FIELD_BOUND);
+    if (maxStr != null) {
+      try {
+        max = Integer.parseInt(maxStr);
+      } catch (Exception e) {
+        LOG.error("IllegalNumberFormat for list field bound: " + maxStr);
+      }
+    }
+    return max;
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) throws ZkMarshallingError {
+    if (bytes == null || bytes.length == 0) {
+      // reading a parent/null node
+      return null;
+    }
+
+    try {
+      byte[] jsonBytes = bytes;
+      if (CompressionCodecs.isCompressed(bytes)) {
+        jsonBytes = CompressionCodecs.uncompress(bytes);
+      }
+      try (JsonParser jp = JSON_FACTORY.createParser(jsonBytes)) {
+        return read(jp);
+      }
+    } catch (Exception e) {
+      LOG.error("Exception during deserialization of bytes: {}", new String(bytes), e);
+      return null;
+    }
+  }
+
+  private static ZNRecord read(JsonParser jp) throws IOException {
+    if (jp.nextToken() != JsonToken.START_OBJECT) {
+      throw new IllegalStateException("ZNRecord must be a JSON object");
+    }
+    // The id is the first field as written by the serializers, parse the other fields into the
+    // maps of the record. Otherwise the fields are parsed into a record without id, and copied.
+    ZNRecordStringPool pool = ZNRecordStringPool.getInstance();
+    ZNRecord record = null;
+    String id = null;
+    while (jp.nextToken() == JsonToken.FIELD_NAME) {
+      String fieldName = jp.getCurrentName();
+      JsonToken token = jp.nextToken();
+      if (ID.equals(fieldName)) {
+        id = jp.getValueAsString();
+        if (record == null) {
+          record = new ZNRecord(id);
+        }
+        continue;
+      }
+      if (record == null) {
+        record = new ZNRecord((String) null);
+      }
+      if (token == JsonToken.VALUE_NULL) {
+        continue;
+      }
+      switch (fieldName) {
+      case SIMPLE_FIELDS:
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+          String key = jp.getCurrentName();
+          jp.nextToken();
+          record.setSimpleField(key, pool.intern(jp.getValueAsString(), FieldClass.SIMPLE_FIELDS));
+        }
+        break;
+      case MAP_FIELDS:
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+          String key = jp.getCurrentName();
+          if (jp.nextToken() == JsonToken.VALUE_NULL) {
+            record.setMapField(key, null);
+            continue;
+          }
+          Map<String, String> map = new TreeMap<>();
+          while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            String mapKey = jp.getCurrentName();
+            jp.nextToken();
+            map.put(mapKey, pool.intern(jp.getValueAsString(), FieldClass.MAP_FIELDS));
+          }
+          record.setMapField(key, map);
+        }
+        break;
+      case LIST_FIELDS:
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+          String key = jp.getCurrentName();
+          if (jp.nextToken() == JsonToken.VALUE_NULL) {
+            record.setListField(key, null);
+            continue;
+          }
+          List<String> list = new ArrayList<>();
+          while (jp.nextToken() != JsonToken.END_ARRAY) {
+            list.add(pool.intern(jp.getValueAsString(), FieldClass.LIST_FIELDS));
+          }
+          record.setListField(key, list);
+        }
+        break;
+      case RAW_PAYLOAD:
+        record.setRawPayload(jp.getBinaryValue());
+        break;
+      default:
+        // ignore the unknown fields as ZNRecord does
+        jp.skipChildren();
+        break;
+      }
+    }
+    if (id == null) {
+      throw new IllegalStateException("ZNRecord id field is required!");
+    }
+    return record.getId() == null ? new ZNRecord(record, id) : record;
+  }
+}
@@ -30,8 +30,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
 import org.apache.helix.zookeeper.introspect.CodehausJacksonIntrospector;
-import org.apache.helix.zookeeper.util.GZipCompressionUtil;
 import org.apache.helix.zookeeper.util.ZNRecordUtil;
+import org.apache.helix.zookeeper.util.compression.CompressionCodecs;
 import org.apache.helix.zookeeper.zkclient.exception.ZkMarshallingError;
 import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
 import org.slf4j.Logger;
@@ -46,7 +46,7 @@ public class ZNRecordSerializer implements ZkSerializer {
 
   private static int getListFieldBound(ZNRecord record) {
     int max = Integer.MAX_VALUE;
-    if (record.getSimpleFields().containsKey(ZNRecord.LIST_FIELD_BOUND)) {
+    if (record.getReadOnlySimpleFields().containsKey(ZNRecord.LIST_FIELD_BOUND)) {
       String maxStr = record.getSimpleField(ZNRecord.LIST_FIELD_BOUND);
       try {
         max = Integer.parseInt(maxStr);
@@ -59,6 +59,15 @@ public class ZNRecordSerializer implements ZkSerializer {
 
   @Override
   public byte[] serialize(Object data) {
+    return serialize(data, null);
+  }
+
+  /**
+   * Serialize the record, compressed by the codec configured for the path if the record needs
+   * compression.
+   */
+  @Override
+  public byte[] serialize(Object data, String path) {
     if (!(data instanceof ZNRecord)) {
       // null is NOT an instance of any class
       LOG.error("Input object must be of type ZNRecord but it is " + data
@@ -71,11 +80,11 @@ public class ZNRecordSerializer implements ZkSerializer {
     // apply retention policy
     int max = getListFieldBound(record);
     if (max < Integer.MAX_VALUE) {
-      Map<String, List<String>> listMap = record.getListFields();
+      Map<String, List<String>> listMap = record.getReadOnlyListFields();
       for (String key : listMap.keySet()) {
         List<String> list = listMap.get(key);
         if (list.size() > max) {
-          listMap.put(key, list.subList(0, max));
+          record.setListField(key, list.subList(0, max));
         }
       }
     }
@@ -94,7 +103,7 @@ public class ZNRecordSerializer implements ZkSerializer {
       serializedBytes = baos.toByteArray();
       // apply compression if needed
       if (ZNRecordUtil.shouldCompress(record, serializedBytes.length)) {
-        serializedBytes = GZipCompressionUtil.compress(serializedBytes);
+        serializedBytes = CompressionCodecs.compress(serializedBytes, path);
         isCompressed = true;
       }
     } catch (Exception e) {
@@ -131,12 +140,14 @@ public class ZNRecordSerializer implements ZkSerializer {
     mapper.enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
     try {
       //decompress the data if its already compressed
-      if (GZipCompressionUtil.isCompressed(bytes)) {
-        byte[] uncompressedBytes = GZipCompressionUtil.uncompress(bais);
+      if (CompressionCodecs.isCompressed(bytes)) {
+        byte[] uncompressedBytes = CompressionCodecs.uncompress(bytes);
         bais = new ByteArrayInputStream(uncompressedBytes);
       }
 
-      return mapper.readValue(bais, ZNRecord.class);
+      ZNRecord record = mapper.readValue(bais, ZNRecord.class);
+      ZNRecordStringPool.getInstance().intern(record);
+      return record;
     } catch (Exception e) {
       LOG.error("Exception during deserialization of bytes: {}", new String(bytes), e);
       return null;
@@ -29,8 +29,9 @@ import java.util.TreeMap;
 
 import org.apache.commons.codec.binary.Base64;
 import org.apache.helix.zookeeper.datamodel.ZNRecord;
-import org.apache.helix.zookeeper.util.GZipCompressionUtil;
+import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordStringPool.FieldClass;
 import org.apache.helix.zookeeper.util.ZNRecordUtil;
+import org.apache.helix.zookeeper.util.compression.CompressionCodecs;
 import org.apache.helix.zookeeper.zkclient.exception.ZkMarshallingError;
 import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
 import com.fasterxml.jackson.core.JsonFactory;
@@ -46,7 +47,7 @@ public class ZNRecordStreamingSerializer implements ZkSerializer {
 
   private static int getListFieldBound(ZNRecord record) {
     int max = Integer.MAX_VALUE;
-    if (record.getSimpleFields().containsKey(ZNRecord.LIST_FIELD_BOUND)) {
+    if (record.getReadOnlySimpleFields().containsKey(ZNRecord.LIST_FIELD_BOUND)) {
       String maxStr = record.getSimpleField(ZNRecord.LIST_FIELD_BOUND);
       try {
         max = Integer.parseInt(maxStr);
@@ -59,6 +60,15 @@ public class ZNRecordStreamingSerializer implements ZkSerializer {
 
   @Override
   public byte[] serialize(Object data) throws ZkMarshallingError {
+    return serialize(data, null);
+  }
+
+  /**
+   * Serialize the record, compressed by the codec configured for the path if the record needs
+   * compression.
+   */
+  @Override
+  public byte[] serialize(Object data, String path) throws ZkMarshallingError {
     if (!(data instanceof ZNRecord)) {
       // null is NOT an instance of any class
       LOG.error("Input object must be of type ZNRecord but it is " + data
@@ -95,7 +105,7 @@ public class ZNRecordStreamingSerializer implements ZkSerializer {
       // write simepleFields
       g.writeRaw("\n  ");
       g.writeObjectFieldStart("simpleFields");
-      for (String key : record.getSimpleFields().keySet()) {
+      for (String key : record.getReadOnlySimpleFields().keySet()) {
         g.writeRaw("\n    ");
         g.writeStringField(key, record.getSimpleField(key));
       }
@@ -105,7 +115,7 @@ public class ZNRecordStreamingSerializer implements ZkSerializer {
       // write listFields
       g.writeRaw("\n  ");
       g.writeObjectFieldStart("listFields");
-      for (String key : record.getListFields().keySet()) {
+      for (String key : record.getReadOnlyListFields().keySet()) {
         // g.writeStringField(key, record.getListField(key).toString());
 
         // g.writeObjectFieldStart(key);
@@ -125,7 +135,7 @@ public class ZNRecordStreamingSerializer implements ZkSerializer {
       // write mapFields
       g.writeRaw("\n  ");
       g.writeObjectFieldStart("mapFields");
-      for (String key : record.getMapFields().keySet()) {
+      for (String key : record.getReadOnlyMapFields().keySet()) {
         // g.writeStringField(key, record.getMapField(key).toString());
         g.writeRaw("\n    ");
         g.writeObjectFieldStart(key);
@@ -157,7 +167,7 @@ public class ZNRecordStreamingSerializer implements ZkSerializer {
       serializedBytes = baos.toByteArray();
       // apply compression if needed
       if (ZNRecordUtil.shouldCompress(record, serializedBytes.length)) {
-        serializedBytes = GZipCompressionUtil.compress(serializedBytes);
+        serializedBytes = CompressionCodecs.compress(serializedBytes, path);
         isCompressed = true;
       }
     } catch (Exception e) {
@@ -198,10 +208,11 @@ public class ZNRecordStreamingSerializer implements ZkSerializer {
 
     try {
       // decompress the data if its already compressed
-      if (GZipCompressionUtil.isCompressed(bytes)) {
-        byte[] uncompressedBytes = GZipCompressionUtil.uncompress(bais);
+      if (CompressionCodecs.isCompressed(bytes)) {
+        byte[] uncompressedBytes = CompressionCodecs.uncompress(bytes);
         bais = new ByteArrayInputStream(uncompressedBytes);
       }
+      ZNRecordStringPool pool = ZNRecordStringPool.getInstance();
       JsonFactory f = new JsonFactory();
       JsonParser jp = f.createJsonParser(bais);
 
@@ -216,7 +227,7 @@ public class ZNRecordStreamingSerializer implements ZkSerializer {
           while (jp.nextToken() != JsonToken.END_OBJECT) {
             String key = jp.getCurrentName();
             jp.nextToken(); // move to value
-            simpleFields.put(key, jp.getText());
+            simpleFields.put(key, pool.intern(jp.getText(), FieldClass.SIMPLE_FIELDS));
           }
         } else if ("mapFields".equals(fieldname)) {
           // user.setVerified(jp.getCurrentToken() == JsonToken.VALUE_TRUE);
@@ -228,7 +239,7 @@ public class ZNRecordStreamingSerializer implements ZkSerializer {
             while (jp.nextToken() != JsonToken.END_OBJECT) {
               String mapKey = jp.getCurrentName();
               jp.nextToken(); // move to value
-              mapFields.get(key).put(mapKey, jp.getText());
+              mapFields.get(key).put(mapKey, pool.intern(jp.getText(), FieldClass.MAP_FIELDS));
             }
           }
 
@@ -239,7 +250,7 @@ public class ZNRecordStreamingSerializer implements ZkSerializer {
             listFields.put(key, new ArrayList<String>());
             jp.nextToken(); // move to value
             while (jp.nextToken() != JsonToken.END_ARRAY) {
-              listFields.get(key).add(jp.getText());
+              listFields.get(key).add(pool.intern(jp.getText(), FieldClass.LIST_FIELDS));
             }
 
           }
@@ -0,0 +1,278 @@
+package org.apache.helix.zookeeper.datamodel.serializer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.helix.zookeeper.constant.ZkSystemPropertyKeys;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.zkclient.metric.ZNRecordStringPoolMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A weak, bounded and concurrent pool of the values of deserialized ZNRecords. The instance
+ * names, states, session ids and partition names repeat across the cached records, so the
+ * deserializers return the pooled copy of a value instead of a new string.
+ * <p>
+ * The keys are not pooled: the JSON parser already canonicalizes the field names, so the same key
+ * is the same string in every record. A pooled string is only weakly referenced, and is removed
+ * once no record uses it. When the pool is full the new values are returned as they are.
+ */
+public class ZNRecordStringPool {
+  private static final Logger LOG = LoggerFactory.getLogger(ZNRecordStringPool.class);
+  public static final int DEFAULT_MAX_SIZE = 1 << 20;
+  private static final int SEGMENT_COUNT = 16;
+
+  /**
+   * The fields of a ZNRecord whose values can be pooled.
+   */
+  public enum FieldClass {
+    SIMPLE_FIELDS,
+    LIST_FIELDS,
+    MAP_FIELDS
+  }
+
+  private static volatile ZNRecordStringPool _instance;
+
+  private final Set<FieldClass> _fieldClasses;
+  private final int _maxSize;
+  private final int _segmentMaxSize;
+  private final WeakHashMap<String, WeakReference<String>>[] _segments;
+  private final LongAdder _hitCount = new LongAdder();
+  private final LongAdder _missCount = new LongAdder();
+
+  @SuppressWarnings("unchecked")
+  public ZNRecordStringPool(Set<FieldClass> fieldClasses, int maxSize) {
+    _fieldClasses = fieldClasses.isEmpty() ? Collections.<FieldClass>emptySet()
+        : Collections.unmodifiableSet(EnumSet.copyOf(fieldClasses));
+    _maxSize = maxSize;
+    _segmentMaxSize = Math.max(1, maxSize / SEGMENT_COUNT);
+    _segments = new WeakHashMap[SEGMENT_COUNT];
+    for (int i = 0; i < SEGMENT_COUNT; i++) {
+      _segments[i] = new WeakHashMap<>();
+    }
+  }
+
+  /**
+   * @return the pool of the process configured by
+   *         {@link ZkSystemPropertyKeys#ZK_SERIALIZER_ZNRECORD_STRING_POOL_FIELDS}
+   */
+  public static ZNRecordStringPool getInstance() {
+    if (_instance == null) {
+      synchronized (ZNRecordStringPool.class) {
+        if (_instance == null) {
+          ZNRecordStringPool pool = new ZNRecordStringPool(getConfiguredFieldClasses(),
+              getConfiguredMaxSize());
+          if (pool.isEnabled()) {
+            try {
+              new ZNRecordStringPoolMonitor(pool).register();
+            } catch (JMException e) {
+              LOG.warn("Failed to register the ZNRecord string pool monitor.", e);
+            }
+          }
+          _instance = pool;
+        }
+      }
+    }
+    return _instance;
+  }
+
+  // For testing purposes only
+  @VisibleForTesting
+  static void setInstance(ZNRecordStringPool pool) {
+    _instance = pool;
+  }
+
+  private static Set<FieldClass> getConfiguredFieldClasses() {
+    Set<FieldClass> fieldClasses = EnumSet.noneOf(FieldClass.class);
+    String fieldClassesStr =
+        System.getProperty(ZkSystemPropertyKeys.ZK_SERIALIZER_ZNRECORD_STRING_POOL_FIELDS);
+    if (fieldClassesStr == null) {
+      return fieldClasses;
+    }
+    for (String fieldClass : fieldClassesStr.split(",")) {
+      if (fieldClass.trim().isEmpty()) {
+        continue;
+      }
+      try {
+        fieldClasses.add(FieldClass.valueOf(fieldClass.trim()));
+      } catch (IllegalArgumentException e) {
+        LOG.error("Unknown ZNRecord field class {} to pool, ignore it.", fieldClass);
+      }
+    }
+    return fieldClasses;
+  }
+
+  private static int getConfiguredMaxSize() {
+    String maxSizeStr =
+        System.getProperty(ZkSystemPropertyKeys.ZK_SERIALIZER_ZNRECORD_STRING_POOL_MAX_SIZE);
+    if (maxSizeStr != null) {
+      try {
+        int maxSize = Integer.parseInt(maxSizeStr);
+        if (maxSize > 0) {
+          return maxSize;
+        }
+      } catch (NumberFormatException e) {
+        LOG.error("IllegalNumberFormat for ZNRecord string pool max size: " + maxSizeStr);
+      }
+    }
+    return DEFAULT_MAX_SIZE;
+  }
+
+  /**
+   * @return true if the values of any field class are pooled
+   */
+  public boolean isEnabled() {
+    return !_fieldClasses.isEmpty();
+  }
+
+  public boolean isEnabled(FieldClass fieldClass) {
+    return _fieldClasses.contains(fieldClass);
+  }
+
+  /**
+   * @return the pooled copy of the value if the values of the field class are pooled, otherwise
+   *         the value itself
+   */
+  public String intern(String value, FieldClass fieldClass) {
+    if (value == null || !_fieldClasses.contains(fieldClass)) {
+      return value;
+    }
+    return intern(value);
+  }
+
+  /**
+   * @return the pooled copy of the value. The value is added to the pool if there is none.
+   */
+  public String intern(String value) {
+    WeakHashMap<String, WeakReference<String>> segment =
+        _segments[(value.hashCode() & 0x7fffffff) % SEGMENT_COUNT];
+    synchronized (segment) {
+      WeakReference<String> ref = segment.get(value);
+      String pooled = ref == null ? null : ref.get();
+      if (pooled != null) {
+        _hitCount.increment();
+        return pooled;
+      }
+      // WeakHashMap.size() drops the collected entries first
+      if (segment.size() < _segmentMaxSize) {
+        segment.put(value, new WeakReference<>(value));
+      }
+    }
+    _missCount.increment();
+    return value;
+  }
+
+  /**
+   * Replace the values of the pooled field classes of a record parsed by an ObjectMapper with
+   * their pooled copies.
+   */
+  public void intern(ZNRecord record) {
+    if (record == null || !isEnabled()) {
+      return;
+    }
+    // the field maps are read through the read only views, so they are not marked escaped and
+    // are still shared by the copies of the record
+    if (isEnabled(FieldClass.SIMPLE_FIELDS)) {
+      Map<String, String> simpleFields = record.getReadOnlySimpleFields();
+      for (String key : simpleFields.keySet()) {
+        String value = simpleFields.get(key);
+        if (value != null) {
+          // replacing the value of a key does not change the key set
+          record.setSimpleField(key, intern(value));
+        }
+      }
+    }
+    if (isEnabled(FieldClass.LIST_FIELDS)) {
+      for (List<String> list : record.getReadOnlyListFields().values()) {
+        if (list != null) {
+          ListIterator<String> iter = list.listIterator();
+          while (iter.hasNext()) {
+            String value = iter.next();
+            if (value != null) {
+              iter.set(intern(value));
+            }
+          }
+        }
+      }
+    }
+    if (isEnabled(FieldClass.MAP_FIELDS)) {
+      for (Map<String, String> map : record.getReadOnlyMapFields().values()) {
+        internValues(map);
+      }
+    }
+  }
+
+  private void internValues(Map<String, String> map) {
+    if (map == null) {
+      return;
+    }
+    for (Map.Entry<String, String> entry : map.entrySet()) {
+      if (entry.getValue() != null) {
+        entry.setValue(intern(entry.getValue()));
+      }
+    }
+  }
+
+  /**
+   * @return the number of strings in the pool
+   */
+  public int getSize() {
+    int size = 0;
+    for (WeakHashMap<String, WeakReference<String>> segment : _segments) {
+      synchronized (segment) {
+        size += segment.size();
+      }
+    }
+    return size;
+  }
+
+  public int getMaxSize() {
+    return _maxSize;
+  }
+
+  public long getHitCount() {
+    return _hitCount.sum();
+  }
+
+  public long getMissCount() {
+    return _missCount.sum();
+  }
+
+  /**
+   * @return the ratio of the lookups that found a pooled string, 0 if there is no lookup
+   */
+  public double getHitRatio() {
+    long hitCount = getHitCount();
+    long total = hitCount + getMissCount();
+    return total == 0 ? 0.0d : (double) hitCount / total;
+  }
+}
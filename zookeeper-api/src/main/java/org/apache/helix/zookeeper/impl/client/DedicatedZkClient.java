@@ -310,6 +310,12 @@ public class DedicatedZkClient implements RealmAwareZkClient {
     return _rawZkClient.delete(path);
   }
 
+  @Override
+  public boolean delete(String path, int expectedVersion) {
+    checkIfPathContainsShardingKey(path);
+    return _rawZkClient.delete(path, expectedVersion);
+  }
+
   @Override
   public <T> T readData(String path) {
     return readData(path, false);
@@ -308,6 +308,11 @@ public class FederatedZkClient implements RealmAwareZkClient {
     return getZkClient(path).delete(path);
   }
 
+  @Override
+  public boolean delete(String path, int expectedVersion) {
+    return getZkClient(path).delete(path, expectedVersion);
+  }
+
   @Override
   @SuppressWarnings("unchecked")
   public <T> T readData(String path) {
@@ -342,6 +342,12 @@ public class SharedZkClient implements RealmAwareZkClient {
     return _innerSharedZkClient.delete(path);
   }
 
+  @Override
+  public boolean delete(String path, int expectedVersion) {
+    checkIfPathContainsShardingKey(path);
+    return _innerSharedZkClient.delete(path, expectedVersion);
+  }
+
   @Override
   public <T> T readData(String path) {
     checkIfPathContainsShardingKey(path);
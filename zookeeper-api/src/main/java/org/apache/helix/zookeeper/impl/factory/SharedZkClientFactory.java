@@ -20,16 +20,23 @@ package org.apache.helix.zookeeper.impl.factory;
  */
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.annotations.VisibleForTesting;
 import org.apache.helix.msdcommon.exception.InvalidRoutingDataException;
+import org.apache.helix.zookeeper.api.client.ChildrenSubscribeResult;
 import org.apache.helix.zookeeper.api.client.HelixZkClient;
 import org.apache.helix.zookeeper.api.client.RealmAwareZkClient;
 import org.apache.helix.zookeeper.exception.ZkClientException;
 import org.apache.helix.zookeeper.impl.client.SharedZkClient;
 import org.apache.helix.zookeeper.impl.client.ZkClient;
+import org.apache.helix.zookeeper.zkclient.IZkChildListener;
 import org.apache.helix.zookeeper.zkclient.IZkConnection;
+import org.apache.helix.zookeeper.zkclient.IZkDataListener;
 import org.apache.helix.zookeeper.zkclient.ZkConnection;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.data.ACL;
@@ -153,6 +160,11 @@ public class SharedZkClientFactory extends HelixZkClientFactory {
 
     private final OnCloseCallback _onCloseCallback;
     private final ZkConnectionManager _connectionManager;
+    // The number of ongoing subscriptions and waits of the paths, guarded by itself.
+    // A path is watched on the connection until it has no listener and no ongoing subscription.
+    private final Map<String, Integer> _pendingWatchedPaths = new HashMap<>();
+    // The paths watched on the connection, guarded by _pendingWatchedPaths
+    private final Set<String> _watchedPaths = new HashSet<>();
 
     public InnerSharedZkClient(ZkConnectionManager connectionManager, ZkClientConfig clientConfig,
         OnCloseCallback callback) {
@@ -161,8 +173,9 @@ public class SharedZkClientFactory extends HelixZkClientFactory {
           clientConfig.getMonitorKey(), clientConfig.getMonitorInstanceName(),
           clientConfig.isMonitorRootPathOnly());
       _connectionManager = connectionManager;
-      // Register to the base dedicated RealmAwareZkClient
-      _connectionManager.registerWatcher(this);
+      // Register to the base dedicated RealmAwareZkClient. Only the events of the paths that this
+      // client subscribes to are forwarded.
+      _connectionManager.registerPathScopedWatcher(this);
       _onCloseCallback = callback;
     }
 
@@ -180,6 +193,82 @@ public class SharedZkClientFactory extends HelixZkClientFactory {
       }
     }
 
+    @Override
+    public ChildrenSubscribeResult subscribeChildChanges(String path, IZkChildListener listener,
+        boolean skipWatchingNonExistNode) {
+      acquireWatchedPath(path);
+      try {
+        return super.subscribeChildChanges(path, listener, skipWatchingNonExistNode);
+      } finally {
+        releaseWatchedPath(path, true);
+      }
+    }
+
+    @Override
+    public void unsubscribeChildChanges(String path, IZkChildListener childListener) {
+      super.unsubscribeChildChanges(path, childListener);
+      releaseWatchedPath(path, false);
+    }
+
+    @Override
+    public boolean subscribeDataChanges(String path, IZkDataListener listener,
+        boolean skipWatchingNonExistNode) {
+      acquireWatchedPath(path);
+      try {
+        return super.subscribeDataChanges(path, listener, skipWatchingNonExistNode);
+      } finally {
+        releaseWatchedPath(path, true);
+      }
+    }
+
+    @Override
+    public void unsubscribeDataChanges(String path, IZkDataListener dataListener) {
+      super.unsubscribeDataChanges(path, dataListener);
+      releaseWatchedPath(path, false);
+    }
+
+    @Override
+    public void unsubscribeAll() {
+      super.unsubscribeAll();
+      synchronized (_pendingWatchedPaths) {
+        for (String path : new HashSet<>(_watchedPaths)) {
+          releaseWatchedPath(path, false);
+        }
+      }
+    }
+
+    @Override
+    public boolean waitUntilExists(String path, TimeUnit timeUnit, long time) {
+      // The creation event of the path signals the waiting thread
+      acquireWatchedPath(path);
+      try {
+        return super.waitUntilExists(path, timeUnit, time);
+      } finally {
+        releaseWatchedPath(path, true);
+      }
+    }
+
+    private void acquireWatchedPath(String path) {
+      synchronized (_pendingWatchedPaths) {
+        _pendingWatchedPaths.merge(path, 1, Integer::sum);
+        if (_watchedPaths.add(path)) {
+          _connectionManager.addWatchedPath(this, path, false);
+        }
+      }
+    }
+
+    private void releaseWatchedPath(String path, boolean pending) {
+      synchronized (_pendingWatchedPaths) {
+        if (pending) {
+          _pendingWatchedPaths.computeIfPresent(path, (key, count) -> count > 1 ? count - 1 : null);
+        }
+        if (!_pendingWatchedPaths.containsKey(path) && !hasListeners(path) && _watchedPaths
+            .remove(path)) {
+          _connectionManager.removeWatchedPath(this, path, false);
+        }
+      }
+    }
+
     @Override
     public IZkConnection getConnection() {
       if (isClosed()) {
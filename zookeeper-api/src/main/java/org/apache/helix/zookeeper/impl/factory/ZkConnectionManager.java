@@ -21,6 +21,7 @@ package org.apache.helix.zookeeper.impl.factory;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.helix.zookeeper.api.client.HelixZkClient;
 import org.apache.helix.zookeeper.impl.client.SharedZkClient;
@@ -28,6 +29,7 @@ import org.apache.helix.zookeeper.impl.client.ZkClient;
 import org.apache.helix.zookeeper.exception.ZkClientException;
 import org.apache.helix.zookeeper.zkclient.IZkConnection;
 import org.apache.helix.zookeeper.zkclient.serialize.BasicZkSerializer;
+import org.apache.helix.zookeeper.zkclient.metric.ZkClientMonitor;
 import org.apache.helix.zookeeper.zkclient.serialize.SerializableSerializer;
 import org.apache.zookeeper.WatchedEvent;
 import org.apache.zookeeper.Watcher;
@@ -41,6 +43,11 @@ import org.slf4j.LoggerFactory;
  * A ZkConnection manager that maintain connection status and allows additional watchers to be registered.
  * It will forward events to those watchers.
  *
+ * A watcher registered by {@link #registerWatcher(Watcher)} receives all the events. A path scoped
+ * watcher registered by {@link #registerPathScopedWatcher(Watcher)} receives the session events
+ * and the events of the paths it adds by {@link #addWatchedPath(Watcher, String, boolean)} only,
+ * which are looked up in a path trie instead of being discarded by every watcher.
+ *
  * TODO Separate connection management logic from the raw ZkClient class.
  * So this manager is a peer to the HelixZkClient. Connection Manager for maintaining the connection and
  * HelixZkClient to handle user request.
@@ -52,8 +59,11 @@ public class ZkConnectionManager extends ZkClient {
   // Client type that is used in monitor, and metrics.
   private final static String MONITOR_TYPE = "ZkConnectionManager";
   private final String _monitorKey;
-  // Set of all registered watchers
-  protected final Set<Watcher> _sharedWatchers = new HashSet<>();
+  // Set of all registered watchers that receive all the events
+  protected final Set<Watcher> _sharedWatchers = ConcurrentHashMap.newKeySet();
+  // Set of all registered path scoped watchers
+  protected final Set<Watcher> _pathScopedWatchers = ConcurrentHashMap.newKeySet();
+  private final ZkWatcherPathIndex _watcherPathIndex = new ZkWatcherPathIndex();
 
   /**
    * Construct and init a ZkConnection Manager.
@@ -82,6 +92,20 @@ public class ZkConnectionManager extends ZkClient {
     return _sharedWatchers.add(watcher);
   }
 
+  /**
+   * Register a path scoped event watcher. The watcher receives the session events, and the events
+   * of the paths added by {@link #addWatchedPath(Watcher, String, boolean)}.
+   *
+   * @param watcher
+   * @return true if the watcher is newly added. false if it is already in record.
+   */
+  public synchronized boolean registerPathScopedWatcher(Watcher watcher) {
+    if (isClosed()) {
+      throw new ZkClientException("Cannot add watcher to a closed client.");
+    }
+    return _pathScopedWatchers.add(watcher);
+  }
+
   /**
    * Unregister the event watcher.
    *
@@ -90,7 +114,43 @@ public class ZkConnectionManager extends ZkClient {
    */
   public synchronized int unregisterWatcher(Watcher watcher) {
     _sharedWatchers.remove(watcher);
-    return _sharedWatchers.size();
+    if (_pathScopedWatchers.remove(watcher)) {
+      _watcherPathIndex.removeAll(watcher);
+    }
+    return getWatcherCount();
+  }
+
+  /**
+   * Forward the events of the path to the path scoped watcher. This does not block the event
+   * forwarding or the other registrations.
+   *
+   * @param watcher
+   * @param path
+   * @param recursive true to forward the events of all the paths under the path as well
+   * @return true if the path is newly added for the watcher, false if it is already added or
+   *         the watcher is not registered as a path scoped watcher
+   */
+  public boolean addWatchedPath(Watcher watcher, String path, boolean recursive) {
+    boolean added = _watcherPathIndex.add(path, watcher, recursive);
+    if (!_pathScopedWatchers.contains(watcher)) {
+      // The watcher is not registered, or unregistered concurrently
+      _watcherPathIndex.remove(path, watcher, recursive);
+      return false;
+    }
+    return added;
+  }
+
+  /**
+   * Stop forwarding the events of the path to the path scoped watcher.
+   *
+   * @return true if the path was added for the watcher
+   */
+  public boolean removeWatchedPath(Watcher watcher, String path, boolean recursive) {
+    return _watcherPathIndex.remove(path, watcher, recursive);
+  }
+
+  private int getWatcherCount() {
+    return _sharedWatchers.size() + _pathScopedWatchers.size();
   }
 
   @Override
@@ -99,14 +159,29 @@ public class ZkConnectionManager extends ZkClient {
     forwardingEvent(event);
   }
 
-  private synchronized void forwardingEvent(final WatchedEvent event) {
+  private void forwardingEvent(final WatchedEvent event) {
     // note that process (then forwardingEvent) could be triggered during construction, when sharedWatchers is still null.
-    if (_sharedWatchers == null || _sharedWatchers.isEmpty()) {
+    if (_sharedWatchers == null || _pathScopedWatchers == null || getWatcherCount() == 0) {
       return;
     }
+    int forwardedCount = 0;
     // forward event to all the watchers' event queue
     for (final Watcher watcher : _sharedWatchers) {
       watcher.process(event);
+      forwardedCount++;
+    }
+    // The session events are forwarded to all the path scoped watchers, the path events are
+    // forwarded to the watchers of the path only.
+    Set<Watcher> pathScopedWatchers = event.getPath() == null ? _pathScopedWatchers
+        : _watcherPathIndex.getWatchers(event.getPath());
+    for (final Watcher watcher : pathScopedWatchers) {
+      watcher.process(event);
+      forwardedCount++;
+    }
+    ZkClientMonitor monitor = getMonitor();
+    if (monitor != null) {
+      monitor.recordEventForwarding(forwardedCount,
+          Math.max(getWatcherCount() - forwardedCount, 0));
     }
   }
 
@@ -118,10 +193,10 @@ public class ZkConnectionManager extends ZkClient {
 
   protected synchronized void close(boolean skipIfWatched) {
     cleanupInactiveWatchers();
-    if (_sharedWatchers != null && _sharedWatchers.size() > 0) {
+    if (_sharedWatchers != null && _pathScopedWatchers != null && getWatcherCount() > 0) {
       if (skipIfWatched) {
         LOG.debug("Skip closing ZkConnection due to existing watchers. Watcher count {}.",
-            _sharedWatchers.size());
+            getWatcherCount());
         return;
       } else {
         throw new ZkClientException(
@@ -133,16 +208,26 @@ public class ZkConnectionManager extends ZkClient {
   }
 
   protected void cleanupInactiveWatchers() {
-    Set<Watcher> closedWatchers = new HashSet<>();
     // Null check needed because close() might get invoked before initialization
     if (_sharedWatchers != null) {
-      for (Watcher watcher : _sharedWatchers) {
-        // TODO ideally, we shall have a ClosableWatcher interface so as to check accordingly. -- JJ
-        if (watcher instanceof SharedZkClient && ((SharedZkClient) watcher).isClosed()) {
-          closedWatchers.add(watcher);
-        }
+      _sharedWatchers.removeAll(getInactiveWatchers(_sharedWatchers));
+    }
+    if (_pathScopedWatchers != null) {
+      for (Watcher watcher : getInactiveWatchers(_pathScopedWatchers)) {
+        _pathScopedWatchers.remove(watcher);
+        _watcherPathIndex.removeAll(watcher);
+      }
+    }
+  }
+
+  private Set<Watcher> getInactiveWatchers(Set<Watcher> watchers) {
+    Set<Watcher> closedWatchers = new HashSet<>();
+    for (Watcher watcher : watchers) {
+      // TODO ideally, we shall have a ClosableWatcher interface so as to check accordingly. -- JJ
+      if (watcher instanceof SharedZkClient && ((SharedZkClient) watcher).isClosed()) {
+        closedWatchers.add(watcher);
       }
-      _sharedWatchers.removeAll(closedWatchers);
     }
+    return closedWatchers;
   }
 }
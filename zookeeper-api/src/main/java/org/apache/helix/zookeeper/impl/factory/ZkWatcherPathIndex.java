@@ -0,0 +1,200 @@
+package org.apache.helix.zookeeper.impl.factory;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.zookeeper.Watcher;
+
+
+/**
+ * A path trie of the watchers that are interested in the events of some paths only. A watcher is
+ * registered on a path, or on a path and all the paths under it.
+ *
+ * The trie is immutable. A registration change replaces the nodes along the path and swaps the
+ * root, so the events are dispatched from a consistent snapshot without locking while the
+ * watchers are registered and unregistered concurrently.
+ */
+class ZkWatcherPathIndex {
+  private final AtomicReference<Node> _root = new AtomicReference<>(Node.EMPTY);
+
+  /**
+   * Register the watcher on the path.
+   *
+   * @param path
+   * @param watcher
+   * @param recursive true if the watcher is also interested in all the paths under the path
+   * @return true if the watcher is newly registered on the path
+   */
+  boolean add(String path, Watcher watcher, boolean recursive) {
+    return update(path, watcher, recursive, true);
+  }
+
+  /**
+   * Unregister the watcher from the path.
+   *
+   * @return true if the watcher was registered on the path
+   */
+  boolean remove(String path, Watcher watcher, boolean recursive) {
+    return update(path, watcher, recursive, false);
+  }
+
+  /**
+   * Unregister the watcher from all the paths.
+   */
+  void removeAll(Watcher watcher) {
+    Node root;
+    Node newRoot;
+    do {
+      root = _root.get();
+      newRoot = root.without(watcher);
+    } while (newRoot != root && !_root.compareAndSet(root, newRoot));
+  }
+
+  /**
+   * @return the watchers that are interested in the events of the path
+   */
+  Set<Watcher> getWatchers(String path) {
+    Node node = _root.get();
+    Set<Watcher> watchers = new HashSet<>(node._subtreeWatchers);
+    for (String name : split(path)) {
+      node = node._children.get(name);
+      if (node == null) {
+        return watchers;
+      }
+      watchers.addAll(node._subtreeWatchers);
+    }
+    watchers.addAll(node._pathWatchers);
+    return watchers;
+  }
+
+  boolean isEmpty() {
+    return _root.get().isEmpty();
+  }
+
+  private boolean update(String path, Watcher watcher, boolean recursive, boolean add) {
+    String[] names = split(path);
+    Node root;
+    Node newRoot;
+    do {
+      root = _root.get();
+      newRoot = root.update(names, 0, watcher, recursive, add);
+      if (newRoot == root) {
+        return false;
+      }
+    } while (!_root.compareAndSet(root, newRoot));
+    return true;
+  }
+
+  private static String[] split(String path) {
+    if (path == null || !path.startsWith("/")) {
+      throw new IllegalArgumentException("Invalid path: " + path);
+    }
+    return path.length() == 1 ? new String[0] : path.substring(1).split("/");
+  }
+
+  private static class Node {
+    static final Node EMPTY =
+        new Node(Collections.emptyMap(), Collections.emptySet(), Collections.emptySet());
+
+    // All the fields are immutable
+    private final Map<String, Node> _children;
+    // Watchers of this path only
+    private final Set<Watcher> _pathWatchers;
+    // Watchers of this path and all the paths under it
+    private final Set<Watcher> _subtreeWatchers;
+
+    Node(Map<String, Node> children, Set<Watcher> pathWatchers, Set<Watcher> subtreeWatchers) {
+      _children = children;
+      _pathWatchers = pathWatchers;
+      _subtreeWatchers = subtreeWatchers;
+    }
+
+    boolean isEmpty() {
+      return _children.isEmpty() && _pathWatchers.isEmpty() && _subtreeWatchers.isEmpty();
+    }
+
+    /**
+     * @return the updated node, or this node if nothing is changed
+     */
+    Node update(String[] names, int index, Watcher watcher, boolean recursive, boolean add) {
+      if (index == names.length) {
+        Set<Watcher> watchers = recursive ? _subtreeWatchers : _pathWatchers;
+        if (watchers.contains(watcher) == add) {
+          return this;
+        }
+        Set<Watcher> newWatchers = new HashSet<>(watchers);
+        if (add) {
+          newWatchers.add(watcher);
+        } else {
+          newWatchers.remove(watcher);
+        }
+        return recursive ? new Node(_children, _pathWatchers, newWatchers)
+            : new Node(_children, newWatchers, _subtreeWatchers);
+      }
+      Node child = _children.get(names[index]);
+      if (child == null) {
+        if (!add) {
+          return this;
+        }
+        child = EMPTY;
+      }
+      Node newChild = child.update(names, index + 1, watcher, recursive, add);
+      return newChild == child ? this : withChild(names[index], newChild);
+    }
+
+    /**
+     * @return the node without the watcher, or this node if the watcher is not registered
+     */
+    Node without(Watcher watcher) {
+      Node node = this;
+      for (Map.Entry<String, Node> entry : _children.entrySet()) {
+        Node newChild = entry.getValue().without(watcher);
+        if (newChild != entry.getValue()) {
+          node = node.withChild(entry.getKey(), newChild);
+        }
+      }
+      if (node._pathWatchers.contains(watcher) || node._subtreeWatchers.contains(watcher)) {
+        Set<Watcher> pathWatchers = new HashSet<>(node._pathWatchers);
+        pathWatchers.remove(watcher);
+        Set<Watcher> subtreeWatchers = new HashSet<>(node._subtreeWatchers);
+        subtreeWatchers.remove(watcher);
+        node = new Node(node._children, pathWatchers, subtreeWatchers);
+      }
+      return node;
+    }
+
+    private Node withChild(String name, Node child) {
+      Map<String, Node> children = new HashMap<>(_children);
+      if (child.isEmpty()) {
+        // Prune the paths without any watcher
+        children.remove(name);
+      } else {
+        children.put(name, child);
+      }
+      return new Node(children, _pathWatchers, _subtreeWatchers);
+    }
+  }
+}
@@ -26,6 +26,7 @@ import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.PropertyName;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize.Typing;
 import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.AnnotatedClass;
 import com.fasterxml.jackson.databind.introspect.AnnotatedField;
 import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
 import com.fasterxml.jackson.databind.introspect.AnnotatedMethod;
@@ -35,6 +36,7 @@ import org.codehaus.jackson.annotate.JsonCreator;
 import org.codehaus.jackson.annotate.JsonIgnore;
 import org.codehaus.jackson.annotate.JsonIgnoreProperties;
 import org.codehaus.jackson.annotate.JsonProperty;
+import org.codehaus.jackson.annotate.JsonPropertyOrder;
 import org.codehaus.jackson.map.JsonSerializer;
 import org.codehaus.jackson.map.annotate.JsonSerialize;
 import org.codehaus.jackson.map.annotate.NoClass;
@@ -225,6 +227,12 @@ public class CodehausJacksonIntrospector extends NopAnnotationIntrospector {
     return null;
   }
 
+  @Override
+  public String[] findSerializationPropertyOrder(AnnotatedClass ac) {
+    JsonPropertyOrder orderAnnotation = ac.getAnnotation(JsonPropertyOrder.class);
+    return orderAnnotation == null ? null : orderAnnotation.value();
+  }
+
   @SuppressWarnings("deprecation")
   @Override
   public boolean hasCreatorAnnotation(Annotated a) {
@@ -0,0 +1,56 @@
+package org.apache.helix.zookeeper.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+
+
+/**
+ * A ByteArrayOutputStream reused by a thread, that drops its buffer on release if the buffer
+ * grows too large. For the serializers and the compression codecs of zookeeper-api only, it is
+ * public because they are in different packages.
+ */
+public final class ReusableByteArrayOutputStream extends ByteArrayOutputStream {
+  // The buffer is dropped after writing data larger than this, so a thread does not hold a large
+  // buffer
+  private static final int MAX_RETAINED_BUFFER_SIZE = 256 * 1024;
+  private static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+
+  public ReusableByteArrayOutputStream() {
+    super(INITIAL_BUFFER_SIZE);
+  }
+
+  /**
+   * @return the internal buffer, valid up to {@link #size()} until the next write or release
+   */
+  public byte[] getBuffer() {
+    return buf;
+  }
+
+  /**
+   * Resets the stream, and drops the buffer if it has grown too large.
+   */
+  public void release() {
+    reset();
+    if (buf.length > MAX_RETAINED_BUFFER_SIZE) {
+      buf = new byte[INITIAL_BUFFER_SIZE];
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package org.apache.helix.zookeeper.util.compression;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A codec that compresses the ZNRecords and the bucketed data written to ZooKeeper. The data
+ * compressed by a codec other than gzip starts with a header of the codec id, so the reader finds
+ * the codec without any configuration. The codecs are registered in {@link CompressionCodecs}.
+ */
+public interface CompressionCodec {
+
+  /**
+   * @return the name of the codec, used to select the codec in the configuration
+   */
+  String getName();
+
+  /**
+   * @return the id of the codec written in the header of the compressed data, unique among the
+   *         registered codecs
+   */
+  byte getId();
+
+  /**
+   * Compress the data.
+   * @param out the stream the compressed data is written to, after the header
+   */
+  void compress(byte[] data, int offset, int length, OutputStream out) throws IOException;
+
+  /**
+   * Uncompress the data written by {@link #compress(byte[], int, int, OutputStream)}.
+   * @return the uncompressed data
+   */
+  byte[] uncompress(byte[] data, int offset, int length) throws IOException;
+}
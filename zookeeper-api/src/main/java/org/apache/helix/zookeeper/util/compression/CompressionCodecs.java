@@ -0,0 +1,288 @@
+package org.apache.helix.zookeeper.util.compression;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.zip.Deflater;
+import javax.management.JMException;
+
+import org.apache.helix.zookeeper.constant.ZkSystemPropertyKeys;
+import org.apache.helix.zookeeper.util.GZipCompressionUtil;
+import org.apache.helix.zookeeper.util.ReusableByteArrayOutputStream;
+import org.apache.helix.zookeeper.zkclient.metric.CompressionCodecMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The registry of the {@link CompressionCodec}s, and the compression of the data written to
+ * ZooKeeper with the codec selected for its path by
+ * {@link ZkSystemPropertyKeys#ZK_SERIALIZER_ZNRECORD_COMPRESSION_CODEC} and
+ * {@link ZkSystemPropertyKeys#ZK_SERIALIZER_ZNRECORD_COMPRESSION_CODEC_PATHS}.
+ * <p>
+ * The gzip data is written as it is. The data of the other codecs starts with a header of
+ * {@link #FRAME_MAGIC} and the codec id. 0xF8 is never a byte of UTF-8 text and not the first
+ * byte of gzip data, so the header tells the framed data from the JSON and the gzip data. The
+ * data is uncompressed by the codec of its header, whatever codec is configured.
+ */
+public class CompressionCodecs {
+  private static final Logger LOG = LoggerFactory.getLogger(CompressionCodecs.class);
+
+  public static final byte[] FRAME_MAGIC = {(byte) 0xF8, (byte) 0x48};
+  private static final int FRAME_HEADER_SIZE = FRAME_MAGIC.length + 1;
+
+  public static final CompressionCodec GZIP = new GzipCompressionCodec();
+  public static final CompressionCodec DEFLATE =
+      new DeflateCompressionCodec("DEFLATE", (byte) 1, Deflater.BEST_SPEED, null);
+  public static final CompressionCodec DEFLATE_DICTIONARY =
+      new DeflateCompressionCodec("DEFLATE_DICTIONARY", (byte) 2, Deflater.DEFAULT_COMPRESSION,
+          HelixDictionary.DICTIONARY.getBytes(StandardCharsets.UTF_8));
+
+  private static final Map<String, CompressionCodec> CODECS_BY_NAME = new ConcurrentHashMap<>();
+  private static final CompressionCodec[] CODECS_BY_ID = new CompressionCodec[256];
+  private static final Map<String, CompressionCodecMonitor> MONITORS = new ConcurrentHashMap<>();
+
+  private static final ThreadLocal<ReusableByteArrayOutputStream> OUTPUT_BUFFER =
+      ThreadLocal.withInitial(ReusableByteArrayOutputStream::new);
+
+  private static volatile CodecSelection _codecSelection;
+
+  static {
+    register(GZIP);
+    register(DEFLATE);
+    register(DEFLATE_DICTIONARY);
+  }
+
+  private CompressionCodecs() {
+  }
+
+  /**
+   * Register a codec, so it can be configured by its name and its data can be uncompressed.
+   * @throws IllegalArgumentException if another codec has the name or the id
+   */
+  public static synchronized void register(CompressionCodec codec) {
+    CompressionCodec existing = CODECS_BY_NAME.get(codec.getName());
+    if (existing == codec) {
+      return;
+    }
+    if (existing != null) {
+      throw new IllegalArgumentException("Codec " + codec.getName() + " is already registered");
+    }
+    int id = codec.getId() & 0xff;
+    if (CODECS_BY_ID[id] != null) {
+      throw new IllegalArgumentException(
+          "Codec id " + id + " is already used by codec " + CODECS_BY_ID[id].getName());
+    }
+    CODECS_BY_ID[id] = codec;
+    CODECS_BY_NAME.put(codec.getName(), codec);
+    // the configured codec names may refer to the new codec
+    _codecSelection = null;
+  }
+
+  /**
+   * @return the registered codec of the name, null if there is none
+   */
+  public static CompressionCodec getCodec(String name) {
+    return CODECS_BY_NAME.get(name);
+  }
+
+  /**
+   * @param path the ZooKeeper path of the data, null if it is unknown
+   * @return the codec configured for the path
+   */
+  public static CompressionCodec getCodecForPath(String path) {
+    String defaultCodec =
+        System.getProperty(ZkSystemPropertyKeys.ZK_SERIALIZER_ZNRECORD_COMPRESSION_CODEC);
+    String pathCodecs =
+        System.getProperty(ZkSystemPropertyKeys.ZK_SERIALIZER_ZNRECORD_COMPRESSION_CODEC_PATHS);
+    CodecSelection selection = _codecSelection;
+    if (selection == null || !selection.isConfiguredBy(defaultCodec, pathCodecs)) {
+      // parse the properties only when they are changed
+      selection = new CodecSelection(defaultCodec, pathCodecs);
+      _codecSelection = selection;
+    }
+    return selection.getCodec(path);
+  }
+
+  /**
+   * @return true if the data is compressed by any codec
+   */
+  public static boolean isCompressed(byte[] bytes) {
+    return GZipCompressionUtil.isCompressed(bytes) || isFramed(bytes);
+  }
+
+  private static boolean isFramed(byte[] bytes) {
+    return bytes != null && bytes.length >= FRAME_HEADER_SIZE && bytes[0] == FRAME_MAGIC[0]
+        && bytes[1] == FRAME_MAGIC[1];
+  }
+
+  /**
+   * Compress the data with the codec configured for the path.
+   * @param path the ZooKeeper path of the data, null if it is unknown
+   */
+  public static byte[] compress(byte[] data, String path) throws IOException {
+    return compress(data, 0, data.length, getCodecForPath(path));
+  }
+
+  /**
+   * Compress the data with the codec configured for the path.
+   * @param path the ZooKeeper path of the data, null if it is unknown
+   */
+  public static byte[] compress(byte[] data, int offset, int length, String path)
+      throws IOException {
+    return compress(data, offset, length, getCodecForPath(path));
+  }
+
+  /**
+   * Compress the data with the codec, framed by the codec header unless the codec is gzip.
+   */
+  public static byte[] compress(byte[] data, int offset, int length, CompressionCodec codec)
+      throws IOException {
+    long startTime = System.nanoTime();
+    ReusableByteArrayOutputStream buffer = OUTPUT_BUFFER.get();
+    byte[] compressedBytes;
+    try {
+      if (codec.getId() != GzipCompressionCodec.ID) {
+        buffer.write(FRAME_MAGIC);
+        buffer.write(codec.getId());
+      }
+      codec.compress(data, offset, length, buffer);
+      compressedBytes = buffer.toByteArray();
+    } finally {
+      buffer.release();
+    }
+    getMonitor(codec).recordCompression(length, compressedBytes.length,
+        TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
+    return compressedBytes;
+  }
+
+  /**
+   * Uncompress the data compressed by any registered codec.
+   * @throws IOException if the data is not compressed, or compressed by an unknown codec
+   */
+  public static byte[] uncompress(byte[] bytes) throws IOException {
+    long startTime = System.nanoTime();
+    CompressionCodec codec;
+    byte[] uncompressedBytes;
+    if (isFramed(bytes)) {
+      codec = CODECS_BY_ID[bytes[FRAME_MAGIC.length] & 0xff];
+      if (codec == null) {
+        throw new IOException(
+            "Data is compressed by an unknown codec id " + (bytes[FRAME_MAGIC.length] & 0xff));
+      }
+      uncompressedBytes =
+          codec.uncompress(bytes, FRAME_HEADER_SIZE, bytes.length - FRAME_HEADER_SIZE);
+    } else if (GZipCompressionUtil.isCompressed(bytes)) {
+      codec = CODECS_BY_ID[GzipCompressionCodec.ID];
+      uncompressedBytes = codec.uncompress(bytes, 0, bytes.length);
+    } else {
+      throw new IOException("Data is not compressed");
+    }
+    getMonitor(codec)
+        .recordDecompression(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
+    return uncompressedBytes;
+  }
+
+  private static CompressionCodecMonitor getMonitor(CompressionCodec codec) {
+    CompressionCodecMonitor monitor = MONITORS.get(codec.getName());
+    if (monitor == null) {
+      monitor = MONITORS.computeIfAbsent(codec.getName(), name -> {
+        CompressionCodecMonitor newMonitor = new CompressionCodecMonitor(name);
+        try {
+          newMonitor.register();
+        } catch (JMException e) {
+          LOG.warn("Failed to register the monitor of compression codec {}.", name, e);
+        }
+        return newMonitor;
+      });
+    }
+    return monitor;
+  }
+
+  /**
+   * The codecs selected by the configured properties.
+   */
+  private static class CodecSelection {
+    private final String _defaultCodecName;
+    private final String _pathCodecs;
+    private final CompressionCodec _defaultCodec;
+    private final List<Pattern> _patterns = new ArrayList<>();
+    private final List<CompressionCodec> _codecs = new ArrayList<>();
+
+    CodecSelection(String defaultCodecName, String pathCodecs) {
+      _defaultCodecName = defaultCodecName;
+      _pathCodecs = pathCodecs;
+      _defaultCodec = defaultCodecName == null ? GZIP : findCodec(defaultCodecName.trim());
+      if (pathCodecs == null) {
+        return;
+      }
+      for (String pathCodec : pathCodecs.split(",")) {
+        if (pathCodec.trim().isEmpty()) {
+          continue;
+        }
+        int index = pathCodec.lastIndexOf('=');
+        if (index < 0) {
+          LOG.error("Invalid compression codec path {}, ignore it.", pathCodec);
+          continue;
+        }
+        try {
+          _patterns.add(Pattern.compile(pathCodec.substring(0, index).trim()));
+          _codecs.add(findCodec(pathCodec.substring(index + 1).trim()));
+        } catch (PatternSyntaxException e) {
+          LOG.error("Invalid compression codec path {}, ignore it.", pathCodec, e);
+        }
+      }
+    }
+
+    private static CompressionCodec findCodec(String name) {
+      CompressionCodec codec = CODECS_BY_NAME.get(name);
+      if (codec == null) {
+        LOG.error("Unknown compression codec {}, use {} instead.", name, GZIP.getName());
+        return GZIP;
+      }
+      return codec;
+    }
+
+    boolean isConfiguredBy(String defaultCodecName, String pathCodecs) {
+      return Objects.equals(_defaultCodecName, defaultCodecName)
+          && Objects.equals(_pathCodecs, pathCodecs);
+    }
+
+    CompressionCodec getCodec(String path) {
+      if (path != null) {
+        for (int i = 0; i < _patterns.size(); i++) {
+          if (_patterns.get(i).matcher(path).matches()) {
+            return _codecs.get(i);
+          }
+        }
+      }
+      return _defaultCodec;
+    }
+  }
+}
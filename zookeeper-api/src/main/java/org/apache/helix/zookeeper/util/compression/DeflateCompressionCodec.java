@@ -0,0 +1,152 @@
+package org.apache.helix.zookeeper.util.compression;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The zlib format at a configurable level, optionally with a preset dictionary. The uncompressed
+ * length is written before the zlib stream, so the data is uncompressed into an array of the exact
+ * size. The Deflater and the Inflater of each thread are reused, as creating them allocates
+ * native memory.
+ */
+public class DeflateCompressionCodec implements CompressionCodec {
+  private static final int CHUNK_SIZE = 8 * 1024;
+
+  private final String _name;
+  private final byte _id;
+  private final int _level;
+  private final byte[] _dictionary;
+  private final long _dictionaryId;
+  private final ThreadLocal<Deflater> _deflater;
+  private final ThreadLocal<Inflater> _inflater = ThreadLocal.withInitial(Inflater::new);
+  private final ThreadLocal<byte[]> _chunk = ThreadLocal.withInitial(() -> new byte[CHUNK_SIZE]);
+
+  /**
+   * @param level the compression level of {@link Deflater}
+   * @param dictionary the preset dictionary, null if there is none
+   */
+  public DeflateCompressionCodec(String name, byte id, int level, byte[] dictionary) {
+    _name = name;
+    _id = id;
+    _level = level;
+    _dictionary = dictionary;
+    if (dictionary != null) {
+      Adler32 adler32 = new Adler32();
+      adler32.update(dictionary, 0, dictionary.length);
+      _dictionaryId = adler32.getValue();
+    } else {
+      _dictionaryId = 0L;
+    }
+    _deflater = ThreadLocal.withInitial(() -> new Deflater(_level));
+  }
+
+  @Override
+  public String getName() {
+    return _name;
+  }
+
+  @Override
+  public byte getId() {
+    return _id;
+  }
+
+  public int getLevel() {
+    return _level;
+  }
+
+  @Override
+  public void compress(byte[] data, int offset, int length, OutputStream out) throws IOException {
+    out.write(length >>> 24);
+    out.write(length >>> 16);
+    out.write(length >>> 8);
+    out.write(length);
+    Deflater deflater = _deflater.get();
+    deflater.reset();
+    try {
+      if (_dictionary != null) {
+        deflater.setDictionary(_dictionary);
+      }
+      deflater.setInput(data, offset, length);
+      deflater.finish();
+      byte[] chunk = _chunk.get();
+      while (!deflater.finished()) {
+        int count = deflater.deflate(chunk);
+        out.write(chunk, 0, count);
+      }
+    } finally {
+      deflater.reset();
+    }
+  }
+
+  @Override
+  public byte[] uncompress(byte[] data, int offset, int length) throws IOException {
+    if (length == 0) {
+      // nothing was compressed
+      return new byte[0];
+    }
+    if (length < 4) {
+      throw new IOException("Truncated " + _name + " data");
+    }
+    int uncompressedLength = (data[offset] & 0xff) << 24 | (data[offset + 1] & 0xff) << 16
+        | (data[offset + 2] & 0xff) << 8 | data[offset + 3] & 0xff;
+    // the written length is checked before allocating the array, so corrupted data cannot
+    // allocate more than the zlib stream can inflate to
+    if (uncompressedLength < 0
+        || uncompressedLength > (long) (length - 4) * GzipCompressionCodec.MAX_DEFLATE_RATIO) {
+      throw new IOException("Invalid uncompressed length " + uncompressedLength);
+    }
+    byte[] result = new byte[uncompressedLength];
+    Inflater inflater = _inflater.get();
+    inflater.reset();
+    try {
+      inflater.setInput(data, offset + 4, length - 4);
+      int count = 0;
+      while (!inflater.finished()) {
+        int n = inflater.inflate(result, count, result.length - count);
+        count += n;
+        if (n == 0) {
+          if (inflater.needsDictionary()) {
+            if (_dictionary == null || (inflater.getAdler() & 0xffffffffL) != _dictionaryId) {
+              throw new IOException(_name + " data is compressed with an unknown dictionary");
+            }
+            inflater.setDictionary(_dictionary);
+          } else if (inflater.needsInput() || count == result.length) {
+            // the data is truncated, or longer than the written length
+            break;
+          }
+        }
+      }
+      if (!inflater.finished() || count != uncompressedLength) {
+        throw new IOException("Corrupted " + _name + " data");
+      }
+      return result;
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupted " + _name + " data", e);
+    } finally {
+      inflater.reset();
+    }
+  }
+}
@@ -0,0 +1,170 @@
+package org.apache.helix.zookeeper.util.compression;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+import org.apache.helix.zookeeper.util.GZipCompressionUtil;
+
+/**
+ * The gzip format written by {@link GZipCompressionUtil}. The data is not framed by a codec
+ * header, so the older Helix versions can read it. The Deflater and the Inflater of each thread
+ * are reused instead of being created by the gzip streams for each record, and the gzip data
+ * without the optional header fields, as written by Java, is uncompressed into an array of the
+ * exact size.
+ */
+public class GzipCompressionCodec implements CompressionCodec {
+  public static final String NAME = "GZIP";
+  public static final byte ID = 0;
+
+  private static final int HEADER_SIZE = 10;
+  private static final int TRAILER_SIZE = 8;
+  private static final int CHUNK_SIZE = 8 * 1024;
+  // the largest ratio of the uncompressed length to the deflated length
+  static final int MAX_DEFLATE_RATIO = 1032;
+
+  private final int _level;
+  private final ThreadLocal<Deflater> _deflater;
+  private final ThreadLocal<Inflater> _inflater =
+      ThreadLocal.withInitial(() -> new Inflater(true));
+  private final ThreadLocal<CRC32> _crc32 = ThreadLocal.withInitial(CRC32::new);
+  private final ThreadLocal<byte[]> _chunk = ThreadLocal.withInitial(() -> new byte[CHUNK_SIZE]);
+
+  public GzipCompressionCodec() {
+    this(Deflater.DEFAULT_COMPRESSION);
+  }
+
+  /**
+   * @param level the compression level of {@link Deflater}
+   */
+  public GzipCompressionCodec(int level) {
+    _level = level;
+    _deflater = ThreadLocal.withInitial(() -> new Deflater(_level, true));
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public byte getId() {
+    return ID;
+  }
+
+  @Override
+  public void compress(byte[] data, int offset, int length, OutputStream out) throws IOException {
+    out.write(GZIPInputStream.GZIP_MAGIC);
+    out.write(GZIPInputStream.GZIP_MAGIC >> 8);
+    out.write(Deflater.DEFLATED);
+    // no flags, modification time, extra flags and OS as written by GZIPOutputStream
+    for (int i = 0; i < HEADER_SIZE - 3; i++) {
+      out.write(0);
+    }
+    Deflater deflater = _deflater.get();
+    deflater.reset();
+    try {
+      deflater.setInput(data, offset, length);
+      deflater.finish();
+      byte[] chunk = _chunk.get();
+      while (!deflater.finished()) {
+        int count = deflater.deflate(chunk);
+        out.write(chunk, 0, count);
+      }
+    } finally {
+      deflater.reset();
+    }
+    CRC32 crc32 = _crc32.get();
+    crc32.reset();
+    crc32.update(data, offset, length);
+    writeIntLE(out, (int) crc32.getValue());
+    writeIntLE(out, length);
+  }
+
+  @Override
+  public byte[] uncompress(byte[] data, int offset, int length) throws IOException {
+    if (length < HEADER_SIZE + TRAILER_SIZE || data[offset + 2] != Deflater.DEFLATED
+        || data[offset + 3] != 0) {
+      // the header has optional fields, leave them to GZIPInputStream
+      return GZipCompressionUtil.uncompress(new ByteArrayInputStream(data, offset, length));
+    }
+    int end = offset + length;
+    int uncompressedLength = readIntLE(data, end - 4);
+    if (uncompressedLength < 0 || uncompressedLength > (long) length * MAX_DEFLATE_RATIO) {
+      // ISIZE is the length modulo 2^32, it is not the length of such data
+      return GZipCompressionUtil.uncompress(new ByteArrayInputStream(data, offset, length));
+    }
+    byte[] result = new byte[uncompressedLength];
+    Inflater inflater = _inflater.get();
+    inflater.reset();
+    try {
+      inflater.setInput(data, offset + HEADER_SIZE, length - HEADER_SIZE);
+      int count = 0;
+      while (!inflater.finished() && count < result.length) {
+        int n = inflater.inflate(result, count, result.length - count);
+        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        count += n;
+      }
+      if (!inflater.finished() && count == result.length
+          && inflater.inflate(_chunk.get()) > 0) {
+        // the data is longer than ISIZE, leave it to GZIPInputStream
+        count = -1;
+      }
+      if (!inflater.finished() || count != uncompressedLength
+          || inflater.getRemaining() != TRAILER_SIZE) {
+        // concatenated gzip members, or corrupted data reported by GZIPInputStream
+        return GZipCompressionUtil.uncompress(new ByteArrayInputStream(data, offset, length));
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupted " + NAME + " data", e);
+    } finally {
+      inflater.reset();
+    }
+    CRC32 crc32 = _crc32.get();
+    crc32.reset();
+    crc32.update(result, 0, result.length);
+    if (readIntLE(data, end - TRAILER_SIZE) != (int) crc32.getValue()) {
+      throw new IOException("Corrupted " + NAME + " data, CRC mismatch");
+    }
+    return result;
+  }
+
+  private static void writeIntLE(OutputStream out, int value) throws IOException {
+    out.write(value);
+    out.write(value >>> 8);
+    out.write(value >>> 16);
+    out.write(value >>> 24);
+  }
+
+  private static int readIntLE(byte[] data, int offset) {
+    return data[offset] & 0xff | (data[offset + 1] & 0xff) << 8 | (data[offset + 2] & 0xff) << 16
+        | (data[offset + 3] & 0xff) << 24;
+  }
+}
@@ -0,0 +1,83 @@
+package org.apache.helix.zookeeper.util.compression;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+/**
+ * The preset dictionary of {@link CompressionCodecs#DEFLATE_DICTIONARY}: the JSON fragments, field
+ * names and states that repeat in the Helix records. The small records, such as the
+ * CurrentStates and the ZNRecord buckets, are too short for deflate to find these repetitions in
+ * the record itself. The most frequent fragments are at the end of the dictionary, where deflate
+ * encodes the matches with the shortest distances.
+ * <p>
+ * The dictionary is part of the data format: data compressed with a dictionary is only
+ * uncompressed with the same dictionary, so a changed dictionary needs a new codec id.
+ */
+class HelixDictionary {
+  static final String DICTIONARY = ""
+      // cluster, instance, resource and task config fields
+      + "\"HELIX_ENABLED\" : \"true\",\n    \"HELIX_HOST\" : \"localhost\",\n"
+      + "    \"HELIX_PORT\" : \"12918\",\n    \"DOMAIN\" : \"zone=,instance=\",\n"
+      + "    \"INSTANCE_WEIGHT\" : \"\",\n    \"TAG_LIST\" : [ ],\n"
+      + "    \"HELIX_DISABLED_PARTITION\" : [ ],\n"
+      + "    \"TargetResource\" : \"\",\n    \"TargetPartitionStates\" : \"\",\n"
+      + "    \"WorkflowID\" : \"\",\n    \"JobType\" : \"\",\n    \"Expiry\" : \"\",\n"
+      + "    \"ParallelJobs\" : \"1\",\n    \"Dag\" : \"{\\\"parentsToChildren\\\":{}}\",\n"
+      + "    \"IsJobQueue\" : \"false\",\n    \"TargetState\" : \"START\",\n"
+      + "    \"StartTime\" : \"\",\n    \"FINISH_TIME\" : \"\",\n"
+      + "    \"STATE\" : \"COMPLETED\",\n    \"TASK_STATES\" : \"\",\n"
+      + "    \"JOB_STATES\" : \"\",\n    \"ASSIGNED_PARTICIPANT\" : \"\",\n"
+      + "    \"NUM_ATTEMPTS\" : \"1\",\n    \"INFO\" : \"\",\n"
+      // idealstate and assignment fields
+      + "    \"MIN_ACTIVE_REPLICAS\" : \"\",\n    \"MAX_PARTITIONS_PER_INSTANCE\" : \"\",\n"
+      + "    \"INSTANCE_GROUP_TAG\" : \"\",\n    \"REBALANCER_CLASS_NAME\" : \"\",\n"
+      + "    \"REBALANCE_STRATEGY\" : \"DEFAULT\",\n"
+      + "    \"REBALANCE_MODE\" : \"FULL_AUTO\",\n    \"REBALANCE_MODE\" : \"SEMI_AUTO\",\n"
+      + "    \"REBALANCE_MODE\" : \"CUSTOMIZED\",\n    \"REBALANCE_MODE\" : \"TASK\",\n"
+      + "    \"IDEAL_STATE_MODE\" : \"AUTO_REBALANCE\",\n"
+      + "    \"IDEAL_STATE_MODE\" : \"AUTO\",\n    \"NUM_PARTITIONS\" : \"\",\n"
+      + "    \"REPLICAS\" : \"3\",\n    \"BUCKET_SIZE\" : \"0\",\n"
+      + "    \"BATCH_MESSAGE_MODE\" : \"false\",\n"
+      // currentstate fields
+      + "    \"SESSION_ID\" : \"\",\n    \"STATE_MODEL_FACTORY_NAME\" : \"DEFAULT\",\n"
+      + "    \"PREVIOUS_STATE\" : \"\",\n    \"START_TIME\" : \"\",\n    \"END_TIME\" : \"\",\n"
+      // states
+      + "\"ERROR\",\n\"DROPPED\",\n\"LEADER\",\n\"STANDBY\",\n\"ONLINE\",\n"
+      + "\"INIT\",\n\"RUNNING\",\n\"TASK_ERROR\",\n\"TASK_ABORTED\",\n\"TIMED_OUT\",\n"
+      + "\"OnlineOffline\",\n\"LeaderStandby\",\n\"Task\",\n\"MasterSlave\",\n"
+      + "\"STATE_MODEL_DEF_REF\" : \"MasterSlave\",\n"
+      + "    \"STATE_MODEL_DEF_REF\" : \"LeaderStandby\",\n"
+      + "    \"STATE_MODEL_DEF_REF\" : \"OnlineOffline\",\n"
+      + "    \"CURRENT_STATE\" : \"OFFLINE\"\n    },\n"
+      + "    \"CURRENT_STATE\" : \"SLAVE\"\n    },\n"
+      + "    \"CURRENT_STATE\" : \"MASTER\"\n    },\n"
+      // the structure of a ZNRecord as written by the serializers
+      + "{\n  \"id\" : \"\",\n  \"simpleFields\" : {\n    \"\" : \"\"\n  },\n"
+      + "  \"mapFields\" : {\n    \"\" : {\n      \"\" : \"\"\n    }\n  },\n"
+      + "  \"listFields\" : {\n    \"\" : [ \"\", \"\" ]\n  }\n}"
+      + "  },\n  \"listFields\" : {\n  },\n  \"mapFields\" : {\n"
+      + "    \"_0\" : {\n      \"localhost_\" : \"OFFLINE\",\n"
+      + "      \"localhost_\" : \"MASTER\",\n      \"localhost_\" : \"SLAVE\",\n"
+      + "      \"localhost_\" : \"SLAVE\"\n    },\n"
+      + "    \"_1\" : [ \"localhost_\", \"localhost_\", \"localhost_\" ],\n";
+
+  private HelixDictionary() {
+  }
+}
@@ -177,10 +177,18 @@ public class ZkClient implements Watcher {
     }
   }
 
+  /*
+   * Shared by the listener events of one notification. The events may be delivered in different
+   * event lanes, so the record is accessed while holding its lock.
+   */
   private class ZkPathStatRecord {
     private final String _path;
     private Stat _stat = null;
     private boolean _checked = false;
+    // the data prefetched for the listeners of one notification, read at most once
+    private Object _data = null;
+    private boolean _dataFetched = false;
+    private boolean _dataExists = false;
 
     public ZkPathStatRecord(String path) {
       _path = path;
@@ -209,6 +217,27 @@ public class ZkClient implements Watcher {
         // unavailable.
       }
     }
+
+    public boolean dataFetched() {
+      return _dataFetched;
+    }
+
+    public boolean dataExists() {
+      return _dataExists;
+    }
+
+    public Object getData() {
+      return _data;
+    }
+
+    /*
+     * Note this method is not thread safe.
+     */
+    public void recordData(Object data, boolean dataExists) {
+      _dataFetched = true;
+      _data = data;
+      _dataExists = dataExists;
+    }
   }
 
   protected ZkClient(IZkConnection zkConnection, int connectionTimeout, long operationRetryTimeout,
@@ -1375,7 +1404,7 @@ public class ZkClient implements Watcher {
     }
   }
 
-  private boolean hasListeners(String path) {
+  protected boolean hasListeners(String path) {
     Set<IZkDataListenerEntry> dataListeners = _dataListener.get(path);
     if (dataListeners != null && dataListeners.size() > 0) {
       return true;
@@ -1469,9 +1498,24 @@ public class ZkClient implements Watcher {
       for (final IZkDataListenerEntry listener : listeners) {
         _eventThread.send(new ZkEventThread.ZkEvent(
             "Data of " + path + " changed sent to " + listener.getDataListener()
-                + " prefetch data: " + listener.isPrefetchData()) {
+                + " prefetch data: " + listener.isPrefetchData(), null,
+            listener.getDataListener()) {
           @Override
           public void run() throws Exception {
+            // The listeners of the path may run in different event lanes
+            synchronized (pathStatRecord) {
+              recordPathStatAndData();
+            }
+            if (!pathStatRecord.pathExists()
+                || listener.isPrefetchData() && !pathStatRecord.dataExists()) {
+              listener.getDataListener().handleDataDeleted(path);
+            } else {
+              listener.getDataListener().handleDataChange(path,
+                  listener.isPrefetchData() ? pathStatRecord.getData() : null);
+            }
+          }
+
+          private void recordPathStatAndData() {
             if (!pathStatRecord.pathChecked()) {
               // getStat() wrapp two ways to install data watch by using exists() or getData().
               // getData() aka useGetData (true) would not install the watch if the node not ]
@@ -1488,24 +1532,23 @@ public class ZkClient implements Watcher {
               }
               pathStatRecord.recordPathStat(stat, notificationTime);
             }
-            if (!pathStatRecord.pathExists()) {
-              listener.getDataListener().handleDataDeleted(path);
-            } else {
-              Object data = null;
-              if (listener.isPrefetchData()) {
-                if (LOG.isDebugEnabled()) {
-                  LOG.debug("zkclient {} Prefetch data for path: {}", _uid, path);
-                }
-                try {
-                  // TODO: the data is redundantly read multiple times when multiple listeners exist
-                  data = readData(path, null, true);
-                } catch (ZkNoNodeException e) {
-                  LOG.warn("zkclient {} Prefetch data for path: {} failed.", _uid, path, e);
-                  listener.getDataListener().handleDataDeleted(path);
-                  return;
-                }
+            if (!pathStatRecord.pathExists() || !listener.isPrefetchData()) {
+              return;
+            }
+            // The data is read and deserialized once for all the prefetch listeners of the
+            // notification, so the listeners share the same data object.
+            if (!pathStatRecord.dataFetched()) {
+              if (LOG.isDebugEnabled()) {
+                LOG.debug("zkclient {} Prefetch data for path: {}", _uid, path);
+              }
+              try {
+                pathStatRecord.recordData(readData(path, null, true), true);
+              } catch (ZkNoNodeException e) {
+                LOG.warn("zkclient {} Prefetch data for path: {} failed.", _uid, path, e);
+                pathStatRecord.recordData(null, false);
               }
-              listener.getDataListener().handleDataChange(path, data);
+            } else if (_monitor != null) {
+              _monitor.increasePrefetchDedupCounter();
             }
           }
         });
@@ -1519,19 +1562,23 @@ public class ZkClient implements Watcher {
     try {
       final ZkPathStatRecord pathStatRecord = new ZkPathStatRecord(path);
       for (final IZkChildListener listener : childListeners) {
-        _eventThread.send(new ZkEventThread.ZkEvent("Children of " + path + " changed sent to " + listener) {
+        _eventThread.send(new ZkEventThread.ZkEvent(
+            "Children of " + path + " changed sent to " + listener, null, listener) {
           @Override
           public void run() throws Exception {
-            if (!pathStatRecord.pathChecked()) {
-              Stat stat = null;
-              if (!pathExists || !hasListeners(path)) {
-                // will not install listener using exists call
-                stat = getStat(path, false);
-              } else {
-                // will install listener using getData() call; if node not there, install nothing
-                stat = installWatchOnlyPathExist(path);
+            // The listeners of the path may run in different event lanes
+            synchronized (pathStatRecord) {
+              if (!pathStatRecord.pathChecked()) {
+                Stat stat = null;
+                if (!pathExists || !hasListeners(path)) {
+                  // will not install listener using exists call
+                  stat = getStat(path, false);
+                } else {
+                  // will install listener using getData() call; if node not there, install nothing
+                  stat = installWatchOnlyPathExist(path);
+                }
+                pathStatRecord.recordPathStat(stat, OptionalLong.empty());
               }
-              pathStatRecord.recordPathStat(stat, OptionalLong.empty());
             }
             List<String> children = null;
             if (pathStatRecord.pathExists()) {
@@ -1741,6 +1788,19 @@ public class ZkClient implements Watcher {
    * @return true if path is successfully deleted, false if path does not exist
    */
   public boolean delete(final String path) {
+    return delete(path, -1);
+  }
+
+  /**
+   * Delete the given path if it has the expected version. Path should not have any children or
+   * the deletion will fail.
+   * This function will throw exception if we fail to delete an existing path, e.g.
+   * ZkBadVersionException if the path has a different version
+   * @param path
+   * @param expectedVersion the expected version of the path, -1 to match any version
+   * @return true if path is successfully deleted, false if path does not exist
+   */
+  public boolean delete(final String path, final int expectedVersion) {
     long startT = System.currentTimeMillis();
     boolean success;
     try {
@@ -1749,7 +1809,7 @@ public class ZkClient implements Watcher {
 
           @Override
           public Object call() throws Exception {
-            getConnection().delete(path);
+            getConnection().delete(path, expectedVersion);
             return null;
           }
         });
@@ -2372,6 +2432,13 @@ public class ZkClient implements Watcher {
     });
   }
 
+  /**
+   * @return the monitor of this client, null if the client is not monitored
+   */
+  protected ZkClientMonitor getMonitor() {
+    return _monitor;
+  }
+
   /**
    * @return true if this ZkClient is managing the ZkConnection.
    */
@@ -22,7 +22,9 @@ package org.apache.helix.zookeeper.zkclient;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.helix.zookeeper.constant.ZkSystemPropertyKeys;
 import org.apache.helix.zookeeper.zkclient.exception.ZkInterruptedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,14 +37,26 @@ import org.slf4j.LoggerFactory;
  * would stop the ZkClient from receiving events from {@link ZooKeeper} as soon as one of the listeners blocks (because
  * it is waiting for something). {@link ZkClient} would then for instance not be able to maintain it's connection state
  * anymore.
+ * <p>
+ * If more than one lane is configured by {@link ZkSystemPropertyKeys#ZK_EVENT_THREAD_LANES}, this
+ * thread only dispatches the events. The events with a lane key, e.g. the data and child change
+ * events keyed by their listener, are delivered by one of the lane threads chosen by the hash of
+ * the key, so the events of the same key are delivered in order while a slow listener does not
+ * delay the listeners in the other lanes. The events without a lane key, e.g. the session events,
+ * are barriers: they are delivered by this thread after all the events sent before them are
+ * delivered, and before any event sent after them.
  */
 public class ZkEventThread extends Thread {
   private static Logger LOG = LoggerFactory.getLogger(ZkClient.class);
 
+  private static final int LANE_COUNT =
+      Integer.getInteger(ZkSystemPropertyKeys.ZK_EVENT_THREAD_LANES, 1);
+
   private BlockingQueue<ZkEvent> _events = new LinkedBlockingQueue<>();
+  private final EventLane[] _lanes;
 
   private long _totalEventCount = 0L;
-  private long _totalEventCountHandled = 0L;
+  private AtomicLong _totalEventCountHandled = new AtomicLong(0L);
 
   private static AtomicInteger _eventId = new AtomicInteger(0);
 
@@ -50,14 +64,24 @@ public class ZkEventThread extends Thread {
 
     private final String _description;
     private final String _sessionId;
+    private final Object _laneKey;
 
     public ZkEvent(String description) {
       this(description, null);
     }
 
     ZkEvent(String description, String sessionId) {
+      this(description, sessionId, null);
+    }
+
+    /**
+     * @param laneKey the events of the same lane key are delivered in order by the same lane, null
+     *          for an event delivered after all the events sent before it
+     */
+    ZkEvent(String description, String sessionId, Object laneKey) {
       _description = description;
       _sessionId = sessionId;
+      _laneKey = laneKey;
     }
 
     public abstract void run() throws Exception;
@@ -82,40 +106,72 @@ public class ZkEventThread extends Thread {
   }
 
   ZkEventThread(String name) {
+    this(name, LANE_COUNT);
+  }
+
+  ZkEventThread(String name, int laneCount) {
     setDaemon(true);
     setName("ZkClient-EventThread-" + getId() + "-" + name);
+    _lanes = new EventLane[laneCount > 1 ? laneCount : 0];
+    for (int i = 0; i < _lanes.length; i++) {
+      _lanes[i] = new EventLane(getName() + "-Lane-" + i);
+    }
   }
 
   @Override public void run() {
     LOG.info("Starting ZkClient event thread.");
+    for (EventLane lane : _lanes) {
+      lane._thread.start();
+    }
     try {
       while (!isInterrupted()) {
         ZkEvent zkEvent = _events.take();
-        int eventId = _eventId.incrementAndGet();
-        if (LOG.isDebugEnabled()) {
-          LOG.debug("Delivering event #" + eventId + " " + zkEvent);
-        }
-        try {
-          zkEvent.run();
-          _totalEventCountHandled ++;
-        } catch (InterruptedException e) {
-          interrupt();
-        } catch (ZkInterruptedException e) {
-          interrupt();
-        } catch (Throwable e) {
-          LOG.error("Error handling event " + zkEvent, e);
-        }
-        if (LOG.isDebugEnabled()) {
-          LOG.debug("Delivering event #" + eventId + " done");
+        if (_lanes.length > 0) {
+          if (zkEvent._laneKey != null) {
+            _lanes[Math.floorMod(zkEvent._laneKey.hashCode(), _lanes.length)].add(zkEvent);
+            continue;
+          }
+          for (EventLane lane : _lanes) {
+            lane.awaitIdle();
+          }
         }
+        deliver(zkEvent);
       }
     } catch (InterruptedException e) {
       LOG.info("Terminate ZkClient event thread.");
+    } finally {
+      for (EventLane lane : _lanes) {
+        lane._thread.interrupt();
+      }
     }
 
     LOG.info("Terminate ZkClient event thread.");
   }
 
+  /**
+   * Deliver the event in the current thread. The current thread is interrupted if the event is
+   * interrupted.
+   */
+  private void deliver(ZkEvent zkEvent) {
+    int eventId = _eventId.incrementAndGet();
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Delivering event #" + eventId + " " + zkEvent);
+    }
+    try {
+      zkEvent.run();
+      _totalEventCountHandled.incrementAndGet();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ZkInterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Throwable e) {
+      LOG.error("Error handling event " + zkEvent, e);
+    }
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Delivering event #" + eventId + " done");
+    }
+  }
+
   public void send(ZkEvent event) {
     if (!isInterrupted()) {
       if (LOG.isDebugEnabled()) {
@@ -127,10 +183,93 @@ public class ZkEventThread extends Thread {
   }
 
   public long getPendingEventsCount() {
-    return _events.size();
+    long pendingEventsCount = _events.size();
+    for (EventLane lane : _lanes) {
+      pendingEventsCount += lane._laneEvents.size();
+    }
+    return pendingEventsCount;
   }
 
   public long getTotalEventCount() { return _totalEventCount; }
 
-  public long getTotalHandledEventCount() { return _totalEventCountHandled; }
+  public long getTotalHandledEventCount() { return _totalEventCountHandled.get(); }
+
+  /**
+   * @return the number of lanes, 0 if the events are delivered by this thread
+   */
+  public int getLaneCount() {
+    return _lanes.length;
+  }
+
+  public long getLanePendingEventsCount(int lane) {
+    return _lanes[lane]._laneEvents.size();
+  }
+
+  public long getLaneHandledEventCount(int lane) {
+    return _lanes[lane]._handledCount.get();
+  }
+
+  /**
+   * @return the total time in ms that the lane spent on delivering the events
+   */
+  public long getLaneHandlingLatency(int lane) {
+    return _lanes[lane]._handlingLatency.get();
+  }
+
+  private class EventLane implements Runnable {
+    private final Thread _thread;
+    private final BlockingQueue<ZkEvent> _laneEvents = new LinkedBlockingQueue<>();
+    private final AtomicLong _handledCount = new AtomicLong(0L);
+    private final AtomicLong _handlingLatency = new AtomicLong(0L);
+    private final Object _idleLock = new Object();
+    // guarded by _idleLock
+    private long _addedCount = 0L;
+    private long _doneCount = 0L;
+
+    EventLane(String name) {
+      _thread = new Thread(this, name);
+      _thread.setDaemon(true);
+    }
+
+    void add(ZkEvent zkEvent) {
+      synchronized (_idleLock) {
+        _addedCount++;
+      }
+      _laneEvents.add(zkEvent);
+    }
+
+    /**
+     * Wait until all the events added to the lane are delivered.
+     */
+    void awaitIdle() throws InterruptedException {
+      synchronized (_idleLock) {
+        while (_doneCount < _addedCount) {
+          _idleLock.wait();
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (!Thread.currentThread().isInterrupted()) {
+          ZkEvent zkEvent = _laneEvents.take();
+          long startTime = System.currentTimeMillis();
+          deliver(zkEvent);
+          _handlingLatency.addAndGet(System.currentTimeMillis() - startTime);
+          _handledCount.incrementAndGet();
+          synchronized (_idleLock) {
+            _doneCount++;
+            _idleLock.notifyAll();
+          }
+        }
+      } catch (InterruptedException e) {
+        // terminated with the event thread
+      } finally {
+        // A lane stops only if the event thread is terminated or an event is interrupted, stop
+        // the event thread as it does without lanes.
+        ZkEventThread.this.interrupt();
+      }
+    }
+  }
 }
@@ -28,6 +28,8 @@ import java.lang.annotation.RetentionPolicy;
  * By default, prefetch is enabled: when ZkClient handles a data change event,
  * ZkClient will read data and pass data object to
  * {@link org.apache.helix.zookeeper.zkclient.IZkDataListener#handleDataChange(String, Object)}.
+ * The data is read once per change event and the same data object is passed to all the
+ * listeners of the path with prefetch enabled, so the listeners must not modify it.
  * If disabled({@code false}): ZkClient will not read data, so data object is passed as null.
  * <p>
  * Example:
@@ -0,0 +1,138 @@
+package org.apache.helix.zookeeper.zkclient.metric;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
+import org.apache.helix.monitoring.mbeans.MonitorDomainNames;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMBeanProvider;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.HistogramDynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.SimpleDynamicMetric;
+
+/**
+ * The compression ratio and the latency of a
+ * {@link org.apache.helix.zookeeper.util.compression.CompressionCodec}.
+ */
+public class CompressionCodecMonitor extends DynamicMBeanProvider {
+  private static final String MBEAN_DESCRIPTION = "Helix Compression Codec Monitor";
+  public static final String MONITOR_TYPE = "CompressionCodec";
+
+  public enum PredefinedMetricDomains {
+    CompressionCounter,
+    DecompressionCounter,
+    UncompressedBytesCounter,
+    CompressedBytesCounter,
+    CompressionRatioGauge,
+    CompressionLatencyGauge,
+    DecompressionLatencyGauge
+  }
+
+  private final String _codecName;
+  private final String _sensorName;
+
+  private final SimpleDynamicMetric<Long> _compressionCounter;
+  private final SimpleDynamicMetric<Long> _decompressionCounter;
+  private final SimpleDynamicMetric<Long> _uncompressedBytesCounter;
+  private final SimpleDynamicMetric<Long> _compressedBytesCounter;
+  private final SimpleDynamicMetric<Double> _compressionRatioGauge;
+  private final HistogramDynamicMetric _compressionLatencyGauge;
+  private final HistogramDynamicMetric _decompressionLatencyGauge;
+
+  public CompressionCodecMonitor(String codecName) {
+    _codecName = codecName;
+    _sensorName = String
+        .format("%s.%s.%s", MonitorDomainNames.HelixZkClient.name(), MONITOR_TYPE, codecName);
+    _compressionCounter =
+        new SimpleDynamicMetric<>(PredefinedMetricDomains.CompressionCounter.name(), 0L);
+    _decompressionCounter =
+        new SimpleDynamicMetric<>(PredefinedMetricDomains.DecompressionCounter.name(), 0L);
+    _uncompressedBytesCounter =
+        new SimpleDynamicMetric<>(PredefinedMetricDomains.UncompressedBytesCounter.name(), 0L);
+    _compressedBytesCounter =
+        new SimpleDynamicMetric<>(PredefinedMetricDomains.CompressedBytesCounter.name(), 0L);
+    _compressionRatioGauge =
+        new SimpleDynamicMetric<>(PredefinedMetricDomains.CompressionRatioGauge.name(), 0.0);
+    _compressionLatencyGauge =
+        new HistogramDynamicMetric(PredefinedMetricDomains.CompressionLatencyGauge.name(),
+            new Histogram(new SlidingTimeWindowArrayReservoir(getResetIntervalInMs(),
+                TimeUnit.MILLISECONDS)));
+    _decompressionLatencyGauge =
+        new HistogramDynamicMetric(PredefinedMetricDomains.DecompressionLatencyGauge.name(),
+            new Histogram(new SlidingTimeWindowArrayReservoir(getResetIntervalInMs(),
+                TimeUnit.MILLISECONDS)));
+  }
+
+  public static ObjectName getObjectName(String codecName) throws JMException {
+    return new ObjectName(String
+        .format("%s:%s=%s,%s=%s", MonitorDomainNames.HelixZkClient.name(), "Type", MONITOR_TYPE,
+            "Key", codecName));
+  }
+
+  @Override
+  public CompressionCodecMonitor register() throws JMException {
+    List<DynamicMetric<?, ?>> attributeList = new ArrayList<>();
+    attributeList.add(_compressionCounter);
+    attributeList.add(_decompressionCounter);
+    attributeList.add(_uncompressedBytesCounter);
+    attributeList.add(_compressedBytesCounter);
+    attributeList.add(_compressionRatioGauge);
+    attributeList.add(_compressionLatencyGauge);
+    attributeList.add(_decompressionLatencyGauge);
+    doRegister(attributeList, MBEAN_DESCRIPTION, getObjectName(_codecName));
+    return this;
+  }
+
+  @Override
+  public String getSensorName() {
+    return _sensorName;
+  }
+
+  /**
+   * @param latencyMicroSec the latency of the compression in microseconds
+   */
+  public synchronized void recordCompression(int uncompressedBytes, int compressedBytes,
+      long latencyMicroSec) {
+    _compressionCounter.updateValue(_compressionCounter.getValue() + 1);
+    long totalUncompressedBytes = _uncompressedBytesCounter.getValue() + uncompressedBytes;
+    long totalCompressedBytes = _compressedBytesCounter.getValue() + compressedBytes;
+    _uncompressedBytesCounter.updateValue(totalUncompressedBytes);
+    _compressedBytesCounter.updateValue(totalCompressedBytes);
+    if (totalCompressedBytes > 0) {
+      _compressionRatioGauge.updateValue((double) totalUncompressedBytes / totalCompressedBytes);
+    }
+    _compressionLatencyGauge.updateValue(latencyMicroSec);
+  }
+
+  /**
+   * @param latencyMicroSec the latency of the decompression in microseconds
+   */
+  public synchronized void recordDecompression(long latencyMicroSec) {
+    _decompressionCounter.updateValue(_decompressionCounter.getValue() + 1);
+    _decompressionLatencyGauge.updateValue(latencyMicroSec);
+  }
+}
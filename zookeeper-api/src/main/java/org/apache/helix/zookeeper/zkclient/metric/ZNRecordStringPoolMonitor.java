@@ -0,0 +1,108 @@
+package org.apache.helix.zookeeper.zkclient.metric;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.ObjectName;
+
+import org.apache.helix.monitoring.mbeans.MonitorDomainNames;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMBeanProvider;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMetric;
+import org.apache.helix.monitoring.mbeans.exception.MetricException;
+import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordStringPool;
+
+/**
+ * The size and the hit ratio of the pool of deserialized ZNRecord values. The values are read
+ * from the pool when the attributes are read.
+ */
+public class ZNRecordStringPoolMonitor extends DynamicMBeanProvider {
+  private static final String MBEAN_DESCRIPTION = "Helix ZNRecord String Pool Monitor";
+  public static final String MONITOR_TYPE = "ZNRecordStringPool";
+
+  private final StringPoolMetric _stringPoolMetric;
+
+  public ZNRecordStringPoolMonitor(ZNRecordStringPool pool) {
+    _stringPoolMetric = new StringPoolMetric(pool);
+  }
+
+  public static ObjectName getObjectName() throws JMException {
+    return new ObjectName(String
+        .format("%s:%s=%s", MonitorDomainNames.HelixZkClient.name(), "Type", MONITOR_TYPE));
+  }
+
+  @Override
+  public DynamicMBeanProvider register() throws JMException {
+    doRegister(Collections.<DynamicMetric<?, ?>>singletonList(_stringPoolMetric),
+        MBEAN_DESCRIPTION, getObjectName());
+    return this;
+  }
+
+  @Override
+  public String getSensorName() {
+    return String.format("%s.%s", MonitorDomainNames.HelixZkClient.name(), MONITOR_TYPE);
+  }
+
+  static class StringPoolMetric extends DynamicMetric<ZNRecordStringPool, ZNRecordStringPool> {
+
+    StringPoolMetric(ZNRecordStringPool pool) {
+      super("ZNRecordStringPool", pool);
+    }
+
+    @Override
+    protected Set<MBeanAttributeInfo> generateAttributeInfos(String metricName,
+        ZNRecordStringPool pool) {
+      Set<MBeanAttributeInfo> attributeInfoSet = new HashSet<>();
+      attributeInfoSet.add(new MBeanAttributeInfo("PoolSizeGauge", Long.TYPE.getName(),
+          DEFAULT_ATTRIBUTE_DESCRIPTION, true, false, false));
+      attributeInfoSet.add(new MBeanAttributeInfo("HitCounter", Long.TYPE.getName(),
+          DEFAULT_ATTRIBUTE_DESCRIPTION, true, false, false));
+      attributeInfoSet.add(new MBeanAttributeInfo("MissCounter", Long.TYPE.getName(),
+          DEFAULT_ATTRIBUTE_DESCRIPTION, true, false, false));
+      attributeInfoSet.add(new MBeanAttributeInfo("HitRatioGauge", Double.TYPE.getName(),
+          DEFAULT_ATTRIBUTE_DESCRIPTION, true, false, false));
+      return attributeInfoSet;
+    }
+
+    @Override
+    public Object getAttributeValue(String attributeName) {
+      switch (attributeName) {
+      case "PoolSizeGauge":
+        return (long) getMetricObject().getSize();
+      case "HitCounter":
+        return getMetricObject().getHitCount();
+      case "MissCounter":
+        return getMetricObject().getMissCount();
+      case "HitRatioGauge":
+        return getMetricObject().getHitRatio();
+      default:
+        throw new MetricException("Unknown attribute name: " + attributeName);
+      }
+    }
+
+    @Override
+    public void updateValue(ZNRecordStringPool pool) {
+      setMetricObject(pool);
+    }
+  }
+}
@@ -26,15 +26,19 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import javax.management.JMException;
 import javax.management.MBeanAttributeInfo;
 import javax.management.MalformedObjectNameException;
 import javax.management.ObjectName;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
 import org.apache.helix.monitoring.mbeans.MBeanRegistrar;
 import org.apache.helix.monitoring.mbeans.MonitorDomainNames;
 import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMBeanProvider;
 import org.apache.helix.monitoring.mbeans.dynamicMBeans.DynamicMetric;
+import org.apache.helix.monitoring.mbeans.dynamicMBeans.HistogramDynamicMetric;
 import org.apache.helix.monitoring.mbeans.dynamicMBeans.SimpleDynamicMetric;
 import org.apache.helix.monitoring.mbeans.exception.MetricException;
 import org.apache.helix.zookeeper.zkclient.ZkEventThread;
@@ -47,6 +51,11 @@ public class ZkClientMonitor extends DynamicMBeanProvider {
   public static final String MONITOR_TYPE = "Type";
   public static final String MONITOR_KEY = "Key";
   protected static final String MBEAN_DESCRIPTION = "Helix Zookeeper Client Monitor";
+  // The event thread lane metrics are named like Lane0PendingCallbackGauge.
+  // CallbackHandlingLatencyCounter is the total time in ms spent on delivering the callbacks.
+  private static final String EVENT_THREAD_LANE_PREFIX = "Lane";
+  private static final String[] EVENT_THREAD_LANE_ATTRIBUTES =
+      { "PendingCallbackGauge", "CallbackHandledCounter", "CallbackHandlingLatencyCounter" };
 
   public enum AccessType {
     READ, WRITE
@@ -62,6 +71,12 @@ public class ZkClientMonitor extends DynamicMBeanProvider {
   private SimpleDynamicMetric<Long> _expiredSessionCounter;
   private SimpleDynamicMetric<Long> _dataChangeEventCounter;
   private SimpleDynamicMetric<Long> _outstandingRequestGauge;
+  private SimpleDynamicMetric<Long> _prefetchDedupCounter;
+  // Events forwarded to the shared watchers of a connection, see ZkConnectionManager
+  private SimpleDynamicMetric<Long> _forwardedEventCounter;
+  private SimpleDynamicMetric<Long> _forwardedWatcherCounter;
+  private SimpleDynamicMetric<Long> _skippedWatcherCounter;
+  private HistogramDynamicMetric _forwardingFanOutGauge;
 
   private ZkThreadMetric _zkEventThreadMetric;
 
@@ -86,6 +101,12 @@ public class ZkClientMonitor extends DynamicMBeanProvider {
     _expiredSessionCounter = new SimpleDynamicMetric("ExpiredSessionCounter", 0l);
     _dataChangeEventCounter = new SimpleDynamicMetric("DataChangeEventCounter", 0l);
     _outstandingRequestGauge = new SimpleDynamicMetric("OutstandingRequestGauge", 0l);
+    _prefetchDedupCounter = new SimpleDynamicMetric<>("PrefetchDedupCounter", 0L);
+    _forwardedEventCounter = new SimpleDynamicMetric<>("ForwardedEventCounter", 0L);
+    _forwardedWatcherCounter = new SimpleDynamicMetric<>("ForwardedWatcherCounter", 0L);
+    _skippedWatcherCounter = new SimpleDynamicMetric<>("SkippedWatcherCounter", 0L);
+    _forwardingFanOutGauge = new HistogramDynamicMetric("ForwardingFanOutGauge", new Histogram(
+        new SlidingTimeWindowArrayReservoir(getResetIntervalInMs(), TimeUnit.MILLISECONDS)));
 
     if (zkEventThread != null) {
       boolean result = setAndInitZkEventThreadMonitor(zkEventThread);
@@ -128,6 +149,11 @@ public class ZkClientMonitor extends DynamicMBeanProvider {
     attributeList.add(_outstandingRequestGauge);
     attributeList.add(_stateChangeEventCounter);
     attributeList.add(_expiredSessionCounter);
+    attributeList.add(_prefetchDedupCounter);
+    attributeList.add(_forwardedEventCounter);
+    attributeList.add(_forwardedWatcherCounter);
+    attributeList.add(_skippedWatcherCounter);
+    attributeList.add(_forwardingFanOutGauge);
     if (_zkEventThreadMetric != null) {
       attributeList.add(_zkEventThreadMetric);
     }
@@ -178,6 +204,30 @@ public class ZkClientMonitor extends DynamicMBeanProvider {
     }
   }
 
+  /**
+   * Count a data listener that receives the data prefetched for another listener of the same
+   * notification, instead of reading the data again.
+   */
+  public void increasePrefetchDedupCounter() {
+    synchronized (_prefetchDedupCounter) {
+      _prefetchDedupCounter.updateValue(_prefetchDedupCounter.getValue() + 1);
+    }
+  }
+
+  /**
+   * Record an event forwarded to the shared watchers of the connection.
+   * @param forwardedCount the number of watchers that receive the event
+   * @param skippedCount the number of registered watchers that are not interested in the event
+   */
+  public void recordEventForwarding(int forwardedCount, int skippedCount) {
+    synchronized (_forwardedEventCounter) {
+      _forwardedEventCounter.updateValue(_forwardedEventCounter.getValue() + 1);
+      _forwardedWatcherCounter.updateValue(_forwardedWatcherCounter.getValue() + forwardedCount);
+      _skippedWatcherCounter.updateValue(_skippedWatcherCounter.getValue() + skippedCount);
+    }
+    _forwardingFanOutGauge.updateValue((long) forwardedCount);
+  }
+
   public void increaseOutstandingRequestGauge() {
     synchronized (_outstandingRequestGauge) {
       _outstandingRequestGauge.updateValue(_outstandingRequestGauge.getValue() + 1);
@@ -272,6 +322,7 @@ public class ZkClientMonitor extends DynamicMBeanProvider {
   }
 
   class ZkThreadMetric extends DynamicMetric<ZkEventThread, ZkEventThread> {
+
     public ZkThreadMetric(ZkEventThread eventThread) {
       super("ZkEventThead", eventThread);
     }
@@ -287,11 +338,21 @@ public class ZkClientMonitor extends DynamicMBeanProvider {
       attributeInfoSet.add(
           new MBeanAttributeInfo("TotalCallbackHandledCounter", Long.TYPE.getName(),
               DEFAULT_ATTRIBUTE_DESCRIPTION, true, false, false));
+      for (int lane = 0; lane < eventThread.getLaneCount(); lane++) {
+        for (String laneAttribute : EVENT_THREAD_LANE_ATTRIBUTES) {
+          attributeInfoSet.add(
+              new MBeanAttributeInfo(EVENT_THREAD_LANE_PREFIX + lane + laneAttribute,
+                  Long.TYPE.getName(), DEFAULT_ATTRIBUTE_DESCRIPTION, true, false, false));
+        }
+      }
       return attributeInfoSet;
     }
 
     @Override
     public Object getAttributeValue(String attributeName) {
+      if (attributeName.startsWith(EVENT_THREAD_LANE_PREFIX)) {
+        return getLaneAttributeValue(attributeName);
+      }
       switch (attributeName) {
       case "PendingCallbackGauge":
         return getMetricObject().getPendingEventsCount();
@@ -304,6 +365,27 @@ public class ZkClientMonitor extends DynamicMBeanProvider {
       }
     }
 
+    private Object getLaneAttributeValue(String attributeName) {
+      ZkEventThread eventThread = getMetricObject();
+      for (int lane = 0; lane < eventThread.getLaneCount(); lane++) {
+        String prefix = EVENT_THREAD_LANE_PREFIX + lane;
+        if (!attributeName.startsWith(prefix)) {
+          continue;
+        }
+        switch (attributeName.substring(prefix.length())) {
+        case "PendingCallbackGauge":
+          return eventThread.getLanePendingEventsCount(lane);
+        case "CallbackHandledCounter":
+          return eventThread.getLaneHandledEventCount(lane);
+        case "CallbackHandlingLatencyCounter":
+          return eventThread.getLaneHandlingLatency(lane);
+        default:
+          break;
+        }
+      }
+      throw new MetricException("Unknown attribute name: " + attributeName);
+    }
+
     @Override
     public void updateValue(ZkEventThread newEventThread) {
       setMetricObject(newEventThread);
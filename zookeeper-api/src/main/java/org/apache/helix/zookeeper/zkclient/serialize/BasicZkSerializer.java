@@ -31,7 +31,7 @@ public class BasicZkSerializer implements PathBasedZkSerializer {
   }
 
   public byte[] serialize(Object data, String path) {
-    return _delegate.serialize(data);
+    return _delegate.serialize(data, path);
   }
 
   @Override
@@ -33,5 +33,13 @@ public interface ZkSerializer {
 
     public byte[] serialize(Object data) throws ZkMarshallingError;
 
+    /**
+     * Serialize the data written to the path. The serializers that compress the data override it
+     * to compress with the codec configured for the path.
+     */
+    default byte[] serialize(Object data, String path) throws ZkMarshallingError {
+        return serialize(data);
+    }
+
     public Object deserialize(byte[] bytes) throws ZkMarshallingError;
 }
@@ -0,0 +1,138 @@
+package org.apache.helix.zookeeper.datamodel.serializer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.util.GZipCompressionUtil;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestZNRecordPooledSerializer {
+  private final ZNRecordPooledSerializer _serializer = new ZNRecordPooledSerializer();
+  private final ZNRecordSerializer _mapperSerializer = new ZNRecordSerializer();
+
+  @Test
+  public void testWireCompatibility() {
+    for (ZNRecord record : createRecords()) {
+      byte[] bytes = _serializer.serialize(record);
+      Assert.assertEquals(new String(bytes, StandardCharsets.UTF_8),
+          new String(_mapperSerializer.serialize(record), StandardCharsets.UTF_8));
+      assertRecordEquals((ZNRecord) _serializer.deserialize(bytes), record);
+      assertRecordEquals((ZNRecord) _mapperSerializer.deserialize(bytes), record);
+    }
+  }
+
+  @Test
+  public void testCompression() {
+    ZNRecord record = createRecords().get(2);
+    record.setBooleanField(ZNRecord.ENABLE_COMPRESSION_BOOLEAN_FIELD, true);
+    byte[] bytes = _serializer.serialize(record);
+    Assert.assertTrue(GZipCompressionUtil.isCompressed(bytes));
+    assertRecordEquals((ZNRecord) _serializer.deserialize(bytes), record);
+    assertRecordEquals((ZNRecord) _mapperSerializer.deserialize(bytes), record);
+    assertRecordEquals((ZNRecord) _serializer.deserialize(_mapperSerializer.serialize(record)),
+        record);
+  }
+
+  @Test
+  public void testListFieldBound() {
+    ZNRecord record = new ZNRecord("bounded");
+    record.setListField("list", Arrays.asList("a", "b", "c", "d"));
+    record.setSimpleField(ZNRecord.LIST_FIELD_BOUND, "2");
+    ZNRecord deserialized = (ZNRecord) _serializer.deserialize(_serializer.serialize(record));
+    Assert.assertEquals(deserialized.getListField("list"), Arrays.asList("a", "b"));
+    // the record itself is not modified
+    Assert.assertEquals(record.getListField("list").size(), 4);
+  }
+
+  @Test
+  public void testFieldOrderAndUnknownFields() {
+    String json = "{\"simpleFields\":{\"k\":\"v\"},\"unknown\":{\"a\":[1,2]},"
+        + "\"mapFields\":{\"m\":{\"k\":\"v\"}},\"id\":\"late\",\"listFields\":{}}";
+    ZNRecord record = (ZNRecord) _serializer.deserialize(json.getBytes(StandardCharsets.UTF_8));
+    Assert.assertEquals(record.getId(), "late");
+    Assert.assertEquals(record.getSimpleField("k"), "v");
+    Assert.assertEquals(record.getMapField("m"), Collections.singletonMap("k", "v"));
+
+    Assert.assertNull(_serializer.deserialize("{\"simpleFields\":{}}".getBytes()));
+    Assert.assertNull(_serializer.deserialize("not json".getBytes()));
+    Assert.assertNull(_serializer.deserialize(new byte[0]));
+  }
+
+  @Test
+  public void testBufferReuse() {
+    // a large record grows the buffer of the thread, the following records are not affected
+    ZNRecord large = new ZNRecord("large");
+    for (int i = 0; i < 10000; i++) {
+      large.setSimpleField("key_" + i, "value_" + i);
+    }
+    ZNRecord small = new ZNRecord("small");
+    small.setSimpleField("key", "value");
+    for (int i = 0; i < 3; i++) {
+      assertRecordEquals((ZNRecord) _serializer.deserialize(_serializer.serialize(large)), large);
+      assertRecordEquals((ZNRecord) _serializer.deserialize(_serializer.serialize(small)), small);
+    }
+  }
+
+  private static List<ZNRecord> createRecords() {
+    List<ZNRecord> records = new ArrayList<>();
+    records.add(new ZNRecord("empty"));
+
+    ZNRecord simple = new ZNRecord("simple");
+    simple.setSimpleField("key", "value");
+    simple.setSimpleField("unicode", "é中 \"quoted\"\n\ttab");
+    simple.setSimpleField("null", null);
+    records.add(simple);
+
+    ZNRecord full = new ZNRecord("full");
+    for (int i = 0; i < 10; i++) {
+      full.setSimpleField("simple_" + i, "value_" + i);
+      List<String> list = new ArrayList<>();
+      Map<String, String> map = new HashMap<>();
+      for (int j = 0; j < 5; j++) {
+        list.add("instance_" + j);
+        map.put("instance_" + j, j == 0 ? "MASTER" : "SLAVE");
+      }
+      full.setListField("partition_" + i, list);
+      full.setMapField("partition_" + i, map);
+    }
+    full.setListField("empty", new ArrayList<>());
+    full.setMapField("empty", new HashMap<>());
+    full.setRawPayload("payload".getBytes(StandardCharsets.UTF_8));
+    records.add(full);
+    return records;
+  }
+
+  private static void assertRecordEquals(ZNRecord actual, ZNRecord expected) {
+    Assert.assertEquals(actual.getId(), expected.getId());
+    Assert.assertEquals(actual.getSimpleFields(), expected.getSimpleFields());
+    Assert.assertEquals(actual.getListFields(), expected.getListFields());
+    Assert.assertEquals(actual.getMapFields(), expected.getMapFields());
+    Assert.assertEquals(actual.getRawPayload(), expected.getRawPayload());
+  }
+}
@@ -0,0 +1,132 @@
+package org.apache.helix.zookeeper.datamodel.serializer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordStringPool.FieldClass;
+import org.apache.helix.zookeeper.zkclient.metric.ZNRecordStringPoolMonitor;
+import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+public class TestZNRecordStringPool {
+
+  @AfterClass
+  public void afterClass() {
+    ZNRecordStringPool.setInstance(null);
+  }
+
+  @Test
+  public void testIntern() throws Exception {
+    ZNRecordStringPool pool = new ZNRecordStringPool(EnumSet.of(FieldClass.MAP_FIELDS),
+        ZNRecordStringPool.DEFAULT_MAX_SIZE);
+    String master = new String("MASTER");
+    Assert.assertSame(pool.intern(master, FieldClass.MAP_FIELDS), master);
+    Assert.assertSame(pool.intern(new String("MASTER"), FieldClass.MAP_FIELDS), master);
+    Assert.assertSame(pool.intern(new String("MASTER"), FieldClass.MAP_FIELDS), master);
+    // the values of the other field classes are not pooled
+    String slave = new String("SLAVE");
+    Assert.assertSame(pool.intern(slave, FieldClass.SIMPLE_FIELDS), slave);
+    Assert.assertNull(pool.intern(null, FieldClass.MAP_FIELDS));
+
+    Assert.assertEquals(pool.getSize(), 1);
+    Assert.assertEquals(pool.getHitCount(), 2L);
+    Assert.assertEquals(pool.getMissCount(), 1L);
+    Assert.assertEquals(pool.getHitRatio(), 2.0d / 3, 1e-9);
+
+    ZNRecordStringPoolMonitor monitor = new ZNRecordStringPoolMonitor(pool);
+    monitor.register();
+    try {
+      Assert.assertSame(pool.intern("MASTER"), master);
+      Assert.assertEquals(monitor.getAttribute("PoolSizeGauge"), 1L);
+      Assert.assertEquals(monitor.getAttribute("HitCounter"), 3L);
+      Assert.assertEquals(monitor.getAttribute("MissCounter"), 1L);
+      Assert.assertEquals((double) monitor.getAttribute("HitRatioGauge"), 0.75d, 1e-9);
+    } finally {
+      monitor.unregister();
+    }
+  }
+
+  @Test
+  public void testBoundAndWeakReference() throws Exception {
+    ZNRecordStringPool pool = new ZNRecordStringPool(EnumSet.allOf(FieldClass.class), 64);
+    List<String> values = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      values.add(pool.intern("instance_" + i));
+    }
+    Assert.assertTrue(pool.getSize() <= 64);
+    Assert.assertTrue(pool.getSize() > 0);
+
+    // the pooled strings are removed once they are not used
+    values.clear();
+    for (int i = 0; i < 100 && pool.getSize() > 0; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(pool.getSize(), 0);
+  }
+
+  @Test
+  public void testDeserializers() {
+    ZNRecordStringPool pool =
+        new ZNRecordStringPool(EnumSet.of(FieldClass.MAP_FIELDS, FieldClass.LIST_FIELDS),
+            ZNRecordStringPool.DEFAULT_MAX_SIZE);
+    ZNRecordStringPool.setInstance(pool);
+
+    ZNRecord record = new ZNRecord("TestDB");
+    record.setSimpleField("STATE_MODEL_DEF_REF", "MasterSlave");
+    Map<String, String> stateMap = new TreeMap<>();
+    stateMap.put("localhost_12918", "MASTER");
+    stateMap.put("localhost_12919", "SLAVE");
+    record.setMapField("TestDB_0", stateMap);
+    record.setListField("TestDB_0", Arrays.asList("localhost_12918", "localhost_12919"));
+
+    for (ZkSerializer serializer : Arrays.asList(new ZNRecordSerializer(),
+        new ZNRecordStreamingSerializer(), new ZNRecordJacksonSerializer(),
+        new ZNRecordPooledSerializer())) {
+      byte[] bytes = serializer.serialize(record);
+      ZNRecord record1 = (ZNRecord) serializer.deserialize(bytes);
+      ZNRecord record2 = (ZNRecord) serializer.deserialize(bytes);
+      Assert.assertEquals(record1, record);
+      Assert.assertEquals(record2.getMapFields(), record.getMapFields());
+      Assert.assertEquals(record2.getListFields(), record.getListFields());
+
+      String serializerName = serializer.getClass().getSimpleName();
+      Assert.assertSame(record1.getMapField("TestDB_0").get("localhost_12918"),
+          record2.getMapField("TestDB_0").get("localhost_12918"), serializerName);
+      Assert.assertSame(record1.getListField("TestDB_0").get(1),
+          record2.getListField("TestDB_0").get(1), serializerName);
+      // a list value and a map key are the same string
+      Assert.assertSame(record1.getListField("TestDB_0").get(0),
+          record2.getListField("TestDB_0").get(0), serializerName);
+      Assert.assertNotSame(record1.getSimpleField("STATE_MODEL_DEF_REF"),
+          record2.getSimpleField("STATE_MODEL_DEF_REF"), serializerName);
+    }
+    Assert.assertTrue(pool.getHitCount() > 0);
+  }
+}
@@ -0,0 +1,121 @@
+package org.apache.helix.zookeeper.impl.factory;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.apache.zookeeper.Watcher;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class TestZkWatcherPathIndex {
+  private final Watcher _watcherA = event -> { };
+  private final Watcher _watcherB = event -> { };
+  private final Watcher _watcherC = event -> { };
+
+  @Test
+  public void testPathAndSubtreeWatchers() {
+    ZkWatcherPathIndex index = new ZkWatcherPathIndex();
+    Assert.assertTrue(index.isEmpty());
+    Assert.assertTrue(index.add("/cluster/IDEALSTATES/db", _watcherA, false));
+    Assert.assertFalse(index.add("/cluster/IDEALSTATES/db", _watcherA, false));
+    Assert.assertTrue(index.add("/cluster/IDEALSTATES", _watcherB, true));
+    Assert.assertTrue(index.add("/", _watcherC, false));
+
+    Assert.assertEquals(index.getWatchers("/cluster/IDEALSTATES/db"),
+        new HashSet<>(Arrays.asList(_watcherA, _watcherB)));
+    Assert.assertEquals(index.getWatchers("/cluster/IDEALSTATES"),
+        Collections.singleton(_watcherB));
+    Assert.assertEquals(index.getWatchers("/cluster/IDEALSTATES/db/child"),
+        Collections.singleton(_watcherB));
+    // A watcher does not receive the events of the parent or the siblings of its path
+    Assert.assertTrue(index.getWatchers("/cluster").isEmpty());
+    Assert.assertTrue(index.getWatchers("/cluster/CONFIGS").isEmpty());
+    Assert.assertEquals(index.getWatchers("/cluster/IDEALSTATES/db2"),
+        Collections.singleton(_watcherB));
+    Assert.assertEquals(index.getWatchers("/"), Collections.singleton(_watcherC));
+
+    // A recursive registration on the root covers every path
+    Assert.assertTrue(index.add("/", _watcherA, true));
+    Assert.assertEquals(index.getWatchers("/cluster"), Collections.singleton(_watcherA));
+    Assert.assertTrue(index.remove("/", _watcherA, true));
+    Assert.assertFalse(index.remove("/", _watcherA, true));
+    Assert.assertTrue(index.getWatchers("/cluster").isEmpty());
+  }
+
+  @Test
+  public void testRemove() {
+    ZkWatcherPathIndex index = new ZkWatcherPathIndex();
+    index.add("/cluster/IDEALSTATES/db", _watcherA, false);
+    index.add("/cluster/IDEALSTATES/db", _watcherB, false);
+    index.add("/cluster/CONFIGS", _watcherA, true);
+
+    // The registration type has to match
+    Assert.assertFalse(index.remove("/cluster/CONFIGS", _watcherA, false));
+    Assert.assertFalse(index.remove("/cluster/LIVEINSTANCES", _watcherA, false));
+    Assert.assertTrue(index.remove("/cluster/IDEALSTATES/db", _watcherB, false));
+    Assert.assertEquals(index.getWatchers("/cluster/IDEALSTATES/db"),
+        Collections.singleton(_watcherA));
+
+    index.removeAll(_watcherA);
+    Assert.assertTrue(index.getWatchers("/cluster/IDEALSTATES/db").isEmpty());
+    Assert.assertTrue(index.getWatchers("/cluster/CONFIGS/instance").isEmpty());
+    // The paths without any watcher are pruned
+    Assert.assertTrue(index.isEmpty());
+  }
+
+  @Test
+  public void testConcurrentRegistration() throws InterruptedException {
+    ZkWatcherPathIndex index = new ZkWatcherPathIndex();
+    int threadCount = 8;
+    int pathCount = 200;
+    Thread[] threads = new Thread[threadCount];
+    Watcher[] watchers = new Watcher[threadCount];
+    for (int i = 0; i < threadCount; i++) {
+      Watcher watcher = event -> { };
+      watchers[i] = watcher;
+      threads[i] = new Thread(() -> {
+        for (int p = 0; p < pathCount; p++) {
+          index.add("/cluster/INSTANCES/instance_" + p, watcher, false);
+        }
+        // Remove the odd paths
+        for (int p = 1; p < pathCount; p += 2) {
+          index.remove("/cluster/INSTANCES/instance_" + p, watcher, false);
+        }
+      });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    for (int p = 0; p < pathCount; p++) {
+      Assert.assertEquals(index.getWatchers("/cluster/INSTANCES/instance_" + p),
+          p % 2 == 0 ? new HashSet<>(Arrays.asList(watchers)) : Collections.emptySet());
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testInvalidPath() {
+    new ZkWatcherPathIndex().add("cluster", _watcherA, false);
+  }
+}
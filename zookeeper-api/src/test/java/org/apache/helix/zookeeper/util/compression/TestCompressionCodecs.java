@@ -0,0 +1,232 @@
+package org.apache.helix.zookeeper.util.compression;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.zip.GZIPOutputStream;
+import javax.management.MBeanServer;
+
+import org.apache.helix.zookeeper.constant.ZkSystemPropertyKeys;
+import org.apache.helix.zookeeper.datamodel.ZNRecord;
+import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordPooledSerializer;
+import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordSerializer;
+import org.apache.helix.zookeeper.datamodel.serializer.ZNRecordStreamingSerializer;
+import org.apache.helix.zookeeper.util.GZipCompressionUtil;
+import org.apache.helix.zookeeper.zkclient.metric.CompressionCodecMonitor;
+import org.apache.helix.zookeeper.zkclient.serialize.BasicZkSerializer;
+import org.apache.helix.zookeeper.zkclient.serialize.ZkSerializer;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+public class TestCompressionCodecs {
+
+  @AfterMethod
+  public void afterMethod() {
+    System.clearProperty(ZkSystemPropertyKeys.ZK_SERIALIZER_ZNRECORD_COMPRESSION_CODEC);
+    System.clearProperty(ZkSystemPropertyKeys.ZK_SERIALIZER_ZNRECORD_COMPRESSION_CODEC_PATHS);
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    Random random = new Random(0);
+    byte[] randomBytes = new byte[10000];
+    random.nextBytes(randomBytes);
+    byte[][] inputs = {new byte[0], "a".getBytes(), createRecordBytes(1000), randomBytes};
+    for (CompressionCodec codec : Arrays.asList(CompressionCodecs.GZIP,
+        CompressionCodecs.DEFLATE, CompressionCodecs.DEFLATE_DICTIONARY)) {
+      for (byte[] input : inputs) {
+        byte[] compressed = CompressionCodecs.compress(input, 0, input.length, codec);
+        Assert.assertTrue(CompressionCodecs.isCompressed(compressed));
+        Assert.assertEquals(CompressionCodecs.uncompress(compressed), input, codec.getName());
+      }
+      // compress a slice of the array
+      byte[] input = createRecordBytes(10);
+      byte[] compressed = CompressionCodecs.compress(input, 5, input.length - 10, codec);
+      Assert.assertEquals(CompressionCodecs.uncompress(compressed),
+          Arrays.copyOfRange(input, 5, input.length - 5));
+    }
+
+    // an empty payload is empty data, and a written length beyond what the payload can inflate
+    // to is rejected before allocating it
+    for (CompressionCodec codec : Arrays.asList(CompressionCodecs.DEFLATE,
+        CompressionCodecs.DEFLATE_DICTIONARY)) {
+      Assert.assertEquals(codec.uncompress(new byte[0], 0, 0), new byte[0]);
+      byte[] input = createRecordBytes(10);
+      byte[] compressed = CompressionCodecs.compress(input, 0, input.length, codec);
+      compressed[3] = (byte) 0x7f;
+      try {
+        CompressionCodecs.uncompress(compressed);
+        Assert.fail("Should fail to uncompress the data with an invalid length");
+      } catch (IOException expected) {
+        Assert.assertTrue(expected.getMessage().startsWith("Invalid uncompressed length"));
+      }
+    }
+
+    // the dictionary compresses a small record better
+    byte[] record = createRecordBytes(3);
+    Assert.assertTrue(CompressionCodecs.compress(record, 0, record.length,
+        CompressionCodecs.DEFLATE_DICTIONARY).length < CompressionCodecs
+        .compress(record, 0, record.length, CompressionCodecs.DEFLATE).length);
+
+    Assert.assertFalse(CompressionCodecs.isCompressed(record));
+    try {
+      CompressionCodecs.uncompress(record);
+      Assert.fail("Should fail to uncompress the data that is not compressed");
+    } catch (IOException expected) {
+      // expected
+    }
+    byte[] unknownCodec = {CompressionCodecs.FRAME_MAGIC[0], CompressionCodecs.FRAME_MAGIC[1], 99};
+    try {
+      CompressionCodecs.uncompress(unknownCodec);
+      Assert.fail("Should fail to uncompress the data of an unknown codec");
+    } catch (IOException expected) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testGzipCompatibility() throws IOException {
+    byte[] input = createRecordBytes(1000);
+    // the gzip data is not framed, so the older versions read it
+    byte[] compressed = CompressionCodecs.compress(input, 0, input.length, CompressionCodecs.GZIP);
+    Assert.assertTrue(GZipCompressionUtil.isCompressed(compressed));
+    Assert.assertEquals(GZipCompressionUtil.uncompress(new ByteArrayInputStream(compressed)),
+        input);
+    Assert.assertEquals(CompressionCodecs.uncompress(GZipCompressionUtil.compress(input)), input);
+
+    // the gzip data with the optional header fields and concatenated members
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(baos)) {
+      gzipOutputStream.write(input, 0, 100);
+    }
+    baos.write(GZipCompressionUtil.compress(Arrays.copyOfRange(input, 100, input.length)));
+    byte[] concatenated = baos.toByteArray();
+    Assert.assertEquals(CompressionCodecs.uncompress(concatenated), input);
+    byte[] withName = concatenated.clone();
+    withName[3] = 8; // FNAME
+    byte[] named = new byte[withName.length + 2];
+    System.arraycopy(withName, 0, named, 0, 10);
+    named[10] = 'a';
+    named[11] = 0;
+    System.arraycopy(withName, 10, named, 12, withName.length - 10);
+    Assert.assertEquals(CompressionCodecs.uncompress(named), input);
+
+    // a corrupted CRC is detected
+    compressed[compressed.length - 8]++;
+    try {
+      CompressionCodecs.uncompress(compressed);
+      Assert.fail("Should fail to uncompress the corrupted data");
+    } catch (IOException expected) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testCodecForPath() {
+    Assert.assertSame(CompressionCodecs.getCodecForPath("/cluster/IDEALSTATES/db"),
+        CompressionCodecs.GZIP);
+    System.setProperty(ZkSystemPropertyKeys.ZK_SERIALIZER_ZNRECORD_COMPRESSION_CODEC, "DEFLATE");
+    System.setProperty(ZkSystemPropertyKeys.ZK_SERIALIZER_ZNRECORD_COMPRESSION_CODEC_PATHS,
+        ".*/CURRENTSTATES/.*=DEFLATE_DICTIONARY, .*/IDEALSTATES/.*=GZIP,invalid,.*/X/.*=UNKNOWN");
+    Assert.assertSame(CompressionCodecs.getCodecForPath("/cluster/IDEALSTATES/db"),
+        CompressionCodecs.GZIP);
+    Assert.assertSame(
+        CompressionCodecs.getCodecForPath("/cluster/INSTANCES/i/CURRENTSTATES/s/db"),
+        CompressionCodecs.DEFLATE_DICTIONARY);
+    Assert.assertSame(CompressionCodecs.getCodecForPath("/cluster/EXTERNALVIEW/db"),
+        CompressionCodecs.DEFLATE);
+    Assert.assertSame(CompressionCodecs.getCodecForPath(null), CompressionCodecs.DEFLATE);
+    // an unknown codec falls back to gzip
+    Assert.assertSame(CompressionCodecs.getCodecForPath("/cluster/X/db"),
+        CompressionCodecs.GZIP);
+
+    try {
+      CompressionCodecs.register(new DeflateCompressionCodec("DEFLATE", (byte) 3, 1, null));
+      Assert.fail("Should fail to register a codec with a registered name");
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+    try {
+      CompressionCodecs.register(new DeflateCompressionCodec("OTHER", (byte) 1, 1, null));
+      Assert.fail("Should fail to register a codec with a registered id");
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testSerializers() throws Exception {
+    System.setProperty(ZkSystemPropertyKeys.ZK_SERIALIZER_ZNRECORD_COMPRESSION_CODEC_PATHS,
+        ".*/EXTERNALVIEW/.*=DEFLATE_DICTIONARY");
+    String path = "/cluster/EXTERNALVIEW/db";
+    ZNRecord record = createRecord(100);
+    record.setBooleanField(ZNRecord.ENABLE_COMPRESSION_BOOLEAN_FIELD, true);
+    ZkSerializer[] serializers = {new ZNRecordSerializer(), new ZNRecordStreamingSerializer(),
+        new ZNRecordPooledSerializer()};
+
+    MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    long compressionCount = (long) mBeanServer
+        .getAttribute(CompressionCodecMonitor.getObjectName("DEFLATE_DICTIONARY"),
+            "CompressionCounter");
+    for (ZkSerializer serializer : serializers) {
+      byte[] dictionaryBytes = new BasicZkSerializer(serializer).serialize(record, path);
+      Assert.assertEquals(dictionaryBytes[2], CompressionCodecs.DEFLATE_DICTIONARY.getId());
+      byte[] gzipBytes = serializer.serialize(record);
+      Assert.assertTrue(GZipCompressionUtil.isCompressed(gzipBytes));
+      // every serializer reads the data of every codec
+      for (ZkSerializer reader : serializers) {
+        Assert.assertEquals(reader.deserialize(dictionaryBytes), record);
+        Assert.assertEquals(reader.deserialize(gzipBytes), record);
+      }
+    }
+    Assert.assertEquals((long) mBeanServer
+        .getAttribute(CompressionCodecMonitor.getObjectName("DEFLATE_DICTIONARY"),
+            "CompressionCounter"), compressionCount + serializers.length);
+    Assert.assertTrue((double) mBeanServer
+        .getAttribute(CompressionCodecMonitor.getObjectName("DEFLATE_DICTIONARY"),
+            "CompressionRatioGauge") > 1.0);
+  }
+
+  private static ZNRecord createRecord(int partitionCount) {
+    ZNRecord record = new ZNRecord("db");
+    record.setSimpleField("STATE_MODEL_DEF_REF", "MasterSlave");
+    record.setSimpleField("NUM_PARTITIONS", Integer.toString(partitionCount));
+    for (int i = 0; i < partitionCount; i++) {
+      Map<String, String> instanceStates = new TreeMap<>();
+      instanceStates.put("localhost_" + (12918 + i % 5), "MASTER");
+      instanceStates.put("localhost_" + (12918 + (i + 1) % 5), "SLAVE");
+      record.setMapField("db_" + i, instanceStates);
+    }
+    return record;
+  }
+
+  private static byte[] createRecordBytes(int partitionCount) {
+    return new ZNRecordSerializer().serialize(createRecord(partitionCount));
+  }
+}
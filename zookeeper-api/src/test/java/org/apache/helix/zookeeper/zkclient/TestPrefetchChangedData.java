@@ -19,13 +19,16 @@ package org.apache.helix.zookeeper.zkclient;
  * under the License.
  */
 
+import java.lang.management.ManagementFactory;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import javax.management.ObjectName;
 
 import org.apache.helix.zookeeper.impl.TestHelper;
 import org.apache.helix.zookeeper.impl.ZkTestBase;
 import org.apache.helix.zookeeper.impl.client.ZkClient;
 import org.apache.helix.zookeeper.zkclient.annotation.PreFetchChangedData;
+import org.apache.helix.zookeeper.zkclient.metric.ZkClientMonitor;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -76,8 +79,44 @@ public class TestPrefetchChangedData extends ZkTestBase {
     }
   }
 
+  @Test
+  public void testPrefetchChangedDataSharedByListeners() throws Exception {
+    String path = "/" + TestHelper.getTestMethodName();
+    String monitorKey = TestHelper.getTestMethodName();
+    ZkClient zkClient = new ZkClient.Builder().setZkServer(ZkTestBase.ZK_ADDR)
+        .setMonitorType("TestPrefetch").setMonitorKey(monitorKey).build();
+
+    try {
+      zkClient.createPersistent(path, "v1");
+
+      CountDownLatch countDownLatch = new CountDownLatch(3);
+      PreFetchZkDataListener dataListener1 = new PreFetchZkDataListener(countDownLatch);
+      PreFetchZkDataListener dataListener2 = new PreFetchZkDataListener(countDownLatch);
+      PreFetchZkDataListener dataListener3 = new PreFetchDisabledZkDataListener(countDownLatch);
+      zkClient.subscribeDataChanges(path, dataListener1);
+      zkClient.subscribeDataChanges(path, dataListener2);
+      zkClient.subscribeDataChanges(path, dataListener3);
+      zkClient.writeData(path, "v2");
+
+      Assert.assertTrue(countDownLatch.await(3L, TimeUnit.SECONDS));
+
+      // The data is read once and shared by the prefetch listeners
+      Assert.assertEquals(dataListener1.getData(), "v2");
+      Assert.assertSame(dataListener1.getData(), dataListener2.getData());
+      Assert.assertFalse(dataListener3.isDataPreFetched());
+      ObjectName name = ZkClientMonitor.getObjectName("TestPrefetch", monitorKey, null);
+      Assert.assertEquals((long) ManagementFactory.getPlatformMBeanServer()
+          .getAttribute(name, "PrefetchDedupCounter"), 1L);
+    } finally {
+      zkClient.unsubscribeAll();
+      zkClient.delete(path);
+      zkClient.close();
+    }
+  }
+
   private static class PreFetchZkDataListener implements IZkDataListener {
     private boolean isDataPreFetched;
+    private Object data;
     private CountDownLatch countDownLatch;
 
     public PreFetchZkDataListener(CountDownLatch countDownLatch) {
@@ -87,6 +126,7 @@ public class TestPrefetchChangedData extends ZkTestBase {
     @Override
     public void handleDataChange(String dataPath, Object data) throws Exception {
       isDataPreFetched = (data != null);
+      this.data = data;
       countDownLatch.countDown();
     }
 
@@ -98,6 +138,10 @@ public class TestPrefetchChangedData extends ZkTestBase {
     public boolean isDataPreFetched() {
       return isDataPreFetched;
     }
+
+    public Object getData() {
+      return data;
+    }
   }
 
   @PreFetchChangedData(enabled = false)
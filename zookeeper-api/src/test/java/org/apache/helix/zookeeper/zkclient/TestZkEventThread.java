@@ -0,0 +1,139 @@
+package org.apache.helix.zookeeper.zkclient;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestZkEventThread {
+  private static final int LANE_COUNT = 4;
+  private static final int EVENT_COUNT = 100;
+
+  @Test
+  public void testPerKeyOrdering() throws InterruptedException {
+    ZkEventThread eventThread = new ZkEventThread("TestPerKeyOrdering", LANE_COUNT);
+    eventThread.start();
+    try {
+      Assert.assertEquals(eventThread.getLaneCount(), LANE_COUNT);
+      List<List<Integer>> delivered = new ArrayList<>();
+      CountDownLatch done = new CountDownLatch(LANE_COUNT * EVENT_COUNT);
+      for (int key = 0; key < LANE_COUNT; key++) {
+        delivered.add(Collections.synchronizedList(new ArrayList<Integer>()));
+      }
+      for (int i = 0; i < EVENT_COUNT; i++) {
+        for (int key = 0; key < LANE_COUNT; key++) {
+          final List<Integer> keyDelivered = delivered.get(key);
+          final int sequence = i;
+          eventThread.send(new ZkEventThread.ZkEvent("Event " + i, null, key) {
+            @Override
+            public void run() {
+              keyDelivered.add(sequence);
+              done.countDown();
+            }
+          });
+        }
+      }
+      Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+      for (List<Integer> keyDelivered : delivered) {
+        Assert.assertEquals(keyDelivered.size(), EVENT_COUNT);
+        for (int i = 0; i < EVENT_COUNT; i++) {
+          Assert.assertEquals(keyDelivered.get(i).intValue(), i);
+        }
+      }
+      long handledCount = 0;
+      for (int lane = 0; lane < LANE_COUNT; lane++) {
+        handledCount += eventThread.getLaneHandledEventCount(lane);
+      }
+      Assert.assertEquals(handledCount, LANE_COUNT * EVENT_COUNT);
+    } finally {
+      eventThread.interrupt();
+    }
+  }
+
+  @Test
+  public void testSlowLaneAndBarrier() throws InterruptedException {
+    ZkEventThread eventThread = new ZkEventThread("TestSlowLaneAndBarrier", LANE_COUNT);
+    eventThread.start();
+    try {
+      CountDownLatch blocked = new CountDownLatch(1);
+      CountDownLatch release = new CountDownLatch(1);
+      eventThread.send(new ZkEventThread.ZkEvent("Slow event", null, 0) {
+        @Override
+        public void run() throws Exception {
+          blocked.countDown();
+          release.await();
+        }
+      });
+      Assert.assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+      // The events of the other lanes are delivered while the first lane is blocked
+      CountDownLatch otherLane = new CountDownLatch(1);
+      eventThread.send(new ZkEventThread.ZkEvent("Other lane event", null, 1) {
+        @Override
+        public void run() {
+          otherLane.countDown();
+        }
+      });
+      Assert.assertTrue(otherLane.await(10, TimeUnit.SECONDS));
+
+      // An event without a lane key waits for the events sent before it
+      CountDownLatch barrier = new CountDownLatch(1);
+      eventThread.send(new ZkEventThread.ZkEvent("Barrier event") {
+        @Override
+        public void run() {
+          barrier.countDown();
+        }
+      });
+      Assert.assertFalse(barrier.await(200, TimeUnit.MILLISECONDS));
+      Assert.assertEquals(eventThread.getLanePendingEventsCount(0), 0);
+      release.countDown();
+      Assert.assertTrue(barrier.await(10, TimeUnit.SECONDS));
+      Assert.assertTrue(eventThread.getLaneHandlingLatency(0) >= 200);
+    } finally {
+      eventThread.interrupt();
+    }
+  }
+
+  @Test
+  public void testNoLanes() throws InterruptedException {
+    ZkEventThread eventThread = new ZkEventThread("TestNoLanes", 1);
+    eventThread.start();
+    try {
+      Assert.assertEquals(eventThread.getLaneCount(), 0);
+      CountDownLatch done = new CountDownLatch(1);
+      eventThread.send(new ZkEventThread.ZkEvent("Keyed event", null, "key") {
+        @Override
+        public void run() {
+          Assert.assertSame(Thread.currentThread(), eventThread);
+          done.countDown();
+        }
+      });
+      Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+    } finally {
+      eventThread.interrupt();
+    }
+  }
+}